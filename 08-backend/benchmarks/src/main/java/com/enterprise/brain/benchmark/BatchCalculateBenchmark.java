@@ -0,0 +1,98 @@
+package com.enterprise.brain.benchmark;
+
+import com.enterprise.brain.common.cache.TwoLevelCacheManager;
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import com.enterprise.brain.modules.smart-table.repository.TableFormulaRepository;
+import com.enterprise.brain.modules.smart-table.service.impl.TableFormulaServiceImpl;
+import com.enterprise.brain.modules.smart-table.util.FormulaEngine;
+import com.enterprise.brain.modules.smart-table.util.WavefrontRecalculator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TableFormulaServiceImpl.batchCalculateFormulas基准：整表批量计算
+ *
+ * <p>服务在Spring容器外直接构造，公式仓库用只返回合成公式的动态代理代替，不访问数据库，
+ * 也不配置Redis失效广播。
+ * coldEngine=true时每次调用前清空公式引擎的编译缓存，衡量首次计算；
+ * 为false时衡量复用编译结果的重复计算（仪表盘刷新场景）。</p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class BatchCalculateBenchmark {
+
+    @Param({"100", "10000", "100000", "1000000"})
+    private int cells;
+
+    @Param({"ARITHMETIC", "RANGE", "LOOKUP", "MIXED"})
+    private SyntheticSheet.FormulaMix mix;
+
+    @Param({"true", "false"})
+    private boolean coldEngine;
+
+    private Map<String, String> cellValues;
+    private FormulaEngine formulaEngine;
+    private WavefrontRecalculator recalculator;
+    private TableFormulaServiceImpl service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticSheet sheet = SyntheticSheet.generate(cells, mix);
+        cellValues = sheet.getCellValues();
+        formulaEngine = new FormulaEngine();
+        recalculator = new WavefrontRecalculator(formulaEngine, 0, 256);
+        service = new TableFormulaServiceImpl(repositoryOf(sheet.getFormulas()), formulaEngine, recalculator,
+                null, new ConcurrentMapCacheManager(),
+                new StaticListableBeanFactory().getBeanProvider(TwoLevelCacheManager.class), 1000L);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetEngine() {
+        if (coldEngine) {
+            formulaEngine.clear();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        recalculator.destroy();
+    }
+
+    @Benchmark
+    public Map<String, String> batchCalculateFormulas() {
+        return service.batchCalculateFormulas(SyntheticSheet.TABLE_ID, cellValues);
+    }
+
+    /**
+     * 只实现findByTableId的公式仓库，其余方法不应在批量计算中被调用
+     */
+    private static TableFormulaRepository repositoryOf(List<TableFormula> formulas) {
+        return (TableFormulaRepository) Proxy.newProxyInstance(
+                TableFormulaRepository.class.getClassLoader(),
+                new Class<?>[]{TableFormulaRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findByTableId":
+                            return formulas;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "SyntheticTableFormulaRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,47 @@
+package com.enterprise.brain.benchmark;
+
+import com.enterprise.brain.modules.smart-table.util.CellReference;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CellReference基准：引用字符串解析与格式化
+ *
+ * <p>在1024个不同的引用（含单字母、双字母列和1到6位行号）之间轮换，避免只测到单一输入。</p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CellReferenceBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+
+    private final String[] keys = new String[SIZE];
+    private final CellReference[] references = new CellReference[SIZE];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < SIZE; i++) {
+            int column = (i * 7) % 52;                 // A..Z, AA..AZ
+            int row = (int) Math.pow(10, i % 6) + i;   // 1到6位行号
+            references[i] = new CellReference(row - 1, column);
+            keys[i] = references[i].toString();
+        }
+    }
+
+    @Benchmark
+    public CellReference fromString() {
+        return CellReference.fromString(keys[next++ & MASK]);
+    }
+
+    @Benchmark
+    public String toStringReference() {
+        return references[next++ & MASK].toString();
+    }
+}
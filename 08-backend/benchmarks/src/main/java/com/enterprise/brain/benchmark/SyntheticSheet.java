@@ -0,0 +1,133 @@
+package com.enterprise.brain.benchmark;
+
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import com.enterprise.brain.modules.smart-table.util.CellReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成表格
+ *
+ * <p>数据区为A到J共10列：A列为行号（唯一，供VLOOKUP精确查找），B到I列为两位小数，
+ * J列为少量重复的文本。每行一个公式，输出到K列。数据使用固定随机种子生成，多次运行结果可比。</p>
+ */
+public final class SyntheticSheet {
+
+    /** 数据列数（A到J） */
+    public static final int DATA_COLUMNS = 10;
+    /** 公式输出列（K） */
+    public static final String OUTPUT_COLUMN = "K";
+    public static final long TABLE_ID = 1L;
+
+    /**
+     * 公式类型组合
+     */
+    public enum FormulaMix {
+        /** 行内四则运算，如"=A1*B1+C1/(D1+1)" */
+        ARITHMETIC,
+        /** 区域聚合，如"=SUM(B1:B100)"，每100行一个整列聚合 */
+        RANGE,
+        /** 精确查找，如"=VLOOKUP(57,A1:C1000,3,FALSE)" */
+        LOOKUP,
+        /** 以上三种轮换，并加入引用上一行公式结果的依赖链 */
+        MIXED
+    }
+
+    private final int rows;
+    private final Map<String, String> cellValues;
+    private final List<TableFormula> formulas;
+
+    private SyntheticSheet(int rows, Map<String, String> cellValues, List<TableFormula> formulas) {
+        this.rows = rows;
+        this.cellValues = cellValues;
+        this.formulas = formulas;
+    }
+
+    /**
+     * 生成合成表格
+     * @param cells 数据单元格数量（行数 = cells / 10）
+     * @param mix 公式类型组合
+     * @return 合成表格
+     */
+    public static SyntheticSheet generate(int cells, FormulaMix mix) {
+        int rows = Math.max(1, cells / DATA_COLUMNS);
+        Random random = new Random(42L);
+
+        Map<String, String> cellValues = new HashMap<>(rows * DATA_COLUMNS * 4 / 3 + 1);
+        for (int row = 1; row <= rows; row++) {
+            cellValues.put("A" + row, Integer.toString(row));
+            for (int column = 1; column < DATA_COLUMNS - 1; column++) {
+                String value = Integer.toString(random.nextInt(100000)) + "." + (10 + random.nextInt(90));
+                cellValues.put(CellReference.columnName(column) + row, value);
+            }
+            cellValues.put("J" + row, "item-" + (row % 16));
+        }
+
+        List<TableFormula> formulas = new ArrayList<>(rows);
+        for (int row = 1; row <= rows; row++) {
+            formulas.add(TableFormula.builder()
+                    .id((long) row)
+                    .tableId(TABLE_ID)
+                    .columnId((long) row)
+                    .cellId(OUTPUT_COLUMN + row)
+                    .formulaExpression(expression(mix, row, rows, random))
+                    .build());
+        }
+
+        return new SyntheticSheet(rows, Collections.unmodifiableMap(cellValues), Collections.unmodifiableList(formulas));
+    }
+
+    private static String expression(FormulaMix mix, int row, int rows, Random random) {
+        switch (mix) {
+            case ARITHMETIC:
+                return "=A" + row + "*B" + row + "+C" + row + "/(D" + row + "+1)";
+            case RANGE:
+                if (row % 100 == 0) {
+                    return "=AVERAGE(C1:C" + rows + ")";
+                }
+                return "=SUM(B" + row + ":B" + Math.min(rows, row + 99) + ")";
+            case LOOKUP:
+                return "=VLOOKUP(" + (1 + random.nextInt(rows)) + ",A1:C" + rows + ",3,FALSE)";
+            case MIXED:
+            default:
+                switch (row % 4) {
+                    case 0:
+                        return expression(FormulaMix.ARITHMETIC, row, rows, random);
+                    case 1:
+                        return expression(FormulaMix.RANGE, row, rows, random);
+                    case 2:
+                        return expression(FormulaMix.LOOKUP, row, rows, random);
+                    default:
+                        return row > 1 ? "=" + OUTPUT_COLUMN + (row - 1) + "+E" + row : "=E" + row;
+                }
+        }
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public Map<String, String> getCellValues() {
+        return cellValues;
+    }
+
+    public List<TableFormula> getFormulas() {
+        return formulas;
+    }
+
+    /**
+     * @return 全部公式表达式（按行排列）
+     */
+    public String[] getExpressions() {
+        String[] expressions = new String[formulas.size()];
+        for (int i = 0; i < expressions.length; i++) {
+            expressions[i] = formulas.get(i).getFormulaExpression();
+        }
+        return expressions;
+    }
+}
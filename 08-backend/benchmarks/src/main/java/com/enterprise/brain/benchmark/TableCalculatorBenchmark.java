@@ -0,0 +1,48 @@
+package com.enterprise.brain.benchmark;
+
+import com.enterprise.brain.modules.smart-table.util.TableCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TableCalculator基准：以单元格值映射为输入计算单个公式
+ *
+ * <p>每次调用轮换计算表格中的下一个公式，衡量不经过批量计算和缓存的单公式开销。</p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class TableCalculatorBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    private int cells;
+
+    @Param({"ARITHMETIC", "RANGE", "LOOKUP", "MIXED"})
+    private SyntheticSheet.FormulaMix mix;
+
+    private Map<String, String> cellValues;
+    private String[] expressions;
+
+    @Setup
+    public void setUp() {
+        SyntheticSheet sheet = SyntheticSheet.generate(cells, mix);
+        cellValues = sheet.getCellValues();
+        expressions = sheet.getExpressions();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Benchmark
+    public String calculateFormula(Cursor cursor) {
+        String expression = expressions[cursor.next++ % expressions.length];
+        return TableCalculator.calculateFormula(expression, cellValues);
+    }
+}
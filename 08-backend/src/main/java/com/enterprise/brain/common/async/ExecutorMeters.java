@@ -0,0 +1,121 @@
+package com.enterprise.brain.common.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池指标的公共定义
+ *
+ * <p>所有指标都带name标签（线程池的Bean名称），与Micrometer的ExecutorServiceMetrics及Spring Boot
+ * 自动绑定的线程池指标使用相同的名称和标签：</p>
+ * <ul>
+ *   <li>executor.active、executor.queued、executor.completed、executor.pool.*：活跃数、排队数、完成数和池大小</li>
+ *   <li>executor.idle：任务从提交到开始执行的排队时间；executor：任务的执行时间（均带百分位直方图）</li>
+ *   <li>executor.rejected：线程和队列都已满（或已关闭）时被拒绝的任务数；
+ *       executor.caller.runs：其中由CallerRunsPolicy在提交线程中执行的任务数</li>
+ * </ul>
+ *
+ * <p>CallerRunsPolicy让提交线程自己执行任务，线程池饱和时只表现为调用方变慢。
+ * executor.idle升高说明任务开始排队，executor.caller.runs开始增长说明线程池已经饱和。</p>
+ */
+public final class ExecutorMeters {
+
+    private static final String TAG_NAME = "name";
+
+    private ExecutorMeters() {
+    }
+
+    /**
+     * 记录任务排队时间和执行时间的任务装饰器，提交任务时调用
+     */
+    public static TaskDecorator timing(MeterRegistry registry, String executorName) {
+        Timer idle = Timer.builder("executor.idle")
+                .description("Time tasks spent queued before they started running")
+                .tag(TAG_NAME, executorName)
+                .publishPercentileHistogram()
+                .register(registry);
+        Timer execution = Timer.builder("executor")
+                .description("Time tasks spent running")
+                .tag(TAG_NAME, executorName)
+                .publishPercentileHistogram()
+                .register(registry);
+        return task -> {
+            long queuedAt = System.nanoTime();
+            return () -> {
+                long startedAt = System.nanoTime();
+                idle.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } finally {
+                    execution.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            };
+        };
+    }
+
+    /**
+     * 包装拒绝策略，统计被拒绝的任务数以及由调用线程执行的任务数
+     */
+    public static RejectedExecutionHandler countingRejections(MeterRegistry registry, String executorName,
+                                                              RejectedExecutionHandler delegate) {
+        Counter rejected = Counter.builder("executor.rejected")
+                .description("Tasks rejected because the pool and its queue were full or shut down")
+                .tag(TAG_NAME, executorName)
+                .register(registry);
+        Counter callerRuns = Counter.builder("executor.caller.runs")
+                .description("Rejected tasks run on the submitting thread by CallerRunsPolicy")
+                .tag(TAG_NAME, executorName)
+                .register(registry);
+        boolean runsInCaller = delegate instanceof ThreadPoolExecutor.CallerRunsPolicy;
+        return (task, executor) -> {
+            rejected.increment();
+            if (runsInCaller && !executor.isShutdown()) {
+                callerRuns.increment();
+            }
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+
+    /**
+     * 绑定平台线程池的活跃数、排队数、完成数、池大小等指标
+     */
+    public static void monitor(MeterRegistry registry, ThreadPoolExecutor executor, String executorName) {
+        new ExecutorServiceMetrics(executor, executorName, Tags.empty()).bindTo(registry);
+    }
+
+    /**
+     * 绑定虚拟线程执行器的指标：排队数为等待并发许可的任务数，池大小上限为并发数上限
+     */
+    public static void monitor(MeterRegistry registry, VirtualThreadTaskExecutor executor, String executorName) {
+        Gauge.builder("executor.active", executor, VirtualThreadTaskExecutor::getActiveCount)
+                .description("The approximate number of tasks that are actively running")
+                .tag(TAG_NAME, executorName)
+                .register(registry);
+        Gauge.builder("executor.queued", executor, VirtualThreadTaskExecutor::getQueuedCount)
+                .description("The approximate number of tasks waiting for a concurrency permit")
+                .tag(TAG_NAME, executorName)
+                .register(registry);
+        Gauge.builder("executor.pool.max", executor, VirtualThreadTaskExecutor::getMaxConcurrency)
+                .description("The maximum number of tasks allowed to run at the same time")
+                .tag(TAG_NAME, executorName)
+                .register(registry);
+        FunctionCounter.builder("executor.completed", executor, VirtualThreadTaskExecutor::getCompletedCount)
+                .description("The approximate total number of tasks that have completed execution")
+                .tag(TAG_NAME, executorName)
+                .register(registry);
+        FunctionCounter.builder("executor.rejected", executor, VirtualThreadTaskExecutor::getRejectedCount)
+                .description("Tasks rejected because too many tasks were waiting for a permit or the executor was shut down")
+                .tag(TAG_NAME, executorName)
+                .register(registry);
+    }
+}
@@ -1,5 +1,8 @@
 package com.enterprise.brain.common.async;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -11,18 +14,50 @@ import java.util.concurrent.ThreadPoolExecutor;
 /**
  * 消息队列和异步配置
  *
+ * <p>taskExecutor和emailExecutor可以通过async.*.mode切换为虚拟线程模式（见{@link VirtualThreadTaskExecutor}），
+ * 适合以等待I/O为主的任务，并发数由max-concurrency限制，等待运行的任务数由max-pending限制；运行环境低于Java 21时仍使用平台线程池。
+ * scheduledExecutor固定使用平台线程池。</p>
+ *
+ * <p>每个线程池都以Bean名称为name标签发布排队数、活跃数、完成数、排队/执行耗时和拒绝次数等指标
+ * （见{@link ExecutorMeters}），CallerRunsPolicy的触发次数单独计数，线程池饱和可以在指标上直接看到。</p>
+ *
  * @author Enterprise Brain Team
  * @since 1.0.0
  */
+@Slf4j
 @Configuration
 @EnableAsync
 public class MessageQueueConfig {
 
+    private static final String MODE_VIRTUAL = "virtual";
+
+    @Value("${async.task-executor.mode:platform}")
+    private String taskExecutorMode;
+
+    @Value("${async.task-executor.max-concurrency:200}")
+    private int taskExecutorMaxConcurrency;
+
+    @Value("${async.task-executor.max-pending:10000}")
+    private int taskExecutorMaxPending;
+
+    @Value("${async.email-executor.mode:platform}")
+    private String emailExecutorMode;
+
+    @Value("${async.email-executor.max-concurrency:20}")
+    private int emailExecutorMaxConcurrency;
+
+    @Value("${async.email-executor.max-pending:1000}")
+    private int emailExecutorMaxPending;
+
     /**
      * 异步任务线程池
      */
     @Bean(name = "taskExecutor")
-    public Executor taskExecutor() {
+    public Executor taskExecutor(MeterRegistry meterRegistry) {
+        if (useVirtualThreads("taskExecutor", taskExecutorMode)) {
+            return virtualThreadExecutor("taskExecutor", "async-task-", taskExecutorMaxConcurrency,
+                    taskExecutorMaxPending, meterRegistry);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         // 核心线程数
@@ -41,7 +76,11 @@ public class MessageQueueConfig {
         executor.setThreadNamePrefix("async-task-");
         
         // 拒绝策略：由调用线程处理
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setRejectedExecutionHandler(ExecutorMeters.countingRejections(meterRegistry, "taskExecutor",
+                new ThreadPoolExecutor.CallerRunsPolicy()));
+        
+        // 记录任务排队和执行耗时
+        executor.setTaskDecorator(ExecutorMeters.timing(meterRegistry, "taskExecutor"));
         
         // 等待所有任务完成后再关闭线程池
         executor.setWaitForTasksToCompleteOnShutdown(true);
@@ -50,6 +89,7 @@ public class MessageQueueConfig {
         executor.setAwaitTerminationSeconds(60);
         
         executor.initialize();
+        ExecutorMeters.monitor(meterRegistry, executor.getThreadPoolExecutor(), "taskExecutor");
         return executor;
     }
 
@@ -57,7 +97,7 @@ public class MessageQueueConfig {
      * 定时任务线程池
      */
     @Bean(name = "scheduledExecutor")
-    public Executor scheduledExecutor() {
+    public Executor scheduledExecutor(MeterRegistry meterRegistry) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         executor.setCorePoolSize(5);
@@ -65,11 +105,14 @@ public class MessageQueueConfig {
         executor.setQueueCapacity(50);
         executor.setKeepAliveSeconds(60);
         executor.setThreadNamePrefix("scheduled-task-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setRejectedExecutionHandler(ExecutorMeters.countingRejections(meterRegistry, "scheduledExecutor",
+                new ThreadPoolExecutor.CallerRunsPolicy()));
+        executor.setTaskDecorator(ExecutorMeters.timing(meterRegistry, "scheduledExecutor"));
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(60);
         
         executor.initialize();
+        ExecutorMeters.monitor(meterRegistry, executor.getThreadPoolExecutor(), "scheduledExecutor");
         return executor;
     }
 
@@ -77,7 +120,11 @@ public class MessageQueueConfig {
      * 邮件发送线程池
      */
     @Bean(name = "emailExecutor")
-    public Executor emailExecutor() {
+    public Executor emailExecutor(MeterRegistry meterRegistry) {
+        if (useVirtualThreads("emailExecutor", emailExecutorMode)) {
+            return virtualThreadExecutor("emailExecutor", "email-task-", emailExecutorMaxConcurrency,
+                    emailExecutorMaxPending, meterRegistry);
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
         executor.setCorePoolSize(3);
@@ -85,9 +132,40 @@ public class MessageQueueConfig {
         executor.setQueueCapacity(100);
         executor.setKeepAliveSeconds(60);
         executor.setThreadNamePrefix("email-task-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setRejectedExecutionHandler(ExecutorMeters.countingRejections(meterRegistry, "emailExecutor",
+                new ThreadPoolExecutor.CallerRunsPolicy()));
+        executor.setTaskDecorator(ExecutorMeters.timing(meterRegistry, "emailExecutor"));
         
         executor.initialize();
+        ExecutorMeters.monitor(meterRegistry, executor.getThreadPoolExecutor(), "emailExecutor");
         return executor;
     }
+
+    /**
+     * 创建带指标的虚拟线程执行器
+     */
+    private static VirtualThreadTaskExecutor virtualThreadExecutor(String beanName, String threadNamePrefix,
+                                                                   int maxConcurrency, int maxPending,
+                                                                   MeterRegistry meterRegistry) {
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor(threadNamePrefix, maxConcurrency, maxPending, 60);
+        executor.setTaskDecorator(ExecutorMeters.timing(meterRegistry, beanName));
+        ExecutorMeters.monitor(meterRegistry, executor, beanName);
+        return executor;
+    }
+
+    /**
+     * 判断线程池是否使用虚拟线程模式，运行环境不支持时退回平台线程池
+     */
+    private static boolean useVirtualThreads(String executorName, String mode) {
+        if (!MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+            return false;
+        }
+        if (!VirtualThreadTaskExecutor.isSupported()) {
+            log.warn("Virtual threads are not available on Java {}, {} falls back to a platform thread pool",
+                    Runtime.version().feature(), executorName);
+            return false;
+        }
+        log.info("{} runs on virtual threads", executorName);
+        return true;
+    }
 }
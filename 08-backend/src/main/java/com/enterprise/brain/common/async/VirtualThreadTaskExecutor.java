@@ -0,0 +1,255 @@
+package com.enterprise.brain.common.async;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于虚拟线程的异步执行器，适合发邮件、调用Webhook等以等待I/O为主的任务
+ *
+ * <p>每个任务在一个新的虚拟线程中运行，不排队、不需要按线程数估算池大小。同时运行的任务数由信号量限制
+ * （保护下游的邮件服务器、连接池等）：超出限制的任务在自己的虚拟线程里等待许可，提交任务的线程不会被阻塞，
+ * 也不会像CallerRunsPolicy那样在请求线程中执行任务。</p>
+ *
+ * <p>等待许可的任务数同样有上限：下游长时间变慢时，等待的任务（及其持有的参数）不会无限堆积，
+ * 超出后提交直接抛出{@link TaskRejectedException}，并计入被拒绝的任务数。</p>
+ *
+ * <p>虚拟线程需要Java 21及以上的运行环境，项目按Java 17编译，因此通过反射创建虚拟线程工厂；
+ * 运行环境不支持时{@link #isSupported()}返回false，由调用方改用平台线程池。
+ * CPU密集型任务仍应使用平台线程池。</p>
+ */
+@Slf4j
+public class VirtualThreadTaskExecutor implements AsyncTaskExecutor, DisposableBean {
+
+    /** Thread.ofVirtual()，运行环境低于Java 21时为null */
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+    }
+
+    private final String name;
+    private final ThreadFactory threadFactory;
+    private final int maxConcurrency;
+    private final int maxPending;
+    private final Semaphore permits;
+    private final long awaitTerminationMillis;
+    /** 已提交但尚未结束的任务（包括等待许可的任务） */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final Object terminationLock = new Object();
+    private volatile boolean shutdown;
+    private TaskDecorator taskDecorator;
+
+    /**
+     * @param name 执行器名称，同时作为线程名前缀
+     * @param maxConcurrency 同时运行的任务数上限
+     * @param maxPending 等待并发许可的任务数上限
+     * @param awaitTerminationSeconds 关闭时等待未完成任务的最长时间（秒）
+     * @throws IllegalStateException 当运行环境不支持虚拟线程时抛出
+     */
+    public VirtualThreadTaskExecutor(String name, int maxConcurrency, int maxPending, long awaitTerminationSeconds) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, running on " + Runtime.version());
+        }
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        if (maxPending < 0) {
+            throw new IllegalArgumentException("maxPending must not be negative: " + maxPending);
+        }
+        this.name = name;
+        this.threadFactory = createThreadFactory(name);
+        this.maxConcurrency = maxConcurrency;
+        this.maxPending = maxPending;
+        this.permits = new Semaphore(maxConcurrency);
+        this.awaitTerminationMillis = TimeUnit.SECONDS.toMillis(awaitTerminationSeconds);
+    }
+
+    /**
+     * @return 运行环境是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    private static ThreadFactory createThreadFactory(String threadNamePrefix) {
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, threadNamePrefix, 0L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual thread factory", e);
+        }
+    }
+
+    /**
+     * 设置任务装饰器，在提交任务时调用，被装饰的任务在取得并发许可后执行
+     */
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (shutdown) {
+            rejected.incrementAndGet();
+            throw new TaskRejectedException("Executor [" + name + "] has been shut down");
+        }
+        if (inFlight.incrementAndGet() > maxConcurrency + maxPending) {
+            rejected.incrementAndGet();
+            finish();
+            throw new TaskRejectedException("Executor [" + name + "] has " + maxPending
+                    + " tasks waiting for a permit, rejecting new tasks");
+        }
+        Runnable decorated = taskDecorator != null ? taskDecorator.decorate(task) : task;
+        try {
+            threadFactory.newThread(() -> runWithPermit(decorated)).start();
+        } catch (RuntimeException | Error e) {
+            rejected.incrementAndGet();
+            finish();
+            throw new TaskRejectedException("Executor [" + name + "] could not start task", e);
+        }
+    }
+
+    /**
+     * 启动超时对虚拟线程没有意义，直接按普通任务提交
+     */
+    @Override
+    @Deprecated
+    public void execute(Runnable task, long startTimeout) {
+        execute(task);
+    }
+
+    private void runWithPermit(Runnable task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish();
+            return;
+        }
+        try {
+            task.run();
+        } finally {
+            completed.incrementAndGet();
+            permits.release();
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (inFlight.decrementAndGet() == 0 && shutdown) {
+            synchronized (terminationLock) {
+                terminationLock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    /**
+     * 停止接收新任务，并在awaitTerminationSeconds内等待已提交的任务结束
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        shutdown = true;
+        long deadline = System.currentTimeMillis() + awaitTerminationMillis;
+        synchronized (terminationLock) {
+            long remaining;
+            while (inFlight.get() > 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                terminationLock.wait(remaining);
+            }
+        }
+        if (inFlight.get() > 0) {
+            log.warn("Executor [{}] shut down with {} tasks still running", name, inFlight.get());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * @return 正在运行的任务数
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * @return 已提交但尚未结束的任务数（正在运行的加上等待许可的）
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return 等待并发许可的任务数
+     */
+    public int getQueuedCount() {
+        return Math.max(0, getInFlightCount() - getActiveCount());
+    }
+
+    /**
+     * @return 已执行完成的任务数
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * @return 被拒绝的任务数
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+}
@@ -3,6 +3,7 @@ package com.enterprise.brain.common.cache;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -12,12 +13,17 @@ import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -25,6 +31,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -49,6 +56,33 @@ public class CacheConfig {
     @Value("${cache.redis.use-prefix:true}")
     private boolean usePrefix;
 
+    @Value("${cache.redis.scan-batch-size:1000}")
+    private int scanBatchSize;
+
+    @Value("${cache.serializer.compact-caches:formulas,columnFormulas,tableFormulas,calculations}")
+    private String[] compactCaches;
+
+    @Value("${cache.serializer.compress-threshold:1024}")
+    private int compressThreshold;
+
+    @Value("${cache.near.maximum-size:10000}")
+    private long nearCacheMaximumSize;
+
+    @Value("${cache.near.ttl-seconds:60}")
+    private long nearCacheTtl;
+
+    @Value("${cache.near.invalidation-channel:cache:invalidate}")
+    private String invalidationChannel;
+
+    @Value("${cache.stampede.lease-ms:3000}")
+    private long stampedeLeaseMillis;
+
+    @Value("${cache.stampede.refresh-beta:1.0}")
+    private double refreshBeta;
+
+    @Value("${cache.stampede.refresh-threads:2}")
+    private int refreshThreads;
+
     /**
      * 配置RedisTemplate
      * @param connectionFactory Redis连接工厂
@@ -84,13 +118,15 @@ public class CacheConfig {
 
     /**
      * 配置缓存管理器
+     * 每个缓存由进程内L1和Redis L2组成，L1的失效通过Redis发布订阅在节点间同步
      * @param redisConnectionFactory Redis连接工厂
+     * @param meterRegistry 指标注册表，按缓存名和层级记录命中、加载耗时、淘汰等指标
      * @return 缓存管理器
      */
     @Bean
-    @ConditionalOnMissingBean
+    @ConditionalOnMissingBean(CacheManager.class)
     @ConditionalOnClass(RedisConnectionFactory.class)
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, MeterRegistry meterRegistry) {
         // 创建默认缓存配置
         RedisCacheConfiguration defaultCacheConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofSeconds(defaultTtl))
@@ -118,11 +154,46 @@ public class CacheConfig {
                 .entryTtl(Duration.ofHours(24))
                 .prefixCacheNameWith(redisKeyPrefix));
 
-        // 创建Redis缓存管理器
-        return RedisCacheManager.builder(redisConnectionFactory)
+        // 指定的缓存使用紧凑的二进制序列化，键前缀中带格式版本，不同版本的节点读写不同的键
+        CompactCacheSerializer compactSerializer = new CompactCacheSerializer(compressThreshold);
+        for (String cacheName : compactCaches) {
+            String keyPrefix = (usePrefix ? redisKeyPrefix : "") + cacheName + ":"
+                    + CompactCacheSerializer.keyPrefixSuffix() + "::";
+            cacheConfigurations.put(cacheName, cacheConfigurations.getOrDefault(cacheName, defaultCacheConfig)
+                    .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(compactSerializer))
+                    .computePrefixWith(name -> keyPrefix));
+        }
+
+        // 创建Redis缓存管理器（作为L2，不单独注册为Bean，需要手动初始化）
+        // 清空缓存时按SCAN分批删除，默认的KEYS会阻塞Redis
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory,
+                BatchStrategies.scan(scanBatchSize));
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
                 .cacheDefaults(defaultCacheConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
+                .enableStatistics()
                 .build();
+        redisCacheManager.afterPropertiesSet();
+
+        StringRedisTemplate publisher = new StringRedisTemplate(redisConnectionFactory);
+        return new TwoLevelCacheManager(redisCacheManager, publisher, redisKeyPrefix, invalidationChannel,
+                nearCacheMaximumSize, Duration.ofSeconds(nearCacheTtl),
+                Duration.ofMillis(stampedeLeaseMillis), refreshBeta, refreshThreads, meterRegistry);
+    }
+
+    /**
+     * 订阅缓存失效频道，收到其他节点的失效消息后删除本地L1中的条目
+     * @param redisConnectionFactory Redis连接工厂
+     * @param cacheManager 两级缓存管理器
+     * @return 消息监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                           TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(cacheManager, new ChannelTopic(cacheManager.getChannel()));
+        return container;
     }
 
     /**
@@ -146,6 +217,8 @@ public class CacheConfig {
         public static final String SYSTEM_CACHE_PREFIX = "system:";  // 系统相关缓存前缀
         public static final String DATA_CACHE_PREFIX = "data:";  // 数据相关缓存前缀
         public static final String TEMP_CACHE_PREFIX = "temp:";  // 临时缓存前缀
+        public static final List<String> ALL_PREFIXES = List.of(
+                USER_CACHE_PREFIX, SYSTEM_CACHE_PREFIX, DATA_CACHE_PREFIX, TEMP_CACHE_PREFIX);  // 所有业务缓存前缀
         
         // 缓存名称
         public static final String USER_CACHE = "userCache";  // 用户缓存
@@ -5,14 +5,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 缓存清理调度器
- * 定期清理过期缓存，维护缓存健康
+ * 提供手动清理缓存、统计和健康检查
+ *
+ * <p>本地缓存的过期条目由Caffeine的分层时间轮按条目清理（由一个公共调度线程驱动，
+ * 读写时顺带分摊维护工作），不再需要定时全量扫描。</p>
  */
 @Slf4j
 @Component
@@ -24,9 +26,6 @@ public class CacheEvictScheduler implements ApplicationRunner {
     @Autowired
     private RedisCacheService redisCacheService;
 
-    @Value("${cache.local.evict.cron:0 0/5 * * * ?}")
-    private String localCacheEvictCron;
-
     @Value("${cache.redis.enabled:true}")
     private boolean redisEnabled;
 
@@ -44,7 +43,6 @@ public class CacheEvictScheduler implements ApplicationRunner {
     @Override
     public void run(ApplicationArguments args) {
         log.info("Cache evict scheduler initialized");
-        log.info("Local cache evict cron: {}", localCacheEvictCron);
         log.info("Redis cache enabled: {}", redisEnabled);
         log.info("Statistics enabled: {}", statisticsEnabled);
 
@@ -53,10 +51,8 @@ public class CacheEvictScheduler implements ApplicationRunner {
     }
 
     /**
-     * 定期清理本地缓存
-     * 使用@Scheduled注解进行定时任务调度
+     * 立即执行本地缓存的待处理维护工作（过期条目本身由时间轮自动清理）
      */
-    @Scheduled(cron = "${cache.local.evict.cron:0 0/5 * * * ?}")
     public void cleanupLocalCache() {
         log.debug("Starting scheduled local cache cleanup");
         long startTime = System.currentTimeMillis();
@@ -115,9 +111,7 @@ public class CacheEvictScheduler implements ApplicationRunner {
             // 这里可以添加针对特定前缀的缓存清理，或者执行其他Redis特定的维护操作
             // 例如：清理特定业务模块的缓存
             
-            // 示例：清理临时缓存（如果有使用特定前缀的临时缓存）
-            // 注意：在生产环境中，应该谨慎使用keys命令，因为它可能会阻塞Redis服务器
-            // 对于大型系统，建议使用SCAN命令替代
+            // 按前缀清理请使用evictRedisCacheByPrefix（基于SCAN，不阻塞Redis）
             
             log.debug("Redis cache cleanup operations completed");
         } catch (Exception e) {
@@ -143,6 +137,49 @@ public class CacheEvictScheduler implements ApplicationRunner {
         }
     }
 
+    /**
+     * 手动清理指定前缀的Redis缓存
+     * 使用SCAN分批遍历删除，不阻塞Redis
+     * @param prefix 缓存键前缀
+     * @return 清理的缓存数量
+     */
+    public long evictRedisCacheByPrefix(String prefix) {
+        if (!redisEnabled) {
+            return 0;
+        }
+        log.info("Manually evicting redis cache with prefix: {}", prefix);
+
+        try {
+            long count = redisCacheService.clearByPrefix(prefix);
+            log.info("Evicted {} items from redis cache with prefix: {}", count, prefix);
+            return count;
+        } catch (Exception e) {
+            log.error("Failed to evict redis cache with prefix: {}", prefix, e);
+            return 0;
+        }
+    }
+
+    /**
+     * 手动清理指定前缀的本地缓存和Redis缓存
+     * @param prefix 缓存键前缀（如CacheConfig.CacheConstants.USER_CACHE_PREFIX）
+     * @return 清理的缓存数量
+     */
+    public long evictCacheByPrefix(String prefix) {
+        return evictLocalCacheByPrefix(prefix) + evictRedisCacheByPrefix(prefix);
+    }
+
+    /**
+     * 手动清理CacheConfig.CacheConstants中定义的所有业务前缀下的缓存
+     * @return 清理的缓存数量
+     */
+    public long evictAllPrefixedCache() {
+        long count = 0;
+        for (String prefix : CacheConfig.CacheConstants.ALL_PREFIXES) {
+            count += evictCacheByPrefix(prefix);
+        }
+        return count;
+    }
+
     /**
      * 手动清理指定键的本地缓存
      * @param key 缓存键
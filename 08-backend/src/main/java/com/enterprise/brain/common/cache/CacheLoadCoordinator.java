@@ -0,0 +1,248 @@
+package com.enterprise.brain.common.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级缓存的加载协调：防止缓存击穿（大量请求同时重建同一个过期的键）
+ *
+ * <ul>
+ *   <li>节点内单飞：同一个键的并发未命中只加载一次（由{@link TwoLevelCache}把并发加载按键合并到同一个future上保证）</li>
+ *   <li>跨节点租约：L2也未命中时先用SET NX PX抢占一个短租约，抢到的节点加载并写入L2，
+ *       其他节点在租约时间内等待L2出现结果，超时后再自行加载</li>
+ *   <li>提前刷新（XFetch）：记录本节点加载每个键的耗时和L2过期时间，读取时按
+ *       now - 耗时 × beta × ln(rand) ≥ 过期时间 的概率在过期前触发后台刷新，刷新期间继续返回旧值，
+ *       过期时间越近、加载越慢，触发概率越高，热点键一般不会真正过期</li>
+ * </ul>
+ *
+ * <p>加载期间键被写入或删除（见{@link TwoLevelCache#evictionGeneration}）时，加载结果不写入L2，
+ * 提前刷新的结果也不回填L1，避免用删除前读到的旧值覆盖删除。</p>
+ *
+ * <p>只有通过{@code @Cacheable(sync = true)}（即{@link Cache#get(Object, Callable)}）读取的缓存
+ * 能得到这些保护，非同步的@Cacheable先读再写，缓存层拿不到加载函数。</p>
+ */
+@Slf4j
+class CacheLoadCoordinator {
+
+    private static final long POLL_INTERVAL_MILLIS = 20;
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String leasePrefix;
+    private final String nodeId;
+    private final Duration leaseTime;
+    private final double beta;
+    private final ExecutorService refreshExecutor;
+    /** 缓存名\n键 -> 本节点最近一次加载的耗时和L2过期时间 */
+    private final com.github.benmanes.caffeine.cache.Cache<String, LoadMetadata> metadata;
+    /** 正在后台刷新的条目，避免同一个键重复提交刷新 */
+    private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final MeterRegistry meterRegistry;
+    /** 缓存名 -> 加载耗时计时器 */
+    private final Map<String, Timer> loadTimers = new ConcurrentHashMap<>();
+
+    CacheLoadCoordinator(StringRedisTemplate redisTemplate, String leasePrefix, String nodeId, Duration leaseTime,
+                         double beta, long maximumTrackedKeys, ExecutorService refreshExecutor,
+                         MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.leasePrefix = leasePrefix;
+        this.nodeId = nodeId;
+        this.leaseTime = leaseTime;
+        this.beta = beta;
+        this.refreshExecutor = refreshExecutor;
+        this.meterRegistry = meterRegistry;
+        this.metadata = Caffeine.newBuilder()
+                .maximumSize(maximumTrackedKeys)
+                .build();
+    }
+
+    /**
+     * L1、L2都未命中时加载：先抢占跨节点租约，抢不到则等待其他节点的加载结果
+     * @return 加载或等到的值
+     */
+    Cache.ValueWrapper load(TwoLevelCache cache, Object key, String localKey, Cache remote,
+                            Callable<?> valueLoader, Duration remoteTtl, long generation) {
+        String cacheName = cache.getName();
+        String leaseKey = leasePrefix + cacheName + ":" + localKey;
+        Boolean leased = tryAcquire(leaseKey);
+        try {
+            if (Boolean.FALSE.equals(leased)) {
+                Cache.ValueWrapper loadedElsewhere = awaitRemote(remote, key);
+                if (loadedElsewhere != null) {
+                    return loadedElsewhere;
+                }
+                log.debug("Cache lease wait timed out, loading locally, cache: {}, key: {}", cacheName, localKey);
+            }
+            return loadAndStore(cache, key, localKey, remote, valueLoader, remoteTtl, generation);
+        } finally {
+            if (Boolean.TRUE.equals(leased)) {
+                release(leaseKey);
+            }
+        }
+    }
+
+    /**
+     * 读取命中后按XFetch判断是否需要提前刷新，需要时提交后台刷新
+     */
+    void refreshIfDue(TwoLevelCache cache, Object key, String localKey, Cache remote,
+                      Callable<?> valueLoader, Duration remoteTtl) {
+        String id = cache.getName() + '\n' + localKey;
+        LoadMetadata loaded = metadata.getIfPresent(id);
+        if (loaded == null || !loaded.isDue(beta) || !refreshing.add(id)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(cache, key, localKey, remote, valueLoader, remoteTtl);
+                } finally {
+                    refreshing.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(id);
+        }
+    }
+
+    private void refresh(TwoLevelCache cache, Object key, String localKey, Cache remote,
+                         Callable<?> valueLoader, Duration remoteTtl) {
+        String leaseKey = leasePrefix + cache.getName() + ":" + localKey;
+        Boolean leased = tryAcquire(leaseKey);
+        if (Boolean.FALSE.equals(leased)) {
+            // 其他节点正在加载这个键
+            return;
+        }
+        try {
+            long generation = cache.evictionGeneration(localKey);
+            Cache.ValueWrapper refreshed = loadAndStore(cache, key, localKey, remote, valueLoader, remoteTtl, generation);
+            if (cache.evictionGeneration(localKey) != generation) {
+                log.debug("Cache entry changed during refresh-ahead, result dropped, cache: {}, key: {}",
+                        cache.getName(), localKey);
+                return;
+            }
+            cache.refreshLocal(localKey, refreshed);
+            log.debug("Cache entry refreshed ahead of expiry, cache: {}, key: {}", cache.getName(), localKey);
+        } catch (RuntimeException e) {
+            log.warn("Cache refresh-ahead failed, cache: {}, key: {}, error: {}", cache.getName(), localKey, e.getMessage());
+        } finally {
+            if (Boolean.TRUE.equals(leased)) {
+                release(leaseKey);
+            }
+        }
+    }
+
+    /**
+     * 调用加载函数，并在键的失效代数未变时写入L2
+     * @param generation 开始加载前读取的失效代数
+     */
+    private Cache.ValueWrapper loadAndStore(TwoLevelCache cache, Object key, String localKey, Cache remote,
+                                            Callable<?> valueLoader, Duration remoteTtl, long generation) {
+        String cacheName = cache.getName();
+        long startTime = System.nanoTime();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new Cache.ValueRetrievalException(key, valueLoader, e);
+        }
+        long loadNanos = System.nanoTime() - startTime;
+        loadTimers.computeIfAbsent(cacheName, name -> CacheMeters.loadTimer(meterRegistry, name, CacheMeters.TIER_L2))
+                .record(loadNanos, TimeUnit.NANOSECONDS);
+        if (cache.evictionGeneration(localKey) != generation) {
+            return new SimpleValueWrapper(value);
+        }
+        remote.put(key, value);
+        if (remoteTtl != null && !remoteTtl.isZero() && !remoteTtl.isNegative()) {
+            metadata.put(cacheName + '\n' + localKey,
+                    new LoadMetadata(loadNanos, System.nanoTime() + remoteTtl.toNanos()));
+        }
+        return new SimpleValueWrapper(value);
+    }
+
+    /**
+     * 在租约时间内轮询L2，等待持有租约的节点写入结果
+     */
+    private Cache.ValueWrapper awaitRemote(Cache remote, Object key) {
+        long deadline = System.nanoTime() + leaseTime.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Cache.ValueWrapper value = remote.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 是否抢到租约；Redis不可用时返回null（直接在本节点加载）
+     */
+    private Boolean tryAcquire(String leaseKey) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(leaseKey, nodeId, leaseTime));
+        } catch (RuntimeException e) {
+            log.warn("Cache lease unavailable, key: {}, error: {}", leaseKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private void release(String leaseKey) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(leaseKey), nodeId);
+        } catch (RuntimeException e) {
+            // 租约到期后自动释放
+            log.warn("Cache lease release failed, key: {}, error: {}", leaseKey, e.getMessage());
+        }
+    }
+
+    void shutdown() {
+        refreshExecutor.shutdown();
+    }
+
+    /**
+     * 本节点加载条目时记录的加载耗时和L2过期时间
+     */
+    private static final class LoadMetadata {
+        private final long loadNanos;
+        private final long expiresAtNanos;
+
+        private LoadMetadata(long loadNanos, long expiresAtNanos) {
+            this.loadNanos = loadNanos;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        /**
+         * XFetch：加载耗时越长、离过期越近，越可能提前刷新
+         */
+        private boolean isDue(double beta) {
+            // 取值范围(0, 1]，避免ln(0)
+            double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+            long earlier = (long) (-loadNanos * beta * Math.log(random));
+            return System.nanoTime() + earlier >= expiresAtNanos;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.enterprise.brain.common.cache;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 缓存指标的公共定义
+ *
+ * <p>所有缓存指标都带cache（缓存名）和tier（层级）两个标签：local为{@link LocalCacheService}等进程内缓存，
+ * l1为两级缓存的进程内层，l2为两级缓存的Redis层。命中、未命中、写入、条目数等由Micrometer的
+ * CaffeineCacheMetrics和Spring Boot的RedisCacheMetrics提供，这里补充它们没有的两项：
+ * 按原因统计的淘汰次数和加载耗时直方图。</p>
+ */
+public final class CacheMeters {
+
+    public static final String TAG_CACHE = "cache";
+    public static final String TAG_TIER = "tier";
+    public static final String TIER_LOCAL = "local";
+    public static final String TIER_L1 = "l1";
+    public static final String TIER_L2 = "l2";
+
+    private CacheMeters() {
+    }
+
+    /**
+     * 按淘汰原因（size、expired、collected）计数的淘汰监听器
+     */
+    public static <K, V> RemovalListener<K, V> evictionCounter(MeterRegistry registry, String cacheName, String tier) {
+        Map<RemovalCause, Counter> counters = new EnumMap<>(RemovalCause.class);
+        for (RemovalCause cause : RemovalCause.values()) {
+            if (cause.wasEvicted()) {
+                counters.put(cause, Counter.builder("cache.evictions.by.cause")
+                        .description("Entries evicted from the cache, by cause")
+                        .tag(TAG_CACHE, cacheName)
+                        .tag(TAG_TIER, tier)
+                        .tag("cause", cause.name().toLowerCase(Locale.ROOT))
+                        .register(registry));
+            }
+        }
+        return (key, value, cause) -> {
+            Counter counter = counters.get(cause);
+            if (counter != null) {
+                counter.increment();
+            }
+        };
+    }
+
+    /**
+     * 未命中时加载数据的耗时（带百分位直方图）
+     */
+    public static Timer loadTimer(MeterRegistry registry, String cacheName, String tier) {
+        return Timer.builder("cache.load.latency")
+                .description("Time spent loading a value on cache miss or refresh")
+                .tag(TAG_CACHE, cacheName)
+                .tag(TAG_TIER, tier)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -1,48 +1,105 @@
 package com.enterprise.brain.common.cache;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 
 /**
  * 本地缓存服务实现类
- * 基于内存的本地缓存，提供线程安全的缓存操作
+ * 基于Caffeine的有界本地缓存，提供线程安全的缓存操作
+ *
+ * <p>读操作不加锁；写操作只锁定对应的键。缓存按条目数量限制，超出时按W-TinyLFU淘汰
+ * （访问频率低的新条目不会挤掉常用条目）。每个条目有各自的过期时间，由时间轮按条目过期，
+ * 过期条目对读操作立即不可见，并由后台调度清理，不依赖定时全量扫描。</p>
+ *
+ * <p>{@link #get(String, Supplier, long, TimeUnit)}按键合并加载：同一个键并发未命中时只执行一次supplier，
+ * 其他线程等待其结果；不同键的加载互不阻塞。</p>
  */
 @Slf4j
 @Service
 public class LocalCacheService {
 
+    /** 指标中的缓存名 */
+    private static final String CACHE_NAME = "localCache";
+
+    /** 表示沿用条目当前剩余过期时间的标记 */
+    private static final long KEEP_EXPIRY = -1L;
+
     // 缓存数据存储
-    private final Map<String, CacheValue> cacheMap = new ConcurrentHashMap<>();
-    
-    // 读写锁，保证线程安全
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Cache<String, CacheValue> cache;
+
+    private final long maximumSize;
+
+    private final Timer loadTimer;
+
+    public LocalCacheService(@Value("${cache.local.maximum-size:10000}") long maximumSize,
+                             MeterRegistry meterRegistry) {
+        this.maximumSize = maximumSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new CacheValueExpiry())
+                .scheduler(Scheduler.systemScheduler())
+                .evictionListener(CacheMeters.<String, CacheValue>evictionCounter(meterRegistry, CACHE_NAME, CacheMeters.TIER_LOCAL))
+                .recordStats()
+                .build();
+        this.loadTimer = CacheMeters.loadTimer(meterRegistry, CACHE_NAME, CacheMeters.TIER_LOCAL);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME, CacheMeters.TAG_TIER, CacheMeters.TIER_LOCAL);
+        log.info("Local cache initialized, maximumSize: {}", maximumSize);
+    }
 
     /**
-     * 缓存值对象，包含值和过期时间
+     * 缓存值对象，包含值和存活时间
      */
     private static class CacheValue {
         private final Object value;
-        private final long expireTime;
+        // 存活时间（纳秒），0表示永不过期，KEEP_EXPIRY表示沿用原条目的剩余时间
+        private final long ttlNanos;
 
-        public CacheValue(Object value, long expireTime) {
+        public CacheValue(Object value, long ttlNanos) {
             this.value = value;
-            this.expireTime = expireTime;
+            this.ttlNanos = ttlNanos;
         }
 
         public Object getValue() {
             return value;
         }
+    }
+
+    /**
+     * 按条目的存活时间计算过期时间
+     */
+    private static class CacheValueExpiry implements Expiry<String, CacheValue> {
+
+        @Override
+        public long expireAfterCreate(String key, CacheValue value, long currentTime) {
+            return value.ttlNanos > 0 ? value.ttlNanos : Long.MAX_VALUE;
+        }
 
-        public boolean isExpired() {
-            // 0表示永不过期
-            return expireTime > 0 && System.currentTimeMillis() > expireTime;
+        @Override
+        public long expireAfterUpdate(String key, CacheValue value, long currentTime, long currentDuration) {
+            return value.ttlNanos == KEEP_EXPIRY ? currentDuration : expireAfterCreate(key, value, currentTime);
         }
+
+        @Override
+        public long expireAfterRead(String key, CacheValue value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    private static long ttlNanos(long timeout, TimeUnit timeUnit) {
+        return timeout > 0 ? timeUnit.toNanos(timeout) : 0;
     }
 
     /**
@@ -51,13 +108,8 @@ public class LocalCacheService {
      * @param value 值
      */
     public void set(String key, Object value) {
-        try {
-            lock.writeLock().lock();
-            cacheMap.put(key, new CacheValue(value, 0));
-            log.debug("Local cache set success, key: {}", key);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        cache.put(key, new CacheValue(value, 0));
+        log.debug("Local cache set success, key: {}", key);
     }
 
     /**
@@ -68,14 +120,8 @@ public class LocalCacheService {
      * @param timeUnit 时间单位
      */
     public void set(String key, Object value, long timeout, TimeUnit timeUnit) {
-        try {
-            lock.writeLock().lock();
-            long expireTime = timeout > 0 ? System.currentTimeMillis() + timeUnit.toMillis(timeout) : 0;
-            cacheMap.put(key, new CacheValue(value, expireTime));
-            log.debug("Local cache set success with timeout, key: {}, timeout: {}", key, timeout);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        cache.put(key, new CacheValue(value, ttlNanos(timeout, timeUnit)));
+        log.debug("Local cache set success with timeout, key: {}, timeout: {}", key, timeout);
     }
 
     /**
@@ -85,48 +131,18 @@ public class LocalCacheService {
      */
     @SuppressWarnings("unchecked")
     public <T> T get(String key) {
-        try {
-            lock.readLock().lock();
-            CacheValue cacheValue = cacheMap.get(key);
-            if (cacheValue == null) {
-                log.debug("Local cache miss, key: {}", key);
-                return null;
-            }
-            
-            // 检查是否过期
-            if (cacheValue.isExpired()) {
-                // 读锁升级为写锁来删除过期数据
-                lock.readLock().unlock();
-                try {
-                    lock.writeLock().lock();
-                    // 双重检查，防止其他线程已经删除
-                    cacheValue = cacheMap.get(key);
-                    if (cacheValue != null && cacheValue.isExpired()) {
-                        cacheMap.remove(key);
-                        log.debug("Local cache expired and removed, key: {}", key);
-                    }
-                } finally {
-                    // 降级为读锁
-                    lock.readLock().lock();
-                    lock.writeLock().unlock();
-                }
-                // 重新获取最新的缓存值
-                cacheValue = cacheMap.get(key);
-                if (cacheValue == null) {
-                    log.debug("Local cache miss after expiration check, key: {}", key);
-                    return null;
-                }
-            }
-            
-            log.debug("Local cache hit, key: {}", key);
-            return (T) cacheValue.getValue();
-        } finally {
-            lock.readLock().unlock();
+        CacheValue cacheValue = cache.getIfPresent(key);
+        if (cacheValue == null) {
+            log.debug("Local cache miss, key: {}", key);
+            return null;
         }
+        log.debug("Local cache hit, key: {}", key);
+        return (T) cacheValue.getValue();
     }
 
     /**
      * 获取缓存，如果不存在则通过supplier创建并缓存
+     * 同一个键的并发加载只执行一次supplier，supplier返回null时不缓存
      * @param key 键
      * @param supplier 缓存创建函数
      * @param timeout 过期时间
@@ -135,23 +151,11 @@ public class LocalCacheService {
      */
     @SuppressWarnings("unchecked")
     public <T> T get(String key, Supplier<T> supplier, long timeout, TimeUnit timeUnit) {
-        T value = get(key);
-        if (value == null) {
-            try {
-                lock.writeLock().lock();
-                // 双重检查
-                value = get(key);
-                if (value == null) {
-                    value = supplier.get();
-                    if (value != null) {
-                        set(key, value, timeout, timeUnit);
-                    }
-                }
-            } finally {
-                lock.writeLock().unlock();
-            }
-        }
-        return value;
+        CacheValue cacheValue = cache.get(key, k -> {
+            T loaded = loadTimer.record(supplier);
+            return loaded != null ? new CacheValue(loaded, ttlNanos(timeout, timeUnit)) : null;
+        });
+        return cacheValue != null ? (T) cacheValue.getValue() : null;
     }
 
     /**
@@ -160,17 +164,11 @@ public class LocalCacheService {
      * @return 是否删除成功
      */
     public boolean delete(String key) {
-        try {
-            lock.writeLock().lock();
-            CacheValue removed = cacheMap.remove(key);
-            boolean result = removed != null;
-            if (result) {
-                log.debug("Local cache delete success, key: {}", key);
-            }
-            return result;
-        } finally {
-            lock.writeLock().unlock();
+        boolean result = cache.asMap().remove(key) != null;
+        if (result) {
+            log.debug("Local cache delete success, key: {}", key);
         }
+        return result;
     }
 
     /**
@@ -182,19 +180,14 @@ public class LocalCacheService {
         if (keys == null || keys.isEmpty()) {
             return 0;
         }
-        
+
         int count = 0;
-        try {
-            lock.writeLock().lock();
-            for (String key : keys) {
-                if (cacheMap.remove(key) != null) {
-                    count++;
-                }
+        for (String key : keys) {
+            if (cache.asMap().remove(key) != null) {
+                count++;
             }
-            log.debug("Local cache batch delete success, deleted count: {}", count);
-        } finally {
-            lock.writeLock().unlock();
         }
+        log.debug("Local cache batch delete success, deleted count: {}", count);
         return count;
     }
 
@@ -202,13 +195,8 @@ public class LocalCacheService {
      * 清空缓存
      */
     public void clear() {
-        try {
-            lock.writeLock().lock();
-            cacheMap.clear();
-            log.debug("Local cache cleared");
-        } finally {
-            lock.writeLock().unlock();
-        }
+        cache.invalidateAll();
+        log.debug("Local cache cleared");
     }
 
     /**
@@ -225,14 +213,8 @@ public class LocalCacheService {
      * @return 缓存项数量
      */
     public int size() {
-        try {
-            lock.readLock().lock();
-            // 清理过期项并返回当前大小
-            cleanExpired();
-            return cacheMap.size();
-        } finally {
-            lock.readLock().unlock();
-        }
+        cache.cleanUp();
+        return (int) Math.min(Integer.MAX_VALUE, cache.estimatedSize());
     }
 
     /**
@@ -240,40 +222,15 @@ public class LocalCacheService {
      * @return 键集合
      */
     public Set<String> keys() {
-        try {
-            lock.readLock().lock();
-            cleanExpired();
-            return new HashSet<>(cacheMap.keySet());
-        } finally {
-            lock.readLock().unlock();
-        }
+        return new HashSet<>(cache.asMap().keySet());
     }
 
     /**
      * 清理过期的缓存项
+     * 过期条目由时间轮自动清理，这里只是立即执行一次待处理的维护工作
      */
     public void cleanExpired() {
-        try {
-            lock.writeLock().lock();
-            long now = System.currentTimeMillis();
-            List<String> expiredKeys = new ArrayList<>();
-            
-            cacheMap.forEach((key, value) -> {
-                if (value.expireTime > 0 && now > value.expireTime) {
-                    expiredKeys.add(key);
-                }
-            });
-            
-            for (String key : expiredKeys) {
-                cacheMap.remove(key);
-            }
-            
-            if (!expiredKeys.isEmpty()) {
-                log.debug("Local cache expired items cleaned, count: {}", expiredKeys.size());
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
+        cache.cleanUp();
     }
 
     /**
@@ -287,24 +244,20 @@ public class LocalCacheService {
 
     /**
      * 原子递增指定步长
+     * 已存在的键保留原有的过期时间，不存在的键创建为永不过期
      * @param key 键
      * @param delta 步长
      * @return 递增后的值
      */
     public long increment(String key, long delta) {
-        try {
-            lock.writeLock().lock();
-            Long current = get(key);
-            if (current == null) {
-                current = 0L;
-            }
-            long newValue = current + delta;
-            set(key, newValue);
-            log.debug("Local cache increment success, key: {}, newValue: {}", key, newValue);
-            return newValue;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        CacheValue updated = cache.asMap().compute(key, (k, current) -> {
+            long currentValue = current != null && current.getValue() instanceof Number
+                    ? ((Number) current.getValue()).longValue() : 0L;
+            return new CacheValue(currentValue + delta, current != null ? KEEP_EXPIRY : 0);
+        });
+        long newValue = (Long) updated.getValue();
+        log.debug("Local cache increment success, key: {}, newValue: {}", key, newValue);
+        return newValue;
     }
 
     /**
@@ -336,19 +289,12 @@ public class LocalCacheService {
         if (values == null || values.isEmpty()) {
             return;
         }
-        
-        try {
-            lock.writeLock().lock();
-            long expireTime = timeout > 0 ? System.currentTimeMillis() + timeUnit.toMillis(timeout) : 0;
-            
-            values.forEach((key, value) -> {
-                cacheMap.put(key, new CacheValue(value, expireTime));
-            });
-            
-            log.debug("Local cache multi set success, count: {}", values.size());
-        } finally {
-            lock.writeLock().unlock();
-        }
+
+        long ttlNanos = ttlNanos(timeout, timeUnit);
+        Map<String, CacheValue> entries = new HashMap<>(values.size() * 2);
+        values.forEach((key, value) -> entries.put(key, new CacheValue(value, ttlNanos)));
+        cache.putAll(entries);
+        log.debug("Local cache multi set success, count: {}", values.size());
     }
 
     /**
@@ -361,20 +307,14 @@ public class LocalCacheService {
         if (keys == null || keys.isEmpty()) {
             return new HashMap<>();
         }
-        
+
         Map<String, T> result = new HashMap<>();
-        try {
-            lock.readLock().lock();
-            for (String key : keys) {
-                T value = get(key);
-                if (value != null) {
-                    result.put(key, value);
-                }
+        cache.getAllPresent(keys).forEach((key, cacheValue) -> {
+            if (cacheValue.getValue() != null) {
+                result.put(key, (T) cacheValue.getValue());
             }
-            log.debug("Local cache multi get success, requested: {}, found: {}", keys.size(), result.size());
-        } finally {
-            lock.readLock().unlock();
-        }
+        });
+        log.debug("Local cache multi get success, requested: {}, found: {}", keys.size(), result.size());
         return result;
     }
 
@@ -385,21 +325,12 @@ public class LocalCacheService {
      */
     public Set<String> keysWithPrefix(String prefix) {
         Set<String> result = new HashSet<>();
-        try {
-            lock.readLock().lock();
-            cacheMap.keySet().forEach(key -> {
-                if (key.startsWith(prefix)) {
-                    // 检查是否过期
-                    CacheValue value = cacheMap.get(key);
-                    if (!value.isExpired()) {
-                        result.add(key);
-                    }
-                }
-            });
-            log.debug("Local cache keys with prefix found, prefix: {}, count: {}", prefix, result.size());
-        } finally {
-            lock.readLock().unlock();
+        for (String key : cache.asMap().keySet()) {
+            if (key.startsWith(prefix)) {
+                result.add(key);
+            }
         }
+        log.debug("Local cache keys with prefix found, prefix: {}, count: {}", prefix, result.size());
         return result;
     }
 
@@ -418,23 +349,22 @@ public class LocalCacheService {
      * @return 统计信息
      */
     public Map<String, Object> getStatistics() {
-        try {
-            lock.readLock().lock();
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalSize", cacheMap.size());
-            
-            // 计算过期项数量
-            long now = System.currentTimeMillis();
-            long expiredCount = cacheMap.values().stream()
-                .filter(value -> value.isExpired())
-                .count();
-            stats.put("expiredCount", expiredCount);
-            stats.put("validCount", cacheMap.size() - expiredCount);
-            
-            log.debug("Local cache statistics retrieved");
-            return stats;
-        } finally {
-            lock.readLock().unlock();
-        }
+        cache.cleanUp();
+        CacheStats cacheStats = cache.stats();
+        Map<String, Object> stats = new HashMap<>();
+        long size = cache.estimatedSize();
+        stats.put("totalSize", size);
+        // 过期条目对读操作不可见并由时间轮清理，不再单独计数
+        stats.put("expiredCount", 0L);
+        stats.put("validCount", size);
+        stats.put("maximumSize", maximumSize);
+        stats.put("hitCount", cacheStats.hitCount());
+        stats.put("missCount", cacheStats.missCount());
+        stats.put("hitRate", cacheStats.hitRate());
+        stats.put("loadCount", cacheStats.loadCount());
+        stats.put("evictionCount", cacheStats.evictionCount());
+
+        log.debug("Local cache statistics retrieved");
+        return stats;
     }
-}
\ No newline at end of file
+}
@@ -2,12 +2,20 @@ package com.enterprise.brain.common.cache;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Redis缓存服务实现类
@@ -20,6 +28,9 @@ public class RedisCacheService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Value("${cache.redis.scan-batch-size:1000}")
+    private int scanBatchSize;
+
     /**
      * 设置缓存
      * @param key 键
@@ -69,6 +80,61 @@ public class RedisCacheService {
         }
     }
 
+    /**
+     * 批量获取缓存（一次MGET）
+     * @param keys 键集合
+     * @return 键值对映射，不存在的键不包含在结果中
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> multiGet(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return new HashMap<>();
+        }
+        try {
+            List<String> keyList = new ArrayList<>(keys);
+            List<Object> values = redisTemplate.opsForValue().multiGet(keyList);
+            Map<String, T> result = new HashMap<>();
+            if (values != null) {
+                for (int i = 0; i < keyList.size(); i++) {
+                    Object value = values.get(i);
+                    if (value != null) {
+                        result.put(keyList.get(i), (T) value);
+                    }
+                }
+            }
+            log.debug("Redis multi get success, requested: {}, found: {}", keys.size(), result.size());
+            return result;
+        } catch (Exception e) {
+            log.error("Redis multi get error, error: {}", e.getMessage(), e);
+            throw new RuntimeException("Redis multi get error", e);
+        }
+    }
+
+    /**
+     * 批量设置缓存并设置过期时间
+     * 不过期时使用一次MSET，否则在一个管道中发送所有SET EX，都只需要一次网络往返
+     * @param values 键值对映射
+     * @param timeout 过期时间
+     * @param timeUnit 时间单位
+     */
+    public void multiSet(Map<String, Object> values, long timeout, TimeUnit timeUnit) {
+        if (CollectionUtils.isEmpty(values)) {
+            return;
+        }
+        try {
+            if (timeout <= 0) {
+                redisTemplate.opsForValue().multiSet(values);
+            } else {
+                executePipelined(operations -> values.forEach(
+                        (key, value) -> operations.opsForValue().set(key, value, timeout, timeUnit)));
+            }
+            log.debug("Redis multi set success, count: {}, timeout: {}", values.size(), timeout);
+        } catch (Exception e) {
+            log.error("Redis multi set error, error: {}", e.getMessage(), e);
+            throw new RuntimeException("Redis multi set error", e);
+        }
+    }
+
     /**
      * 删除缓存
      * @param key 键
@@ -274,6 +340,83 @@ public class RedisCacheService {
         }
     }
 
+    /**
+     * 批量设置Hash缓存（一次HSET）
+     * @param key 键
+     * @param values Hash键值对映射
+     */
+    public void setHashAll(String key, Map<String, Object> values) {
+        if (CollectionUtils.isEmpty(values)) {
+            return;
+        }
+        try {
+            redisTemplate.opsForHash().putAll(key, values);
+            log.debug("Redis hash set all success, key: {}, count: {}", key, values.size());
+        } catch (Exception e) {
+            log.error("Redis hash set all error, key: {}, error: {}", key, e.getMessage(), e);
+            throw new RuntimeException("Redis hash set all error", e);
+        }
+    }
+
+    /**
+     * 批量获取Hash中的指定键（一次HMGET）
+     * @param key 键
+     * @param hashKeys Hash键集合
+     * @return Hash键值对映射，不存在的Hash键不包含在结果中
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, T> multiGetHash(String key, Collection<String> hashKeys) {
+        if (CollectionUtils.isEmpty(hashKeys)) {
+            return new HashMap<>();
+        }
+        try {
+            List<Object> hashKeyList = new ArrayList<>(hashKeys);
+            List<Object> values = redisTemplate.opsForHash().multiGet(key, hashKeyList);
+            Map<String, T> result = new HashMap<>();
+            for (int i = 0; i < hashKeyList.size(); i++) {
+                Object value = values.get(i);
+                if (value != null) {
+                    result.put(hashKeyList.get(i).toString(), (T) value);
+                }
+            }
+            log.debug("Redis hash multi get success, key: {}, requested: {}, found: {}", key, hashKeys.size(), result.size());
+            return result;
+        } catch (Exception e) {
+            log.error("Redis hash multi get error, key: {}, error: {}", key, e.getMessage(), e);
+            throw new RuntimeException("Redis hash multi get error", e);
+        }
+    }
+
+    /**
+     * 批量获取多个Hash的所有键值对（所有HGETALL在一个管道中发送）
+     * @param keys 键集合
+     * @return 键到Hash内容的映射，不存在的键对应空映射
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<String, Map<String, T>> getHashAll(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return new HashMap<>();
+        }
+        try {
+            List<String> keyList = new ArrayList<>(keys);
+            List<Object> results = executePipelined(operations -> keyList.forEach(key -> operations.opsForHash().entries(key)));
+            Map<String, Map<String, T>> result = new HashMap<>();
+            for (int i = 0; i < keyList.size(); i++) {
+                Map<String, T> entries = new HashMap<>();
+                Object value = results.get(i);
+                if (value instanceof Map) {
+                    ((Map<Object, Object>) value).forEach((k, v) -> entries.put(k.toString(), (T) v));
+                }
+                result.put(keyList.get(i), entries);
+            }
+            log.debug("Redis hash pipelined get all success, keys count: {}", keys.size());
+            return result;
+        } catch (Exception e) {
+            log.error("Redis hash pipelined get all error, error: {}", e.getMessage(), e);
+            throw new RuntimeException("Redis hash pipelined get all error", e);
+        }
+    }
+
     /**
      * 删除Hash中的指定键
      * @param key 键
@@ -342,6 +485,26 @@ public class RedisCacheService {
         }
     }
 
+    /**
+     * 向List右侧批量添加元素（一次RPUSH）
+     * @param key 键
+     * @param values 值集合
+     * @return 列表长度
+     */
+    public long rightPushAll(String key, Collection<?> values) {
+        if (CollectionUtils.isEmpty(values)) {
+            return 0;
+        }
+        try {
+            Long result = redisTemplate.opsForList().rightPushAll(key, new ArrayList<Object>(values));
+            log.debug("Redis list right push all success, key: {}, values count: {}", key, values.size());
+            return result != null ? result : 0;
+        } catch (Exception e) {
+            log.error("Redis list right push all error, key: {}, error: {}", key, e.getMessage(), e);
+            throw new RuntimeException("Redis list right push all error", e);
+        }
+    }
+
     /**
      * 从List右侧弹出元素
      * @param key 键
@@ -455,6 +618,28 @@ public class RedisCacheService {
         }
     }
 
+    /**
+     * 批量添加ZSet元素（一次ZADD）
+     * @param key 键
+     * @param scores 值到分数的映射
+     * @return 新添加的数量
+     */
+    public long addZSet(String key, Map<Object, Double> scores) {
+        if (CollectionUtils.isEmpty(scores)) {
+            return 0;
+        }
+        try {
+            Set<ZSetOperations.TypedTuple<Object>> tuples = new HashSet<>();
+            scores.forEach((value, score) -> tuples.add(new DefaultTypedTuple<>(value, score)));
+            Long result = redisTemplate.opsForZSet().add(key, tuples);
+            log.debug("Redis zset batch add success, key: {}, values count: {}", key, scores.size());
+            return result != null ? result : 0;
+        } catch (Exception e) {
+            log.error("Redis zset batch add error, key: {}, error: {}", key, e.getMessage(), e);
+            throw new RuntimeException("Redis zset batch add error", e);
+        }
+    }
+
     /**
      * 获取ZSet指定范围的元素（按分数排序）
      * @param key 键
@@ -478,19 +663,112 @@ public class RedisCacheService {
         }
     }
 
+    /**
+     * 在一个管道中执行多条命令，只需要一次网络往返
+     * 回调中通过operations发出的命令不会立即返回结果（返回值为null），结果按命令顺序在返回的列表中
+     * <pre>
+     * List&lt;Object&gt; values = redisCacheService.executePipelined(operations -&gt;
+     *         keys.forEach(key -&gt; operations.opsForValue().get(key)));
+     * </pre>
+     * @param commands 发出命令的回调
+     * @return 各命令的结果（已反序列化）
+     */
+    public List<Object> executePipelined(Consumer<RedisOperations<String, Object>> commands) {
+        try {
+            return redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    commands.accept((RedisOperations<String, Object>) operations);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.error("Redis pipeline error, error: {}", e.getMessage(), e);
+            throw new RuntimeException("Redis pipeline error", e);
+        }
+    }
+
     /**
      * 清空所有缓存
+     * 使用SCAN分批遍历并用UNLINK删除，不会像KEYS那样阻塞Redis
      */
     public void clear() {
         try {
-            Set<String> keys = redisTemplate.keys("*");
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.debug("Redis clear success, keys count: {}", keys.size());
-            }
+            long count = unlinkMatching("*");
+            log.debug("Redis clear success, keys count: {}", count);
         } catch (Exception e) {
             log.error("Redis clear error, error: {}", e.getMessage(), e);
             throw new RuntimeException("Redis clear error", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 删除指定前缀的所有缓存（如CacheConfig.CacheConstants中的"user:"、"temp:"）
+     * 使用SCAN分批遍历并用UNLINK删除，每批最多scanBatchSize个键，遍历期间Redis可以继续处理其他请求
+     * @param prefix 键前缀
+     * @return 删除的数量
+     */
+    public long clearByPrefix(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            throw new IllegalArgumentException("Prefix must not be empty, use clear() to remove all keys");
+        }
+        try {
+            long count = unlinkMatching(escapePattern(prefix) + "*");
+            log.debug("Redis clear by prefix success, prefix: {}, keys count: {}", prefix, count);
+            return count;
+        } catch (Exception e) {
+            log.error("Redis clear by prefix error, prefix: {}, error: {}", prefix, e.getMessage(), e);
+            throw new RuntimeException("Redis clear by prefix error", e);
+        }
+    }
+
+    /**
+     * 按模式增量遍历键并分批删除
+     * SCAN保证遍历开始到结束期间一直存在的键都会被返回，遍历中删除已返回的键不影响后续遍历
+     * @param pattern 键模式
+     * @return 删除的数量
+     */
+    private long unlinkMatching(String pattern) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(scanBatchSize).build();
+        List<String> batch = new ArrayList<>(scanBatchSize);
+        long count = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= scanBatchSize) {
+                    count += unlink(batch);
+                    batch.clear();
+                }
+            }
+        }
+        count += unlink(batch);
+        return count;
+    }
+
+    /**
+     * UNLINK在Redis后台线程中释放内存，删除大键时不阻塞
+     */
+    private long unlink(List<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Long result = redisTemplate.unlink(keys);
+        return result != null ? result : 0;
+    }
+
+    /**
+     * 转义前缀中的通配符，使其在SCAN MATCH中按字面匹配
+     */
+    private static String escapePattern(String prefix) {
+        StringBuilder escaped = new StringBuilder(prefix.length() + 8);
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
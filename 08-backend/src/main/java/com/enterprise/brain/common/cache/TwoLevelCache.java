@@ -0,0 +1,236 @@
+package com.enterprise.brain.common.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 两级缓存：进程内L1（Caffeine）+ Redis L2
+ *
+ * <p>读取先查L1，未命中再查L2并回填L1；通过{@link #get(Object, Callable)}读取时，同一个键的并发未命中只访问一次L2（按键合并）。
+ * 写入和删除先作用于L2，再更新本节点的L1，最后通过{@link TwoLevelCacheManager}广播失效消息，
+ * 其他节点收到后删除各自L1中的副本，下次读取时从L2获取新值。</p>
+ *
+ * <p>L1中保存的是对象本身而不是副本，调用方不应修改从缓存取得的对象。
+ * L1条目按写入时间过期，即使失效消息丢失，节点间的不一致也不会超过该时间。</p>
+ *
+ * <p>同一个键的并发加载按键合并到一个future上，加载在Caffeine的compute之外进行：
+ * 等待其他节点的加载结果时不会占住L1的哈希桶，阻塞同桶的其他键。</p>
+ */
+public class TwoLevelCache implements Cache {
+
+    /** 失效代数的分段数（2的幂），不同的键可能共用一段，只会多丢弃一些加载结果 */
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local;
+    private final Cache remote;
+    private final TwoLevelCacheManager cacheManager;
+    /** L2条目的存活时间，为0表示不过期（不做提前刷新） */
+    private final Duration remoteTtl;
+    /** 正在加载的键 -> 加载结果 */
+    private final Map<String, CompletableFuture<ValueWrapper>> loads = new ConcurrentHashMap<>();
+    /** 按键分段的失效代数，键被写入或删除（含其他节点的失效消息）时递增 */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    /** 清空整个缓存的次数，计入每个键的失效代数 */
+    private final AtomicLong clearGeneration = new AtomicLong();
+
+    TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, ValueWrapper> local,
+                  Cache remote, Duration remoteTtl, TwoLevelCacheManager cacheManager) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.remoteTtl = remoteTtl;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        ValueWrapper value = local.getIfPresent(localKey);
+        if (value == null) {
+            value = remote.get(key);
+            if (value != null) {
+                local.put(localKey, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    /**
+     * 读取或加载（{@code @Cacheable(sync = true)}走这里）
+     * L2也未命中时由{@link CacheLoadCoordinator}跨节点协调加载；命中时按需触发提前刷新
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        CacheLoadCoordinator coordinator = cacheManager.getLoadCoordinator();
+        ValueWrapper wrapper = local.getIfPresent(localKey);
+        if (wrapper != null) {
+            coordinator.refreshIfDue(this, key, localKey, remote, valueLoader, remoteTtl);
+            return (T) wrapper.get();
+        }
+
+        CompletableFuture<ValueWrapper> load = new CompletableFuture<>();
+        CompletableFuture<ValueWrapper> inFlight = loads.putIfAbsent(localKey, load);
+        if (inFlight != null) {
+            return (T) await(inFlight).get();
+        }
+        try {
+            boolean loaded = false;
+            long generation = evictionGeneration(localKey);
+            wrapper = local.getIfPresent(localKey);
+            if (wrapper == null) {
+                wrapper = remote.get(key);
+                if (wrapper == null) {
+                    wrapper = coordinator.load(this, key, localKey, remote, valueLoader, remoteTtl, generation);
+                    loaded = true;
+                }
+                if (evictionGeneration(localKey) == generation) {
+                    local.put(localKey, wrapper);
+                }
+            }
+            load.complete(wrapper);
+            if (!loaded) {
+                coordinator.refreshIfDue(this, key, localKey, remote, valueLoader, remoteTtl);
+            }
+            return (T) wrapper.get();
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(localKey, load);
+        }
+    }
+
+    private static ValueWrapper await(CompletableFuture<ValueWrapper> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 键的失效代数：加载前后读取的值不同，说明期间键被写入、删除或整个缓存被清空，加载结果已过时
+     */
+    long evictionGeneration(String localKey) {
+        return generations.get(stripe(localKey)) + clearGeneration.get();
+    }
+
+    private void bumpGeneration(String localKey) {
+        if (localKey == null) {
+            clearGeneration.incrementAndGet();
+        } else {
+            generations.incrementAndGet(stripe(localKey));
+        }
+    }
+
+    private static int stripe(String localKey) {
+        int hash = localKey.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        bumpGeneration(localKey(key));
+        remote.put(key, value);
+        local.put(localKey(key), new SimpleValueWrapper(value));
+        cacheManager.publishEvict(name, localKey(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        if (existing == null) {
+            bumpGeneration(localKey(key));
+        }
+        local.put(localKey(key), existing != null ? existing : new SimpleValueWrapper(value));
+        if (existing == null) {
+            cacheManager.publishEvict(name, localKey(key));
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        bumpGeneration(localKey(key));
+        remote.evict(key);
+        local.invalidate(localKey(key));
+        cacheManager.publishEvict(name, localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        bumpGeneration(null);
+        remote.clear();
+        local.invalidateAll();
+        cacheManager.publishEvict(name, null);
+    }
+
+    /**
+     * 后台刷新完成后更新本节点L1，并通知其他节点丢弃旧值
+     */
+    void refreshLocal(String localKey, ValueWrapper value) {
+        local.put(localKey, value);
+        cacheManager.publishEvict(name, localKey);
+    }
+
+    /**
+     * 删除本节点L1中的条目，不访问L2，不广播
+     * @param localKey L1键；为null时清空整个L1
+     */
+    void evictLocal(String localKey) {
+        bumpGeneration(localKey);
+        if (localKey == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(localKey);
+        }
+    }
+
+    /**
+     * L1键与Redis键的转换方式一致（按字符串），使节点间的失效消息可以直接定位到条目
+     */
+    private static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+}
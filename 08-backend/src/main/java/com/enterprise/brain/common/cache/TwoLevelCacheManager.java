@@ -0,0 +1,196 @@
+package com.enterprise.brain.common.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 两级缓存管理器：每个缓存由进程内L1和Redis L2组成（见{@link TwoLevelCache}）
+ *
+ * <p>写入和删除通过Redis发布订阅广播失效消息（格式为"节点ID\n缓存名\n键"，清空整个缓存时为"节点ID\n缓存名"），
+ * 各节点收到其他节点的消息后删除本地L1中的条目。本节点发出的消息会被忽略。</p>
+ *
+ * <p>只在各节点进程内维护、不经过Redis的缓存（如表格的列式存储）也可以通过{@link #registerLocalCache}
+ * 注册失效回调，复用同一个频道广播失效消息。</p>
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener, DisposableBean {
+
+    private static final char SEPARATOR = '\n';
+    /** 待执行的后台刷新上限，超出时放弃本次刷新（条目过期后由读取方加载） */
+    private static final int REFRESH_QUEUE_CAPACITY = 1024;
+
+    private final CacheManager remoteCacheManager;
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final long localMaximumSize;
+    private final Duration localTtl;
+    /** 用于识别本节点发出的失效消息 */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    /** 进程内缓存名 -> 失效回调（参数为键，null表示清空整个缓存） */
+    private final Map<String, Consumer<String>> localCaches = new ConcurrentHashMap<>();
+    private final CacheLoadCoordinator loadCoordinator;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param keyPrefix Redis键前缀，失效频道和加载租约都在该前缀下
+     * @param leaseTime 跨节点加载租约的时长，也是其他节点等待加载结果的最长时间
+     * @param refreshBeta XFetch提前刷新系数，越大越早刷新，0表示不提前刷新
+     * @param refreshThreads 后台刷新线程数
+     */
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, StringRedisTemplate redisTemplate,
+                                String keyPrefix, String channel, long localMaximumSize, Duration localTtl,
+                                Duration leaseTime, double refreshBeta, int refreshThreads,
+                                MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.meterRegistry = meterRegistry;
+        this.redisTemplate = redisTemplate;
+        this.channel = keyPrefix + channel;
+        this.localMaximumSize = localMaximumSize;
+        this.localTtl = localTtl;
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        refreshExecutor.allowCoreThreadTimeOut(true);
+        this.loadCoordinator = new CacheLoadCoordinator(redisTemplate, keyPrefix + "lease:", nodeId, leaseTime,
+                refreshBeta, localMaximumSize, refreshExecutor, meterRegistry);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> createCache(n, remote));
+    }
+
+    /**
+     * 创建两级缓存，并为L1和L2注册按缓存名区分的指标
+     */
+    private TwoLevelCache createCache(String name, Cache remote) {
+        com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> local = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localTtl)
+                .scheduler(Scheduler.systemScheduler())
+                .evictionListener(CacheMeters.<String, Cache.ValueWrapper>evictionCounter(meterRegistry, name, CacheMeters.TIER_L1))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, name, CacheMeters.TAG_TIER, CacheMeters.TIER_L1);
+
+        Duration remoteTtl = Duration.ZERO;
+        if (remote instanceof RedisCache) {
+            RedisCache redisCache = (RedisCache) remote;
+            remoteTtl = redisCache.getCacheConfiguration().getTtl();
+            new RedisCacheMetrics(redisCache, Tags.of(CacheMeters.TAG_TIER, CacheMeters.TIER_L2)).bindTo(meterRegistry);
+        }
+        return new TwoLevelCache(name, local, remote, remoteTtl, this);
+    }
+
+    CacheLoadCoordinator getLoadCoordinator() {
+        return loadCoordinator;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * 注册进程内缓存，收到其他节点对该缓存名的失效消息时调用回调
+     * @param cacheName 缓存名，不能与两级缓存重名
+     * @param evictor 失效回调，参数为键，null表示清空整个缓存
+     */
+    public void registerLocalCache(String cacheName, Consumer<String> evictor) {
+        localCaches.put(cacheName, evictor);
+    }
+
+    /**
+     * 广播失效消息；发送失败只记录日志，其他节点的L1条目最迟在过期时间后失效
+     * @param cacheName 缓存名
+     * @param localKey L1键；为null时表示清空整个缓存
+     */
+    public void publishEvict(String cacheName, String localKey) {
+        String message = nodeId + SEPARATOR + cacheName + (localKey != null ? SEPARATOR + localKey : "");
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (RuntimeException e) {
+            log.warn("Cache invalidation publish failed, cache: {}, key: {}, error: {}", cacheName, localKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 处理其他节点广播的失效消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int first = body.indexOf(SEPARATOR);
+        if (first < 0) {
+            log.warn("Malformed cache invalidation message: {}", body);
+            return;
+        }
+        if (first == nodeId.length() && body.startsWith(nodeId)) {
+            return;
+        }
+        int second = body.indexOf(SEPARATOR, first + 1);
+        String cacheName = second >= 0 ? body.substring(first + 1, second) : body.substring(first + 1);
+        String localKey = second >= 0 ? body.substring(second + 1) : null;
+        TwoLevelCache cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.evictLocal(localKey);
+        } else {
+            Consumer<String> evictor = localCaches.get(cacheName);
+            if (evictor == null) {
+                return;
+            }
+            evictor.accept(localKey);
+        }
+        log.debug("Local cache entry invalidated by peer, cache: {}, key: {}", cacheName, localKey);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void destroy() {
+        loadCoordinator.shutdown();
+    }
+}
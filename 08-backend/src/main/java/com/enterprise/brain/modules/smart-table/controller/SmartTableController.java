@@ -1,12 +1,23 @@
 package com.enterprise.brain.modules.smarttable.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import lombok.RequiredArgsConstructor;
 import com.enterprise.brain.modules.smarttable.service.SmartTableService;
 import com.enterprise.brain.modules.smarttable.dto.request.TableCreateRequest;
 import com.enterprise.brain.modules.smarttable.dto.request.CellUpdateRequest;
 import com.enterprise.brain.modules.smarttable.dto.response.TableDataResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/smart-table")
 @RequiredArgsConstructor
@@ -18,6 +29,11 @@ public class SmartTableController {
         return smartTableService.createTable(request);
     }
     
+    @PostMapping("/{id}/instantiate")
+    public Object createTableFromTemplate(@PathVariable Long id, @RequestBody TableCreateRequest request) {
+        return smartTableService.createTableFromTemplate(id, request);
+    }
+    
     @GetMapping("/{id}")
     public Object getTableById(@PathVariable Long id) {
         return smartTableService.getTableById(id);
@@ -34,8 +50,19 @@ public class SmartTableController {
     }
     
     @GetMapping("/{id}/data")
-    public TableDataResponse getTableData(@PathVariable Long id) {
-        return smartTableService.getTableData(id);
+    public TableDataResponse getTableData(@PathVariable Long id,
+                                          @RequestParam(value = "cursor", required = false) Integer cursor,
+                                          @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                          @RequestParam(value = "columns", required = false) List<String> columns) {
+        return smartTableService.getTableDataAfter(id, cursor, pageSize, columns);
+    }
+    
+    @GetMapping(value = "/{id}/data/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTableData(@PathVariable Long id,
+                                                                 @RequestParam(value = "cursor", required = false) Integer cursor,
+                                                                 @RequestParam(value = "columns", required = false) List<String> columns) {
+        StreamingResponseBody body = out -> smartTableService.streamTableData(id, cursor, columns, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
     
     @PutMapping("/cell/update")
@@ -43,6 +70,29 @@ public class SmartTableController {
         return smartTableService.updateCell(request);
     }
     
+    @PostMapping(value = "/{id}/cells/bulk",
+                 consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Object bulkUpdateCells(@PathVariable Long id, HttpServletRequest request) throws IOException {
+        return smartTableService.bulkUpdateCells(id, request.getInputStream());
+    }
+    
+    @PostMapping(value = "/{id}/import/xlsx", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Object importXlsx(@PathVariable Long id, @RequestParam("file") MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return smartTableService.importXlsx(id, in);
+        }
+    }
+    
+    @GetMapping("/{id}/export/xlsx")
+    public ResponseEntity<StreamingResponseBody> exportXlsx(@PathVariable Long id) {
+        StreamingResponseBody body = out -> smartTableService.exportXlsx(id, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("smart-table-" + id + ".xlsx").build().toString())
+                .body(body);
+    }
+    
     @PostMapping("/{id}/copy")
     public Object copyTableData(@PathVariable Long id, @RequestParam("targetTableId") Long targetTableId) {
         return smartTableService.copyTableData(id, targetTableId);
@@ -0,0 +1,48 @@
+package com.enterprise.brain.modules.smarttable.controller;
+
+import org.springframework.web.bind.annotation.*;
+import lombok.RequiredArgsConstructor;
+import com.enterprise.brain.modules.smarttable.service.TableScenarioService;
+import com.enterprise.brain.modules.smarttable.dto.request.ScenarioAdjustmentRequest;
+import com.enterprise.brain.modules.smarttable.dto.response.ScenarioResponse;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/smart-table/scenarios")
+@RequiredArgsConstructor
+public class TableScenarioController {
+    private final TableScenarioService tableScenarioService;
+    
+    @PostMapping
+    public ScenarioResponse createScenario(@RequestParam("tableId") Long tableId,
+                                           @RequestParam(value = "name", required = false) String name) {
+        return tableScenarioService.createScenario(tableId, name);
+    }
+    
+    @GetMapping("/table/{tableId}")
+    public List<ScenarioResponse> getScenariosByTableId(@PathVariable Long tableId) {
+        return tableScenarioService.getScenariosByTableId(tableId);
+    }
+    
+    @GetMapping("/{scenarioId}")
+    public ScenarioResponse getScenario(@PathVariable String scenarioId) {
+        return tableScenarioService.getScenario(scenarioId);
+    }
+    
+    @PostMapping("/{scenarioId}/adjustments")
+    public ScenarioResponse applyAdjustments(@PathVariable String scenarioId,
+                                             @RequestBody List<ScenarioAdjustmentRequest> adjustments) {
+        return tableScenarioService.applyAdjustments(scenarioId, adjustments);
+    }
+    
+    @PostMapping("/{scenarioId}/refresh")
+    public ScenarioResponse refreshScenario(@PathVariable String scenarioId) {
+        return tableScenarioService.refreshScenario(scenarioId);
+    }
+    
+    @DeleteMapping("/{scenarioId}")
+    public void discardScenario(@PathVariable String scenarioId) {
+        tableScenarioService.discardScenario(scenarioId);
+    }
+}
@@ -0,0 +1,17 @@
+package com.enterprise.brain.modules.smart-table.dto.request;
+
+import lombok.Data;
+
+/**
+ * 协同编辑的单元格操作，如 {"op": "set", "cell": "B2", "value": "10", "seq": 17}
+ */
+@Data
+public class CellOperationMessage {
+    /** 操作类型：set（写入值）、clear（清空） */
+    private String op;
+    /** 单元格标识（如"B2"） */
+    private String cell;
+    private String value;
+    /** 客户端序号，服务端确认时原样返回 */
+    private Long seq;
+}
@@ -1,5 +1,6 @@
 package com.enterprise.brain.modules.smart-table.dto.request;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 @Data
@@ -7,6 +8,11 @@ public class CellUpdateRequest {
     private Long tableId;
     private Long rowId;
     private Long columnId;
+    /** 单元格标识符（如"A1"），用于定位受影响的公式 */
+    private String cellKey;
     private String cellValue;
     private Boolean isCalculated;
+    /** 公式单元格已知的计算结果（如XLSX中缓存的结果），只在服务端内部设置 */
+    @JsonIgnore
+    private String calculationResult;
 }
\ No newline at end of file
@@ -22,7 +22,6 @@ import java.util.concurrent.ConcurrentHashMap;
  *   <li>请求数据的标准化和清理</li>
  *   <li>智能数据类型推断和转换</li>
  *   <li>公式解析和依赖关系分析</li>
- *   <li>批量请求优化和合并</li>
  *   <li>缓存管理和性能监控</li>
  *   <li>安全性检查和数据清理</li>
  * </ul>
@@ -38,7 +37,6 @@ public class CellUpdateRequestUtils {
     // 常量定义
     private static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
     private static final String DEFAULT_CURRENCY_SYMBOL = "¥";
-    private static final int MAX_BATCH_SIZE = 100;
     
     // 缓存
     private final Map<String, Object> typeInferenceCache = new ConcurrentHashMap<>();
@@ -257,45 +255,6 @@ public class CellUpdateRequestUtils {
         return dependencies;
     }
 
-    /**
-     * 批量优化请求
-     * 
-     * @param requests 原始请求列表
-     * @return 优化后的请求列表
-     */
-    public List<CellUpdateRequest> optimizeBatchRequests(List<CellUpdateRequest> requests) {
-        if (requests == null || requests.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // 限制批量大小
-        if (requests.size() > MAX_BATCH_SIZE) {
-            log.warn("批量请求数量超过限制({})，将分批处理", MAX_BATCH_SIZE);
-            return optimizeBatchRequests(requests.subList(0, MAX_BATCH_SIZE));
-        }
-
-        List<CellUpdateRequest> optimized = new ArrayList<>();
-
-        // 按单元格位置分组，合并重复更新
-        Map<String, CellUpdateRequest> cellMap = new LinkedHashMap<>();
-        
-        for (CellUpdateRequest request : requests) {
-            // 标准化请求
-            CellUpdateRequest normalized = normalizeRequest(request);
-            
-            String cellKey = normalized.getFullCellIdentifier();
-            
-            // 如果同一单元格有多个更新，保留最后一个
-            cellMap.put(cellKey, normalized);
-        }
-
-        // 按依赖关系排序
-        List<CellUpdateRequest> sortedRequests = new ArrayList<>(cellMap.values());
-        sortByDependencies(sortedRequests);
-
-        return sortedRequests;
-    }
-
     /**
      * 格式化单元格值
      * 
@@ -509,24 +468,6 @@ public class CellUpdateRequestUtils {
         return value.length() > maxLength ? value.substring(0, maxLength) + "..." : value;
     }
 
-    private void sortByDependencies(List<CellUpdateRequest> requests) {
-        // 简单的拓扑排序，确保依赖项在前面
-        requests.sort((a, b) -> {
-            // 计算单元格优先级更高
-            if (Boolean.TRUE.equals(a.getIsCalculated()) && !Boolean.TRUE.equals(b.getIsCalculated())) {
-                return 1;
-            }
-            if (!Boolean.TRUE.equals(a.getIsCalculated()) && Boolean.TRUE.equals(b.getIsCalculated())) {
-                return -1;
-            }
-            
-            // 按优先级排序
-            int priorityA = calculatePriority(a);
-            int priorityB = calculatePriority(b);
-            return Integer.compare(priorityB, priorityA);
-        });
-    }
-
     private String generateBatchId() {
         return "batch_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + 
                "_" + System.currentTimeMillis() % 1000;
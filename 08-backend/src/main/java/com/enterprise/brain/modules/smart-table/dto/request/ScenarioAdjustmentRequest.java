@@ -0,0 +1,15 @@
+package com.enterprise.brain.modules.smart-table.dto.request;
+
+import lombok.Data;
+
+/**
+ * 假设分析场景的一次调整，如 {"target": "C2:C500", "operation": "PERCENT", "value": 5} 表示C列单价上调5%
+ */
+@Data
+public class ScenarioAdjustmentRequest {
+    /** 单元格（如"C2"）或区域（如"C2:C500"） */
+    private String target;
+    /** 调整方式：SET、ADD、MULTIPLY、PERCENT */
+    private String operation;
+    private Double value;
+}
@@ -0,0 +1,23 @@
+package com.enterprise.brain.modules.smart-table.dto.response;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class ScenarioResponse {
+    private String scenarioId;
+    private Long tableId;
+    private String name;
+    /** 场景中调整过的单元格数量 */
+    private Integer adjustedCells;
+    /** 场景保存的增量单元格数量（调整值与公式结果之和） */
+    private Integer deltaSize;
+    /** 本次请求重算的公式数量 */
+    private Integer recalculatedFormulas;
+    /** 公式键 -> 场景中的结果 */
+    private Map<String, String> results;
+    /** 公式键 -> 表格当前数据下的结果，与results对照 */
+    private Map<String, String> baseline;
+    private Long elapsedMs;
+}
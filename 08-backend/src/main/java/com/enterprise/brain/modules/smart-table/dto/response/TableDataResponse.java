@@ -11,4 +11,7 @@ public class TableDataResponse {
     private List<ColumnConfigResponse> columns;
     private List<Map<String, Object>> rows;
     private Integer totalRows;
+    /** 下一页游标（本页最后一行的行号），没有更多数据时为null */
+    private Integer nextCursor;
+    private Boolean hasMore;
 }
\ No newline at end of file
@@ -46,7 +46,8 @@ import java.util.List;
            @Index(name = "idx_smart_table_create_user", columnList = "create_user_id"),
            @Index(name = "idx_smart_table_name", columnList = "table_name"),
            @Index(name = "idx_smart_table_status", columnList = "is_enabled", "is_deleted"),
-           @Index(name = "idx_smart_table_create_time", columnList = "create_time")
+           @Index(name = "idx_smart_table_create_time", columnList = "create_time"),
+           @Index(name = "idx_smart_table_template", columnList = "template_id")
        },
        uniqueConstraints = {
            @UniqueConstraint(name = "uk_table_name_user", 
@@ -223,6 +224,15 @@ public class SmartTable {
     @Column(name = "is_template", nullable = false, columnDefinition = "TINYINT(1) DEFAULT 0 COMMENT '是否为模板'")
     private Boolean isTemplate = false;
     
+    /**
+     * 写时复制的模板ID
+     * 
+     * <p>基于模板创建表格时只复制列和公式，单元格不复制：该字段指向模板，读取单元格时直接读取模板的单元格。</p>
+     * <p>首次写入单元格时才把模板单元格复制到本表格并清空该字段；为null表示表格拥有自己的单元格。</p>
+     */
+    @Column(name = "template_id", columnDefinition = "BIGINT COMMENT '写时复制的模板ID'")
+    private Long templateId;
+    
     /**
      * 表格版本号
      * 
@@ -1,5 +1,6 @@
 package com.enterprise.brain.modules.smart-table.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -81,7 +82,7 @@ public class TableFormula {
      * 关联的表格列
      * 
      * <p>指向应用公式的表格列实体。</p>
-     * <p>用于建立公式与列的关联关系。</p>
+     * <p>用于建立公式与列的关联关系，每列最多一个列级公式；单元格级公式（设置了cellId）不关联列。</p>
      */
     @Column(name = "column_id", columnDefinition = "BIGINT COMMENT '列ID'")
     private Long columnId;
@@ -521,7 +522,9 @@ public class TableFormula {
      * 
      * <p>延迟加载关联的智能表格实体。</p>
      * <p>用于获取表格详细信息。</p>
+     * <p>不参与JSON序列化：公式会缓存到Redis，序列化未初始化的延迟加载代理会失败或触发查询，表格ID见tableId。</p>
      */
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "table_id", foreignKey = @ForeignKey(name = "fk_formula_table"), insertable = false, updatable = false)
     private SmartTable table;
@@ -531,7 +534,9 @@ public class TableFormula {
      * 
      * <p>延迟加载关联的表格列实体。</p>
      * <p>用于获取列详细信息。</p>
+     * <p>不参与JSON序列化，原因同table，列ID见columnId。</p>
      */
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "column_id", foreignKey = @ForeignKey(name = "fk_formula_column"), insertable = false, updatable = false)
     private TableColumn column;
@@ -0,0 +1,94 @@
+package com.enterprise.brain.modules.smart-table.repository;
+
+import com.enterprise.brain.modules.smart-table.dto.request.CellUpdateRequest;
+import com.enterprise.brain.modules.smart-table.entity.TableCell;
+import com.enterprise.brain.modules.smart-table.util.NumericCellSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * 单元格批量写入（JDBC批处理）
+ *
+ * <p>大批量粘贴时逐条保存实体会产生大量单条INSERT/UPDATE语句，这里改用一条带
+ * ON DUPLICATE KEY UPDATE的语句做JDBC批处理，按唯一键(table_id, row_id, column_id)新增或覆盖。
+ * 数据源URL需开启rewriteBatchedStatements，驱动才会把批处理改写为多值INSERT一次发送。</p>
+ *
+ * <p>以"="开头的值标记为公式单元格，对应的单元格公式由调用方登记。公式单元格的calculation_result
+ * 取更新中携带的已知结果（如XLSX缓存的结果），没有时置空并标记为未计算。</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class TableCellJdbcRepository {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO table_cell (table_id, row_id, column_id, cell_key, cell_value, data_type, numeric_value, " +
+            "is_formula_cell, formula_expression, calculation_result, calculation_status, " +
+            "is_deleted, version, create_time, update_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE cell_key = VALUES(cell_key), cell_value = VALUES(cell_value), " +
+            "data_type = VALUES(data_type), numeric_value = VALUES(numeric_value), " +
+            "is_formula_cell = VALUES(is_formula_cell), formula_expression = VALUES(formula_expression), " +
+            "calculation_result = VALUES(calculation_result), calculation_status = VALUES(calculation_status), " +
+            "is_deleted = 0, version = version + 1, update_time = NOW()";
+
+    /** DECIMAL(19,6)能容纳的整数部分上限 */
+    private static final double MAX_NUMERIC_VALUE = 1e13;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量新增或覆盖单元格
+     * @param tableId 表格ID
+     * @param cells 单元格更新（rowId、columnId、cellKey均不能为空，由调用方校验）
+     * @return 写入的单元格数量
+     */
+    public int upsertCells(Long tableId, List<CellUpdateRequest> cells) {
+        if (cells.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                CellUpdateRequest cell = cells.get(i);
+                String value = cell.getCellValue();
+                boolean formula = value != null && value.startsWith("=");
+                double number = formula ? Double.NaN : NumericCellSnapshot.parseNumeric(value, Double.NaN);
+                boolean numeric = number == number && Math.abs(number) < MAX_NUMERIC_VALUE;
+
+                ps.setLong(1, tableId);
+                ps.setLong(2, cell.getRowId());
+                ps.setLong(3, cell.getColumnId());
+                ps.setString(4, cell.getCellKey());
+                ps.setString(5, value);
+                ps.setString(6, (formula ? TableCell.DataType.FORMULA
+                        : numeric ? TableCell.DataType.NUMBER : TableCell.DataType.TEXT).name());
+                if (numeric) {
+                    ps.setBigDecimal(7, BigDecimal.valueOf(number));
+                } else {
+                    ps.setNull(7, Types.DECIMAL);
+                }
+                ps.setBoolean(8, formula);
+                ps.setString(9, formula ? value : null);
+                // 公式单元格没有已知结果时标记为未计算，旧结果随公式一起作废
+                String result = formula ? cell.getCalculationResult() : null;
+                ps.setString(10, result);
+                ps.setString(11, (result != null ? TableCell.CalculationStatus.SUCCESS
+                        : TableCell.CalculationStatus.UNCALCULATED).name());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return cells.size();
+            }
+        });
+        return cells.size();
+    }
+}
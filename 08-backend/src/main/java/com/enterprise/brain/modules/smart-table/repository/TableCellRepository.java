@@ -0,0 +1,28 @@
+package com.enterprise.brain.modules.smart-table.repository;
+
+import com.enterprise.brain.modules.smart-table.entity.TableCell;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TableCellRepository extends JpaRepository<TableCell, Long> {
+    
+    /**
+     * 只查询单元格标识和值（[cellKey, cellValue]），不加载完整的单元格实体
+     */
+    @Query("SELECT c.cellKey, c.cellValue FROM TableCell c WHERE c.table.id = :tableId AND c.isDeleted = false")
+    List<Object[]> findCellValuesByTableId(@Param("tableId") Long tableId);
+    
+    /**
+     * 只查询指定单元格的标识和值（[cellKey, cellValue]），不存在或已删除的单元格不返回
+     */
+    @Query("SELECT c.cellKey, c.cellValue FROM TableCell c WHERE c.table.id = :tableId " +
+           "AND c.cellKey IN :cellKeys AND c.isDeleted = false")
+    List<Object[]> findCellValuesByTableIdAndCellKeys(@Param("tableId") Long tableId,
+                                                      @Param("cellKeys") Collection<String> cellKeys);
+}
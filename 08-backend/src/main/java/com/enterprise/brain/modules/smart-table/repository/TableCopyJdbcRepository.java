@@ -0,0 +1,199 @@
+package com.enterprise.brain.modules.smart-table.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 表格复制（服务端集合操作）
+ *
+ * <p>列、公式、行和单元格都用INSERT … SELECT在数据库内一次复制，数据不经过应用服务器，
+ * 语句数量与表格大小无关。调用方负责把这些语句放在同一个事务中执行。</p>
+ *
+ * <p>复制后的主键由数据库重新生成，引用关系按自然键改写：列按(table_id, column_index)对应，
+ * 行按(table_id, row_index)对应，公式的column_id和单元格的column_id按列位置映射到目标表格的列，
+ * 单元格的row_id按行位置映射到目标表格的行，列的formula_id按公式所属列重新关联。
+ * 公式表达式和依赖单元格列表中的"A1"引用是位置引用，复制后位置不变，无需改写；
+ * dependent_formulas记录的是源表格的公式ID，复制后置空，由依赖图重新推导。</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class TableCopyJdbcRepository {
+
+    private static final String COPY_COLUMNS_SQL =
+            "INSERT INTO table_column (table_id, formula_id, column_name, column_key, column_description, column_index, " +
+            "column_width, column_type, default_value, is_formula_column, formula_expression, is_required, " +
+            "validation_rule, validation_params, is_visible, is_editable, is_sortable, is_frozen, text_align, " +
+            "background_color, font_color, column_config, tags, sort_weight, creator_id, " +
+            "version, is_deleted, create_time, update_time) " +
+            "SELECT ?, NULL, column_name, column_key, column_description, column_index, " +
+            "column_width, column_type, default_value, is_formula_column, formula_expression, is_required, " +
+            "validation_rule, validation_params, is_visible, is_editable, is_sortable, is_frozen, text_align, " +
+            "background_color, font_color, column_config, tags, sort_weight, creator_id, " +
+            "0, 0, NOW(), NOW() " +
+            "FROM table_column WHERE table_id = ? AND is_deleted = 0";
+
+    /** 执行统计（执行次数、耗时、错误次数）不复制，使用列默认值 */
+    private static final String COPY_FORMULAS_SQL =
+            "INSERT INTO table_formula (table_id, column_id, cell_id, formula_name, formula_expression, " +
+            "formula_description, formula_type, formula_category, execution_priority, auto_execute, " +
+            "execution_trigger, cache_enabled, cache_ttl, dependent_cells, dependent_formulas, affected_cells, " +
+            "input_parameters, output_parameters, parameter_validation, formula_status, is_enabled, " +
+            "is_system_formula, formula_version, previous_version, version_notes, creator_permission, " +
+            "permission_config, tags, extended_config, creator_id, version, is_deleted, create_time, update_time) " +
+            "SELECT ?, tc.id, f.cell_id, f.formula_name, f.formula_expression, " +
+            "f.formula_description, f.formula_type, f.formula_category, f.execution_priority, f.auto_execute, " +
+            "f.execution_trigger, f.cache_enabled, f.cache_ttl, f.dependent_cells, NULL, f.affected_cells, " +
+            "f.input_parameters, f.output_parameters, f.parameter_validation, f.formula_status, f.is_enabled, " +
+            "f.is_system_formula, f.formula_version, f.previous_version, f.version_notes, f.creator_permission, " +
+            "f.permission_config, f.tags, f.extended_config, f.creator_id, 0, 0, NOW(), NOW() " +
+            "FROM table_formula f " +
+            "LEFT JOIN table_column sc ON sc.id = f.column_id " +
+            "LEFT JOIN table_column tc ON tc.table_id = ? AND tc.column_index = sc.column_index " +
+            "WHERE f.table_id = ? AND f.is_deleted = 0 AND (f.column_id IS NULL OR tc.id IS NOT NULL)";
+
+    private static final String RELINK_COLUMN_FORMULAS_SQL =
+            "UPDATE table_column c JOIN table_formula f " +
+            "ON f.table_id = c.table_id AND f.column_id = c.id AND f.is_deleted = 0 " +
+            "SET c.formula_id = f.id WHERE c.table_id = ?";
+
+    /** 按行位置复制行，目标表格已有的行位置不重复创建 */
+    private static final String COPY_ROWS_SQL =
+            "INSERT INTO table_row (table_id, row_index, version, is_deleted, create_time, update_time) " +
+            "SELECT ?, sr.row_index, 0, 0, NOW(), NOW() " +
+            "FROM table_row sr " +
+            "WHERE sr.table_id = ? AND sr.is_deleted = 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM table_row tr WHERE tr.table_id = ? AND tr.row_index = sr.row_index " +
+            "AND tr.is_deleted = 0) " +
+            "GROUP BY sr.row_index";
+
+    /**
+     * 单元格的行和列按位置映射：源单元格的列 -> 源列的column_index -> 目标表格同位置的列，
+     * 源单元格的行 -> 源行的row_index -> 目标表格同位置的行
+     */
+    private static final String COPY_CELLS_SQL =
+            "INSERT INTO table_cell (table_id, row_id, column_id, cell_key, display_name, cell_value, data_type, " +
+            "numeric_value, date_value, boolean_value, url_value, email_value, font_style, background_style, " +
+            "text_align, vertical_align, border_style, is_formula_cell, formula_expression, calculation_result, " +
+            "calculation_status, calculation_time, calculation_duration, validation_rule, custom_validation_regex, " +
+            "validation_error, last_validation_time, cell_status, is_readonly, is_hidden, remarks, tags, " +
+            "sort_weight, extended_properties, last_modifier_id, creator_id, version, is_deleted, " +
+            "create_time, update_time) " +
+            "SELECT ?, tr.id, tc.id, c.cell_key, c.display_name, c.cell_value, c.data_type, " +
+            "c.numeric_value, c.date_value, c.boolean_value, c.url_value, c.email_value, c.font_style, " +
+            "c.background_style, c.text_align, c.vertical_align, c.border_style, c.is_formula_cell, " +
+            "c.formula_expression, c.calculation_result, c.calculation_status, c.calculation_time, " +
+            "c.calculation_duration, c.validation_rule, c.custom_validation_regex, c.validation_error, " +
+            "c.last_validation_time, c.cell_status, c.is_readonly, c.is_hidden, c.remarks, c.tags, " +
+            "c.sort_weight, c.extended_properties, c.last_modifier_id, c.creator_id, 0, 0, NOW(), NOW() " +
+            "FROM table_cell c " +
+            "JOIN table_column sc ON sc.id = c.column_id " +
+            "JOIN table_column tc ON tc.table_id = ? AND tc.column_index = sc.column_index " +
+            "JOIN table_row sr ON sr.id = c.row_id " +
+            "JOIN (SELECT row_index, MIN(id) AS id FROM table_row WHERE table_id = ? AND is_deleted = 0 " +
+            "GROUP BY row_index) tr ON tr.row_index = sr.row_index " +
+            "WHERE c.table_id = ? AND c.is_deleted = 0";
+
+    private static final String DELETE_CELLS_SQL = "DELETE FROM table_cell WHERE table_id = ?";
+    private static final String DELETE_ROWS_SQL = "DELETE FROM table_row WHERE table_id = ?";
+    private static final String UNLINK_COLUMN_FORMULAS_SQL =
+            "UPDATE table_column SET formula_id = NULL WHERE table_id = ? AND formula_id IS NOT NULL";
+    private static final String DELETE_FORMULAS_SQL = "DELETE FROM table_formula WHERE table_id = ?";
+    private static final String DELETE_COLUMNS_SQL = "DELETE FROM table_column WHERE table_id = ?";
+
+    private static final String FIND_TEMPLATE_SQL = "SELECT template_id FROM smart_table WHERE id = ?";
+    private static final String FIND_PENDING_COPIES_SQL = "SELECT id FROM smart_table WHERE template_id = ?";
+    private static final String LINK_TEMPLATE_SQL =
+            "UPDATE smart_table SET template_id = ?, version = version + 1, update_time = NOW() WHERE id = ?";
+    /** 抢占物化：并发的首次写入中只有一个能把template_id置空 */
+    private static final String CLAIM_MATERIALIZATION_SQL =
+            "UPDATE smart_table SET template_id = NULL, version = version + 1, update_time = NOW() " +
+            "WHERE id = ? AND template_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 复制列和公式（表结构），并重新关联列的公式
+     * @param sourceTableId 源表格ID
+     * @param targetTableId 目标表格ID（应当没有列和公式）
+     * @return 复制的列数量
+     */
+    public int copySchema(Long sourceTableId, Long targetTableId) {
+        int columns = jdbcTemplate.update(COPY_COLUMNS_SQL, targetTableId, sourceTableId);
+        jdbcTemplate.update(COPY_FORMULAS_SQL, targetTableId, targetTableId, sourceTableId);
+        jdbcTemplate.update(RELINK_COLUMN_FORMULAS_SQL, targetTableId);
+        return columns;
+    }
+
+    /**
+     * 复制行和单元格：先按行位置在目标表格中创建行，再复制单元格，
+     * 行和列都按位置映射到目标表格（目标表格中不存在对应列的单元格不复制）
+     * @param sourceTableId 单元格所在的表格ID
+     * @param targetTableId 目标表格ID（应当没有单元格）
+     * @return 复制的单元格数量
+     */
+    public int copyCells(Long sourceTableId, Long targetTableId) {
+        jdbcTemplate.update(COPY_ROWS_SQL, targetTableId, sourceTableId, targetTableId);
+        return jdbcTemplate.update(COPY_CELLS_SQL, targetTableId, targetTableId, targetTableId, sourceTableId);
+    }
+
+    /**
+     * 物理删除表格的单元格、行、公式和列（复制前清空目标表格）
+     */
+    public void deleteContent(Long tableId) {
+        jdbcTemplate.update(DELETE_CELLS_SQL, tableId);
+        jdbcTemplate.update(DELETE_ROWS_SQL, tableId);
+        jdbcTemplate.update(UNLINK_COLUMN_FORMULAS_SQL, tableId);
+        jdbcTemplate.update(DELETE_FORMULAS_SQL, tableId);
+        jdbcTemplate.update(DELETE_COLUMNS_SQL, tableId);
+    }
+
+    /**
+     * @return 表格写时复制的模板ID，表格拥有自己的单元格或不存在时返回null
+     */
+    public Long findTemplateId(Long tableId) {
+        List<Long> ids = jdbcTemplate.queryForList(FIND_TEMPLATE_SQL, Long.class, tableId);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * 让表格以写时复制方式共享模板的单元格
+     * @param templateId 模板ID，为null时解除共享
+     */
+    public void linkTemplate(Long tableId, Long templateId) {
+        jdbcTemplate.update(LINK_TEMPLATE_SQL, templateId, tableId);
+    }
+
+    /**
+     * 把写时复制的表格物化：复制模板的单元格并解除共享
+     *
+     * <p>写入表格单元格前调用。先抢占再复制：抢占语句持有行锁直到事务结束，
+     * 并发的首次写入会等待并在之后发现已物化，不会重复复制。</p>
+     *
+     * @return 是否执行了物化
+     */
+    public boolean materialize(Long tableId) {
+        Long templateId = findTemplateId(tableId);
+        if (templateId == null || jdbcTemplate.update(CLAIM_MATERIALIZATION_SQL, tableId, templateId) == 0) {
+            return false;
+        }
+        copyCells(templateId, tableId);
+        return true;
+    }
+
+    /**
+     * 物化仍在共享模板单元格的全部表格（写入模板单元格前调用，保证副本看到的是创建时的模板内容）
+     * @return 物化的表格数量
+     */
+    public int materializeCopiesOf(Long templateId) {
+        int count = 0;
+        for (Long copyId : jdbcTemplate.queryForList(FIND_PENDING_COPIES_SQL, Long.class, templateId)) {
+            if (materialize(copyId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
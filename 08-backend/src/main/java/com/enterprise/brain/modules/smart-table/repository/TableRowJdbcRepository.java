@@ -0,0 +1,91 @@
+package com.enterprise.brain.modules.smart-table.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 表格行查找与创建（按行位置）
+ *
+ * <p>单元格的row_id引用table_row.id（全局自增主键），不是单元格在表格中的行位置。
+ * 按位置写入单元格的路径（XLSX导入、协同编辑）先用这里把行位置换成本表格的行ID。
+ * 行位置对应table_row.row_index，与列的column_index一样从0开始，即单元格"A1"在行位置0。</p>
+ *
+ * <p>同一表格的同一行位置理论上只有一行；如有重复，取ID最小的一行。</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class TableRowJdbcRepository {
+
+    private static final String FIND_ROWS_SQL =
+            "SELECT row_index, id FROM table_row " +
+            "WHERE table_id = ? AND row_index BETWEEN ? AND ? AND is_deleted = 0 ORDER BY id";
+
+    private static final String INSERT_ROW_SQL =
+            "INSERT INTO table_row (table_id, row_index, version, is_deleted, create_time, update_time) " +
+            "VALUES (?, ?, 0, 0, NOW(), NOW())";
+
+    /** 串行化同一表格的行创建：锁住表格记录直到事务结束 */
+    private static final String LOCK_TABLE_SQL = "SELECT id FROM smart_table WHERE id = ? FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 查找行位置对应的行ID
+     * @param tableId 表格ID
+     * @param rowIndexes 行位置（从0开始）
+     * @return 行位置 -> 行ID，不存在的行位置不在结果中
+     */
+    public Map<Integer, Long> findRowIds(Long tableId, Set<Integer> rowIndexes) {
+        Map<Integer, Long> rowIds = new HashMap<>();
+        if (rowIndexes.isEmpty()) {
+            return rowIds;
+        }
+        int from = Integer.MAX_VALUE;
+        int to = Integer.MIN_VALUE;
+        for (int rowIndex : rowIndexes) {
+            from = Math.min(from, rowIndex);
+            to = Math.max(to, rowIndex);
+        }
+        jdbcTemplate.query(FIND_ROWS_SQL, rs -> {
+            int rowIndex = rs.getInt(1);
+            if (rowIndexes.contains(rowIndex)) {
+                rowIds.putIfAbsent(rowIndex, rs.getLong(2));
+            }
+        }, tableId, from, to);
+        return rowIds;
+    }
+
+    /**
+     * 查找行位置对应的行ID，不存在的行先创建（须在事务中调用）
+     * @param tableId 表格ID
+     * @param rowIndexes 行位置（从0开始）
+     * @return 行位置 -> 行ID，包含全部请求的行位置
+     */
+    public Map<Integer, Long> findOrCreateRowIds(Long tableId, Set<Integer> rowIndexes) {
+        Map<Integer, Long> rowIds = findRowIds(tableId, rowIndexes);
+        if (rowIds.size() == rowIndexes.size()) {
+            return rowIds;
+        }
+        // 加锁后重新查询，并发创建同一表格的行时只有一方插入
+        jdbcTemplate.queryForList(LOCK_TABLE_SQL, Long.class, tableId);
+        rowIds = findRowIds(tableId, rowIndexes);
+        List<Object[]> missing = new ArrayList<>();
+        for (int rowIndex : rowIndexes) {
+            if (!rowIds.containsKey(rowIndex)) {
+                missing.add(new Object[] {tableId, rowIndex});
+            }
+        }
+        if (missing.isEmpty()) {
+            return rowIds;
+        }
+        jdbcTemplate.batchUpdate(INSERT_ROW_SQL, missing);
+        return findRowIds(tableId, rowIndexes);
+    }
+}
@@ -1,9 +1,13 @@
 package com.enterprise.brain.modules.smart-table.service;
 
+import com.enterprise.brain.modules.smart-table.dto.request.CellUpdateRequest;
 import com.enterprise.brain.modules.smart-table.dto.request.TableCreateRequest;
 import com.enterprise.brain.modules.smart-table.dto.response.TableDataResponse;
 import com.enterprise.brain.modules.smart-table.entity.SmartTable;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -11,6 +15,8 @@ public interface SmartTableService {
     
     SmartTable createTable(TableCreateRequest request);
     
+    SmartTable createTableFromTemplate(Long templateId, TableCreateRequest request);
+    
     SmartTable getTableById(Long tableId);
     
     List<SmartTable> getAllTables();
@@ -23,6 +29,18 @@ public interface SmartTableService {
     
     TableDataResponse getTableData(Long tableId, Integer page, Integer pageSize);
     
+    TableDataResponse getTableDataAfter(Long tableId, Integer cursor, Integer pageSize, List<String> columns);
+    
+    void streamTableData(Long tableId, Integer cursor, List<String> columns, OutputStream out) throws IOException;
+    
+    Map<String, Object> bulkUpdateCells(Long tableId, InputStream in) throws IOException;
+    
+    Map<String, Object> applyCellUpdates(Long tableId, List<CellUpdateRequest> updates);
+    
+    Map<String, Object> importXlsx(Long tableId, InputStream in) throws IOException;
+    
+    void exportXlsx(Long tableId, OutputStream out) throws IOException;
+    
     Map<String, Object> copyTableData(Long sourceTableId, Long targetTableId);
     
     List<SmartTable> searchTables(String keyword);
@@ -0,0 +1,36 @@
+package com.enterprise.brain.modules.smart-table.service;
+
+import com.enterprise.brain.modules.smart-table.util.CellValueSource;
+import com.enterprise.brain.modules.smart-table.util.ColumnarCellStore;
+
+/**
+ * 表格单元格列式存储服务，维护每个表格在内存中的{@link ColumnarCellStore}
+ *
+ * <p>存储只反映已提交的数据：事务中的写入和失效在事务提交后才应用到存储，并广播给其他节点；
+ * 事务回滚时丢弃。</p>
+ */
+public interface TableCellStoreService {
+
+    /**
+     * 获取表格的列式存储（首次访问时从数据库加载），不包含当前事务尚未提交的写入
+     */
+    ColumnarCellStore getStore(Long tableId);
+
+    /**
+     * 获取表格的单元格数值来源：在列式存储之上叠加当前事务中尚未提交的写入，供事务内的公式重算使用
+     */
+    CellValueSource getSource(Long tableId);
+
+    /**
+     * 更新已加载表格中的单元格（表格未加载时忽略，下次访问时从数据库加载最新值）
+     *
+     * <p>在事务中调用时，事务提交后才应用到存储。</p>
+     */
+    void updateCell(Long tableId, String cellKey, String cellValue);
+
+    /**
+     * 丢弃表格的列式存储，下次访问时重新加载（在事务中调用时，事务提交后才丢弃）
+     * @param tableId 表格ID，为null时丢弃全部表格的存储
+     */
+    void invalidate(Long tableId);
+}
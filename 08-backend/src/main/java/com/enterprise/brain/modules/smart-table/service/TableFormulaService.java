@@ -1,9 +1,13 @@
 package com.enterprise.brain.modules.smart-table.service;
 
+import com.enterprise.brain.modules.smart-table.dto.request.CellUpdateRequest;
 import com.enterprise.brain.modules.smart-table.dto.request.FormulaCalculateRequest;
 import com.enterprise.brain.modules.smart-table.dto.response.FormulaResultResponse;
 import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import com.enterprise.brain.modules.smart-table.util.CellReference;
+import com.enterprise.brain.modules.smart-table.util.FormulaDependencyGraph;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -21,9 +25,21 @@ public interface TableFormulaService {
     
     void deleteFormula(Long formulaId);
     
+    List<TableFormula> saveImportedFormulas(Long tableId, List<TableFormula> formulas);
+    
+    void evictTableFormulas(Long tableId);
+    
     FormulaResultResponse calculateFormula(FormulaCalculateRequest request);
     
     Map<String, String> batchCalculateFormulas(Long tableId, Map<String, String> cellValues);
     
+    Map<String, String> calculateTableFormulas(Long tableId);
+    
+    Map<String, String> recalculateAffectedFormulas(Long tableId, List<CellUpdateRequest> updates, Map<String, String> cellValues);
+    
+    Map<String, String> recalculateChangedCells(Long tableId, Collection<CellReference> changedCells);
+    
+    FormulaDependencyGraph getDependencyGraph(Long tableId);
+    
     boolean validateFormula(String formulaExpression);
 }
\ No newline at end of file
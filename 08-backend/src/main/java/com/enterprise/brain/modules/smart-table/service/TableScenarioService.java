@@ -0,0 +1,24 @@
+package com.enterprise.brain.modules.smart-table.service;
+
+import com.enterprise.brain.modules.smart-table.dto.request.ScenarioAdjustmentRequest;
+import com.enterprise.brain.modules.smart-table.dto.response.ScenarioResponse;
+
+import java.util.List;
+
+/**
+ * 假设分析场景服务：在不修改表格数据的前提下试算单元格调整对公式结果的影响
+ */
+public interface TableScenarioService {
+    
+    ScenarioResponse createScenario(Long tableId, String name);
+    
+    ScenarioResponse applyAdjustments(String scenarioId, List<ScenarioAdjustmentRequest> adjustments);
+    
+    ScenarioResponse getScenario(String scenarioId);
+    
+    ScenarioResponse refreshScenario(String scenarioId);
+    
+    List<ScenarioResponse> getScenariosByTableId(Long tableId);
+    
+    void discardScenario(String scenarioId);
+}
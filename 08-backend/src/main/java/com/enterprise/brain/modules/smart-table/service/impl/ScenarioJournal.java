@@ -0,0 +1,148 @@
+package com.enterprise.brain.modules.smart-table.service.impl;
+
+import com.enterprise.brain.modules.smart-table.dto.request.ScenarioAdjustmentRequest;
+import com.enterprise.brain.modules.smart-table.util.WhatIfScenario;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 假设分析场景的调整日志，保存在Redis中，任意节点都可以按日志重建场景
+ *
+ * <p>场景的增量和计算结果只在各节点内存中，节点之间共享的是场景定义：每个场景一个Redis列表，
+ * 首条为场景头（表格ID、创建时间、名称），之后按顺序追加每次调整。节点按已应用的日志条数
+ * 增量回放新追加的调整，多个节点同时调整时以日志中的顺序为准。另有按表格的场景ID集合，供列出场景使用。
+ * 日志和集合的过期时间与场景空闲超时相同，每次读取时续期。</p>
+ *
+ * <p>未配置Redis（单节点部署）时不记录日志，场景只保存在本节点。</p>
+ */
+@Slf4j
+class ScenarioJournal {
+
+    static final String KEY_PREFIX = "smart-table:scenario:";
+    static final String TABLE_KEY_PREFIX = "smart-table:scenario:table:";
+    /** 场景头在日志中的位置，调整从其后开始 */
+    static final long FIRST_ADJUSTMENT = 1;
+
+    private static final String SEPARATOR = "|";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    /**
+     * @param redisTemplate 为null时不记录日志
+     */
+    ScenarioJournal(StringRedisTemplate redisTemplate, Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    boolean isEnabled() {
+        return redisTemplate != null;
+    }
+
+    /**
+     * 写入场景头
+     * @return 写入成功时返回true；未配置Redis或写入失败时返回false，场景只保存在本节点
+     */
+    boolean create(WhatIfScenario scenario) {
+        if (redisTemplate == null) {
+            return false;
+        }
+        try {
+            String key = KEY_PREFIX + scenario.getId();
+            redisTemplate.opsForList().rightPush(key, scenario.getTableId() + SEPARATOR + scenario.getCreateTime()
+                    + SEPARATOR + (scenario.getName() != null ? scenario.getName() : ""));
+            redisTemplate.expire(key, ttl);
+            String tableKey = TABLE_KEY_PREFIX + scenario.getTableId();
+            redisTemplate.opsForSet().add(tableKey, scenario.getId());
+            redisTemplate.expire(tableKey, ttl);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("假设分析场景日志写入失败，场景只保存在本节点 - 场景ID: {}, 错误: {}", scenario.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 按场景头重建空场景，调整需要另外用{@link #read}回放
+     * @return 场景；日志不存在（已丢弃或过期）时返回null
+     */
+    WhatIfScenario load(String scenarioId) {
+        String header = redisTemplate.opsForList().index(KEY_PREFIX + scenarioId, 0);
+        if (header == null) {
+            return null;
+        }
+        String[] parts = header.split("\\" + SEPARATOR, 3);
+        String name = parts.length > 2 && !parts[2].isEmpty() ? parts[2] : null;
+        return new WhatIfScenario(scenarioId, Long.valueOf(parts[0]), name, Long.parseLong(parts[1]));
+    }
+
+    /**
+     * 追加一批调整（调整方式须已规范化为{@link WhatIfScenario.Operation}的名称）
+     */
+    void append(String scenarioId, List<ScenarioAdjustmentRequest> adjustments) {
+        if (adjustments.isEmpty()) {
+            return;
+        }
+        List<String> entries = new ArrayList<>(adjustments.size());
+        for (ScenarioAdjustmentRequest adjustment : adjustments) {
+            entries.add(adjustment.getOperation() + SEPARATOR + adjustment.getValue() + SEPARATOR + adjustment.getTarget());
+        }
+        redisTemplate.opsForList().rightPushAll(KEY_PREFIX + scenarioId, entries);
+    }
+
+    /**
+     * 读取日志中from及之后的调整，并为日志和表格的场景集合续期
+     * @param from 日志位置（不小于{@link #FIRST_ADJUSTMENT}）
+     * @return 调整列表；日志不存在（已丢弃或过期）时返回null
+     */
+    List<ScenarioAdjustmentRequest> read(String scenarioId, Long tableId, long from) {
+        String key = KEY_PREFIX + scenarioId;
+        Long size = redisTemplate.opsForList().size(key);
+        if (size == null || size == 0) {
+            return null;
+        }
+        redisTemplate.expire(key, ttl);
+        redisTemplate.expire(TABLE_KEY_PREFIX + tableId, ttl);
+        if (size <= from) {
+            return Collections.emptyList();
+        }
+        List<String> entries = redisTemplate.opsForList().range(key, from, size - 1);
+        List<ScenarioAdjustmentRequest> adjustments = new ArrayList<>(entries != null ? entries.size() : 0);
+        if (entries != null) {
+            for (String entry : entries) {
+                String[] parts = entry.split("\\" + SEPARATOR, 3);
+                ScenarioAdjustmentRequest adjustment = new ScenarioAdjustmentRequest();
+                adjustment.setOperation(parts[0]);
+                adjustment.setValue(Double.valueOf(parts[1]));
+                adjustment.setTarget(parts[2]);
+                adjustments.add(adjustment);
+            }
+        }
+        return adjustments;
+    }
+
+    /**
+     * @return 表格下记录过的场景ID，可能包含已过期的场景
+     */
+    Set<String> scenarioIds(Long tableId) {
+        Set<String> ids = redisTemplate.opsForSet().members(TABLE_KEY_PREFIX + tableId);
+        return ids != null ? ids : Collections.emptySet();
+    }
+
+    /**
+     * 删除场景的日志，并从表格的场景集合中移除
+     */
+    void delete(String scenarioId, Long tableId) {
+        redisTemplate.delete(KEY_PREFIX + scenarioId);
+        if (tableId != null) {
+            redisTemplate.opsForSet().remove(TABLE_KEY_PREFIX + tableId, scenarioId);
+        }
+    }
+}
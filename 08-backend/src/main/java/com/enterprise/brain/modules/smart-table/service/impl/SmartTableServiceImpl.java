@@ -1,22 +1,121 @@
 package com.enterprise.brain.modules.smart-table.service.impl;
 
+import com.enterprise.brain.common.cache.TwoLevelCacheManager;
+import com.enterprise.brain.modules.smart-table.dto.request.CellUpdateRequest;
+import com.enterprise.brain.modules.smart-table.dto.request.ColumnConfigRequest;
 import com.enterprise.brain.modules.smart-table.dto.request.TableCreateRequest;
 import com.enterprise.brain.modules.smart-table.dto.response.TableDataResponse;
 import com.enterprise.brain.modules.smart-table.entity.SmartTable;
+import com.enterprise.brain.modules.smart-table.entity.TableColumn;
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
 import com.enterprise.brain.modules.smart-table.repository.SmartTableRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableCellJdbcRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableCopyJdbcRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableFormulaRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableRowJdbcRepository;
 import com.enterprise.brain.modules.smart-table.service.SmartTableService;
+import com.enterprise.brain.modules.smart-table.service.TableCellStoreService;
+import com.enterprise.brain.modules.smart-table.service.TableColumnService;
+import com.enterprise.brain.modules.smart-table.service.TableFormulaService;
+import com.enterprise.brain.modules.smart-table.util.CellReference;
+import com.enterprise.brain.modules.smart-table.util.ColumnarCellStore;
+import com.enterprise.brain.modules.smart-table.util.XlsxStreamingReader;
+import com.enterprise.brain.modules.smart-table.util.XlsxStreamingWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Service
-public class SmartTableServiceImpl implements SmartTableService {
+public class SmartTableServiceImpl implements SmartTableService, InitializingBean {
+    
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 5000;
+    /** 流式输出时每写出多少行刷新一次输出流 */
+    private static final int STREAM_FLUSH_ROWS = 1000;
+    private static final String ROW_NUMBER_KEY = "rowNumber";
+    /** 批量更新结果中最多列出的被拒绝单元格数量 */
+    private static final int MAX_REJECTED_SAMPLES = 100;
+    /** table_cell.cell_key的列宽 */
+    private static final int MAX_CELL_KEY_LENGTH = 7;
+    /** 已解除写时复制的表格，失效广播使用的缓存名 */
+    private static final String DETACHED_TABLES_CACHE = "smartTableDetached";
+    private static final int MAX_DETACHED_TABLES = 10_000;
+    
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
     
     @Autowired
     private SmartTableRepository smartTableRepository;
     
+    @Autowired
+    private TableColumnService tableColumnService;
+    
+    @Autowired
+    private TableCellStoreService tableCellStoreService;
+    
+    @Autowired
+    private TableFormulaService tableFormulaService;
+    
+    @Autowired
+    private TableCellJdbcRepository tableCellJdbcRepository;
+    
+    @Autowired
+    private TableCopyJdbcRepository tableCopyJdbcRepository;
+    
+    @Autowired
+    private TableRowJdbcRepository tableRowJdbcRepository;
+    
+    @Autowired
+    private TableFormulaRepository tableFormulaRepository;
+    
+    @Autowired
+    private ObjectProvider<TwoLevelCacheManager> invalidationBroadcasterProvider;
+    
+    /** 批量更新时每个JDBC批处理包含的单元格数量 */
+    @Value("${smart-table.cell.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+    
+    /**
+     * 已确认不再共享单元格的表格（不读取模板、也不是模板），写入前不必再检查写时复制；
+     * 表格被复制覆盖（重新共享模板）时失效
+     */
+    private final Cache<Long, Boolean> detachedTables = Caffeine.newBuilder()
+            .maximumSize(MAX_DETACHED_TABLES)
+            .build();
+    
+    @Override
+    public void afterPropertiesSet() {
+        TwoLevelCacheManager broadcaster = invalidationBroadcasterProvider.getIfAvailable();
+        if (broadcaster != null) {
+            broadcaster.registerLocalCache(DETACHED_TABLES_CACHE, key -> {
+                if (key == null) {
+                    detachedTables.invalidateAll();
+                } else {
+                    detachedTables.invalidate(Long.valueOf(key));
+                }
+            });
+        }
+    }
+    
     @Override
     @Transactional
     public SmartTable createTable(TableCreateRequest request) {
@@ -30,6 +129,35 @@ public class SmartTableServiceImpl implements SmartTableService {
         return smartTableRepository.save(table);
     }
     
+    /**
+     * 基于模板创建表格（写时复制）
+     * 
+     * <p>只在数据库内复制模板的列和公式，单元格不复制：新表格记录模板ID并直接读取模板的单元格，
+     * 创建耗时与模板的数据量无关。首次写入单元格时才把模板单元格复制过来，见{@link #detachCellsForWrite}。</p>
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public SmartTable createTableFromTemplate(Long templateId, TableCreateRequest request) {
+        SmartTable template = getTableById(templateId);
+        if (!Boolean.TRUE.equals(template.getIsTemplate())) {
+            throw new IllegalArgumentException("Table is not a template: " + templateId);
+        }
+        SmartTable table = new SmartTable();
+        table.setName(request.getName());
+        table.setDescription(request.getDescription() != null ? request.getDescription() : template.getDescription());
+        table.setCreateUserId(request.getCreateUserId());
+        table.setRowCount(template.getRowCount());
+        table.setColumnCount(template.getColumnCount());
+        // 模板本身也是尚未写入过的副本时，直接共享它所共享的单元格
+        table.setTemplateId(template.getTemplateId() != null ? template.getTemplateId() : templateId);
+        table.setCreateTime(new Date());
+        table.setUpdateTime(new Date());
+        table.setIsDeleted(false);
+        SmartTable saved = smartTableRepository.save(table);
+        tableCopyJdbcRepository.copySchema(templateId, saved.getId());
+        return saved;
+    }
+    
     @Override
     public SmartTable getTableById(Long tableId) {
         return smartTableRepository.findById(tableId)
@@ -63,35 +191,696 @@ public class SmartTableServiceImpl implements SmartTableService {
         table.setIsDeleted(true);
         table.setUpdateTime(new Date());
         smartTableRepository.save(table);
+        tableCellStoreService.invalidate(tableId);
     }
     
+    /**
+     * 按页码查询表格数据（页码从1开始），页码按行位置换算为游标后走游标分页
+     */
     @Override
     public TableDataResponse getTableData(Long tableId, Integer page, Integer pageSize) {
+        int size = normalizePageSize(pageSize);
+        long offset = (long) (page != null && page > 1 ? page - 1 : 0) * size;
+        return getTableDataAfter(tableId, (int) Math.min(offset, Integer.MAX_VALUE), size, null);
+    }
+    
+    /**
+     * 按游标分页查询表格数据
+     * 
+     * <p>游标为上一页最后一行的行号（从1开始，首页传null），从游标之后的行开始读取，
+     * 跳过投影列全为空的行。数据直接从列式存储按行号定位，每页耗时与页深度无关。</p>
+     * 
+     * @param tableId 表格ID
+     * @param cursor 上一页返回的nextCursor，首页为null
+     * @param pageSize 每页行数（最大5000）
+     * @param columns 需要返回的列字母（如["A", "C"]），为空时返回全部列
+     * @return 表格数据，行以列字母为键，并包含行号rowNumber
+     */
+    @Override
+    public TableDataResponse getTableDataAfter(Long tableId, Integer cursor, Integer pageSize, List<String> columns) {
         SmartTable table = getTableById(tableId);
         TableDataResponse response = new TableDataResponse();
         response.setTableId(table.getId());
         response.setTableName(table.getName());
-        // 这里需要集成TableColumnService和单元格数据服务
-        // 暂时返回空数据结构
-        response.setColumns(new ArrayList<>());
-        response.setRows(new ArrayList<>());
-        response.setTotalRows(0);
+        response.setColumns(tableColumnService.getColumnConfigs(tableId));
+        
+        ColumnarCellStore store = tableCellStoreService.getStore(tableId);
+        int[] projection = resolveProjection(store, columns);
+        String[] names = columnNames(projection);
+        int size = normalizePageSize(pageSize);
+        int rowCount = store.getRowCount();
+        
+        List<Map<String, Object>> rows = new ArrayList<>(Math.min(size, rowCount));
+        int row = cursor != null && cursor > 0 ? cursor : 0;
+        for (; row < rowCount && rows.size() < size; row++) {
+            if (isEmptyRow(store, row, projection)) {
+                continue;
+            }
+            Map<String, Object> rowData = new LinkedHashMap<>();
+            rowData.put(ROW_NUMBER_KEY, row + 1);
+            for (int i = 0; i < projection.length; i++) {
+                Object value = store.getValue(row, projection[i]);
+                if (value != null) {
+                    rowData.put(names[i], value);
+                }
+            }
+            rows.add(rowData);
+        }
+        
+        boolean hasMore = row < rowCount;
+        response.setRows(rows);
+        response.setTotalRows(rowCount);
+        response.setHasMore(hasMore);
+        response.setNextCursor(hasMore ? row : null);
         return response;
     }
     
+    /**
+     * 以NDJSON格式（每行一个JSON对象）流式输出表格数据
+     * 
+     * <p>逐行从列式存储读取并直接写入输出流，不在内存中构建结果集合，
+     * 服务端内存占用与表格行数无关。</p>
+     * 
+     * @param tableId 表格ID
+     * @param cursor 从该行号之后开始输出，为null时从第一行开始
+     * @param columns 需要输出的列字母，为空时输出全部列
+     * @param out 输出流（调用方负责关闭）
+     * @throws IOException 写出失败时抛出（如客户端断开连接）
+     */
     @Override
-    @Transactional
+    public void streamTableData(Long tableId, Integer cursor, List<String> columns, OutputStream out) throws IOException {
+        getTableById(tableId);
+        ColumnarCellStore store = tableCellStoreService.getStore(tableId);
+        int[] projection = resolveProjection(store, columns);
+        String[] names = columnNames(projection);
+        int rowCount = store.getRowCount();
+        
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        int written = 0;
+        for (int row = cursor != null && cursor > 0 ? cursor : 0; row < rowCount; row++) {
+            if (isEmptyRow(store, row, projection)) {
+                continue;
+            }
+            generator.writeStartObject();
+            generator.writeNumberField(ROW_NUMBER_KEY, row + 1);
+            for (int i = 0; i < projection.length; i++) {
+                Object value = store.getValue(row, projection[i]);
+                if (value != null) {
+                    generator.writeObjectField(names[i], value);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            if (++written % STREAM_FLUSH_ROWS == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+    }
+    
+    /**
+     * 批量更新单元格（如从Excel粘贴大片区域）
+     * 
+     * <p>请求体为单元格更新的JSON数组或NDJSON，边读边处理，不在内存中保留完整请求：
+     * 每凑满一块就用JDBC批处理写入数据库，事务提交后同步到列式存储，同一块内重复的单元格只保留最后一次更新。
+     * 全部写入后按所有变更位置合并做一次增量重算，而不是每个单元格触发一次。</p>
+     * 
+     * <p>行ID和列ID按cellKey的位置在服务端确定，请求中携带的rowId、columnId只用于校验。
+     * 缺少cellKey、cellKey无效、tableId与路径不一致、位置上没有行或列、rowId或columnId与位置不一致的条目不会写入，
+     * 在结果中如实计数并列出，不会被静默丢弃。以"="开头的值登记为单元格公式。
+     * 整批在一个事务中提交，读取或写入失败时整批回滚。</p>
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> bulkUpdateCells(Long tableId, InputStream in) throws IOException {
+        getTableById(tableId);
+        detachCellsForWrite(tableId);
+        long startTime = System.currentTimeMillis();
+        int received = 0;
+        int written = 0;
+        int rejectedCount = 0;
+        List<String> rejectedCells = new ArrayList<>();
+        Set<CellReference> changedCells = new LinkedHashSet<>();
+        CellIdResolver resolver = new CellIdResolver(tableId);
+        CellFormulaRegistrar formulas = new CellFormulaRegistrar(tableId);
+        
+        try (MappingIterator<CellUpdateRequest> updates =
+                     objectMapper.readerFor(CellUpdateRequest.class).readValues(in)) {
+            Map<Long, CellUpdateRequest> chunk = new LinkedHashMap<>();
+            while (updates.hasNextValue()) {
+                CellUpdateRequest update = updates.nextValue();
+                received++;
+                long position = bulkPosition(tableId, update);
+                if (position == CellReference.INVALID) {
+                    rejectedCount++;
+                    addRejectedSample(rejectedCells, update != null ? String.valueOf(update.getCellKey()) : null);
+                    continue;
+                }
+                chunk.put(position, update);
+                if (chunk.size() >= bulkChunkSize) {
+                    rejectedCount += addRejectedSamples(rejectedCells, resolver.resolve(chunk));
+                    written += writeChunk(tableId, chunk, changedCells, formulas);
+                }
+            }
+            rejectedCount += addRejectedSamples(rejectedCells, resolver.resolve(chunk));
+            written += writeChunk(tableId, chunk, changedCells, formulas);
+        }
+        
+        Map<String, String> formulaResults = tableFormulaService.recalculateChangedCells(tableId, changedCells);
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("success", true);
+        result.put("received", received);
+        result.put("written", written);
+        result.put("rejected", rejectedCount);
+        result.put("rejectedCells", rejectedCells);
+        result.put("formulas", formulas.registered);
+        result.put("recalculatedFormulas", formulaResults.size());
+        result.put("formulaResults", formulaResults);
+        result.put("elapsedMs", System.currentTimeMillis() - startTime);
+        return result;
+    }
+    
+    /**
+     * 应用一批已排好顺序的单元格更新（如协同编辑的一个微批次）
+     * 
+     * <p>与批量更新相同地做一次JDBC批处理并同步列式存储，整批合并做一次增量重算。
+     * 同一单元格出现多次时后面的覆盖前面的；无效条目不写入，在结果中列出。</p>
+     * 
+     * <p>行ID和列ID与批量更新相同地按单元格位置确定，行或列不存在时拒绝（不创建行列）；
+     * 以"="开头的值登记为单元格公式。</p>
+     * 
+     * @return 结果：written（写入数量）、rejectedCells（被拒绝的cellKey）、formulaResults（重算结果）
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> applyCellUpdates(Long tableId, List<CellUpdateRequest> updates) {
+        detachCellsForWrite(tableId);
+        Map<Long, CellUpdateRequest> chunk = new LinkedHashMap<>();
+        List<String> rejectedCells = new ArrayList<>();
+        for (CellUpdateRequest update : updates) {
+            long position = bulkPosition(tableId, update);
+            if (position == CellReference.INVALID) {
+                rejectedCells.add(update != null ? String.valueOf(update.getCellKey()) : null);
+            } else {
+                chunk.remove(position);
+                chunk.put(position, update);
+            }
+        }
+        
+        rejectedCells.addAll(new CellIdResolver(tableId).resolve(chunk));
+        
+        Set<CellReference> changedCells = new LinkedHashSet<>();
+        int written = writeChunk(tableId, chunk, changedCells, new CellFormulaRegistrar(tableId));
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("written", written);
+        result.put("rejectedCells", rejectedCells);
+        result.put("formulaResults", tableFormulaService.recalculateChangedCells(tableId, changedCells));
+        return result;
+    }
+    
+    /**
+     * 写入一块单元格更新并清空该块，块内的公式值同时登记为单元格公式
+     * @param changedCells 收集变更位置，为null时不收集
+     * @return 写入的单元格数量
+     */
+    private int writeChunk(Long tableId, Map<Long, CellUpdateRequest> chunk, Set<CellReference> changedCells,
+                           CellFormulaRegistrar formulas) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        int written = tableCellJdbcRepository.upsertCells(tableId, new ArrayList<>(chunk.values()));
+        for (Map.Entry<Long, CellUpdateRequest> entry : chunk.entrySet()) {
+            CellUpdateRequest update = entry.getValue();
+            tableCellStoreService.updateCell(tableId, update.getCellKey(), update.getCellValue());
+            formulas.cell(update.getCellKey(), update.getCellValue());
+            if (changedCells != null) {
+                changedCells.add(new CellReference(CellReference.row(entry.getKey()), CellReference.column(entry.getKey())));
+            }
+        }
+        formulas.flush();
+        chunk.clear();
+        return written;
+    }
+    
+    private static void addRejectedSample(List<String> rejectedCells, String cellKey) {
+        if (rejectedCells.size() < MAX_REJECTED_SAMPLES) {
+            rejectedCells.add(cellKey);
+        }
+    }
+    
+    /**
+     * @return 被拒绝的条目数量
+     */
+    private static int addRejectedSamples(List<String> rejectedCells, List<String> rejected) {
+        for (String cellKey : rejected) {
+            addRejectedSample(rejectedCells, cellKey);
+        }
+        return rejected.size();
+    }
+    
+    /**
+     * 校验批量更新条目，并把cellKey规整为"A1"形式（行ID和列ID之后由{@link CellIdResolver}确定）
+     * @return 单元格位置的打包值；条目无效返回CellReference.INVALID
+     */
+    private static long bulkPosition(Long tableId, CellUpdateRequest update) {
+        if (update == null || update.getCellKey() == null
+                || (update.getTableId() != null && !update.getTableId().equals(tableId))) {
+            return CellReference.INVALID;
+        }
+        long packed = CellReference.parse(update.getCellKey().trim());
+        if (packed == CellReference.INVALID) {
+            return CellReference.INVALID;
+        }
+        String cellKey = CellReference.toString(CellReference.row(packed), CellReference.column(packed));
+        if (cellKey.length() > MAX_CELL_KEY_LENGTH) {
+            return CellReference.INVALID;
+        }
+        update.setCellKey(cellKey);
+        return CellReference.position(packed);
+    }
+    
+    /**
+     * 导入XLSX文件的第一个工作表
+     * 
+     * <p>上传内容先写入临时文件，再以SAX事件模型逐个单元格读取，与批量更新相同地分块做JDBC批量写入，
+     * 公式单元格同时保存为单元格级表格公式（输出单元格已有公式时覆盖）。内存中只保留当前块，与工作表行数无关。</p>
+     * 
+     * <p>单元格位置与工作表一致（工作表的A1即表格的A1），行ID按行位置取表格的行记录，
+     * 表格中不存在的行和列按位置自动创建。公式单元格同时保存Excel缓存的计算结果，导入后即可显示，
+     * 因此导入后不做整表重算，之后的单元格变更按依赖图增量重算。</p>
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public Map<String, Object> importXlsx(Long tableId, InputStream in) throws IOException {
+        getTableById(tableId);
+        detachCellsForWrite(tableId);
+        long startTime = System.currentTimeMillis();
+        Path file = Files.createTempFile("smart-table-import-", ".xlsx");
+        try {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+            XlsxImporter importer = new XlsxImporter(tableId);
+            int cells = XlsxStreamingReader.read(file.toFile(), importer);
+            importer.flush();
+            
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("success", true);
+            result.put("cells", cells);
+            result.put("written", importer.written);
+            result.put("skipped", importer.skipped);
+            result.put("formulas", importer.formulas.registered);
+            result.put("elapsedMs", System.currentTimeMillis() - startTime);
+            return result;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * 将表格导出为XLSX（SXSSF按行窗口流式写出，直接写入输出流）
+     */
+    @Override
+    public void exportXlsx(Long tableId, OutputStream out) throws IOException {
+        SmartTable table = getTableById(tableId);
+        XlsxStreamingWriter.write(tableCellStoreService.getStore(tableId), table.getName(), out,
+                XlsxStreamingWriter.DEFAULT_ROW_WINDOW);
+    }
+    
+    /**
+     * 把源表格的列、公式和单元格复制到目标表格，目标表格原有的内容被整体替换
+     * 
+     * <p>全部复制由INSERT … SELECT在数据库内完成，数据不经过应用服务器，整个复制在一个事务中。
+     * 源表格是模板（或本身还在共享模板单元格）时，单元格不复制，目标表格以写时复制方式共享。</p>
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
     public Map<String, Object> copyTableData(Long sourceTableId, Long targetTableId) {
-        // 实现表格数据复制逻辑
-        Map<String, Object> result = new HashMap<>();
+        if (sourceTableId == null || sourceTableId.equals(targetTableId)) {
+            throw new IllegalArgumentException("Source and target table must be different");
+        }
+        SmartTable source = getTableById(sourceTableId);
+        getTableById(targetTableId);
+        long startTime = System.currentTimeMillis();
+        
+        // 目标表格的单元格即将被替换，仍在共享它的副本先物化；之后再读取源表格的共享状态
+        tableCopyJdbcRepository.materializeCopiesOf(targetTableId);
+        Long sharedTemplateId = tableCopyJdbcRepository.findTemplateId(sourceTableId);
+        Long cellSourceId = sharedTemplateId != null ? sharedTemplateId
+                : Boolean.TRUE.equals(source.getIsTemplate()) ? sourceTableId : null;
+        
+        tableFormulaService.evictTableFormulas(targetTableId);
+        tableCopyJdbcRepository.deleteContent(targetTableId);
+        int columns = tableCopyJdbcRepository.copySchema(sourceTableId, targetTableId);
+        int cells = 0;
+        if (cellSourceId == null) {
+            cells = tableCopyJdbcRepository.copyCells(sourceTableId, targetTableId);
+        }
+        tableCopyJdbcRepository.linkTemplate(targetTableId, cellSourceId);
+        tableFormulaService.evictTableFormulas(targetTableId);
+        tableCellStoreService.invalidate(targetTableId);
+        forgetDetached(targetTableId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // 提交前并发的写入可能已把目标表格记为已解除
+                forgetDetached(targetTableId);
+            }
+        });
+        
+        Map<String, Object> result = new LinkedHashMap<>();
         result.put("success", true);
-        result.put("message", "Table data copied successfully");
-        // 实际实现中需要复制单元格数据和公式配置
+        result.put("columns", columns);
+        result.put("cells", cells);
+        result.put("sharedTemplateId", cellSourceId);
+        result.put("elapsedMs", System.currentTimeMillis() - startTime);
         return result;
     }
     
+    /**
+     * 写入表格单元格前解除写时复制
+     * 
+     * <p>表格还在共享模板单元格时，先把模板单元格复制过来；表格本身被其他表格共享时，
+     * 先物化这些副本，使它们保留写入前的内容。两者都只在首次写入时发生。</p>
+     * 
+     * <p>不是模板的表格解除后不会再被共享（只有模板能被共享），事务提交后记为已解除，
+     * 之后的写入（如协同编辑的每个批次）不再查询；表格被复制覆盖时重新检查。</p>
+     */
+    private void detachCellsForWrite(Long tableId) {
+        if (detachedTables.getIfPresent(tableId) != null) {
+            return;
+        }
+        tableCopyJdbcRepository.materialize(tableId);
+        tableCopyJdbcRepository.materializeCopiesOf(tableId);
+        if (Boolean.TRUE.equals(getTableById(tableId).getIsTemplate())) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    detachedTables.put(tableId, Boolean.TRUE);
+                }
+            });
+        }
+    }
+    
+    /**
+     * 表格即将重新共享模板单元格：本节点和其他节点都需要在下次写入前重新检查写时复制
+     */
+    private void forgetDetached(Long tableId) {
+        detachedTables.invalidate(tableId);
+        TwoLevelCacheManager broadcaster = invalidationBroadcasterProvider.getIfAvailable();
+        if (broadcaster != null) {
+            broadcaster.publishEvict(DETACHED_TABLES_CACHE, tableId.toString());
+        }
+    }
+    
     @Override
     public List<SmartTable> searchTables(String keyword) {
         return smartTableRepository.searchByName(keyword);
     }
+    
+    /**
+     * XLSX导入的单元格回调：按块写入单元格，并收集公式单元格
+     */
+    private final class XlsxImporter implements XlsxStreamingReader.CellHandler {
+        private final Long tableId;
+        /** 列位置 -> 列ID */
+        private final Map<Integer, Long> columnIds = new HashMap<>();
+        private final Map<Long, CellUpdateRequest> chunk = new LinkedHashMap<>();
+        private final CellFormulaRegistrar formulas;
+        private int written;
+        private int skipped;
+        
+        private XlsxImporter(Long tableId) {
+            this.tableId = tableId;
+            this.formulas = new CellFormulaRegistrar(tableId);
+            for (TableColumn column : tableColumnService.getColumnsByTableId(tableId)) {
+                if (column.getColumnIndex() != null) {
+                    columnIds.putIfAbsent(column.getColumnIndex(), column.getId());
+                }
+            }
+        }
+        
+        @Override
+        public void cell(int row, int column, String value, String formula) {
+            String cellKey = CellReference.toString(row, column);
+            if (cellKey.length() > MAX_CELL_KEY_LENGTH) {
+                skipped++;
+                return;
+            }
+            CellUpdateRequest update = new CellUpdateRequest();
+            update.setTableId(tableId);
+            update.setColumnId(columnId(column));
+            update.setCellKey(cellKey);
+            update.setCellValue(formula != null ? "=" + formula : value);
+            if (formula != null) {
+                update.setCalculationResult(value);
+            }
+            chunk.put(CellReference.pack(row, column), update);
+            if (chunk.size() >= bulkChunkSize) {
+                flush();
+            }
+        }
+        
+        private void flush() {
+            resolveRowIds();
+            written += writeChunk(tableId, chunk, null, formulas);
+        }
+        
+        /**
+         * 按行位置为当前块的单元格填入行ID，不存在的行先创建
+         */
+        private void resolveRowIds() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            Set<Integer> rowIndexes = new HashSet<>();
+            for (Long position : chunk.keySet()) {
+                rowIndexes.add(CellReference.row(position));
+            }
+            Map<Integer, Long> rowIds = tableRowJdbcRepository.findOrCreateRowIds(tableId, rowIndexes);
+            for (Map.Entry<Long, CellUpdateRequest> entry : chunk.entrySet()) {
+                entry.getValue().setRowId(rowIds.get(CellReference.row(entry.getKey())));
+            }
+        }
+        
+        private Long columnId(int column) {
+            return columnIds.computeIfAbsent(column, index -> tableColumnService.createColumn(tableId,
+                    ColumnConfigRequest.builder()
+                            .columnName(CellReference.columnName(index))
+                            .columnType("TEXT")
+                            .columnIndex(index)
+                            .isFormulaColumn(false)
+                            .build()).getId());
+        }
+    }
+    
+    /**
+     * 按单元格位置在服务端确定行ID和列ID
+     * 
+     * <p>请求中的rowId、columnId只用于校验：与单元格位置上的行、列不一致时拒绝，而不是按请求写入，
+     * 避免单元格挂到其他表格或其他位置的行列下。位置上没有行或列时同样拒绝（这里不创建行列）。</p>
+     */
+    private final class CellIdResolver {
+        private final Long tableId;
+        /** 列位置 -> 列ID，首次解析时加载 */
+        private Map<Integer, Long> columnIds;
+        
+        private CellIdResolver(Long tableId) {
+            this.tableId = tableId;
+        }
+        
+        /**
+         * 为块内条目填入行ID和列ID，被拒绝的条目从块中移除
+         * @param chunk 单元格位置 -> 更新
+         * @return 被拒绝条目的cellKey
+         */
+        private List<String> resolve(Map<Long, CellUpdateRequest> chunk) {
+            if (chunk.isEmpty()) {
+                return Collections.emptyList();
+            }
+            if (columnIds == null) {
+                columnIds = new HashMap<>();
+                for (TableColumn column : tableColumnService.getColumnsByTableId(tableId)) {
+                    if (column.getColumnIndex() != null) {
+                        columnIds.putIfAbsent(column.getColumnIndex(), column.getId());
+                    }
+                }
+            }
+            Set<Integer> rowIndexes = new HashSet<>();
+            for (Long position : chunk.keySet()) {
+                rowIndexes.add(CellReference.row(position));
+            }
+            Map<Integer, Long> rowIds = tableRowJdbcRepository.findRowIds(tableId, rowIndexes);
+            
+            List<String> rejected = new ArrayList<>();
+            Iterator<Map.Entry<Long, CellUpdateRequest>> entries = chunk.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Long, CellUpdateRequest> entry = entries.next();
+                CellUpdateRequest update = entry.getValue();
+                Long rowId = rowIds.get(CellReference.row(entry.getKey()));
+                Long columnId = columnIds.get(CellReference.column(entry.getKey()));
+                if (rowId == null || columnId == null
+                        || (update.getRowId() != null && !update.getRowId().equals(rowId))
+                        || (update.getColumnId() != null && !update.getColumnId().equals(columnId))) {
+                    rejected.add(update.getCellKey());
+                    entries.remove();
+                    continue;
+                }
+                update.setRowId(rowId);
+                update.setColumnId(columnId);
+            }
+            return rejected;
+        }
+    }
+    
+    /**
+     * 使单元格公式与单元格的公式标记保持一致
+     * 
+     * <p>以"="开头的值写入单元格时，单元格被标记为公式单元格，这里同时登记为单元格级表格公式
+     * （输出单元格已有公式时覆盖）；原有公式的单元格改写为普通值时删除该公式。
+     * 单元格公式只记录输出单元格，不关联列：column_id保留给每列一个的列级公式，同一列的多个公式单元格各自保存。</p>
+     * 
+     * <p>是否已有公式先按缓存的公式列表判断，需要修改时才从数据库读取公式实体（不修改缓存中共享的实例）。
+     * 每块写入后整块保存一次。</p>
+     */
+    private final class CellFormulaRegistrar {
+        private final Long tableId;
+        /** 已有单元格公式的输出单元格（按缓存的公式列表），首次使用时加载 */
+        private Set<String> formulaCells;
+        /** 输出单元格 -> 从数据库读取的公式实体，需要修改时才加载 */
+        private Map<String, TableFormula> existingFormulas;
+        private final Map<String, TableFormula> pending = new LinkedHashMap<>();
+        /** 已登记（新建或覆盖）的公式数量 */
+        private int registered;
+        
+        private CellFormulaRegistrar(Long tableId) {
+            this.tableId = tableId;
+        }
+        
+        private void cell(String cellKey, String value) {
+            boolean formula = value != null && value.startsWith("=");
+            if (!formula && !formulaCells().contains(cellKey) && !pending.containsKey(cellKey)) {
+                return;
+            }
+            TableFormula existing = pending.containsKey(cellKey) ? pending.get(cellKey) : existingFormulas().get(cellKey);
+            if (!formula) {
+                if (existing != null && existing.getId() != null) {
+                    existing.setIsDeleted(true);
+                    existing.setUpdateTime(LocalDateTime.now());
+                    pending.put(cellKey, existing);
+                } else {
+                    pending.remove(cellKey);
+                }
+                return;
+            }
+            if (existing != null) {
+                existing.setFormulaExpression(value);
+                existing.setIsDeleted(false);
+                existing.setUpdateTime(LocalDateTime.now());
+                pending.put(cellKey, existing);
+                return;
+            }
+            pending.put(cellKey, TableFormula.builder()
+                    .tableId(tableId)
+                    .cellId(cellKey)
+                    .formulaName(cellKey)
+                    .formulaExpression(value)
+                    .createTime(LocalDateTime.now())
+                    .updateTime(LocalDateTime.now())
+                    .isDeleted(false)
+                    .isEnabled(true)
+                    .build());
+        }
+        
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            for (TableFormula formula : tableFormulaService.saveImportedFormulas(tableId, new ArrayList<>(pending.values()))) {
+                if (Boolean.TRUE.equals(formula.getIsDeleted())) {
+                    formulaCells().remove(formula.getCellId());
+                    existingFormulas().remove(formula.getCellId());
+                } else {
+                    formulaCells().add(formula.getCellId());
+                    existingFormulas().put(formula.getCellId(), formula);
+                    registered++;
+                }
+            }
+            pending.clear();
+        }
+        
+        private Set<String> formulaCells() {
+            if (formulaCells == null) {
+                formulaCells = new HashSet<>();
+                for (TableFormula formula : tableFormulaService.getFormulasByTableId(tableId)) {
+                    if (isCellFormula(formula)) {
+                        formulaCells.add(formula.getCellId());
+                    }
+                }
+            }
+            return formulaCells;
+        }
+        
+        private Map<String, TableFormula> existingFormulas() {
+            if (existingFormulas == null) {
+                existingFormulas = new HashMap<>();
+                for (TableFormula formula : tableFormulaRepository.findByTableId(tableId)) {
+                    if (isCellFormula(formula)) {
+                        existingFormulas.put(formula.getCellId(), formula);
+                    }
+                }
+            }
+            return existingFormulas;
+        }
+        
+        /** 只处理单元格级公式，列级公式由公式接口维护 */
+        private boolean isCellFormula(TableFormula formula) {
+            return formula.getCellId() != null && formula.getColumnId() == null;
+        }
+    }
+    
+    private int normalizePageSize(Integer pageSize) {
+        if (pageSize == null || pageSize <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(pageSize, MAX_PAGE_SIZE);
+    }
+    
+    /**
+     * 将列字母解析为列索引，未指定时返回存储中的全部列
+     */
+    private int[] resolveProjection(ColumnarCellStore store, List<String> columns) {
+        if (columns == null || columns.isEmpty()) {
+            int[] all = new int[store.getColumnCount()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        int[] projection = new int[columns.size()];
+        for (int i = 0; i < projection.length; i++) {
+            projection[i] = CellReference.columnIndex(columns.get(i).trim());
+        }
+        return projection;
+    }
+    
+    private String[] columnNames(int[] projection) {
+        String[] names = new String[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            names[i] = CellReference.columnName(projection[i]);
+        }
+        return names;
+    }
+    
+    private boolean isEmptyRow(ColumnarCellStore store, int row, int[] projection) {
+        for (int column : projection) {
+            if (store.getType(row, column) != ColumnarCellStore.CellType.EMPTY) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
\ No newline at end of file
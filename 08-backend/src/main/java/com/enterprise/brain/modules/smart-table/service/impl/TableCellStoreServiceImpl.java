@@ -0,0 +1,435 @@
+package com.enterprise.brain.modules.smart-table.service.impl;
+
+import com.enterprise.brain.common.cache.CacheMeters;
+import com.enterprise.brain.common.cache.TwoLevelCacheManager;
+import com.enterprise.brain.modules.smart-table.repository.TableCellRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableCopyJdbcRepository;
+import com.enterprise.brain.modules.smart-table.service.TableCellStoreService;
+import com.enterprise.brain.modules.smart-table.util.CellReference;
+import com.enterprise.brain.modules.smart-table.util.CellValueSource;
+import com.enterprise.brain.modules.smart-table.util.ColumnIndex;
+import com.enterprise.brain.modules.smart-table.util.ColumnarCellStore;
+import com.enterprise.brain.modules.smart-table.util.NumericCellSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 表格单元格列式存储服务实现类
+ *
+ * <p>加载时只查询单元格标识和值两列，逐行写入列式存储后即丢弃查询结果，
+ * 常驻内存的只有列式存储本身。存储按单元格数量计权，总数超过上限时淘汰最近最少使用的表格。</p>
+ *
+ * <p>以写时复制方式基于模板创建、尚未写入过单元格的表格，从模板读取单元格。</p>
+ *
+ * <p>事务中的写入先记录在绑定到事务的待应用写入中，事务提交后再应用到存储：
+ * 回滚的写入不会进入存储，与数据库加载的结果也不会互相覆盖（应用时如表格正在加载，等加载完成后再应用）。
+ * 提交后通过两级缓存的失效频道把变更的单元格位置广播给其他节点，其他节点下次读取该表格时只从数据库
+ * 重新读取这些单元格（读取的总是已提交的值，与消息到达的先后无关）；变更的单元格过多或存储被显式失效时，
+ * 才通知其他节点丢弃整个表格的存储。</p>
+ */
+@Slf4j
+@Service
+public class TableCellStoreServiceImpl implements TableCellStoreService {
+
+    /** 失效广播和指标使用的缓存名 */
+    static final String CACHE_NAME = "smartTableCellStore";
+    /** 单元格变更广播使用的缓存名，消息的键为"表格ID:单元格,单元格,…" */
+    static final String CHANGED_CELLS_CACHE_NAME = "smartTableCellStoreChanged";
+
+    /** 一次广播最多列出的单元格数量，超出时改为通知其他节点丢弃整个表格的存储 */
+    static final int MAX_BROADCAST_CELLS = 1000;
+
+    /** 单个表格最多积累的待刷新单元格数量，超出时丢弃该表格的存储，下次读取时整体重新加载 */
+    private static final int MAX_STALE_CELLS = 10_000;
+
+    /**
+     * 单个表格在一个事务中逐个记录的写入上限；超出后（如导入大文件）不再逐个记录，
+     * 提交后直接丢弃该表格的存储，事务内需要读取时从数据库加载一份本事务私有的存储
+     */
+    private static final int MAX_PENDING_CELLS = 50_000;
+
+    private final TableCellRepository tableCellRepository;
+
+    private final TableCopyJdbcRepository tableCopyJdbcRepository;
+
+    /** 未配置Redis时为null，只维护本节点的存储 */
+    private final TwoLevelCacheManager cacheManager;
+
+    /** 表格ID -> 列式存储 */
+    private final Cache<Long, ColumnarCellStore> stores;
+
+    /** 表格ID -> 其他节点已提交变更、本节点存储尚未刷新的单元格 */
+    private final Map<Long, Set<String>> staleCells = new ConcurrentHashMap<>();
+
+    public TableCellStoreServiceImpl(TableCellRepository tableCellRepository,
+                                     TableCopyJdbcRepository tableCopyJdbcRepository,
+                                     ObjectProvider<TwoLevelCacheManager> cacheManagerProvider,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${smart-table.cell.store.max-cells:10000000}") long maxCells) {
+        this.tableCellRepository = tableCellRepository;
+        this.tableCopyJdbcRepository = tableCopyJdbcRepository;
+        this.stores = Caffeine.newBuilder()
+                .maximumWeight(maxCells)
+                .weigher((Long tableId, ColumnarCellStore store) -> Math.max(1, store.getCellCount()))
+                .evictionListener(CacheMeters.<Long, ColumnarCellStore>evictionCounter(
+                        meterRegistry, CACHE_NAME, CacheMeters.TIER_LOCAL))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, stores, CACHE_NAME, CacheMeters.TAG_TIER, CacheMeters.TIER_LOCAL);
+        this.cacheManager = cacheManagerProvider.getIfAvailable();
+        if (cacheManager != null) {
+            cacheManager.registerLocalCache(CACHE_NAME, this::evictLocal);
+            cacheManager.registerLocalCache(CHANGED_CELLS_CACHE_NAME, this::markStale);
+        }
+    }
+
+    @Override
+    public ColumnarCellStore getStore(Long tableId) {
+        if (tableId == null) {
+            throw new IllegalArgumentException("表格ID不能为空");
+        }
+        ColumnarCellStore store = stores.get(tableId, id -> {
+            // 整体加载读取的是最新的已提交数据，之前积累的待刷新单元格不再需要
+            staleCells.remove(id);
+            return loadStore(id);
+        });
+        Set<String> stale = staleCells.remove(tableId);
+        if (stale != null) {
+            refreshStaleCells(tableId, store, stale);
+        }
+        return store;
+    }
+
+    @Override
+    public CellValueSource getSource(Long tableId) {
+        PendingWrites pending = currentPendingWrites(false);
+        PendingTable table = pending != null ? pending.tables.get(tableId) : null;
+        if (table == null) {
+            return getStore(tableId);
+        }
+        if (table.invalidated) {
+            // 事务内重新加载能读到本事务已写入数据库的单元格，之后的写入直接应用到这份存储
+            if (table.working == null) {
+                table.working = loadStore(tableId);
+            }
+            return table.working;
+        }
+        ColumnarCellStore store = getStore(tableId);
+        return table.columns.isEmpty() ? store : table.over(store);
+    }
+
+    @Override
+    public void updateCell(Long tableId, String cellKey, String cellValue) {
+        if (tableId == null || cellKey == null) {
+            return;
+        }
+        CellReference ref;
+        try {
+            ref = CellReference.fromString(cellKey.trim());
+        } catch (IllegalArgumentException e) {
+            log.warn("忽略无效的单元格标识 - 表格ID: {}, 单元格: {}", tableId, cellKey);
+            return;
+        }
+        PendingWrites pending = currentPendingWrites(true);
+        if (pending != null) {
+            pending.table(tableId).put(ref.getRow(), ref.getColumn(), cellValue);
+            return;
+        }
+        stores.asMap().computeIfPresent(tableId, (id, store) -> {
+            store.setValue(ref.getRow(), ref.getColumn(), cellValue);
+            return store;
+        });
+        publishChanged(tableId, Collections.singletonList(ref.toString()));
+    }
+
+    @Override
+    public void invalidate(Long tableId) {
+        PendingWrites pending = currentPendingWrites(true);
+        if (pending != null) {
+            if (tableId == null) {
+                pending.invalidateAll = true;
+            } else {
+                pending.table(tableId).invalidate();
+            }
+            return;
+        }
+        evictLocal(tableId != null ? tableId.toString() : null);
+        publishEvict(tableId);
+    }
+
+    /**
+     * 丢弃本节点的存储（其他节点广播的失效消息也由这里处理）
+     * @param key 表格ID，为null时丢弃全部
+     */
+    private void evictLocal(String key) {
+        if (key == null) {
+            stores.invalidateAll();
+            staleCells.clear();
+            return;
+        }
+        try {
+            Long tableId = Long.valueOf(key);
+            stores.invalidate(tableId);
+            staleCells.remove(tableId);
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效的列式存储失效消息 - 键: {}", key);
+        }
+    }
+
+    /**
+     * 记录其他节点广播的单元格变更，下次读取该表格时再从数据库刷新这些单元格
+     * @param key "表格ID:单元格,单元格,…"
+     */
+    private void markStale(String key) {
+        int separator = key != null ? key.indexOf(':') : -1;
+        Long tableId;
+        try {
+            tableId = separator > 0 ? Long.valueOf(key.substring(0, separator)) : null;
+        } catch (NumberFormatException e) {
+            tableId = null;
+        }
+        if (tableId == null) {
+            log.warn("忽略无效的单元格变更消息 - 键: {}", key);
+            return;
+        }
+        if (stores.getIfPresent(tableId) == null) {
+            // 本节点没有该表格的存储，下次读取时整体加载
+            return;
+        }
+        List<String> cellKeys = Arrays.asList(key.substring(separator + 1).split(","));
+        Set<String> stale = staleCells.compute(tableId, (id, cells) -> {
+            Set<String> target = cells != null ? cells : new HashSet<>();
+            target.addAll(cellKeys);
+            return target.size() > MAX_STALE_CELLS ? null : target;
+        });
+        if (stale == null) {
+            stores.invalidate(tableId);
+        }
+    }
+
+    /**
+     * 从数据库重新读取其他节点变更过的单元格并写入存储，数据库中已不存在的单元格清空；
+     * 读取失败时丢弃整个存储，下次读取时重新加载
+     */
+    private void refreshStaleCells(Long tableId, ColumnarCellStore store, Set<String> cellKeys) {
+        Map<String, String> values = new HashMap<>();
+        try {
+            for (Object[] cell : tableCellRepository.findCellValuesByTableIdAndCellKeys(tableId, cellKeys)) {
+                values.put((String) cell[0], (String) cell[1]);
+            }
+        } catch (RuntimeException e) {
+            stores.invalidate(tableId);
+            throw e;
+        }
+        for (String cellKey : cellKeys) {
+            long packed = CellReference.parse(cellKey);
+            if (packed != CellReference.INVALID) {
+                store.setValue(CellReference.row(packed), CellReference.column(packed), values.get(cellKey));
+            }
+        }
+        log.debug("已刷新其他节点变更的单元格 - 表格ID: {}, 单元格数量: {}", tableId, cellKeys.size());
+    }
+
+    private void publishEvict(Long tableId) {
+        if (cacheManager != null) {
+            cacheManager.publishEvict(CACHE_NAME, tableId != null ? tableId.toString() : null);
+        }
+    }
+
+    /**
+     * 广播已提交变更的单元格位置
+     */
+    private void publishChanged(Long tableId, Collection<String> cellKeys) {
+        if (cacheManager == null || cellKeys.isEmpty()) {
+            return;
+        }
+        cacheManager.publishEvict(CHANGED_CELLS_CACHE_NAME, tableId + ":" + String.join(",", cellKeys));
+    }
+
+    /**
+     * 获取绑定到当前事务的待应用写入
+     * @param create 当前事务还没有时是否创建并注册事务同步
+     * @return 不在事务中（或create为false且尚未创建）时返回null
+     */
+    private PendingWrites currentPendingWrites(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingWrites pending = (PendingWrites) TransactionSynchronizationManager.getResource(this);
+        if (pending == null && create) {
+            pending = new PendingWrites();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private ColumnarCellStore loadStore(Long tableId) {
+        long startTime = System.currentTimeMillis();
+        ColumnarCellStore store = new ColumnarCellStore();
+
+        Long templateId = tableCopyJdbcRepository.findTemplateId(tableId);
+        List<Object[]> cells = tableCellRepository.findCellValuesByTableId(templateId != null ? templateId : tableId);
+        for (Object[] cell : cells) {
+            try {
+                CellReference ref = CellReference.fromString((String) cell[0]);
+                store.setValue(ref.getRow(), ref.getColumn(), (String) cell[1]);
+            } catch (IllegalArgumentException e) {
+                log.debug("跳过无效的单元格标识 - 表格ID: {}, 单元格: {}", tableId, cell[0]);
+            }
+        }
+
+        log.info("表格单元格已加载到列式存储 - 表格ID: {}, 单元格数量: {}, 估算内存: {}KB, 耗时: {}ms",
+                tableId, store.getCellCount(), store.estimateMemoryBytes() / 1024,
+                System.currentTimeMillis() - startTime);
+        return store;
+    }
+
+    /**
+     * 一个事务中待应用的写入和失效，事务提交后应用，事务结束时解除绑定
+     */
+    private final class PendingWrites implements TransactionSynchronization {
+        private final Map<Long, PendingTable> tables = new HashMap<>();
+        private boolean invalidateAll;
+
+        private PendingTable table(Long tableId) {
+            return tables.computeIfAbsent(tableId, id -> new PendingTable());
+        }
+
+        @Override
+        public void afterCommit() {
+            if (invalidateAll) {
+                stores.invalidateAll();
+                publishEvict(null);
+                return;
+            }
+            tables.forEach((tableId, table) -> {
+                if (table.invalidated) {
+                    stores.invalidate(tableId);
+                    publishEvict(tableId);
+                } else {
+                    stores.asMap().computeIfPresent(tableId, (id, store) -> {
+                        table.applyTo(store);
+                        return store;
+                    });
+                    if (table.size > MAX_BROADCAST_CELLS) {
+                        publishEvict(tableId);
+                    } else {
+                        publishChanged(tableId, table.cellKeys());
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TableCellStoreServiceImpl.this);
+        }
+    }
+
+    /**
+     * 单个表格待应用的单元格写入，按列组织：列索引 -> 行索引 -> 单元格文本（null表示清空）
+     */
+    private static final class PendingTable {
+        private final Map<Integer, NavigableMap<Integer, String>> columns = new HashMap<>();
+        private int size;
+        /** 提交后丢弃存储（显式失效或写入超过上限），不再逐个记录写入 */
+        private boolean invalidated;
+        /** 失效后事务内读取使用的私有存储 */
+        private ColumnarCellStore working;
+
+        private void put(int row, int column, String value) {
+            if (invalidated) {
+                if (working != null) {
+                    working.setValue(row, column, value);
+                }
+                return;
+            }
+            if (columns.computeIfAbsent(column, c -> new TreeMap<>()).put(row, value) == null) {
+                size++;
+            }
+            if (size > MAX_PENDING_CELLS) {
+                invalidate();
+            }
+        }
+
+        private void invalidate() {
+            columns.clear();
+            size = 0;
+            invalidated = true;
+            working = null;
+        }
+
+        private void applyTo(ColumnarCellStore store) {
+            columns.forEach((column, rows) -> rows.forEach((row, value) -> store.setValue(row, column, value)));
+        }
+
+        /**
+         * 写入的单元格标识
+         */
+        private List<String> cellKeys() {
+            List<String> keys = new ArrayList<>(size);
+            columns.forEach((column, rows) -> rows.keySet().forEach(row -> keys.add(CellReference.toString(row, column))));
+            return keys;
+        }
+
+        /**
+         * 在存储之上叠加待应用的写入，数值语义与{@link ColumnarCellStore}一致：
+         * 单个单元格非数字时读作0，按列读取时空单元格和非数字单元格读作NaN
+         */
+        private CellValueSource over(CellValueSource base) {
+            return new CellValueSource() {
+                @Override
+                public double getNumber(int row, int column) {
+                    NavigableMap<Integer, String> rows = columns.get(column);
+                    if (rows != null && rows.containsKey(row)) {
+                        return NumericCellSnapshot.parseNumeric(rows.get(row));
+                    }
+                    return base.getNumber(row, column);
+                }
+
+                @Override
+                public void readColumn(int column, int fromRow, double[] target, int length) {
+                    base.readColumn(column, fromRow, target, length);
+                    NavigableMap<Integer, String> rows = columns.get(column);
+                    if (rows == null) {
+                        return;
+                    }
+                    for (Map.Entry<Integer, String> entry : rows.subMap(fromRow, fromRow + length).entrySet()) {
+                        target[entry.getKey() - fromRow] = NumericCellSnapshot.parseNumeric(entry.getValue(), Double.NaN);
+                    }
+                }
+
+                @Override
+                public ColumnIndex getColumnIndex(int column, int fromRow, int toRow) {
+                    NavigableMap<Integer, String> rows = columns.get(column);
+                    if (rows == null || rows.subMap(fromRow, true, toRow, true).isEmpty()) {
+                        return base.getColumnIndex(column, fromRow, toRow);
+                    }
+                    return CellValueSource.super.getColumnIndex(column, fromRow, toRow);
+                }
+            };
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.enterprise.brain.modules.smart-table.dto.request.ColumnConfigRequest;
 import com.enterprise.brain.modules.smart-table.dto.response.ColumnConfigResponse;
 import com.enterprise.brain.modules.smart-table.entity.TableColumn;
 import com.enterprise.brain.modules.smart-table.repository.TableColumnRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableCopyJdbcRepository;
 import com.enterprise.brain.modules.smart-table.service.TableColumnService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -19,6 +20,9 @@ public class TableColumnServiceImpl implements TableColumnService {
     @Autowired
     private TableColumnRepository tableColumnRepository;
     
+    @Autowired
+    private TableCopyJdbcRepository tableCopyJdbcRepository;
+    
     @Override
     @Transactional
     public TableColumn createColumn(Long tableId, ColumnConfigRequest request) {
@@ -89,6 +93,8 @@ public class TableColumnServiceImpl implements TableColumnService {
     @Override
     @Transactional
     public void updateColumnOrder(Long tableId, List<Long> columnIds) {
+        // 共享模板单元格时单元格按列位置映射到本表格的列，调整列位置前先复制单元格
+        tableCopyJdbcRepository.materialize(tableId);
         for (int i = 0; i < columnIds.size(); i++) {
             TableColumn column = getColumnById(columnIds.get(i));
             column.setColumnIndex(i);
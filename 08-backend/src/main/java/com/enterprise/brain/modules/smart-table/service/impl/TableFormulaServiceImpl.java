@@ -1,25 +1,39 @@
 package com.enterprise.brain.modules.smart-table.service.impl;
 
+import com.enterprise.brain.common.cache.TwoLevelCacheManager;
+import com.enterprise.brain.modules.smart-table.dto.request.CellUpdateRequest;
 import com.enterprise.brain.modules.smart-table.dto.request.FormulaCalculateRequest;
 import com.enterprise.brain.modules.smart-table.dto.response.FormulaResultResponse;
 import com.enterprise.brain.modules.smart-table.entity.TableFormula;
 import com.enterprise.brain.modules.smart-table.repository.TableFormulaRepository;
+import com.enterprise.brain.modules.smart-table.service.TableCellStoreService;
 import com.enterprise.brain.modules.smart-table.service.TableFormulaService;
+import com.enterprise.brain.modules.smart-table.util.CellReference;
+import com.enterprise.brain.modules.smart-table.util.CellValueSource;
+import com.enterprise.brain.modules.smart-table.util.CompiledFormula;
+import com.enterprise.brain.modules.smart-table.util.FormulaCompilationCache;
+import com.enterprise.brain.modules.smart-table.util.FormulaDependencyGraph;
+import com.enterprise.brain.modules.smart-table.util.FormulaEngine;
 import com.enterprise.brain.modules.smart-table.util.FormulaParser;
+import com.enterprise.brain.modules.smart-table.util.NumericCellSnapshot;
 import com.enterprise.brain.modules.smart-table.util.TableCalculator;
-import lombok.RequiredArgsConstructor;
+import com.enterprise.brain.modules.smart-table.util.WavefrontRecalculator;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -43,21 +57,55 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TableFormulaServiceImpl implements TableFormulaService {
     
     // ==================== 依赖注入 ====================
     
     private final TableFormulaRepository tableFormulaRepository;
     
+    private final FormulaEngine formulaEngine;
+    
+    private final WavefrontRecalculator wavefrontRecalculator;
+    
+    private final TableCellStoreService tableCellStoreService;
+    
+    private final CacheManager cacheManager;
+    
+    /** 未配置Redis时为null，依赖图只在本节点失效 */
+    private final TwoLevelCacheManager invalidationBroadcaster;
+    
+    /** 表格ID -> 公式依赖图，公式变更时失效（并通知其他节点）并在下次使用时重建 */
+    private final com.github.benmanes.caffeine.cache.Cache<Long, FormulaDependencyGraph> dependencyGraphs;
+    
     // ==================== 常量定义 ====================
     
-    private static final String FORMULA_CACHE_PREFIX = "formula:";
+    /** 失效广播使用的缓存名 */
+    private static final String DEPENDENCY_GRAPH_CACHE = "smartTableDependencyGraph";
     private static final String CALCULATION_CACHE_PREFIX = "calculation:";
-    private static final int MAX_BATCH_SIZE = 1000;
     private static final String ERROR_PREFIX = "#ERROR";
     private static final String FORMULA_KEY_PREFIX = "formula_";
     
+    public TableFormulaServiceImpl(TableFormulaRepository tableFormulaRepository,
+                                   FormulaEngine formulaEngine,
+                                   WavefrontRecalculator wavefrontRecalculator,
+                                   TableCellStoreService tableCellStoreService,
+                                   CacheManager cacheManager,
+                                   ObjectProvider<TwoLevelCacheManager> invalidationBroadcasterProvider,
+                                   @Value("${smart-table.formula.max-dependency-graphs:1000}") long maxDependencyGraphs) {
+        this.tableFormulaRepository = tableFormulaRepository;
+        this.formulaEngine = formulaEngine;
+        this.wavefrontRecalculator = wavefrontRecalculator;
+        this.tableCellStoreService = tableCellStoreService;
+        this.cacheManager = cacheManager;
+        this.dependencyGraphs = Caffeine.newBuilder()
+                .maximumSize(maxDependencyGraphs)
+                .build();
+        this.invalidationBroadcaster = invalidationBroadcasterProvider.getIfAvailable();
+        if (invalidationBroadcaster != null) {
+            invalidationBroadcaster.registerLocalCache(DEPENDENCY_GRAPH_CACHE, this::evictDependencyGraph);
+        }
+    }
+    
     // ==================== 基础CRUD操作 ====================
     
     /**
@@ -76,7 +124,6 @@ public class TableFormulaServiceImpl implements TableFormulaService {
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = {"formulas", "calculations"}, allEntries = true)
     public TableFormula createFormula(Long columnId, String formulaExpression, String description) {
         log.info("开始创建公式 - 列ID: {}, 表达式: {}", columnId, formulaExpression);
         
@@ -103,6 +150,8 @@ public class TableFormulaServiceImpl implements TableFormulaService {
                     .build();
             
             TableFormula savedFormula = tableFormulaRepository.save(formula);
+            evictFormulaCaches(savedFormula);
+            invalidateDependencyGraph(savedFormula.getTableId());
             log.info("公式创建成功 - 公式ID: {}, 列ID: {}", savedFormula.getId(), columnId);
             
             return savedFormula;
@@ -125,7 +174,7 @@ public class TableFormulaServiceImpl implements TableFormulaService {
      * @throws FormulaNotFoundException 当公式不存在时抛出
      */
     @Override
-    @Cacheable(value = "formulas", key = "#formulaId", unless = "#result == null")
+    @Cacheable(value = "formulas", key = "#formulaId", sync = true)
     public TableFormula getFormulaById(Long formulaId) {
         log.debug("查询公式 - 公式ID: {}", formulaId);
         
@@ -169,7 +218,7 @@ public class TableFormulaServiceImpl implements TableFormulaService {
      * @throws IllegalArgumentException 当tableId为null时抛出
      */
     @Override
-    @Cacheable(value = "tableFormulas", key = "#tableId")
+    @Cacheable(value = "tableFormulas", key = "#tableId", sync = true)
     public List<TableFormula> getFormulasByTableId(Long tableId) {
         log.debug("查询表格公式 - 表格ID: {}", tableId);
         
@@ -198,7 +247,6 @@ public class TableFormulaServiceImpl implements TableFormulaService {
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = {"formulas", "columnFormulas", "tableFormulas", "calculations"}, allEntries = true)
     public TableFormula updateFormula(Long formulaId, String formulaExpression, String description) {
         log.info("开始更新公式 - 公式ID: {}, 新表达式: {}", formulaId, formulaExpression);
         
@@ -220,6 +268,9 @@ public class TableFormulaServiceImpl implements TableFormulaService {
             formula.setVersion(formula.getVersion() + 1); // 乐观锁版本号递增
             
             TableFormula updatedFormula = tableFormulaRepository.save(formula);
+            formulaEngine.evict(formulaId);
+            evictFormulaCaches(updatedFormula);
+            invalidateDependencyGraph(updatedFormula.getTableId());
             log.info("公式更新成功 - 公式ID: {}", formulaId);
             
             return updatedFormula;
@@ -242,7 +293,6 @@ public class TableFormulaServiceImpl implements TableFormulaService {
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = {"formulas", "columnFormulas", "tableFormulas", "calculations"}, allEntries = true)
     public void deleteFormula(Long formulaId) {
         log.info("开始删除公式 - 公式ID: {}", formulaId);
         
@@ -257,6 +307,9 @@ public class TableFormulaServiceImpl implements TableFormulaService {
             formula.setDeleteTime(LocalDateTime.now());
             
             tableFormulaRepository.save(formula);
+            formulaEngine.evict(formulaId);
+            evictFormulaCaches(formula);
+            invalidateDependencyGraph(formula.getTableId());
             log.info("公式删除成功 - 公式ID: {}", formulaId);
             
         } catch (Exception e) {
@@ -340,8 +393,10 @@ public class TableFormulaServiceImpl implements TableFormulaService {
     /**
      * 批量计算公式
      * 
-     * <p>对指定表格下的所有公式进行批量计算，支持并行处理和性能优化。</p>
-     * <p>会根据公式数量自动选择同步或异步处理方式。</p>
+     * <p>对指定表格下的所有公式按依赖图的拓扑层级进行批量计算，上游公式的结果写回输出单元格供下游读取。</p>
+     * <p>同一层级内的公式互不依赖，公式较多时在专用线程池上并行计算，结果与串行计算一致。</p>
+     * <p>公式的编译结果按公式ID和版本缓存在公式引擎中，每次调用都重新求值，
+     * 不再以整个单元格值映射作为缓存键。</p>
      * 
      * @param tableId 表格ID，不能为null
      * @param cellValues 单元格值映射，不能为null
@@ -350,8 +405,6 @@ public class TableFormulaServiceImpl implements TableFormulaService {
      * @throws FormulaBatchCalculationException 当批量计算失败时抛出
      */
     @Override
-    @Cacheable(value = "batchCalculations", 
-               key = "T(com.enterprise.brain.modules.smart-table.service.impl.TableFormulaServiceImpl).generateBatchCacheKey(#tableId, #cellValues)")
     public Map<String, String> batchCalculateFormulas(Long tableId, Map<String, String> cellValues) {
         log.info("开始批量计算公式 - 表格ID: {}, 单元格数量: {}", tableId, cellValues != null ? cellValues.size() : 0);
         
@@ -370,12 +423,15 @@ public class TableFormulaServiceImpl implements TableFormulaService {
                 return Collections.emptyMap();
             }
             
-            // 根据公式数量选择处理方式
-            Map<String, String> results;
-            if (formulas.size() <= MAX_BATCH_SIZE) {
-                results = calculateFormulasSync(formulas, cellValues);
-            } else {
-                results = calculateFormulasAsync(formulas, cellValues).join();
+            // 单元格值只解析一次，所有公式共享同一份数值快照
+            NumericCellSnapshot snapshot = NumericCellSnapshot.fromCellValues(cellValues);
+            FormulaDependencyGraph graph = getDependencyGraph(tableId);
+            
+            Map<String, String> results = new LinkedHashMap<>();
+            wavefrontRecalculator.recalculate(graph, null, snapshot, null).forEach((formulaId, value) ->
+                    results.put(FORMULA_KEY_PREFIX + formulaId, CompiledFormula.formatResult(value)));
+            for (Long formulaId : graph.getCyclicFormulaIds()) {
+                results.put(FORMULA_KEY_PREFIX + formulaId, ERROR_PREFIX);
             }
             
             long totalTime = System.currentTimeMillis() - startTime;
@@ -390,31 +446,235 @@ public class TableFormulaServiceImpl implements TableFormulaService {
         }
     }
     
+    /**
+     * 基于表格已保存的单元格数据计算全部公式
+     * 
+     * <p>直接在表格的列式存储上求值，不构建单元格值映射；公式结果写入临时覆盖层供下游公式读取，
+     * 不修改列式存储本身。</p>
+     * 
+     * @param tableId 表格ID，不能为null
+     * @return 公式ID到计算结果的映射
+     * @throws IllegalArgumentException 当参数无效时抛出
+     */
+    @Override
+    public Map<String, String> calculateTableFormulas(Long tableId) {
+        validateNotNull(tableId, "表格ID不能为空");
+        
+        long startTime = System.currentTimeMillis();
+        FormulaDependencyGraph graph = getDependencyGraph(tableId);
+        NumericCellSnapshot overlay = NumericCellSnapshot.create(graph.size());
+        
+        Map<String, String> results = new LinkedHashMap<>();
+        wavefrontRecalculator.recalculate(graph, null, overlay, tableCellStoreService.getSource(tableId))
+                .forEach((formulaId, value) ->
+                        results.put(FORMULA_KEY_PREFIX + formulaId, CompiledFormula.formatResult(value)));
+        for (Long formulaId : graph.getCyclicFormulaIds()) {
+            results.put(FORMULA_KEY_PREFIX + formulaId, ERROR_PREFIX);
+        }
+        
+        log.info("表格公式计算完成 - 表格ID: {}, 公式数量: {}, 耗时: {}ms", 
+                tableId, graph.size(), System.currentTimeMillis() - startTime);
+        return results;
+    }
+    
+    /**
+     * 增量重算受单元格变更影响的公式
+     * 
+     * <p>基于表格的公式依赖图，只重算变更单元格的直接和间接依赖公式，并按拓扑序执行。</p>
+     * <p>上游公式的结果会写回其输出单元格供下游公式读取；循环引用中的公式直接返回错误结果。</p>
+     * 
+     * @param tableId 表格ID，不能为null
+     * @param updates 本批次的单元格更新请求（通过cellKey定位单元格）
+     * @param cellValues 变更前的单元格值映射，不能为null
+     * @return 受影响的公式ID到计算结果的映射（按拓扑序排列）
+     * @throws IllegalArgumentException 当参数无效时抛出
+     */
+    @Override
+    public Map<String, String> recalculateAffectedFormulas(Long tableId, 
+                                                           List<CellUpdateRequest> updates, 
+                                                           Map<String, String> cellValues) {
+        validateNotNull(tableId, "表格ID不能为空");
+        validateNotNull(cellValues, "单元格值不能为空");
+        
+        if (CollectionUtils.isEmpty(updates)) {
+            return Collections.emptyMap();
+        }
+        
+        long startTime = System.currentTimeMillis();
+        FormulaDependencyGraph graph = getDependencyGraph(tableId);
+        
+        // 变更的单元格写入覆盖层，其余单元格按需从原始值读取，不解析整张表
+        NumericCellSnapshot overlay = NumericCellSnapshot.create(updates.size());
+        List<CellReference> changedCells = new ArrayList<>(updates.size());
+        for (CellUpdateRequest update : updates) {
+            if (!StringUtils.hasText(update.getCellKey())) {
+                continue;
+            }
+            try {
+                CellReference ref = CellReference.fromString(update.getCellKey().trim());
+                overlay.set(ref.getRow(), ref.getColumn(), NumericCellSnapshot.parseNumeric(update.getCellValue()));
+                changedCells.add(ref);
+            } catch (IllegalArgumentException e) {
+                log.warn("忽略无效的单元格标识 - 表格ID: {}, 单元格: {}", tableId, update.getCellKey());
+            }
+        }
+        
+        List<Long> affectedIds = graph.getAffectedFormulaIds(changedCells);
+        Map<Long, Double> values = wavefrontRecalculator.recalculate(
+                graph, affectedIds, overlay, CellValueSource.ofCellValues(cellValues));
+        
+        // 循环引用和语法无效的公式没有计算结果，返回错误
+        Map<String, String> results = new LinkedHashMap<>();
+        for (Long formulaId : affectedIds) {
+            results.put(FORMULA_KEY_PREFIX + formulaId, 
+                    CompiledFormula.formatResult(values.getOrDefault(formulaId, Double.NaN)));
+        }
+        
+        log.info("增量重算完成 - 表格ID: {}, 变更单元格: {}, 重算公式: {}/{}, 耗时: {}ms", 
+                tableId, changedCells.size(), affectedIds.size(), graph.size(), 
+                System.currentTimeMillis() - startTime);
+        
+        return results;
+    }
+    
+    /**
+     * 批量保存导入的公式（如XLSX导入中的公式单元格）
+     * 
+     * <p>不逐条做冲突检查和语法校验：导入的公式按原样保存，无法计算的公式在计算时返回错误结果。
+     * 整批保存后只失效一次表格级缓存和依赖图，而不是每条公式一次。</p>
+     * 
+     * @param tableId 表格ID，不能为null
+     * @param formulas 新建或已存在（带ID）的公式
+     * @return 保存后的公式
+     * @throws IllegalArgumentException 当tableId为null时抛出
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<TableFormula> saveImportedFormulas(Long tableId, List<TableFormula> formulas) {
+        validateNotNull(tableId, "表格ID不能为空");
+        
+        if (CollectionUtils.isEmpty(formulas)) {
+            return Collections.emptyList();
+        }
+        
+        List<TableFormula> saved = tableFormulaRepository.saveAll(formulas);
+        evictCache("tableFormulas", tableId);
+        saved.stream()
+                .map(TableFormula::getColumnId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(columnId -> evictCache("columnFormulas", columnId));
+        for (TableFormula formula : saved) {
+            evictCache("formulas", formula.getId());
+        }
+        invalidateDependencyGraph(tableId);
+        
+        log.info("导入公式保存完成 - 表格ID: {}, 公式数量: {}", tableId, saved.size());
+        return saved;
+    }
+    
+    /**
+     * 失效表格全部公式的缓存和依赖图
+     * 
+     * <p>公式在本服务之外被整批替换时（如表格复制在数据库内删除并重新插入公式），
+     * 替换前调用失效旧公式的缓存，替换后再调用一次失效新公式的缓存。</p>
+     * 
+     * @param tableId 表格ID，不能为null
+     * @throws IllegalArgumentException 当tableId为null时抛出
+     */
+    @Override
+    public void evictTableFormulas(Long tableId) {
+        validateNotNull(tableId, "表格ID不能为空");
+        
+        for (TableFormula formula : tableFormulaRepository.findByTableId(tableId)) {
+            evictCache("formulas", formula.getId());
+            evictCache("columnFormulas", formula.getColumnId());
+        }
+        evictCache("tableFormulas", tableId);
+        invalidateDependencyGraph(tableId);
+    }
+    
+    /**
+     * 合并重算一批已生效的单元格变更
+     * 
+     * <p>与{@link #recalculateAffectedFormulas}不同，变更值已写入表格的列式存储，这里只根据
+     * 变更位置找出受影响的公式，整批只重算一次（批量粘贴时不会逐个单元格触发重算）。</p>
+     * 
+     * @param tableId 表格ID，不能为null
+     * @param changedCells 发生变更的单元格
+     * @return 受影响的公式ID到计算结果的映射（按拓扑序排列）
+     * @throws IllegalArgumentException 当参数无效时抛出
+     */
+    @Override
+    public Map<String, String> recalculateChangedCells(Long tableId, Collection<CellReference> changedCells) {
+        validateNotNull(tableId, "表格ID不能为空");
+        
+        if (CollectionUtils.isEmpty(changedCells)) {
+            return Collections.emptyMap();
+        }
+        
+        long startTime = System.currentTimeMillis();
+        FormulaDependencyGraph graph = getDependencyGraph(tableId);
+        List<Long> affectedIds = graph.getAffectedFormulaIds(changedCells);
+        if (affectedIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        
+        NumericCellSnapshot overlay = NumericCellSnapshot.create(affectedIds.size());
+        Map<Long, Double> values = wavefrontRecalculator.recalculate(
+                graph, affectedIds, overlay, tableCellStoreService.getSource(tableId));
+        
+        Map<String, String> results = new LinkedHashMap<>();
+        for (Long formulaId : affectedIds) {
+            results.put(FORMULA_KEY_PREFIX + formulaId, 
+                    CompiledFormula.formatResult(values.getOrDefault(formulaId, Double.NaN)));
+        }
+        
+        log.info("批量变更合并重算完成 - 表格ID: {}, 变更单元格: {}, 重算公式: {}/{}, 耗时: {}ms", 
+                tableId, changedCells.size(), affectedIds.size(), graph.size(), 
+                System.currentTimeMillis() - startTime);
+        
+        return results;
+    }
+    
+    /**
+     * 获取表格的公式依赖图（首次使用时构建并缓存）
+     * 
+     * @param tableId 表格ID，不能为null
+     * @return 公式依赖图
+     */
+    @Override
+    public FormulaDependencyGraph getDependencyGraph(Long tableId) {
+        validateNotNull(tableId, "表格ID不能为空");
+        
+        return dependencyGraphs.get(tableId, id -> {
+            FormulaDependencyGraph graph = FormulaDependencyGraph.build(getFormulasByTableId(id));
+            if (graph.hasCycles()) {
+                log.warn("检测到循环引用 - 表格ID: {}, 公式ID: {}", id, graph.getCyclicFormulaIds());
+            }
+            return graph;
+        });
+    }
+    
     /**
      * 验证公式表达式
      * 
-     * <p>验证公式表达式的语法正确性。</p>
-     * <p>支持缓存验证结果，提高重复验证的性能。</p>
+     * <p>以公式编译器能否编译为准，与计算使用同一个解析器。</p>
+     * <p>编译结果由进程内的{@link FormulaCompilationCache}按表达式缓存，校验不经过Redis。</p>
      * 
      * @param formulaExpression 公式表达式，不能为空
      * @return true表示表达式有效，false表示无效
      * @throws IllegalArgumentException 当表达式为空时抛出
      */
     @Override
-    @Cacheable(value = "formulaValidations", key = "#formulaExpression")
     public boolean validateFormula(String formulaExpression) {
-        log.debug("验证公式表达式 - 表达式: {}", formulaExpression);
-        
         validateNotNull(formulaExpression, "公式表达式不能为空");
         
-        try {
-            String normalizedFormula = FormulaParser.normalizeFormula(formulaExpression);
-            return FormulaParser.validateFormula(normalizedFormula);
-            
-        } catch (Exception e) {
-            log.error("公式验证异常 - 表达式: {}, 错误: {}", formulaExpression, e.getMessage());
-            return false;
+        String error = FormulaCompilationCache.validationError(formulaExpression);
+        if (error != null) {
+            log.debug("公式表达式无效 - 表达式: {}, 错误: {}", formulaExpression, error);
         }
+        return error == null;
     }
     
     // ==================== 高级功能方法 ====================
@@ -430,7 +690,6 @@ public class TableFormulaServiceImpl implements TableFormulaService {
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = {"formulas", "calculations"}, allEntries = true)
     public List<TableFormula> batchCreateFormulas(List<FormulaCreateRequest> formulaRequests) {
         log.info("开始批量创建公式 - 请求数量: {}", formulaRequests != null ? formulaRequests.size() : 0);
         
@@ -456,67 +715,50 @@ public class TableFormulaServiceImpl implements TableFormulaService {
         return createdFormulas;
     }
     
+    // ==================== 私有辅助方法 ====================
+    
     /**
-     * 异步批量计算公式
-     * 
-     * <p>使用CompletableFuture实现异步批量计算，提高大数据量场景的性能。</p>
+     * 使表格的公式依赖图失效，并通知其他节点（表格ID为空时忽略）
      * 
-     * @param formulas 公式列表
-     * @param cellValues 单元格值
-     * @return 异步计算结果
+     * <p>在事务中调用时，提交后再失效一次：提交前其他线程可能按旧数据重建了依赖图。</p>
      */
-    public CompletableFuture<Map<String, String>> calculateFormulasAsync(
-            List<TableFormula> formulas, 
-            Map<String, String> cellValues) {
-        
-        return CompletableFuture.supplyAsync(() -> {
-            Map<String, String> results = new ConcurrentHashMap<>();
-            
-            // 并行处理公式计算
-            List<CompletableFuture<Void>> futures = formulas.stream()
-                    .map(formula -> CompletableFuture.runAsync(() -> {
-                        try {
-                            String normalizedFormula = FormulaParser.normalizeFormula(formula.getFormulaExpression());
-                            if (FormulaParser.validateFormula(normalizedFormula)) {
-                                String result = TableCalculator.calculateFormula(normalizedFormula, cellValues);
-                                results.put(FORMULA_KEY_PREFIX + formula.getId(), result);
-                            }
-                        } catch (Exception e) {
-                            log.error("异步计算公式失败 - 公式ID: {}, 错误: {}", formula.getId(), e.getMessage());
-                            results.put(FORMULA_KEY_PREFIX + formula.getId(), ERROR_PREFIX);
-                        }
-                    }))
-                    .collect(Collectors.toList());
-            
-            // 等待所有计算完成
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            
-            return results;
-        });
+    private void invalidateDependencyGraph(Long tableId) {
+        if (tableId == null) {
+            return;
+        }
+        dependencyGraphs.invalidate(tableId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dependencyGraphs.invalidate(tableId);
+                    publishDependencyGraphEvict(tableId);
+                }
+            });
+        } else {
+            publishDependencyGraphEvict(tableId);
+        }
     }
     
-    // ==================== 私有辅助方法 ====================
+    private void publishDependencyGraphEvict(Long tableId) {
+        if (invalidationBroadcaster != null) {
+            invalidationBroadcaster.publishEvict(DEPENDENCY_GRAPH_CACHE, tableId.toString());
+        }
+    }
     
     /**
-     * 同步计算公式列表
+     * 处理其他节点广播的依赖图失效消息
      */
-    private Map<String, String> calculateFormulasSync(List<TableFormula> formulas, Map<String, String> cellValues) {
-        Map<String, String> results = new HashMap<>();
-        
-        for (TableFormula formula : formulas) {
-            try {
-                String normalizedFormula = FormulaParser.normalizeFormula(formula.getFormulaExpression());
-                if (FormulaParser.validateFormula(normalizedFormula)) {
-                    String result = TableCalculator.calculateFormula(normalizedFormula, cellValues);
-                    results.put(FORMULA_KEY_PREFIX + formula.getId(), result);
-                }
-            } catch (Exception e) {
-                log.error("同步计算公式失败 - 公式ID: {}, 错误: {}", formula.getId(), e.getMessage());
-                results.put(FORMULA_KEY_PREFIX + formula.getId(), ERROR_PREFIX);
-            }
+    private void evictDependencyGraph(String key) {
+        if (key == null) {
+            dependencyGraphs.invalidateAll();
+            return;
+        }
+        try {
+            dependencyGraphs.invalidate(Long.valueOf(key));
+        } catch (NumberFormatException e) {
+            log.warn("忽略无效的依赖图失效消息 - 键: {}", key);
         }
-        
-        return results;
     }
     
     /**
@@ -575,38 +817,45 @@ public class TableFormulaServiceImpl implements TableFormulaService {
     }
     
     /**
-     * 生成计算缓存键
+     * 按公式精确清理缓存，只影响该公式本身、所在列和所在表格的缓存条目
+     * 
+     * <p>计算结果缓存以表达式和输入指纹为键，与公式实体无关，公式变更时无需清理。</p>
      */
-    public static String generateCalculationCacheKey(FormulaCalculateRequest request) {
-        if (request == null) return "null";
-        
-        StringBuilder keyBuilder = new StringBuilder(CALCULATION_CACHE_PREFIX);
-        keyBuilder.append(request.getFormulaExpression());
-        
-        if (request.getCellValues() != null && !request.getCellValues().isEmpty()) {
-            // 对单元格值进行排序，确保缓存键的一致性
-            request.getCellValues().entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .forEach(entry -> keyBuilder.append("|").append(entry.getKey()).append("=").append(entry.getValue()));
+    private void evictFormulaCaches(TableFormula formula) {
+        evictCache("formulas", formula.getId());
+        evictCache("columnFormulas", formula.getColumnId());
+        evictCache("tableFormulas", formula.getTableId());
+    }
+    
+    private void evictCache(String cacheName, Object key) {
+        if (key == null) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(key);
         }
-        
-        return keyBuilder.toString();
     }
     
     /**
-     * 生成批量计算缓存键
+     * 生成计算缓存键：表达式加上其引用单元格的输入指纹
+     * 
+     * <p>只有公式实际引用的单元格参与计算键，请求中其他单元格的变化不会导致缓存失效，
+     * 键长度也与单元格数量无关。</p>
      */
-    public static String generateBatchCacheKey(Long tableId, Map<String, String> cellValues) {
-        StringBuilder keyBuilder = new StringBuilder("batch:");
-        keyBuilder.append(tableId);
+    public static String generateCalculationCacheKey(FormulaCalculateRequest request) {
+        if (request == null) return "null";
         
-        if (cellValues != null && !cellValues.isEmpty()) {
-            cellValues.entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .forEach(entry -> keyBuilder.append("|").append(entry.getKey()).append("=").append(entry.getValue()));
+        String expression = FormulaParser.normalizeFormula(request.getFormulaExpression());
+        try {
+            CompiledFormula compiled = FormulaCompilationCache.compile(expression);
+            Map<String, String> cellValues = request.getCellValues() != null ? request.getCellValues() : Collections.emptyMap();
+            long fingerprint = compiled.fingerprint(CellValueSource.ofCellValues(cellValues));
+            return CALCULATION_CACHE_PREFIX + compiled.getExpression() + "#" + Long.toHexString(fingerprint);
+        } catch (IllegalArgumentException e) {
+            // 语法无效的公式计算结果不会被缓存，键只需保持稳定
+            return CALCULATION_CACHE_PREFIX + expression;
         }
-        
-        return keyBuilder.toString();
     }
     
     // ==================== 自定义异常类 ====================
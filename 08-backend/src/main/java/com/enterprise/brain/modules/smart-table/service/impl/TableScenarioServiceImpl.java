@@ -0,0 +1,390 @@
+package com.enterprise.brain.modules.smart-table.service.impl;
+
+import com.enterprise.brain.modules.smart-table.dto.request.ScenarioAdjustmentRequest;
+import com.enterprise.brain.modules.smart-table.dto.response.ScenarioResponse;
+import com.enterprise.brain.modules.smart-table.service.SmartTableService;
+import com.enterprise.brain.modules.smart-table.service.TableCellStoreService;
+import com.enterprise.brain.modules.smart-table.service.TableFormulaService;
+import com.enterprise.brain.modules.smart-table.service.TableScenarioService;
+import com.enterprise.brain.modules.smart-table.util.CellRange;
+import com.enterprise.brain.modules.smart-table.util.CellReference;
+import com.enterprise.brain.modules.smart-table.util.ColumnarCellStore;
+import com.enterprise.brain.modules.smart-table.util.CompiledFormula;
+import com.enterprise.brain.modules.smart-table.util.FormulaDependencyGraph;
+import com.enterprise.brain.modules.smart-table.util.NumericCellSnapshot;
+import com.enterprise.brain.modules.smart-table.util.WavefrontRecalculator;
+import com.enterprise.brain.modules.smart-table.util.WhatIfScenario;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 假设分析场景服务实现类
+ *
+ * <p>场景只保存稀疏增量（见{@link WhatIfScenario}），叠加在表格的列式存储之上，表格数据不会被修改。
+ * 每次调整只重算受影响的公式子图；多个场景可以同时存在并并发计算，内存与增量成正比。</p>
+ *
+ * <p>场景的增量和结果保存在进程内，按数量上限和空闲时间淘汰。配置了Redis时，场景定义和调整记录在
+ * {@link ScenarioJournal}中：请求落到没有该场景的节点时按日志重建，每次访问前先回放其他节点追加的调整，
+ * 因此多节点部署不需要按场景做粘性路由。日志写入或读取失败时请求失败，不会让各节点的场景互相偏离；
+ * 创建时写入失败的场景只保存在本节点。结果基于计算时的表格数据，
+ * 表格数据变化后可调用{@link #refreshScenario}按全部调整重算。</p>
+ */
+@Slf4j
+@Service
+public class TableScenarioServiceImpl implements TableScenarioService {
+
+    private static final String FORMULA_KEY_PREFIX = "formula_";
+
+    private final SmartTableService smartTableService;
+    private final TableFormulaService tableFormulaService;
+    private final TableCellStoreService tableCellStoreService;
+    private final WavefrontRecalculator wavefrontRecalculator;
+    private final ScenarioJournal journal;
+    /** 场景ID -> 场景及其已回放的日志位置 */
+    private final Cache<String, ScenarioState> scenarios;
+
+    public TableScenarioServiceImpl(SmartTableService smartTableService,
+                                    TableFormulaService tableFormulaService,
+                                    TableCellStoreService tableCellStoreService,
+                                    WavefrontRecalculator wavefrontRecalculator,
+                                    ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                                    @Value("${smart-table.scenario.max-scenarios:1000}") int maxScenarios,
+                                    @Value("${smart-table.scenario.idle-timeout-minutes:60}") long idleTimeoutMinutes) {
+        this.smartTableService = smartTableService;
+        this.tableFormulaService = tableFormulaService;
+        this.tableCellStoreService = tableCellStoreService;
+        this.wavefrontRecalculator = wavefrontRecalculator;
+        this.journal = new ScenarioJournal(redisTemplateProvider.getIfAvailable(), Duration.ofMinutes(idleTimeoutMinutes));
+        this.scenarios = Caffeine.newBuilder()
+                .maximumSize(maxScenarios)
+                .expireAfterAccess(Duration.ofMinutes(idleTimeoutMinutes))
+                .build();
+    }
+
+    @Override
+    public ScenarioResponse createScenario(Long tableId, String name) {
+        smartTableService.getTableById(tableId);
+        WhatIfScenario scenario = new WhatIfScenario(UUID.randomUUID().toString(), tableId, name);
+        scenarios.put(scenario.getId(), new ScenarioState(scenario, journal.create(scenario)));
+        log.info("创建假设分析场景 - 表格ID: {}, 场景ID: {}, 名称: {}", tableId, scenario.getId(), name);
+        return toResponse(scenario, 0, 0L);
+    }
+
+    /**
+     * 对场景应用一批调整，并只重算受这批调整影响的公式
+     *
+     * <p>整批调整先全部校验，再写入日志和场景，然后合并重算一次；其他节点此前追加的调整按日志顺序一并回放。
+     * 区域超出表格现有数据范围的部分被截掉，单个单元格的SET不受此限制（可以试算新增的单元格）。</p>
+     */
+    @Override
+    public ScenarioResponse applyAdjustments(String scenarioId, List<ScenarioAdjustmentRequest> adjustments) {
+        List<ScenarioAdjustmentRequest> normalized = normalize(adjustments);
+        ScenarioState state = getScenarioOrThrow(scenarioId);
+        WhatIfScenario scenario = state.scenario;
+        long startTime = System.currentTimeMillis();
+        ColumnarCellStore store = tableCellStoreService.getStore(scenario.getTableId());
+
+        synchronized (scenario) {
+            List<CellReference> changed = new ArrayList<>();
+            if (state.journaled) {
+                journal.append(scenarioId, normalized);
+                changed.addAll(replay(state, store));
+            } else {
+                for (ScenarioAdjustmentRequest adjustment : normalized) {
+                    changed.addAll(adjust(scenario, adjustment, store));
+                }
+            }
+            FormulaDependencyGraph graph = tableFormulaService.getDependencyGraph(scenario.getTableId());
+            List<Long> recalculated = scenario.recalculate(graph, changed, wavefrontRecalculator, store);
+
+            log.info("假设分析场景重算完成 - 场景ID: {}, 调整单元格: {}, 重算公式: {}/{}, 增量: {}, 耗时: {}ms",
+                    scenarioId, changed.size(), recalculated.size(), graph.size(), scenario.getDeltaSize(),
+                    System.currentTimeMillis() - startTime);
+            return toResponse(scenario, recalculated.size(), startTime);
+        }
+    }
+
+    @Override
+    public ScenarioResponse getScenario(String scenarioId) {
+        ScenarioState state = getScenarioOrThrow(scenarioId);
+        long startTime = System.currentTimeMillis();
+        synchronized (state.scenario) {
+            int recalculated = synchronize(state);
+            return toResponse(state.scenario, recalculated, startTime);
+        }
+    }
+
+    /**
+     * 按场景的全部调整和表格当前的数据重新计算
+     */
+    @Override
+    public ScenarioResponse refreshScenario(String scenarioId) {
+        ScenarioState state = getScenarioOrThrow(scenarioId);
+        WhatIfScenario scenario = state.scenario;
+        long startTime = System.currentTimeMillis();
+        ColumnarCellStore store = tableCellStoreService.getStore(scenario.getTableId());
+        synchronized (scenario) {
+            replay(state, store);
+            FormulaDependencyGraph graph = tableFormulaService.getDependencyGraph(scenario.getTableId());
+            List<Long> recalculated = scenario.recalculate(graph, null, wavefrontRecalculator, store);
+            return toResponse(scenario, recalculated.size(), startTime);
+        }
+    }
+
+    @Override
+    public List<ScenarioResponse> getScenariosByTableId(Long tableId) {
+        if (journal.isEnabled()) {
+            Set<String> ids = journal.scenarioIds(tableId);
+            for (String id : ids) {
+                if (scenarios.getIfPresent(id) == null && restore(id) == null) {
+                    journal.delete(id, tableId);  // 日志已过期
+                }
+            }
+        }
+        List<ScenarioState> matched = new ArrayList<>();
+        for (ScenarioState state : scenarios.asMap().values()) {
+            if (state.scenario.getTableId().equals(tableId)) {
+                matched.add(state);
+            }
+        }
+        matched.sort(Comparator.comparingLong(state -> state.scenario.getCreateTime()));
+
+        List<ScenarioResponse> responses = new ArrayList<>(matched.size());
+        for (ScenarioState state : matched) {
+            WhatIfScenario scenario = state.scenario;
+            ScenarioResponse response = new ScenarioResponse();
+            response.setScenarioId(scenario.getId());
+            response.setTableId(scenario.getTableId());
+            response.setName(scenario.getName());
+            synchronized (scenario) {
+                try {
+                    synchronize(state);
+                } catch (ScenarioNotFoundException e) {
+                    continue;  // 已在其他节点丢弃
+                }
+                response.setAdjustedCells(scenario.getAdjustedCellCount());
+                response.setDeltaSize(scenario.getDeltaSize());
+            }
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    @Override
+    public void discardScenario(String scenarioId) {
+        ScenarioState state = scenarioId != null ? scenarios.getIfPresent(scenarioId) : null;
+        if (journal.isEnabled() && scenarioId != null) {
+            WhatIfScenario scenario = state != null ? state.scenario : journal.load(scenarioId);
+            journal.delete(scenarioId, scenario != null ? scenario.getTableId() : null);
+        }
+        scenarios.invalidate(scenarioId);
+    }
+
+    /**
+     * 获取场景：本节点没有时按日志重建（调整在加锁后由{@link #replay}回放）
+     */
+    private ScenarioState getScenarioOrThrow(String scenarioId) {
+        ScenarioState state = scenarioId != null ? scenarios.getIfPresent(scenarioId) : null;
+        if (state == null && scenarioId != null && journal.isEnabled()) {
+            state = restore(scenarioId);
+        }
+        if (state == null) {
+            throw new ScenarioNotFoundException("Scenario not found with id: " + scenarioId);
+        }
+        return state;
+    }
+
+    private ScenarioState restore(String scenarioId) {
+        WhatIfScenario scenario = journal.load(scenarioId);
+        if (scenario == null) {
+            return null;
+        }
+        ScenarioState restored = new ScenarioState(scenario, true);
+        ScenarioState existing = scenarios.asMap().putIfAbsent(scenarioId, restored);
+        if (existing != null) {
+            return existing;
+        }
+        log.info("按调整日志重建假设分析场景 - 表格ID: {}, 场景ID: {}", scenario.getTableId(), scenarioId);
+        return restored;
+    }
+
+    /**
+     * 回放日志中尚未应用的调整，并重算受影响的公式（调用方持有场景的锁）
+     * @return 重算的公式数量
+     */
+    private int synchronize(ScenarioState state) {
+        WhatIfScenario scenario = state.scenario;
+        if (!state.journaled) {
+            return 0;
+        }
+        ColumnarCellStore store = tableCellStoreService.getStore(scenario.getTableId());
+        List<CellReference> changed = replay(state, store);
+        if (changed.isEmpty()) {
+            return 0;
+        }
+        FormulaDependencyGraph graph = tableFormulaService.getDependencyGraph(scenario.getTableId());
+        return scenario.recalculate(graph, changed, wavefrontRecalculator, store).size();
+    }
+
+    /**
+     * 按顺序应用日志中尚未应用的调整（调用方持有场景的锁）
+     * @return 调整的单元格
+     * @throws ScenarioNotFoundException 当日志已不存在（场景在其他节点被丢弃或已过期）时抛出
+     */
+    private List<CellReference> replay(ScenarioState state, ColumnarCellStore store) {
+        WhatIfScenario scenario = state.scenario;
+        if (!state.journaled) {
+            return new ArrayList<>();
+        }
+        List<ScenarioAdjustmentRequest> pending = journal.read(scenario.getId(), scenario.getTableId(), state.position);
+        if (pending == null) {
+            scenarios.invalidate(scenario.getId());
+            throw new ScenarioNotFoundException("Scenario not found with id: " + scenario.getId());
+        }
+        List<CellReference> changed = new ArrayList<>();
+        for (ScenarioAdjustmentRequest adjustment : pending) {
+            changed.addAll(adjust(scenario, adjustment, store));
+        }
+        state.position += pending.size();
+        return changed;
+    }
+
+    private static List<CellReference> adjust(WhatIfScenario scenario, ScenarioAdjustmentRequest adjustment,
+                                              ColumnarCellStore store) {
+        CellRange range = clip(parseTarget(adjustment.getTarget()), store);
+        if (range == null) {
+            return new ArrayList<>();
+        }
+        return scenario.adjust(range, parseOperation(adjustment), adjustment.getValue(), store);
+    }
+
+    /**
+     * 校验整批调整，并把调整方式规范化为枚举名称、目标去掉首尾空白
+     */
+    private static List<ScenarioAdjustmentRequest> normalize(List<ScenarioAdjustmentRequest> adjustments) {
+        List<ScenarioAdjustmentRequest> normalized = new ArrayList<>();
+        if (adjustments == null) {
+            return normalized;
+        }
+        for (ScenarioAdjustmentRequest adjustment : adjustments) {
+            WhatIfScenario.Operation operation = parseOperation(adjustment);
+            parseTarget(adjustment.getTarget());
+            ScenarioAdjustmentRequest copy = new ScenarioAdjustmentRequest();
+            copy.setTarget(adjustment.getTarget().trim());
+            copy.setOperation(operation.name());
+            copy.setValue(adjustment.getValue());
+            normalized.add(copy);
+        }
+        return normalized;
+    }
+
+    private static WhatIfScenario.Operation parseOperation(ScenarioAdjustmentRequest adjustment) {
+        if (adjustment == null || adjustment.getOperation() == null || adjustment.getValue() == null) {
+            throw new IllegalArgumentException("Adjustment requires target, operation and value");
+        }
+        try {
+            return WhatIfScenario.Operation.valueOf(adjustment.getOperation().trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported operation: " + adjustment.getOperation());
+        }
+    }
+
+    private static CellRange parseTarget(String target) {
+        if (target == null) {
+            throw new IllegalArgumentException("Adjustment requires target, operation and value");
+        }
+        String trimmed = target.trim();
+        if (trimmed.indexOf(':') >= 0) {
+            return CellRange.fromString(trimmed);
+        }
+        CellReference cell = CellReference.fromString(trimmed);
+        return new CellRange(cell, cell);
+    }
+
+    /**
+     * 把区域截到表格现有数据范围内，单个单元格不截
+     * @return 截取后的区域；完全超出范围时返回null
+     */
+    private static CellRange clip(CellRange range, ColumnarCellStore store) {
+        if (range.getRowCount() == 1 && range.getColumnCount() == 1) {
+            return range;
+        }
+        int lastRow = Math.min(range.getLastRow(), store.getRowCount() - 1);
+        int lastColumn = Math.min(range.getLastColumn(), store.getColumnCount() - 1);
+        if (lastRow < range.getFirstRow() || lastColumn < range.getFirstColumn()) {
+            return null;
+        }
+        return new CellRange(range.getFirstRow(), range.getFirstColumn(), lastRow, lastColumn);
+    }
+
+    /**
+     * 构建响应：场景结果与表格当前数据下同一批公式的结果对照
+     */
+    private ScenarioResponse toResponse(WhatIfScenario scenario, int recalculated, long startTime) {
+        Map<Long, Double> results = scenario.getResults();
+        Map<String, String> scenarioResults = new LinkedHashMap<>();
+        Map<String, String> baseline = new LinkedHashMap<>();
+        if (!results.isEmpty()) {
+            FormulaDependencyGraph graph = tableFormulaService.getDependencyGraph(scenario.getTableId());
+            Map<Long, Double> baseValues = wavefrontRecalculator.recalculate(graph, results.keySet(),
+                    NumericCellSnapshot.create(results.size()), tableCellStoreService.getStore(scenario.getTableId()));
+            for (Map.Entry<Long, Double> entry : results.entrySet()) {
+                String key = FORMULA_KEY_PREFIX + entry.getKey();
+                scenarioResults.put(key, CompiledFormula.formatResult(entry.getValue()));
+                baseline.put(key, CompiledFormula.formatResult(baseValues.getOrDefault(entry.getKey(), Double.NaN)));
+            }
+        }
+
+        ScenarioResponse response = new ScenarioResponse();
+        response.setScenarioId(scenario.getId());
+        response.setTableId(scenario.getTableId());
+        response.setName(scenario.getName());
+        response.setAdjustedCells(scenario.getAdjustedCellCount());
+        response.setDeltaSize(scenario.getDeltaSize());
+        response.setRecalculatedFormulas(recalculated);
+        response.setResults(scenarioResults);
+        response.setBaseline(baseline);
+        response.setElapsedMs(System.currentTimeMillis() - startTime);
+        return response;
+    }
+
+    /**
+     * 本节点的场景及其在调整日志中已应用到的位置
+     */
+    private static final class ScenarioState {
+        private final WhatIfScenario scenario;
+        /** 场景是否记录在调整日志中 */
+        private final boolean journaled;
+        /** 下一条待应用的日志位置，由场景的锁保护 */
+        private long position = ScenarioJournal.FIRST_ADJUSTMENT;
+
+        private ScenarioState(WhatIfScenario scenario, boolean journaled) {
+            this.scenario = scenario;
+            this.journaled = journaled;
+        }
+    }
+
+    /**
+     * 场景不存在异常
+     */
+    public static class ScenarioNotFoundException extends RuntimeException {
+        public ScenarioNotFoundException(String message) {
+            super(message);
+        }
+    }
+}
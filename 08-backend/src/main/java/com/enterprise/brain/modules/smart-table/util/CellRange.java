@@ -0,0 +1,107 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+/**
+ * 单元格区域引用（如"A1:A50000"、"B2:D10"），行列索引从0开始，首尾均包含
+ */
+public final class CellRange {
+    private final int firstRow;
+    private final int firstColumn;
+    private final int lastRow;
+    private final int lastColumn;
+
+    /**
+     * 构造单元格区域（首尾顺序可任意，构造时自动规整为左上角到右下角）
+     */
+    public CellRange(CellReference from, CellReference to) {
+        this(from.getRow(), from.getColumn(), to.getRow(), to.getColumn());
+    }
+
+    public CellRange(int row1, int column1, int row2, int column2) {
+        this.firstRow = Math.min(row1, row2);
+        this.firstColumn = Math.min(column1, column2);
+        this.lastRow = Math.max(row1, row2);
+        this.lastColumn = Math.max(column1, column2);
+    }
+
+    /**
+     * 解析区域引用字符串
+     * @param range 区域引用（如"A1:B5"）
+     * @return 解析后的区域
+     * @throws IllegalArgumentException 当格式无效时抛出
+     */
+    public static CellRange fromString(String range) {
+        if (range == null) {
+            throw new IllegalArgumentException("Invalid cell range: null");
+        }
+        int colon = range.indexOf(':');
+        if (colon <= 0 || colon == range.length() - 1) {
+            throw new IllegalArgumentException("Invalid cell range: " + range);
+        }
+        return new CellRange(CellReference.fromString(range.substring(0, colon).trim()),
+                CellReference.fromString(range.substring(colon + 1).trim()));
+    }
+
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    public int getLastColumn() {
+        return lastColumn;
+    }
+
+    /**
+     * @return 区域包含的行数
+     */
+    public int getRowCount() {
+        return lastRow - firstRow + 1;
+    }
+
+    /**
+     * @return 区域包含的列数
+     */
+    public int getColumnCount() {
+        return lastColumn - firstColumn + 1;
+    }
+
+    /**
+     * @return 区域是否包含指定单元格
+     */
+    public boolean contains(int row, int column) {
+        return row >= firstRow && row <= lastRow && column >= firstColumn && column <= lastColumn;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CellRange)) {
+            return false;
+        }
+        CellRange that = (CellRange) o;
+        return firstRow == that.firstRow && firstColumn == that.firstColumn
+                && lastRow == that.lastRow && lastColumn == that.lastColumn;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = firstRow;
+        result = 31 * result + firstColumn;
+        result = 31 * result + lastRow;
+        result = 31 * result + lastColumn;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return new CellReference(firstRow, firstColumn) + ":" + new CellReference(lastRow, lastColumn);
+    }
+}
@@ -35,35 +35,255 @@ public class CellReference {
     
     /**
      * 将单元格引用字符串（如"A1"）解析为CellReference对象
-     * @param reference 单元格引用字符串（支持大小写字母，如"A1"、"b2"）
+     * @param reference 单元格引用字符串（支持大小写字母和绝对引用，如"A1"、"b2"、"$C$3"）
      * @return 解析后的CellReference（行列索引从0开始）
-     * @throws IllegalArgumentException 当输入字符串格式无效时抛出
+     * @throws IllegalArgumentException 当输入字符串格式无效或带工作表前缀（如"Sheet1!D4"）时抛出
      */
     public static CellReference fromString(String reference) {
         if (reference == null || reference.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid cell reference: " + reference);
         }
         
-        // 分离列字母和行数字
-        String colStr = reference.replaceAll("\\d+", "");
-        String rowStr = reference.replaceAll("[A-Za-z]+", "");
-        
-        if (colStr.isEmpty() || rowStr.isEmpty()) {
+        long packed = parse(reference, 0, reference.length());
+        if (packed == INVALID) {
             throw new IllegalArgumentException("Invalid cell reference format: " + reference);
         }
+        return new CellReference(row(packed), column(packed));
+    }
+    
+    // ==================== 打包表示 ====================
+    
+    /*
+     * 打包格式（long）：
+     *   bit 0-31  行索引（从0开始，非负）
+     *   bit 32-60 列索引（从0开始）
+     *   bit 61    行为绝对引用（"A$1"）
+     *   bit 62    列为绝对引用（"$A1"）
+     * 合法的打包值总是非负数，解析失败返回INVALID（-1）。
+     */
+    
+    /** 解析失败时{@link #parse}返回的值 */
+    public static final long INVALID = -1L;
+    
+    private static final int COLUMN_BITS = 29;
+    private static final long COLUMN_MASK = (1L << COLUMN_BITS) - 1;
+    private static final long ABSOLUTE_ROW = 1L << 61;
+    private static final long ABSOLUTE_COLUMN = 1L << 62;
+    /** 列字母最多6位（"ZZZZZZ"约3.2亿列），保证列索引不超出29位 */
+    private static final int MAX_COLUMN_LETTERS = 6;
+    
+    /**
+     * 将行列索引打包为long（不含绝对引用标记）
+     * @param row 行索引（从0开始）
+     * @param column 列索引（从0开始）
+     * @return 打包值
+     */
+    public static long pack(int row, int column) {
+        return ((column & COLUMN_MASK) << 32) | (row & 0xFFFFFFFFL);
+    }
+    
+    /**
+     * @return 打包值中的行索引
+     */
+    public static int row(long packed) {
+        return (int) packed;
+    }
+    
+    /**
+     * @return 打包值中的列索引
+     */
+    public static int column(long packed) {
+        return (int) ((packed >>> 32) & COLUMN_MASK);
+    }
+    
+    /**
+     * @return 行是否为绝对引用（如"A$1"）
+     */
+    public static boolean isAbsoluteRow(long packed) {
+        return (packed & ABSOLUTE_ROW) != 0;
+    }
+    
+    /**
+     * @return 列是否为绝对引用（如"$A1"）
+     */
+    public static boolean isAbsoluteColumn(long packed) {
+        return (packed & ABSOLUTE_COLUMN) != 0;
+    }
+    
+    /**
+     * 去掉绝对引用标记，只保留单元格位置（"$A$1"与"A1"得到相同的值，可用作查找键）
+     */
+    public static long position(long packed) {
+        return packed & ~(ABSOLUTE_ROW | ABSOLUTE_COLUMN);
+    }
+    
+    /**
+     * 按偏移量平移引用，绝对引用的行或列保持不变（与Excel复制公式的规则一致）
+     * @param packed 打包值
+     * @param rowOffset 行偏移
+     * @param columnOffset 列偏移
+     * @return 平移后的打包值（保留绝对引用标记）；平移后越界返回{@link #INVALID}
+     */
+    public static long shift(long packed, int rowOffset, int columnOffset) {
+        long row = isAbsoluteRow(packed) ? row(packed) : (long) row(packed) + rowOffset;
+        long column = isAbsoluteColumn(packed) ? column(packed) : (long) column(packed) + columnOffset;
+        if (row < 0 || row >= Integer.MAX_VALUE || column < 0 || column > COLUMN_MASK) {
+            return INVALID;
+        }
+        return pack((int) row, (int) column) | (packed & (ABSOLUTE_ROW | ABSOLUTE_COLUMN));
+    }
+    
+    /**
+     * 解析整个字符串为打包的单元格引用，不创建任何对象
+     * @see #parse(CharSequence, int, int)
+     */
+    public static long parse(CharSequence text) {
+        return text != null ? parse(text, 0, text.length()) : INVALID;
+    }
+    
+    /**
+     * 解析text中[from, to)区间的单元格引用，不创建任何对象
+     *
+     * <p>支持大小写列字母和绝对引用（"$A$1"、"A$1"、"$A1"）。区间必须恰好是一个引用，首尾不能有空白。
+     * 表格没有多个工作表，带工作表前缀的引用（"Sheet1!A1"、"'销售 数据'!B2"）一律无效，
+     * 不会按当前表格解析。</p>
+     *
+     * @param text 文本
+     * @param from 起始位置（包含）
+     * @param to 结束位置（不包含）
+     * @return 打包值（可用{@link #row}、{@link #column}读取）；格式无效或带工作表前缀返回{@link #INVALID}
+     */
+    public static long parse(CharSequence text, int from, int to) {
+        if (text == null || from >= to) {
+            return INVALID;
+        }
+        int pos = from;
+        if (skipSheet(text, from, to) != from) {
+            return INVALID;
+        }
         
-        // 计算列索引（A=0, B=1, ..., Z=25, AA=26...）
-        int col = 0;
-        for (char c : colStr.toUpperCase().toCharArray()) {
-            col = col * 26 + (c - 'A' + 1);
+        long flags = 0L;
+        if (pos < to && text.charAt(pos) == '$') {
+            flags |= ABSOLUTE_COLUMN;
+            pos++;
+        }
+        int column = 0;
+        int letters = 0;
+        while (pos < to && isLetter(text.charAt(pos))) {
+            if (++letters > MAX_COLUMN_LETTERS) {
+                return INVALID;
+            }
+            column = column * 26 + ((text.charAt(pos) & ~0x20) - 'A' + 1);
+            pos++;
+        }
+        if (letters == 0) {
+            return INVALID;
         }
         
-        // 计算行索引（1 -> 0）
-        try {
-            int row = Integer.parseInt(rowStr) - 1;
-            return new CellReference(row, col - 1);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid row number in reference: " + reference, e);
+        if (pos < to && text.charAt(pos) == '$') {
+            flags |= ABSOLUTE_ROW;
+            pos++;
+        }
+        long row = 0L;
+        int digitsStart = pos;
+        while (pos < to && isDigit(text.charAt(pos))) {
+            row = row * 10 + (text.charAt(pos) - '0');
+            if (row > Integer.MAX_VALUE) {
+                return INVALID;
+            }
+            pos++;
+        }
+        if (pos == digitsStart || pos != to || row == 0L) {
+            return INVALID;
+        }
+        return pack((int) row - 1, column - 1) | flags;
+    }
+    
+    /**
+     * 从from开始向后扫描一个语法完整的单元格引用（含工作表前缀和"$"标记），不创建任何对象
+     *
+     * <p>只检查字符构成，不检查引用之后的字符，调用方需自行判断边界（如后面紧跟"("说明是函数名）。
+     * 工作表前缀会被扫描进引用，使整个引用被{@link #parse}判为无效，而不是把前缀之后的部分当作本表格的引用。</p>
+     *
+     * @param text 文本
+     * @param from 起始位置
+     * @param to 扫描的结束位置（不包含）
+     * @return 引用结束位置（不包含）；from处不是单元格引用返回-1
+     */
+    public static int scan(CharSequence text, int from, int to) {
+        int pos = skipSheet(text, from, to);
+        if (pos < 0) {
+            return -1;
+        }
+        if (pos < to && text.charAt(pos) == '$') {
+            pos++;
+        }
+        int lettersStart = pos;
+        while (pos < to && isLetter(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos == lettersStart || pos - lettersStart > MAX_COLUMN_LETTERS) {
+            return -1;
+        }
+        if (pos < to && text.charAt(pos) == '$') {
+            pos++;
+        }
+        int digitsStart = pos;
+        while (pos < to && isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        return pos > digitsStart ? pos : -1;
+    }
+    
+    /**
+     * 跳过工作表前缀（"Sheet1!"或"'带空格的名称'!"，单引号内用''转义）
+     * @return 前缀之后的位置；没有前缀返回from；引号未闭合或引号后不是"!"返回-1
+     */
+    private static int skipSheet(CharSequence text, int from, int to) {
+        if (from >= to) {
+            return from;
+        }
+        if (text.charAt(from) == '\'') {
+            int pos = from + 1;
+            while (pos < to) {
+                if (text.charAt(pos) == '\'') {
+                    if (pos + 1 < to && text.charAt(pos + 1) == '\'') {
+                        pos += 2;
+                        continue;
+                    }
+                    return pos > from + 1 && pos + 1 < to && text.charAt(pos + 1) == '!' ? pos + 2 : -1;
+                }
+                pos++;
+            }
+            return -1;
+        }
+        int pos = from;
+        while (pos < to && isSheetNameChar(text.charAt(pos))) {
+            pos++;
+        }
+        return pos > from && pos < to && text.charAt(pos) == '!' ? pos + 1 : from;
+    }
+    
+    private static boolean isSheetNameChar(char c) {
+        return isLetter(c) || isDigit(c) || c == '_' || c == '.' || c > 0x7F;
+    }
+    
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+    
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    // ==================== 显示形式 ====================
+    
+    /** 常用列（A到ZZ）的列字母 */
+    private static final String[] COLUMN_NAMES = new String[26 + 26 * 26];
+    
+    static {
+        for (int i = 0; i < COLUMN_NAMES.length; i++) {
+            COLUMN_NAMES[i] = formatColumn(i);
         }
     }
     
@@ -73,14 +293,108 @@ public class CellReference {
      */
     @Override
     public String toString() {
-        StringBuilder colStr = new StringBuilder();
+        return toString(row, column);
+    }
+    
+    /**
+     * 行列索引转换为单元格引用字符串（如(0,0) -> "A1"）
+     * @param row 行索引（从0开始）
+     * @param column 列索引（从0开始）
+     * @return 单元格引用字符串
+     */
+    public static String toString(int row, int column) {
+        if (row < 0 || column < 0) {
+            return columnName(column) + (row + 1);  // 越界索引保持原有输出
+        }
+        return format(row, column);
+    }
+    
+    /**
+     * 将打包值转换为字符串，保留绝对引用标记（如"$A$1"）
+     */
+    public static String toString(long packed) {
+        String column = columnName(column(packed));
+        String row = Integer.toString(row(packed) + 1);
+        return (isAbsoluteColumn(packed) ? "$" : "") + column + (isAbsoluteRow(packed) ? "$" : "") + row;
+    }
+    
+    /**
+     * 将列字母转换为列索引（如"A" -> 0，"aa" -> 26）
+     * @param name 列字母（不区分大小写）
+     * @return 列索引（从0开始）
+     * @throws IllegalArgumentException 当包含非字母字符时抛出
+     */
+    public static int columnIndex(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Invalid column name: " + name);
+        }
+        int col = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toUpperCase(name.charAt(i));
+            if (c < 'A' || c > 'Z') {
+                throw new IllegalArgumentException("Invalid column name: " + name);
+            }
+            col = col * 26 + (c - 'A' + 1);
+        }
+        return col - 1;
+    }
+    
+    /**
+     * 将列索引转换为列字母（如0 -> "A"，26 -> "AA"）
+     * @param column 列索引（从0开始）
+     * @return 列字母
+     */
+    public static String columnName(int column) {
+        if (column >= 0 && column < COLUMN_NAMES.length) {
+            return COLUMN_NAMES[column];
+        }
+        return formatColumn(column);
+    }
+    
+    private static String formatColumn(int column) {
+        char[] chars = new char[7];
+        int pos = chars.length;
         int col = column + 1;  // 转换为1-based索引计算列字母
-        
         while (col > 0) {
-            colStr.insert(0, (char) ('A' + (col - 1) % 26));
+            chars[--pos] = (char) ('A' + (col - 1) % 26);
             col = (col - 1) / 26;
         }
-        
-        return colStr.toString() + (row + 1);  // 行索引转换为1-based
+        return new String(chars, pos, chars.length - pos);
+    }
+    
+    /**
+     * 从右向左一次性填充字符数组，避免StringBuilder.insert的反复移动
+     */
+    private static String format(int row, int column) {
+        char[] chars = new char[7 + 10];
+        int pos = chars.length;
+        int value = row + 1;
+        do {
+            chars[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        int col = column + 1;
+        while (col > 0) {
+            chars[--pos] = (char) ('A' + (col - 1) % 26);
+            col = (col - 1) / 26;
+        }
+        return new String(chars, pos, chars.length - pos);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CellReference)) {
+            return false;
+        }
+        CellReference that = (CellReference) o;
+        return row == that.row && column == that.column;
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * row + column;
     }
 }
@@ -0,0 +1,102 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 公式求值时的单元格数值来源，按行列索引（从0开始）读取数值
+ *
+ * <p>编译后的公式只通过该接口读取单元格，与具体的存储方式（Map快照、列式存储等）解耦。
+ * 区域函数通过{@link #readColumn}按列批量读取到基本类型数组中计算。</p>
+ */
+@FunctionalInterface
+public interface CellValueSource {
+
+    /**
+     * 读取指定单元格的数值
+     * @param row 行索引（从0开始）
+     * @param column 列索引（从0开始）
+     * @return 单元格数值；不存在或非数字的单元格返回0
+     */
+    double getNumber(int row, int column);
+
+    /**
+     * 将一列中连续的单元格读入数组，供区域函数使用
+     *
+     * <p>空单元格或非数字单元格应写入NaN，以便SUM、COUNT等函数将其忽略；
+     * 默认实现逐个调用{@link #getNumber}，无法区分空单元格，存储实现应覆盖此方法。</p>
+     *
+     * @param column 列索引（从0开始）
+     * @param fromRow 起始行索引（从0开始）
+     * @param target 目标数组
+     * @param length 读取的行数
+     */
+    default void readColumn(int column, int fromRow, double[] target, int length) {
+        for (int i = 0; i < length; i++) {
+            target[i] = getNumber(fromRow + i, column);
+        }
+    }
+
+    /**
+     * 获取一列中连续区域的查找索引，供VLOOKUP使用
+     *
+     * <p>默认实现每次重新构建，存储实现可按区域缓存。</p>
+     *
+     * @param column 列索引（从0开始）
+     * @param fromRow 起始行索引（从0开始）
+     * @param toRow 结束行索引（包含）
+     * @return 列索引，匹配结果为相对于fromRow的偏移
+     */
+    default ColumnIndex getColumnIndex(int column, int fromRow, int toRow) {
+        int length = toRow - fromRow + 1;
+        double[] values = new double[length];
+        readColumn(column, fromRow, values, length);
+        return ColumnIndex.build(values, length);
+    }
+
+    /**
+     * 按需从单元格值映射中读取数值，不做预解析，适合只读取少量单元格的场景
+     *
+     * <p>单个单元格按引用字符串查找映射。区域比映射本身还大时（如整列SUM、VLOOKUP的查找表），
+     * 改为遍历一次映射并解析键，不再为区域中的每一行生成引用字符串。</p>
+     *
+     * @param cellValues 单元格引用到值的映射（如"A1" -> "100"）
+     * @return 单元格数值来源
+     */
+    static CellValueSource ofCellValues(Map<String, String> cellValues) {
+        return new CellValueSource() {
+            @Override
+            public double getNumber(int row, int column) {
+                return NumericCellSnapshot.parseNumeric(cellValues.get(CellReference.toString(row, column)));
+            }
+
+            @Override
+            public void readColumn(int column, int fromRow, double[] target, int length) {
+                if (length > cellValues.size()) {
+                    scanColumn(column, fromRow, target, length);
+                    return;
+                }
+                for (int i = 0; i < length; i++) {
+                    String value = cellValues.get(CellReference.toString(fromRow + i, column));
+                    target[i] = NumericCellSnapshot.parseNumeric(value, Double.NaN);
+                }
+            }
+
+            private void scanColumn(int column, int fromRow, double[] target, int length) {
+                Arrays.fill(target, 0, length, Double.NaN);
+                for (Map.Entry<String, String> entry : cellValues.entrySet()) {
+                    long packed = CellReference.parse(entry.getKey());
+                    if (packed == CellReference.INVALID || CellReference.column(packed) != column) {
+                        continue;
+                    }
+                    int offset = CellReference.row(packed) - fromRow;
+                    // 只接受规范形式的键（如"A1"），与按引用字符串查找的结果一致
+                    if (offset >= 0 && offset < length
+                            && entry.getKey().equals(CellReference.toString(CellReference.row(packed), column))) {
+                        target[offset] = NumericCellSnapshot.parseNumeric(entry.getValue(), Double.NaN);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import java.util.Arrays;
+
+/**
+ * 单列查找索引，供VLOOKUP使用
+ *
+ * <p>同时维护数值到首次出现位置的哈希表（精确匹配，O(1)）和去重后的有序数值数组
+ * （近似匹配，二分查找O(log n)），全部使用基本类型数组，无装箱。</p>
+ */
+public final class ColumnIndex {
+    private static final int EMPTY = -1;
+
+    private final long[] keys;
+    private final int[] offsets;
+    private final int mask;
+    private final double[] sortedValues;
+
+    private ColumnIndex(int distinctCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(4, distinctCapacity * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.offsets = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(offsets, EMPTY);
+        this.sortedValues = null;
+    }
+
+    private ColumnIndex(ColumnIndex hash, double[] sortedValues) {
+        this.keys = hash.keys;
+        this.offsets = hash.offsets;
+        this.mask = hash.mask;
+        this.sortedValues = sortedValues;
+    }
+
+    /**
+     * 根据列数据构建索引
+     * @param values 列数据（NaN表示空单元格或非数字，不参与索引）
+     * @param length 有效数据长度
+     * @return 列索引，位置为相对于values起始处的偏移
+     */
+    public static ColumnIndex build(double[] values, int length) {
+        ColumnIndex hash = new ColumnIndex(length);
+        double[] distinct = new double[length];
+        int distinctCount = 0;
+        for (int i = 0; i < length; i++) {
+            double value = values[i];
+            if (value != value) {
+                continue;
+            }
+            if (hash.putIfAbsent(value, i)) {
+                distinct[distinctCount++] = value;
+            }
+        }
+
+        double[] sorted = Arrays.copyOf(distinct, distinctCount);
+        Arrays.sort(sorted);
+        return new ColumnIndex(hash, sorted);
+    }
+
+    /**
+     * 精确匹配
+     * @param value 查找值
+     * @return 首次出现的偏移；未找到返回-1
+     */
+    public int exactMatch(double value) {
+        if (value != value) {
+            return EMPTY;
+        }
+        long key = bits(value);
+        int index = indexOf(key);
+        while (offsets[index] != EMPTY) {
+            if (keys[index] == key) {
+                return offsets[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * 近似匹配：查找不大于查找值的最大数值
+     * @param value 查找值
+     * @return 匹配数值首次出现的偏移；查找值小于所有数值时返回-1
+     */
+    public int approximateMatch(double value) {
+        if (value != value || sortedValues.length == 0) {
+            return EMPTY;
+        }
+        int position = Arrays.binarySearch(sortedValues, value);
+        if (position < 0) {
+            position = -position - 2;  // 插入点的前一个元素即为不大于查找值的最大数值
+            if (position < 0) {
+                return EMPTY;
+            }
+        }
+        return exactMatch(sortedValues[position]);
+    }
+
+    /**
+     * @return 索引中不同数值的个数
+     */
+    public int distinctCount() {
+        return sortedValues.length;
+    }
+
+    private boolean putIfAbsent(double value, int offset) {
+        long key = bits(value);
+        int index = indexOf(key);
+        while (offsets[index] != EMPTY) {
+            if (keys[index] == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        offsets[index] = offset;
+        return true;
+    }
+
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long bits(double value) {
+        return Double.doubleToLongBits(value + 0.0d);  // +0.0使-0.0与0.0视为同一个键
+    }
+}
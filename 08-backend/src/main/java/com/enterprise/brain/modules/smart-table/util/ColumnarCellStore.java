@@ -0,0 +1,477 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 智能表格的列式单元格存储
+ *
+ * <p>每列由若干固定大小（4096行）的分段组成，每个分段只有两个基本类型数组：
+ * long[]保存单元格值（数字为double的位表示，整数/日期为long，文本为字典编码），
+ * byte[]保存单元格类型。每个单元格约占9字节，没有逐单元格的对象，
+ * 大表不会给GC带来压力。文本按列做字典编码，同一列中重复的文本只保存一份。</p>
+ *
+ * <p>行列索引与{@link CellReference}一致（从0开始）。存储实现了{@link CellValueSource}，
+ * 公式引擎可以直接在其上求值，区域函数按分段批量读取。</p>
+ *
+ * <p>写操作串行执行（单写多读）。读操作先以乐观读方式读取，读取期间有写入时再加读锁重读，
+ * 单元格的类型和值总是成对读到，不会读到一次写入的一半。列索引只在构建期间没有写入时才缓存。</p>
+ */
+public final class ColumnarCellStore implements CellValueSource {
+    private static final int SEGMENT_SHIFT = 12;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * 单元格值类型
+     */
+    public enum CellType {
+        EMPTY, NUMBER, LONG, BOOLEAN, STRING;
+
+        private static final CellType[] VALUES = values();
+    }
+
+    private static final byte TYPE_EMPTY = (byte) CellType.EMPTY.ordinal();
+    private static final byte TYPE_NUMBER = (byte) CellType.NUMBER.ordinal();
+    private static final byte TYPE_LONG = (byte) CellType.LONG.ordinal();
+
+    private volatile Column[] columns = new Column[0];
+    private volatile int rowCount;
+    private volatile int columnCount;
+    private int cellCount;
+    private final Map<CellRange, ColumnIndex> columnIndexes = new ConcurrentHashMap<>();
+    /** 写入时持有写锁；读取通过戳记校验期间没有写入 */
+    private final StampedLock lock = new StampedLock();
+
+    // ==================== 写入 ====================
+
+    /**
+     * 写入数字
+     */
+    public synchronized void setNumber(int row, int column, double value) {
+        write(row, column, CellType.NUMBER, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * 写入整数（日期按毫秒时间戳写入）
+     */
+    public synchronized void setLong(int row, int column, long value) {
+        write(row, column, CellType.LONG, value);
+    }
+
+    /**
+     * 写入布尔值
+     */
+    public synchronized void setBoolean(int row, int column, boolean value) {
+        write(row, column, CellType.BOOLEAN, value ? 1L : 0L);
+    }
+
+    /**
+     * 写入文本（按列字典编码），null表示清空单元格
+     */
+    public synchronized void setString(int row, int column, String value) {
+        if (value == null) {
+            clear(row, column);
+            return;
+        }
+        write(row, column, CellType.STRING, column(column).dictionary().encode(value));
+    }
+
+    /**
+     * 按单元格文本写入：数字文本（如"-12"、"3.5"）保存为数字，空文本清空单元格，其余保存为文本
+     * @param row 行索引（从0开始）
+     * @param column 列索引（从0开始）
+     * @param value 单元格文本
+     */
+    public synchronized void setValue(int row, int column, String value) {
+        if (value == null || value.isEmpty()) {
+            clear(row, column);
+            return;
+        }
+        double number = NumericCellSnapshot.parseNumeric(value, Double.NaN);
+        if (number == number) {
+            setNumber(row, column, number);
+        } else {
+            setString(row, column, value);
+        }
+    }
+
+    /**
+     * 清空单元格
+     */
+    public synchronized void clear(int row, int column) {
+        Column[] current = columns;
+        if (column < current.length && current[column] != null) {
+            long stamp = lock.writeLock();
+            try {
+                if (current[column].clear(row)) {
+                    cellCount--;
+                    columnIndexes.clear();
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    private void write(int row, int column, CellType type, long bits) {
+        if (row < 0 || column < 0) {
+            throw new IllegalArgumentException("Invalid cell position: " + row + "," + column);
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (column(column).write(row, type, bits)) {
+                cellCount++;
+            }
+            if (row >= rowCount) {
+                rowCount = row + 1;
+            }
+            if (column >= columnCount) {
+                columnCount = column + 1;
+            }
+            if (!columnIndexes.isEmpty()) {
+                columnIndexes.clear();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private Column column(int column) {
+        Column[] current = columns;
+        if (column >= current.length) {
+            current = Arrays.copyOf(current, Math.max(column + 1, current.length * 2));
+            columns = current;
+        }
+        if (current[column] == null) {
+            current[column] = new Column();
+        }
+        return current[column];
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * @return 单元格类型；不存在的单元格返回EMPTY
+     */
+    public CellType getType(int row, int column) {
+        Column col = columnAt(column);
+        return col != null ? col.type(row) : CellType.EMPTY;
+    }
+
+    @Override
+    public double getNumber(int row, int column) {
+        Column col = columnAt(column);
+        if (col == null) {
+            return 0d;
+        }
+        long stamp = lock.tryOptimisticRead();
+        double value = col.number(row);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = col.number(row);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value == value ? value : 0d;
+    }
+
+    @Override
+    public void readColumn(int column, int fromRow, double[] target, int length) {
+        Column col = columnAt(column);
+        if (col == null) {
+            Arrays.fill(target, 0, length, Double.NaN);
+            return;
+        }
+        long stamp = lock.tryOptimisticRead();
+        col.readNumbers(fromRow, target, length);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                col.readNumbers(fromRow, target, length);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    @Override
+    public ColumnIndex getColumnIndex(int column, int fromRow, int toRow) {
+        CellRange range = new CellRange(fromRow, column, toRow, column);
+        ColumnIndex cached = columnIndexes.get(range);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = lock.tryOptimisticRead();
+        ColumnIndex index = CellValueSource.super.getColumnIndex(column, fromRow, toRow);
+        // 构建期间有写入时索引可能已过期，只返回给本次调用，不缓存
+        stamp = stamp != 0L ? lock.tryConvertToReadLock(stamp) : 0L;
+        if (stamp != 0L) {
+            try {
+                ColumnIndex existing = columnIndexes.putIfAbsent(range, index);
+                return existing != null ? existing : index;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 读取单元格的值对象
+     * @return Double、Long、Boolean或String；空单元格返回null
+     */
+    public Object getValue(int row, int column) {
+        Column col = columnAt(column);
+        if (col == null) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        CellType type = col.type(row);
+        long bits = col.bits(row);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                type = col.type(row);
+                bits = col.bits(row);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        switch (type) {
+            case NUMBER:
+                return Double.longBitsToDouble(bits);
+            case LONG:
+                return bits;
+            case BOOLEAN:
+                return bits != 0L;
+            case STRING:
+                return col.dictionary().decode((int) bits);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 读取单元格文本（数字按公式结果的格式输出，如"100"、"3.5"）
+     * @return 单元格文本；空单元格返回null
+     */
+    public String getText(int row, int column) {
+        Object value = getValue(row, column);
+        if (value instanceof Double) {
+            return CompiledFormula.formatResult((Double) value);
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * @return 行数（最大行索引+1）
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return 列数（最大列索引+1）
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * @return 非空单元格数量
+     */
+    public synchronized int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * 估算存储占用的内存（只统计分段数组和字典文本，不含对象头等固定开销）
+     * @return 字节数
+     */
+    public synchronized long estimateMemoryBytes() {
+        long bytes = 0;
+        for (Column column : columns) {
+            if (column != null) {
+                bytes += column.memoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private Column columnAt(int column) {
+        Column[] current = columns;
+        return column >= 0 && column < current.length ? current[column] : null;
+    }
+
+    // ==================== 列与分段 ====================
+
+    /**
+     * 单列数据，按行分段，分段在首次写入时分配
+     */
+    private static final class Column {
+        private volatile long[][] values = new long[0][];
+        private volatile byte[][] types = new byte[0][];
+        private StringDictionary dictionary;
+
+        private boolean write(int row, CellType type, long bits) {
+            int segment = row >>> SEGMENT_SHIFT;
+            if (segment >= values.length || values[segment] == null) {
+                allocate(segment);
+            }
+            int offset = row & SEGMENT_MASK;
+            boolean added = types[segment][offset] == TYPE_EMPTY;
+            values[segment][offset] = bits;
+            types[segment][offset] = (byte) type.ordinal();
+            return added;
+        }
+
+        private boolean clear(int row) {
+            int segment = row >>> SEGMENT_SHIFT;
+            if (segment >= types.length || types[segment] == null) {
+                return false;
+            }
+            int offset = row & SEGMENT_MASK;
+            boolean removed = types[segment][offset] != TYPE_EMPTY;
+            types[segment][offset] = TYPE_EMPTY;
+            values[segment][offset] = 0L;
+            return removed;
+        }
+
+        private void allocate(int segment) {
+            long[][] newValues = values;
+            byte[][] newTypes = types;
+            if (segment >= newValues.length) {
+                int length = Math.max(segment + 1, newValues.length * 2);
+                newValues = Arrays.copyOf(newValues, length);
+                newTypes = Arrays.copyOf(newTypes, length);
+            }
+            // 先发布类型数组再发布值数组，读取方以值数组为准判断分段是否存在
+            newTypes[segment] = new byte[SEGMENT_SIZE];
+            types = newTypes;
+            newValues[segment] = new long[SEGMENT_SIZE];
+            values = newValues;
+        }
+
+        private CellType type(int row) {
+            int segment = row >>> SEGMENT_SHIFT;
+            long[][] currentValues = values;
+            byte[][] currentTypes = types;
+            if (row < 0 || segment >= currentValues.length || currentValues[segment] == null) {
+                return CellType.EMPTY;
+            }
+            return CellType.VALUES[currentTypes[segment][row & SEGMENT_MASK]];
+        }
+
+        private long bits(int row) {
+            int segment = row >>> SEGMENT_SHIFT;
+            long[][] currentValues = values;
+            if (row < 0 || segment >= currentValues.length || currentValues[segment] == null) {
+                return 0L;
+            }
+            return currentValues[segment][row & SEGMENT_MASK];
+        }
+
+        /** 数字或整数单元格返回其数值，其余返回NaN */
+        private double number(int row) {
+            int segment = row >>> SEGMENT_SHIFT;
+            long[][] currentValues = values;
+            byte[][] currentTypes = types;
+            if (row < 0 || segment >= currentValues.length || currentValues[segment] == null) {
+                return Double.NaN;
+            }
+            int offset = row & SEGMENT_MASK;
+            return toNumber(currentTypes[segment][offset], currentValues[segment][offset]);
+        }
+
+        private void readNumbers(int fromRow, double[] target, int length) {
+            long[][] currentValues = values;
+            byte[][] currentTypes = types;
+            int i = 0;
+            while (i < length) {
+                int row = fromRow + i;
+                int segment = row >>> SEGMENT_SHIFT;
+                int offset = row & SEGMENT_MASK;
+                int count = Math.min(length - i, SEGMENT_SIZE - offset);
+                if (segment >= currentValues.length || currentValues[segment] == null) {
+                    Arrays.fill(target, i, i + count, Double.NaN);
+                } else {
+                    long[] segmentValues = currentValues[segment];
+                    byte[] segmentTypes = currentTypes[segment];
+                    for (int j = 0; j < count; j++) {
+                        target[i + j] = toNumber(segmentTypes[offset + j], segmentValues[offset + j]);
+                    }
+                }
+                i += count;
+            }
+        }
+
+        private static double toNumber(byte type, long bits) {
+            if (type == TYPE_NUMBER) {
+                return Double.longBitsToDouble(bits);
+            } else if (type == TYPE_LONG) {
+                return bits;
+            }
+            return Double.NaN;
+        }
+
+        private StringDictionary dictionary() {
+            if (dictionary == null) {
+                dictionary = new StringDictionary();
+            }
+            return dictionary;
+        }
+
+        private long memoryBytes() {
+            long bytes = 0;
+            for (long[] segment : values) {
+                if (segment != null) {
+                    bytes += (long) segment.length * (Long.BYTES + 1);
+                }
+            }
+            return bytes + (dictionary != null ? dictionary.memoryBytes() : 0);
+        }
+    }
+
+    /**
+     * 列内文本字典，文本与编码一一对应（编码只增不减）
+     */
+    private static final class StringDictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private volatile String[] values = new String[16];
+        private int size;
+
+        private int encode(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+
+        private String decode(int code) {
+            String[] current = values;
+            return code >= 0 && code < current.length ? current[code] : null;
+        }
+
+        private long memoryBytes() {
+            long bytes = 0;
+            for (String value : codes.keySet()) {
+                bytes += (long) value.length() * 2;
+            }
+            return bytes;
+        }
+    }
+}
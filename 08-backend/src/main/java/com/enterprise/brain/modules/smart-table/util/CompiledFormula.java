@@ -0,0 +1,516 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 编译后的公式，由{@link FormulaCompiler}将公式表达式一次性解析为类型化语法树
+ *
+ * <p>实例不可变且线程安全，可缓存后在不同的单元格取值上反复求值，
+ * 求值过程不做字符串替换，也不依赖脚本引擎。</p>
+ *
+ * <p>区域函数（SUM、AVERAGE、COUNT、MIN、MAX、SUMIF、COUNTIF）按列将区域读入线程内复用的
+ * double[]缓冲区后做线性扫描；VLOOKUP使用{@link ColumnIndex}查找，不做逐行比较。</p>
+ */
+public final class CompiledFormula {
+    /** 计算失败时返回的结果标识，与TableCalculator保持一致 */
+    public static final String ERROR_RESULT = "#ERROR";
+
+    /** 区域函数的按列读取缓冲区，每个线程两个槽位（SUMIF需同时读取条件列和求和列） */
+    private static final ThreadLocal<double[][]> COLUMN_BUFFERS = ThreadLocal.withInitial(() -> new double[2][]);
+    /**
+     * 线程复用的缓冲区最大长度（64KB）；更长的区域每次计算单独分配，
+     * 线程不会一直持有曾经读过的最大区域那么大的缓冲区
+     */
+    private static final int MAX_REUSED_BUFFER_LENGTH = 8192;
+
+    private static final long FINGERPRINT_SEED = 0x2545F4914F6CDD1DL;
+
+    private final String expression;
+    private final Node root;
+    private final List<CellReference> references;
+    private final List<CellRange> ranges;
+    private final long inputCellCount;
+
+    CompiledFormula(String expression, Node root, List<CellReference> references, List<CellRange> ranges) {
+        this.expression = expression;
+        this.root = root;
+        this.references = Collections.unmodifiableList(references);
+        this.ranges = Collections.unmodifiableList(ranges);
+        long count = references.size();
+        for (CellRange range : ranges) {
+            count += (long) range.getRowCount() * range.getColumnCount();
+        }
+        this.inputCellCount = count;
+    }
+
+    /**
+     * @return 标准化后的公式表达式（不含开头的等号）
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @return 公式引用的单个单元格（去重，按出现顺序排列，不含区域）
+     */
+    public List<CellReference> getReferences() {
+        return references;
+    }
+
+    /**
+     * @return 公式引用的单元格区域（去重，按出现顺序排列）
+     */
+    public List<CellRange> getRanges() {
+        return ranges;
+    }
+
+    /**
+     * @return 公式读取的单元格数量（单个单元格加上各区域的单元格数，区域重叠时重复计数）
+     */
+    public long getInputCellCount() {
+        return inputCellCount;
+    }
+
+    /**
+     * 在给定的单元格数值来源上求值
+     * @param source 单元格数值来源
+     * @return 计算结果（除零等情况返回NaN或无穷大）
+     */
+    public double evaluate(CellValueSource source) {
+        return root.evaluate(source);
+    }
+
+    /**
+     * 计算公式输入的指纹：对引用的单元格和区域中的数值做64位哈希
+     *
+     * <p>公式结果只取决于表达式和这些输入，指纹相同即可复用上次的计算结果，
+     * 与单元格值映射中其他无关单元格的变化无关。计算指纹要读取全部输入（见{@link #getInputCellCount}），
+     * 只适合输入较少的公式。</p>
+     *
+     * @param source 单元格数值来源
+     * @return 输入指纹
+     */
+    public long fingerprint(CellValueSource source) {
+        long hash = FINGERPRINT_SEED;
+        for (CellReference ref : references) {
+            hash = mix(hash, Double.doubleToLongBits(source.getNumber(ref.getRow(), ref.getColumn())));
+        }
+        for (CellRange range : ranges) {
+            int length = range.getRowCount();
+            double[] buffer = columnBuffer(0, length);
+            for (int column = range.getFirstColumn(); column <= range.getLastColumn(); column++) {
+                source.readColumn(column, range.getFirstRow(), buffer, length);
+                for (int i = 0; i < length; i++) {
+                    hash = mix(hash, Double.doubleToLongBits(buffer[i]));
+                }
+            }
+        }
+        // MurmurHash3的64位收尾混合，使相近的输入得到分散的指纹
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static long mix(long hash, long bits) {
+        return (hash ^ bits) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+    }
+
+    /**
+     * 在给定的单元格数值来源上求值并格式化为字符串
+     * @param source 单元格数值来源
+     * @return 计算结果字符串；结果不是有限数值时返回"#ERROR"
+     */
+    public String evaluateToString(CellValueSource source) {
+        return formatResult(evaluate(source));
+    }
+
+    /**
+     * 格式化计算结果（整数不带小数点，小数去除末尾的0）
+     * @param value 计算结果
+     * @return 结果字符串；NaN或无穷大返回"#ERROR"
+     */
+    public static String formatResult(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return ERROR_RESULT;
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    // ==================== 语法树节点 ====================
+
+    /**
+     * 语法树节点基类
+     */
+    abstract static class Node {
+        abstract double evaluate(CellValueSource source);
+
+        boolean isConstant() {
+            return false;
+        }
+    }
+
+    /**
+     * 数字常量
+     */
+    static final class Constant extends Node {
+        private final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        double evaluate(CellValueSource source) {
+            return value;
+        }
+
+        @Override
+        boolean isConstant() {
+            return true;
+        }
+    }
+
+    /**
+     * 单元格引用
+     */
+    static final class CellRef extends Node {
+        private final int row;
+        private final int column;
+
+        CellRef(int row, int column) {
+            this.row = row;
+            this.column = column;
+        }
+
+        @Override
+        double evaluate(CellValueSource source) {
+            return source.getNumber(row, column);
+        }
+    }
+
+    /**
+     * 取负
+     */
+    static final class Negate extends Node {
+        private final Node operand;
+
+        Negate(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        double evaluate(CellValueSource source) {
+            return -operand.evaluate(source);
+        }
+    }
+
+    /**
+     * 四则运算
+     */
+    static final class Binary extends Node {
+        private final char operator;
+        private final Node left;
+        private final Node right;
+
+        Binary(char operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        double evaluate(CellValueSource source) {
+            double l = left.evaluate(source);
+            double r = right.evaluate(source);
+            switch (operator) {
+                case '+':
+                    return l + r;
+                case '-':
+                    return l - r;
+                case '*':
+                    return l * r;
+                case '/':
+                    return l / r;
+                default:
+                    throw new IllegalStateException("Unsupported operator: " + operator);
+            }
+        }
+    }
+
+    /**
+     * 区域聚合函数
+     */
+    enum AggregateFunction {
+        SUM, AVERAGE, COUNT, MIN, MAX
+    }
+
+    /**
+     * 聚合函数调用，参数可以是区域或普通表达式（如"SUM(A1:A100, B1, 10)"）
+     */
+    static final class Aggregate extends Node {
+        private final AggregateFunction function;
+        private final CellRange[] ranges;
+        private final Node[] scalars;
+
+        Aggregate(AggregateFunction function, CellRange[] ranges, Node[] scalars) {
+            this.function = function;
+            this.ranges = ranges;
+            this.scalars = scalars;
+        }
+
+        @Override
+        double evaluate(CellValueSource source) {
+            double sum = 0d;
+            long count = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+
+            for (CellRange range : ranges) {
+                int length = range.getRowCount();
+                double[] buffer = columnBuffer(0, length);
+                for (int column = range.getFirstColumn(); column <= range.getLastColumn(); column++) {
+                    source.readColumn(column, range.getFirstRow(), buffer, length);
+                    switch (function) {
+                        case SUM:
+                            sum += sum(buffer, length);
+                            break;
+                        case AVERAGE:
+                            sum += sum(buffer, length);
+                            count += count(buffer, length);
+                            break;
+                        case COUNT:
+                            count += count(buffer, length);
+                            break;
+                        case MIN:
+                            min = Math.min(min, min(buffer, length));
+                            break;
+                        case MAX:
+                            max = Math.max(max, max(buffer, length));
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+
+            for (Node scalar : scalars) {
+                double value = scalar.evaluate(source);
+                sum += value;
+                count++;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+
+            switch (function) {
+                case SUM:
+                    return sum;
+                case AVERAGE:
+                    return count == 0 ? Double.NaN : sum / count;
+                case COUNT:
+                    return count;
+                case MIN:
+                    return min == Double.POSITIVE_INFINITY ? 0d : min;
+                case MAX:
+                    return max == Double.NEGATIVE_INFINITY ? 0d : max;
+                default:
+                    throw new IllegalStateException("Unsupported function: " + function);
+            }
+        }
+    }
+
+    /**
+     * 条件聚合函数SUMIF/COUNTIF（sumRange为null时表示COUNTIF）
+     */
+    static final class ConditionalAggregate extends Node {
+        private final CellRange range;
+        private final Criterion criterion;
+        private final CellRange sumRange;
+        private final boolean count;
+
+        ConditionalAggregate(CellRange range, Criterion criterion, CellRange sumRange, boolean count) {
+            this.range = range;
+            this.criterion = criterion;
+            this.sumRange = sumRange;
+            this.count = count;
+        }
+
+        @Override
+        double evaluate(CellValueSource source) {
+            double operand = criterion.operand.evaluate(source);
+            int length = range.getRowCount();
+            double[] criteriaBuffer = columnBuffer(0, length);
+            double[] sumBuffer = count ? null : columnBuffer(1, length);
+            double result = 0d;
+
+            for (int offset = 0; offset < range.getColumnCount(); offset++) {
+                source.readColumn(range.getFirstColumn() + offset, range.getFirstRow(), criteriaBuffer, length);
+                if (count) {
+                    result += criterion.count(criteriaBuffer, length, operand);
+                } else {
+                    // 求和区域与条件区域按左上角对齐，形状以条件区域为准
+                    source.readColumn(sumRange.getFirstColumn() + offset, sumRange.getFirstRow(), sumBuffer, length);
+                    result += criterion.sum(criteriaBuffer, sumBuffer, length, operand);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 条件表达式（如">10"、"<>0"或直接给出的比较值）
+     */
+    static final class Criterion {
+        enum Operator { EQ, NE, LT, LE, GT, GE }
+
+        private final Operator operator;
+        private final Node operand;
+
+        Criterion(Operator operator, Node operand) {
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        private boolean test(double value, double operand) {
+            switch (operator) {
+                case EQ:
+                    return value == operand;
+                case NE:
+                    return value != operand;
+                case LT:
+                    return value < operand;
+                case LE:
+                    return value <= operand;
+                case GT:
+                    return value > operand;
+                case GE:
+                    return value >= operand;
+                default:
+                    return false;
+            }
+        }
+
+        private long count(double[] values, int length, double operand) {
+            long matched = 0;
+            for (int i = 0; i < length; i++) {
+                if (test(values[i], operand)) {
+                    matched++;
+                }
+            }
+            return matched;
+        }
+
+        private double sum(double[] values, double[] sumValues, int length, double operand) {
+            double sum = 0d;
+            for (int i = 0; i < length; i++) {
+                double value = sumValues[i];
+                if (value == value && test(values[i], operand)) {
+                    sum += value;
+                }
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * 垂直查找VLOOKUP(lookup_value, table, col_index, [range_lookup])
+     *
+     * <p>range_lookup省略或为TRUE时做近似匹配（不大于查找值的最大值），为FALSE时做精确匹配；
+     * 未找到时返回NaN（格式化为"#ERROR"）。</p>
+     */
+    static final class VLookup extends Node {
+        private final Node lookupValue;
+        private final CellRange table;
+        private final Node columnIndex;
+        private final Node rangeLookup;
+
+        VLookup(Node lookupValue, CellRange table, Node columnIndex, Node rangeLookup) {
+            this.lookupValue = lookupValue;
+            this.table = table;
+            this.columnIndex = columnIndex;
+            this.rangeLookup = rangeLookup;
+        }
+
+        @Override
+        double evaluate(CellValueSource source) {
+            double key = lookupValue.evaluate(source);
+            int column = (int) columnIndex.evaluate(source);
+            if (column < 1 || column > table.getColumnCount()) {
+                return Double.NaN;
+            }
+
+            boolean approximate = rangeLookup == null || rangeLookup.evaluate(source) != 0d;
+            ColumnIndex index = source.getColumnIndex(table.getFirstColumn(), table.getFirstRow(), table.getLastRow());
+            int offset = approximate ? index.approximateMatch(key) : index.exactMatch(key);
+            if (offset < 0) {
+                return Double.NaN;
+            }
+            return source.getNumber(table.getFirstRow() + offset, table.getFirstColumn() + column - 1);
+        }
+    }
+
+    // ==================== 按列扫描 ====================
+
+    private static double[] columnBuffer(int slot, int length) {
+        if (length > MAX_REUSED_BUFFER_LENGTH) {
+            return new double[length];
+        }
+        double[][] buffers = COLUMN_BUFFERS.get();
+        double[] buffer = buffers[slot];
+        if (buffer == null || buffer.length < length) {
+            buffer = new double[Math.max(length, 64)];
+            buffers[slot] = buffer;
+        }
+        return buffer;
+    }
+
+    /** 求和，跳过NaN（空单元格） */
+    private static double sum(double[] values, int length) {
+        double sum = 0d;
+        for (int i = 0; i < length; i++) {
+            double value = values[i];
+            sum += value == value ? value : 0d;
+        }
+        return sum;
+    }
+
+    /** 数字单元格计数 */
+    private static long count(double[] values, int length) {
+        long count = 0;
+        for (int i = 0; i < length; i++) {
+            count += values[i] == values[i] ? 1 : 0;
+        }
+        return count;
+    }
+
+    /** 最小值，全为空时返回正无穷 */
+    private static double min(double[] values, int length) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            double value = values[i];
+            min = value < min ? value : min;  // NaN比较恒为false，自然被跳过
+        }
+        return min;
+    }
+
+    /** 最大值，全为空时返回负无穷 */
+    private static double max(double[] values, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i++) {
+            double value = values[i];
+            max = value > max ? value : max;
+        }
+        return max;
+    }
+}
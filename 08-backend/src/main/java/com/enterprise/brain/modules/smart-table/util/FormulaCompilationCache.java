@@ -0,0 +1,132 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import com.enterprise.brain.common.cache.CacheMeters;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 公式编译结果的进程内缓存（按表达式文本）
+ *
+ * <p>公式校验和不带ID的临时公式计算都以{@link FormulaCompiler}能否编译为准，编译结果（包括语法错误）
+ * 按标准化后的表达式缓存，"=A1+B2"和"A1+B2"共享同一条目。表单频繁校验同一批公式时只编译一次，
+ * 不需要经过Redis。</p>
+ *
+ * <p>缓存使用Caffeine（W-TinyLFU准入），按条目数量和访问过期时间双重限制，
+ * 一次性的表达式不会挤掉常用的表达式。编译结果是不可变的语法树，可以在线程间共享。</p>
+ *
+ * <p>上限由Spring配置（smart-table.formula.compilation-cache.*），缓存创建时注册到指标（缓存名formulaCompilation）。
+ * 公式解析器、校验器等静态工具类通过静态方法使用同一个缓存；Spring容器启动前（如单元测试）使用默认上限的缓存。</p>
+ */
+@Component
+public class FormulaCompilationCache {
+
+    /** 指标使用的缓存名 */
+    static final String CACHE_NAME = "formulaCompilation";
+
+    /** 默认最多缓存的表达式数量 */
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+    /** 默认超过该时间（分钟）未被访问的表达式被淘汰 */
+    private static final long DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES = 30;
+
+    private static volatile Cache<String, Outcome> cache = Caffeine.newBuilder()
+            .maximumSize(DEFAULT_MAXIMUM_SIZE)
+            .expireAfterAccess(Duration.ofMinutes(DEFAULT_EXPIRE_AFTER_ACCESS_MINUTES))
+            .build();
+
+    public FormulaCompilationCache(MeterRegistry meterRegistry,
+                                   @Value("${smart-table.formula.compilation-cache.max-size:10000}") long maximumSize,
+                                   @Value("${smart-table.formula.compilation-cache.expire-after-access-minutes:30}")
+                                   long expireAfterAccessMinutes) {
+        Cache<String, Outcome> configured = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(Duration.ofMinutes(expireAfterAccessMinutes))
+                .evictionListener(CacheMeters.<String, Outcome>evictionCounter(
+                        meterRegistry, CACHE_NAME, CacheMeters.TIER_LOCAL))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, configured, CACHE_NAME, CacheMeters.TAG_TIER, CacheMeters.TIER_LOCAL);
+        cache = configured;
+    }
+
+    /**
+     * 获取公式的编译结果
+     * @param formula 公式字符串（可带开头的等号）
+     * @return 编译后的公式
+     * @throws IllegalArgumentException 当公式为空或语法无效时抛出（语法错误同样被缓存）
+     */
+    public static CompiledFormula compile(String formula) {
+        Outcome outcome = outcomeOf(formula);
+        if (outcome.compiled == null) {
+            throw new IllegalArgumentException(outcome.error);
+        }
+        return outcome.compiled;
+    }
+
+    /**
+     * @param formula 公式字符串（可带开头的等号）
+     * @return 公式能否编译
+     */
+    public static boolean isValid(String formula) {
+        return formula != null && outcomeOf(formula).compiled != null;
+    }
+
+    /**
+     * @param formula 公式字符串（可带开头的等号）
+     * @return 语法错误信息；公式有效时返回null
+     */
+    public static String validationError(String formula) {
+        if (formula == null) {
+            return "Empty formula: null";
+        }
+        return outcomeOf(formula).error;
+    }
+
+    /**
+     * @return 当前缓存的表达式数量（近似值）
+     */
+    public static long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        cache.invalidateAll();
+    }
+
+    private static Outcome outcomeOf(String formula) {
+        String key = FormulaParser.normalizeFormula(formula);
+        if (key == null || key.isEmpty()) {
+            return new Outcome(null, "Empty formula: " + formula);
+        }
+        return cache.get(key, FormulaCompilationCache::compileOutcome);
+    }
+
+    private static Outcome compileOutcome(String normalized) {
+        try {
+            return new Outcome(FormulaCompiler.compile(normalized), null);
+        } catch (IllegalArgumentException e) {
+            return new Outcome(null, e.getMessage());
+        }
+    }
+
+    /**
+     * 编译结果：成功时compiled非null，失败时error非null
+     */
+    private static final class Outcome {
+        private final CompiledFormula compiled;
+        private final String error;
+
+        private Outcome(CompiledFormula compiled, String error) {
+            this.compiled = compiled;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 公式编译器，将公式表达式解析为{@link CompiledFormula}语法树
+ *
+ * <p>采用递归下降解析，支持数字、单元格引用（如"A1"、"b2"、"$C$3"）、括号、一元正负号、四则运算、
+ * TRUE/FALSE以及函数调用，常量子表达式在编译期折叠。带工作表前缀的引用（如"Sheet1!D4"）不受支持，编译时报错。语法：</p>
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := unary (('*' | '/') unary)*
+ * unary      := ('+' | '-') unary | primary
+ * primary    := number | cellRef | TRUE | FALSE | function | '(' expression ')'
+ * function   := name '(' argument (',' argument)* ')'
+ * argument   := cellRef ':' cellRef | '"' criteria '"' | expression
+ * </pre>
+ *
+ * <p>支持的函数：SUM、AVERAGE、COUNT、MIN、MAX、SUMIF、COUNTIF、VLOOKUP，
+ * 区域（如"A1:A50000"）只能作为函数参数出现。</p>
+ */
+public final class FormulaCompiler {
+    private final String source;
+    private final int length;
+    private final Set<CellReference> references = new LinkedHashSet<>();
+    private final Set<CellRange> ranges = new LinkedHashSet<>();
+    private int pos;
+
+    private FormulaCompiler(String source) {
+        this.source = source;
+        this.length = source.length();
+    }
+
+    /**
+     * 编译公式
+     * @param formula 公式字符串（可带开头的等号，如"=A1+B2*C3"）
+     * @return 编译后的公式
+     * @throws IllegalArgumentException 当公式为空或语法无效时抛出
+     */
+    public static CompiledFormula compile(String formula) {
+        String normalized = FormulaParser.normalizeFormula(formula);
+        if (normalized == null || normalized.isEmpty()) {
+            throw new IllegalArgumentException("Empty formula: " + formula);
+        }
+
+        FormulaCompiler compiler = new FormulaCompiler(normalized);
+        CompiledFormula.Node root = compiler.parseExpression();
+        compiler.skipWhitespace();
+        if (compiler.pos < compiler.length) {
+            throw compiler.error("Unexpected character '" + normalized.charAt(compiler.pos) + "'");
+        }
+        return new CompiledFormula(normalized, root, new ArrayList<>(compiler.references),
+                new ArrayList<>(compiler.ranges));
+    }
+
+    private CompiledFormula.Node parseExpression() {
+        CompiledFormula.Node left = parseTerm();
+        while (true) {
+            char c = peek();
+            if (c != '+' && c != '-') {
+                return left;
+            }
+            pos++;
+            left = binary(c, left, parseTerm());
+        }
+    }
+
+    private CompiledFormula.Node parseTerm() {
+        CompiledFormula.Node left = parseUnary();
+        while (true) {
+            char c = peek();
+            if (c != '*' && c != '/') {
+                return left;
+            }
+            pos++;
+            left = binary(c, left, parseUnary());
+        }
+    }
+
+    private CompiledFormula.Node parseUnary() {
+        char c = peek();
+        if (c == '+') {
+            pos++;
+            return parseUnary();
+        }
+        if (c == '-') {
+            pos++;
+            CompiledFormula.Node operand = parseUnary();
+            if (operand.isConstant()) {
+                return new CompiledFormula.Constant(-operand.evaluate(null));
+            }
+            return new CompiledFormula.Negate(operand);
+        }
+        return parsePrimary();
+    }
+
+    private CompiledFormula.Node parsePrimary() {
+        char c = peek();
+        if (c == '(') {
+            pos++;
+            CompiledFormula.Node inner = parseExpression();
+            if (peek() != ')') {
+                throw error("Missing ')'");
+            }
+            pos++;
+            return inner;
+        }
+        if (isDigit(c) || c == '.') {
+            return parseNumber();
+        }
+        if (isLetter(c)) {
+            return parseIdentifier();
+        }
+        if (c == '$' || c == '\'') {
+            return parseCellRef();  // 绝对引用或带引号的工作表前缀
+        }
+        throw error(pos < length ? "Unexpected character '" + c + "'" : "Unexpected end of formula");
+    }
+
+    /**
+     * 解析以字母开头的标识符：函数调用、TRUE/FALSE或单元格引用
+     */
+    private CompiledFormula.Node parseIdentifier() {
+        int start = pos;
+        while (pos < length && isLetter(source.charAt(pos))) {
+            pos++;
+        }
+        String name = source.substring(start, pos).toUpperCase(Locale.ROOT);
+        if (peek() == '(') {
+            pos++;
+            return parseFunction(name);
+        }
+        if (pos == length || !isDigit(source.charAt(pos))) {
+            if ("TRUE".equals(name)) {
+                return new CompiledFormula.Constant(1d);
+            }
+            if ("FALSE".equals(name)) {
+                return new CompiledFormula.Constant(0d);
+            }
+        }
+
+        pos = start;
+        return parseCellRef();
+    }
+
+    private CompiledFormula.Node parseCellRef() {
+        CellReference ref = readCell();
+        if (peek() == ':') {
+            throw error("Cell range is only allowed as a function argument");
+        }
+        references.add(ref);
+        return new CompiledFormula.CellRef(ref.getRow(), ref.getColumn());
+    }
+
+    private CompiledFormula.Node parseFunction(String name) {
+        List<Object> args = parseArguments();
+        switch (name) {
+            case "SUM":
+                return aggregate(CompiledFormula.AggregateFunction.SUM, name, args);
+            case "AVERAGE":
+                return aggregate(CompiledFormula.AggregateFunction.AVERAGE, name, args);
+            case "COUNT":
+                return aggregate(CompiledFormula.AggregateFunction.COUNT, name, args);
+            case "MIN":
+                return aggregate(CompiledFormula.AggregateFunction.MIN, name, args);
+            case "MAX":
+                return aggregate(CompiledFormula.AggregateFunction.MAX, name, args);
+            case "SUMIF":
+                checkArgumentCount(name, args, 2, 3);
+                CellRange criteriaRange = rangeArgument(name, args, 0);
+                CellRange sumRange = args.size() == 3 ? rangeArgument(name, args, 2) : criteriaRange;
+                return new CompiledFormula.ConditionalAggregate(criteriaRange, criterion(name, args.get(1)), sumRange, false);
+            case "COUNTIF":
+                checkArgumentCount(name, args, 2, 2);
+                return new CompiledFormula.ConditionalAggregate(rangeArgument(name, args, 0),
+                        criterion(name, args.get(1)), null, true);
+            case "VLOOKUP":
+                checkArgumentCount(name, args, 3, 4);
+                return new CompiledFormula.VLookup(nodeArgument(name, args, 0), rangeArgument(name, args, 1),
+                        nodeArgument(name, args, 2), args.size() == 4 ? nodeArgument(name, args, 3) : null);
+            default:
+                throw error("Unsupported function '" + name + "'");
+        }
+    }
+
+    /**
+     * 解析函数参数列表（左括号已消费），参数为区域、条件字符串或表达式
+     */
+    private List<Object> parseArguments() {
+        List<Object> args = new ArrayList<>();
+        if (peek() == ')') {
+            pos++;
+            return args;
+        }
+        while (true) {
+            args.add(parseArgument());
+            char c = peek();
+            pos++;
+            if (c == ')') {
+                return args;
+            }
+            if (c != ',') {
+                pos--;
+                throw error(pos < length ? "Expected ',' or ')'" : "Missing ')'");
+            }
+        }
+    }
+
+    private Object parseArgument() {
+        char c = peek();
+        if (c == '"') {
+            int end = source.indexOf('"', pos + 1);
+            if (end < 0) {
+                throw error("Unterminated string literal");
+            }
+            String literal = source.substring(pos + 1, end);
+            pos = end + 1;
+            return literal;
+        }
+        if (isLetter(c) || c == '$' || c == '\'') {
+            CellRange range = tryParseRange();
+            if (range != null) {
+                ranges.add(range);
+                return range;
+            }
+        }
+        return parseExpression();
+    }
+
+    /**
+     * 尝试在当前位置解析区域引用，不是区域时回退并返回null
+     */
+    private CellRange tryParseRange() {
+        int start = pos;
+        int end = CellReference.scan(source, pos, length);
+        if (end < 0) {
+            return null;
+        }
+        pos = end;
+        if (peek() != ':') {
+            pos = start;
+            return null;
+        }
+
+        pos = start;
+        CellReference from = readCell();
+        peek();
+        pos++;  // 跳过':'
+        skipWhitespace();
+        CellReference to = readCell();
+        return new CellRange(from, to);
+    }
+
+    private CompiledFormula.Node aggregate(CompiledFormula.AggregateFunction function, String name, List<Object> args) {
+        if (args.isEmpty()) {
+            throw error(name + " requires at least one argument");
+        }
+        List<CellRange> rangeArgs = new ArrayList<>();
+        List<CompiledFormula.Node> scalarArgs = new ArrayList<>();
+        for (Object arg : args) {
+            if (arg instanceof CellRange) {
+                rangeArgs.add((CellRange) arg);
+            } else if (arg instanceof CompiledFormula.Node) {
+                scalarArgs.add((CompiledFormula.Node) arg);
+            } else {
+                throw error(name + " does not accept text arguments");
+            }
+        }
+        return new CompiledFormula.Aggregate(function, rangeArgs.toArray(new CellRange[0]),
+                scalarArgs.toArray(new CompiledFormula.Node[0]));
+    }
+
+    /**
+     * 解析条件参数：字符串（如">10"、"<>0"、"5"）或表达式（等值比较）
+     */
+    private CompiledFormula.Criterion criterion(String name, Object arg) {
+        if (arg instanceof CompiledFormula.Node) {
+            return new CompiledFormula.Criterion(CompiledFormula.Criterion.Operator.EQ, (CompiledFormula.Node) arg);
+        }
+        if (!(arg instanceof String)) {
+            throw error(name + " criteria must be a value or a quoted condition");
+        }
+
+        String text = ((String) arg).trim();
+        CompiledFormula.Criterion.Operator operator = CompiledFormula.Criterion.Operator.EQ;
+        int skip = 0;
+        if (text.startsWith("<>")) {
+            operator = CompiledFormula.Criterion.Operator.NE;
+            skip = 2;
+        } else if (text.startsWith(">=")) {
+            operator = CompiledFormula.Criterion.Operator.GE;
+            skip = 2;
+        } else if (text.startsWith("<=")) {
+            operator = CompiledFormula.Criterion.Operator.LE;
+            skip = 2;
+        } else if (text.startsWith(">")) {
+            operator = CompiledFormula.Criterion.Operator.GT;
+            skip = 1;
+        } else if (text.startsWith("<")) {
+            operator = CompiledFormula.Criterion.Operator.LT;
+            skip = 1;
+        } else if (text.startsWith("=")) {
+            skip = 1;
+        }
+
+        double operand = NumericCellSnapshot.parseNumeric(text.substring(skip).trim(), Double.NaN);
+        if (operand != operand) {
+            throw error(name + " only supports numeric criteria: \"" + text + "\"");
+        }
+        return new CompiledFormula.Criterion(operator, new CompiledFormula.Constant(operand));
+    }
+
+    private void checkArgumentCount(String name, List<Object> args, int min, int max) {
+        if (args.size() < min || args.size() > max) {
+            throw error(name + " expects " + (min == max ? String.valueOf(min) : min + "-" + max)
+                    + " arguments but got " + args.size());
+        }
+    }
+
+    private CellRange rangeArgument(String name, List<Object> args, int index) {
+        Object arg = args.get(index);
+        if (!(arg instanceof CellRange)) {
+            throw error(name + " argument " + (index + 1) + " must be a cell range");
+        }
+        return (CellRange) arg;
+    }
+
+    private CompiledFormula.Node nodeArgument(String name, List<Object> args, int index) {
+        Object arg = args.get(index);
+        if (!(arg instanceof CompiledFormula.Node)) {
+            throw error(name + " argument " + (index + 1) + " must be a value");
+        }
+        return (CompiledFormula.Node) arg;
+    }
+
+    private CompiledFormula.Node parseNumber() {
+        int start = pos;
+        while (pos < length && (isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) {
+            pos++;
+        }
+        try {
+            return new CompiledFormula.Constant(Double.parseDouble(source.substring(start, pos)));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + source.substring(start, pos) + "'");
+        }
+    }
+
+    /**
+     * 读取当前位置的单元格引用（字母+数字，可带"$"，见{@link CellReference#parse}），带工作表前缀时报错
+     */
+    private CellReference readCell() {
+        int start = pos;
+        int end = CellReference.scan(source, pos, length);
+        long packed = end > 0 ? CellReference.parse(source, start, end) : CellReference.INVALID;
+        if (packed == CellReference.INVALID && end > 0 && source.lastIndexOf('!', end - 1) >= start) {
+            pos = end;
+            throw error("Cross-sheet reference '" + source.substring(start, end) + "' is not supported");
+        }
+        if (packed == CellReference.INVALID) {
+            pos = end > 0 ? end : start;
+            while (pos < length && (isLetter(source.charAt(pos)) || isDigit(source.charAt(pos)) || source.charAt(pos) == '$')) {
+                pos++;
+            }
+            throw error("Invalid cell reference '" + source.substring(start, pos) + "'");
+        }
+
+        pos = end;
+        return new CellReference(CellReference.row(packed), CellReference.column(packed));
+    }
+
+    private static CompiledFormula.Node binary(char operator, CompiledFormula.Node left, CompiledFormula.Node right) {
+        CompiledFormula.Node node = new CompiledFormula.Binary(operator, left, right);
+        if (left.isConstant() && right.isConstant()) {
+            return new CompiledFormula.Constant(node.evaluate(null));
+        }
+        return node;
+    }
+
+    private char peek() {
+        skipWhitespace();
+        return pos < length ? source.charAt(pos) : '\0';
+    }
+
+    private void skipWhitespace() {
+        while (pos < length && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos + " in formula: " + source);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+}
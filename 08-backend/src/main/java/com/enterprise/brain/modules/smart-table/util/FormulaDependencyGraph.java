@@ -0,0 +1,307 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 表格公式依赖图，用于增量重算
+ *
+ * <p>图在构建时一次性完成：每个公式读取的单元格来自{@link FormulaParser#extractCellReferences}
+ * 和{@link FormulaParser#extractCellRanges}（区域按列登记，变更时只检查同列的区域），
+ * 写入的单元格来自{@link TableFormula#getCellId()}（列级公式没有输出单元格，只作为依赖图的末端）。
+ * 构建时计算全局拓扑序并检测循环引用，之后每次单元格变更只需沿反向边找出受影响的公式，
+ * 按拓扑序重算，工作量与受影响的单元格数量成正比。</p>
+ *
+ * <p>拓扑排序同时把公式划分为层级（层级号 = 最长上游依赖链的长度），同一层级内的公式互不依赖，
+ * 可以并行计算，见{@link WavefrontRecalculator}。</p>
+ *
+ * <p>实例构建后不可变，可在多个线程间共享；公式变更后应重新构建。</p>
+ */
+public final class FormulaDependencyGraph {
+
+    /** 公式ID -> 公式 */
+    private final Map<Long, TableFormula> formulas = new HashMap<>();
+    /** 单元格 -> 读取该单元格的公式ID */
+    private final Map<CellReference, List<Long>> readers = new HashMap<>();
+    /** 列索引 -> 覆盖该列的区域及读取它的公式 */
+    private final Map<Integer, List<RangeReader>> rangeReaders = new HashMap<>();
+    /** 公式ID -> 公式输出的单元格 */
+    private final Map<Long, CellReference> outputs = new HashMap<>();
+    /** 公式ID -> 拓扑序号（循环引用中的公式为Integer.MAX_VALUE） */
+    private final Map<Long, Integer> ranks = new HashMap<>();
+    /** 公式ID -> 拓扑层级（仅无循环公式） */
+    private final Map<Long, Integer> levels = new HashMap<>();
+    private int levelCount;
+    private final List<Long> topologicalOrder = new ArrayList<>();
+    private final Set<Long> cyclicFormulaIds = new LinkedHashSet<>();
+
+    private FormulaDependencyGraph() {
+    }
+
+    /**
+     * 根据公式列表构建依赖图
+     * @param formulas 表格下的公式（忽略ID为空的公式）
+     * @return 依赖图
+     */
+    public static FormulaDependencyGraph build(Collection<TableFormula> formulas) {
+        FormulaDependencyGraph graph = new FormulaDependencyGraph();
+        if (formulas == null || formulas.isEmpty()) {
+            return graph;
+        }
+
+        Map<Long, Set<CellReference>> inputs = new LinkedHashMap<>();
+        Map<CellReference, Long> writers = new HashMap<>();
+        for (TableFormula formula : formulas) {
+            if (formula.getId() == null) {
+                continue;
+            }
+            graph.formulas.put(formula.getId(), formula);
+            String expression = FormulaParser.normalizeFormula(formula.getFormulaExpression());
+            Set<CellReference> refs = new LinkedHashSet<>(FormulaParser.extractCellReferences(expression));
+            inputs.put(formula.getId(), refs);
+            for (CellReference ref : refs) {
+                graph.readers.computeIfAbsent(ref, key -> new ArrayList<>(2)).add(formula.getId());
+            }
+            for (CellRange range : new LinkedHashSet<>(FormulaParser.extractCellRanges(expression))) {
+                RangeReader reader = new RangeReader(range, formula.getId());
+                for (int column = range.getFirstColumn(); column <= range.getLastColumn(); column++) {
+                    graph.rangeReaders.computeIfAbsent(column, key -> new ArrayList<>()).add(reader);
+                }
+            }
+
+            CellReference output = parseOutputCell(formula.getCellId());
+            if (output != null) {
+                graph.outputs.put(formula.getId(), output);
+                writers.put(output, formula.getId());
+            }
+        }
+
+        // 区域覆盖到的公式输出单元格也是输入
+        for (CellReference output : writers.keySet()) {
+            for (Long formulaId : graph.rangeReadersOf(output)) {
+                inputs.get(formulaId).add(output);
+            }
+        }
+
+        graph.sortTopologically(inputs, writers);
+        return graph;
+    }
+
+    /**
+     * 找出受变更单元格影响的全部公式（包括间接依赖），按拓扑序返回
+     *
+     * <p>循环引用中的公式（及其下游）排在最后，调用方应通过{@link #isCyclic(Long)}识别并标记为错误。</p>
+     *
+     * @param changedCells 发生变更的单元格
+     * @return 需要重算的公式ID（拓扑序）
+     */
+    public List<Long> getAffectedFormulaIds(Collection<CellReference> changedCells) {
+        if (changedCells == null || changedCells.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> affected = new HashSet<>();
+        Deque<CellReference> pending = new ArrayDeque<>(changedCells);
+        while (!pending.isEmpty()) {
+            CellReference cell = pending.poll();
+            List<Long> dependents = readers.getOrDefault(cell, Collections.emptyList());
+            for (Long formulaId : dependents) {
+                markAffected(formulaId, affected, pending);
+            }
+            for (Long formulaId : rangeReadersOf(cell)) {
+                markAffected(formulaId, affected, pending);
+            }
+        }
+
+        List<Long> ordered = new ArrayList<>(affected);
+        ordered.sort(Comparator.comparingInt((Long id) -> ranks.get(id)).thenComparing(Comparator.naturalOrder()));
+        return ordered;
+    }
+
+    private void markAffected(Long formulaId, Set<Long> affected, Deque<CellReference> pending) {
+        if (affected.add(formulaId)) {
+            CellReference output = outputs.get(formulaId);
+            if (output != null) {
+                pending.add(output);
+            }
+        }
+    }
+
+    /**
+     * 找出区域覆盖到指定单元格的公式
+     */
+    private List<Long> rangeReadersOf(CellReference cell) {
+        List<RangeReader> candidates = rangeReaders.get(cell.getColumn());
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+        List<Long> formulaIds = new ArrayList<>(2);
+        for (RangeReader reader : candidates) {
+            if (reader.range.contains(cell.getRow(), cell.getColumn())) {
+                formulaIds.add(reader.formulaId);
+            }
+        }
+        return formulaIds;
+    }
+
+    /**
+     * 将公式按拓扑层级分组，同一层级内的公式互不依赖
+     *
+     * <p>层内按拓扑序排列，循环引用中的公式被排除在外，调用方应另行处理。</p>
+     *
+     * @param formulaIds 需要分组的公式ID（为null时取全部公式）
+     * @return 按层级从低到高排列的公式ID分组（不含空层级）
+     */
+    public List<List<Long>> getLevels(Collection<Long> formulaIds) {
+        Collection<Long> candidates = formulaIds != null ? formulaIds : topologicalOrder;
+        List<List<Long>> grouped = new ArrayList<>(levelCount);
+        for (int i = 0; i < levelCount; i++) {
+            grouped.add(new ArrayList<>());
+        }
+        for (Long formulaId : candidates) {
+            Integer level = levels.get(formulaId);
+            if (level != null) {
+                grouped.get(level).add(formulaId);
+            }
+        }
+
+        Comparator<Long> byRank = Comparator.comparingInt(ranks::get);
+        List<List<Long>> result = new ArrayList<>(levelCount);
+        for (List<Long> level : grouped) {
+            if (!level.isEmpty()) {
+                level.sort(byRank);
+                result.add(level);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return 全部无循环公式的拓扑序
+     */
+    public List<Long> getTopologicalOrder() {
+        return Collections.unmodifiableList(topologicalOrder);
+    }
+
+    /**
+     * @return 处于循环引用中（或依赖循环引用结果）的公式ID
+     */
+    public Set<Long> getCyclicFormulaIds() {
+        return Collections.unmodifiableSet(cyclicFormulaIds);
+    }
+
+    public boolean hasCycles() {
+        return !cyclicFormulaIds.isEmpty();
+    }
+
+    public boolean isCyclic(Long formulaId) {
+        return cyclicFormulaIds.contains(formulaId);
+    }
+
+    /**
+     * @param formulaId 公式ID
+     * @return 构建依赖图时的公式实体；不存在返回null
+     */
+    public TableFormula getFormula(Long formulaId) {
+        return formulas.get(formulaId);
+    }
+
+    /**
+     * @param formulaId 公式ID
+     * @return 公式的输出单元格；列级公式返回null
+     */
+    public CellReference getOutputCell(Long formulaId) {
+        return outputs.get(formulaId);
+    }
+
+    /**
+     * @return 依赖图中的公式数量
+     */
+    public int size() {
+        return ranks.size();
+    }
+
+    /**
+     * Kahn算法计算拓扑序，无法排序的剩余公式即为循环引用
+     */
+    private void sortTopologically(Map<Long, Set<CellReference>> inputs, Map<CellReference, Long> writers) {
+        Map<Long, Integer> inDegree = new LinkedHashMap<>();
+        Map<Long, List<Long>> successors = new HashMap<>();
+        for (Map.Entry<Long, Set<CellReference>> entry : inputs.entrySet()) {
+            int degree = 0;
+            for (CellReference ref : entry.getValue()) {
+                Long writer = writers.get(ref);
+                if (writer != null) {
+                    successors.computeIfAbsent(writer, key -> new ArrayList<>(2)).add(entry.getKey());
+                    degree++;
+                }
+            }
+            inDegree.put(entry.getKey(), degree);
+        }
+
+        Deque<Long> ready = new ArrayDeque<>();
+        inDegree.forEach((formulaId, degree) -> {
+            if (degree == 0) {
+                ready.add(formulaId);
+            }
+        });
+
+        while (!ready.isEmpty()) {
+            Long formulaId = ready.poll();
+            int level = levels.getOrDefault(formulaId, 0);
+            levels.put(formulaId, level);
+            levelCount = Math.max(levelCount, level + 1);
+            ranks.put(formulaId, topologicalOrder.size());
+            topologicalOrder.add(formulaId);
+            for (Long successor : successors.getOrDefault(formulaId, Collections.emptyList())) {
+                levels.merge(successor, level + 1, Math::max);
+                if (inDegree.merge(successor, -1, Integer::sum) == 0) {
+                    ready.add(successor);
+                }
+            }
+        }
+
+        for (Long formulaId : inputs.keySet()) {
+            if (!ranks.containsKey(formulaId)) {
+                levels.remove(formulaId);
+                cyclicFormulaIds.add(formulaId);
+                ranks.put(formulaId, Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    private static final class RangeReader {
+        private final CellRange range;
+        private final Long formulaId;
+
+        private RangeReader(CellRange range, Long formulaId) {
+            this.range = range;
+            this.formulaId = formulaId;
+        }
+    }
+
+    private static CellReference parseOutputCell(String cellId) {
+        if (cellId == null || cellId.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return CellReference.fromString(cellId.trim());
+        } catch (IllegalArgumentException e) {
+            // 单元格ID不是"A1"形式（如数据库主键），视为无输出单元格
+            return null;
+        }
+    }
+}
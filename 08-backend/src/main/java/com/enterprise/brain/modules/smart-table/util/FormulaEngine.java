@@ -0,0 +1,132 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import com.enterprise.brain.common.cache.CacheMeters;
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * 公式引擎，负责公式的编译缓存与求值
+ *
+ * <p>每个{@link TableFormula}只在首次使用或版本变化时编译一次，编译结果按公式ID缓存，
+ * 批量计算时所有公式共享同一份{@link CellValueSource}。编译缓存使用Caffeine，按条目数量限制
+ * （smart-table.formula.engine.max-compiled），已删除或长期不用的公式不会一直占用内存。</p>
+ *
+ * <p>尚未保存（没有ID）的临时公式按表达式文本从{@link FormulaCompilationCache}获取编译结果。</p>
+ */
+@Slf4j
+@Component
+public class FormulaEngine {
+
+    /** 指标使用的缓存名 */
+    static final String CACHE_NAME = "formulaEngine";
+    /** 默认最多缓存的公式编译结果数量 */
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final Cache<Long, CompiledEntry> compiledFormulas;
+
+    /**
+     * 使用默认上限，不注册指标（如基准测试）
+     */
+    public FormulaEngine() {
+        this(null, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    @Autowired
+    public FormulaEngine(MeterRegistry meterRegistry,
+                         @Value("${smart-table.formula.engine.max-compiled:10000}") long maximumSize) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(maximumSize);
+        if (meterRegistry == null) {
+            compiledFormulas = builder.build();
+            return;
+        }
+        compiledFormulas = builder
+                .evictionListener(CacheMeters.<Long, CompiledEntry>evictionCounter(
+                        meterRegistry, CACHE_NAME, CacheMeters.TIER_LOCAL))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, compiledFormulas, CACHE_NAME, CacheMeters.TAG_TIER, CacheMeters.TIER_LOCAL);
+    }
+
+    /**
+     * 获取公式的编译结果（按公式ID和版本号缓存）
+     * @param formula 公式实体
+     * @return 编译后的公式
+     * @throws IllegalArgumentException 当公式表达式语法无效时抛出
+     */
+    public CompiledFormula compile(TableFormula formula) {
+        if (formula.getId() == null) {
+            return FormulaCompilationCache.compile(formula.getFormulaExpression());
+        }
+        return entryOf(formula).compiled;
+    }
+
+    private CompiledEntry entryOf(TableFormula formula) {
+        String expression = formula.getFormulaExpression();
+        long version = formula.getVersion() != null ? formula.getVersion() : 0L;
+        CompiledEntry entry = compiledFormulas.getIfPresent(formula.getId());
+        if (entry != null && entry.version == version && Objects.equals(entry.source, expression)) {
+            return entry;
+        }
+
+        entry = new CompiledEntry(version, expression, FormulaCompiler.compile(expression));
+        compiledFormulas.put(formula.getId(), entry);
+        log.debug("公式已编译 - 公式ID: {}, 版本: {}", formula.getId(), version);
+        return entry;
+    }
+
+    /**
+     * 计算公式结果
+     * @param formula 公式实体
+     * @param source 单元格数值来源
+     * @return 计算结果字符串；结果不是有限数值时返回"#ERROR"
+     * @throws IllegalArgumentException 当公式表达式语法无效时抛出
+     */
+    public String evaluate(TableFormula formula, CellValueSource source) {
+        return compile(formula).evaluateToString(source);
+    }
+
+    /**
+     * 移除指定公式的编译缓存
+     * @param formulaId 公式ID
+     */
+    public void evict(Long formulaId) {
+        if (formulaId != null) {
+            compiledFormulas.invalidate(formulaId);
+        }
+    }
+
+    /**
+     * 清空全部编译缓存
+     */
+    public void clear() {
+        compiledFormulas.invalidateAll();
+    }
+
+    /**
+     * @return 已缓存的编译结果数量（估计值）
+     */
+    public long size() {
+        return compiledFormulas.estimatedSize();
+    }
+
+    private static final class CompiledEntry {
+        private final long version;
+        private final String source;
+        private final CompiledFormula compiled;
+
+        private CompiledEntry(long version, String source, CompiledFormula compiled) {
+            this.version = version;
+            this.source = source;
+            this.compiled = compiled;
+        }
+    }
+}
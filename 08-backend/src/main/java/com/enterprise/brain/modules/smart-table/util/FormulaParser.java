@@ -2,18 +2,18 @@ package com.enterprise.brain.modules.smart-table.util;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * 公式解析工具类，用于提取单元格引用、验证公式合法性和标准化公式
  */
 public class FormulaParser {
-    // 支持大小写字母的单元格引用正则（如"A1"、"b2"、"AA3"）
-    private static final Pattern CELL_PATTERN = Pattern.compile("([A-Za-z]+)(\\d+)");
     
     /**
-     * 从公式中提取所有单元格引用
+     * 从公式中提取所有单个单元格引用（区域引用的首尾单元格不包含在内，见{@link #extractCellRanges}）
+     *
+     * <p>支持绝对引用（如"$A$1"），函数名和字符串字面量中的内容不会被当作引用；
+     * 带工作表前缀的引用（如"Sheet1!B2"）不属于本表格，同样忽略。</p>
+     *
      * @param formula 公式字符串（如"A1+B2*C3"）
      * @return 单元格引用列表（若公式为null则返回空列表）
      */
@@ -22,58 +22,170 @@ public class FormulaParser {
         if (formula == null || formula.isEmpty()) {
             return references;
         }
-        
-        Matcher matcher = CELL_PATTERN.matcher(formula);
-        while (matcher.find()) {
-            String cellRef = matcher.group(0);
-            try {
-                references.add(CellReference.fromString(cellRef));
-            } catch (IllegalArgumentException e) {
-                // 忽略无效的单元格引用，避免影响整体解析
+        scanReferences(formula, references, null);
+        return references;
+    }
+    
+    /**
+     * 从公式中提取所有单元格区域引用
+     * @param formula 公式字符串（如"SUM(A1:A100)+B1"）
+     * @return 区域引用列表（若公式为null则返回空列表）
+     */
+    public static List<CellRange> extractCellRanges(String formula) {
+        List<CellRange> ranges = new ArrayList<>();
+        if (formula == null || formula.indexOf(':') < 0) {
+            return ranges;
+        }
+        scanReferences(formula, null, ranges);
+        return ranges;
+    }
+    
+    /**
+     * 逐字符扫描公式中的单元格引用和区域引用（代替正则匹配，除结果对象外不产生中间字符串）
+     * @param formula 公式
+     * @param singles 单个引用的收集列表（为null时不收集）
+     * @param ranges 区域引用的收集列表（为null时不收集）
+     */
+    private static void scanReferences(String formula, List<CellReference> singles, List<CellRange> ranges) {
+        int length = formula.length();
+        int pos = 0;
+        while (pos < length) {
+            char c = formula.charAt(pos);
+            if (c == '"') {
+                int close = formula.indexOf('"', pos + 1);
+                pos = close < 0 ? length : close + 1;
+                continue;
+            }
+            if (!isReferenceStart(c)) {
+                pos++;
+                continue;
+            }
+            
+            int end = CellReference.scan(formula, pos, length);
+            if (end < 0 || (end < length && isIdentifierPart(formula.charAt(end)))
+                    || charAfterWhitespace(formula, end) == '(') {
+                // 不是单元格引用（如函数名SUM、LOG10），跳过整个标识符
+                pos = skipIdentifier(formula, pos + 1);
                 continue;
             }
+            long first = CellReference.parse(formula, pos, end);
+            
+            int next = skipWhitespace(formula, end);
+            if (next < length && formula.charAt(next) == ':') {
+                int secondStart = skipWhitespace(formula, next + 1);
+                int secondEnd = CellReference.scan(formula, secondStart, length);
+                long second = secondEnd > 0 ? CellReference.parse(formula, secondStart, secondEnd) : CellReference.INVALID;
+                if (first != CellReference.INVALID && second != CellReference.INVALID) {
+                    if (ranges != null) {
+                        ranges.add(new CellRange(CellReference.row(first), CellReference.column(first),
+                                CellReference.row(second), CellReference.column(second)));
+                    }
+                    pos = secondEnd;
+                    continue;
+                }
+            }
+            
+            // 忽略无效的单元格引用（如行号为0），避免影响整体解析
+            if (singles != null && first != CellReference.INVALID) {
+                singles.add(new CellReference(CellReference.row(first), CellReference.column(first)));
+            }
+            pos = end;
         }
-        
-        return references;
     }
     
     /**
-     * 验证公式的基本合法性（括号匹配、无连续运算符等）
-     * @param formula 待验证的公式
-     * @return 合法返回true，否则返回false
+     * 平移公式中的单元格引用（复制或填充公式时使用），如"A1+$B$1"平移(1, 1)得到"B2+$B$1"
+     *
+     * <p>绝对引用的行或列保持不变，带工作表前缀的引用、函数名、字符串字面量和其余文本原样保留；
+     * 平移后越界的引用替换为"#REF!"，该公式之后会按无效公式处理。</p>
+     *
+     * @param formula 公式（可带"="）
+     * @param rowOffset 行偏移
+     * @param columnOffset 列偏移
+     * @return 平移后的公式；不需要平移时返回原字符串
      */
-    public static boolean validateFormula(String formula) {
-        if (formula == null || formula.isEmpty()) {
-            return false;
+    public static String shiftReferences(String formula, int rowOffset, int columnOffset) {
+        if (formula == null || formula.isEmpty() || (rowOffset == 0 && columnOffset == 0)) {
+            return formula;
         }
-        
-        // 检查括号匹配
-        int openBrackets = 0;
-        for (char c : formula.toCharArray()) {
-            if (c == '(') {
-                openBrackets++;
-            } else if (c == ')') {
-                openBrackets--;
-                if (openBrackets < 0) {  // 右括号多于左括号
-                    return false;
+        int length = formula.length();
+        StringBuilder shifted = null;
+        int copied = 0;
+        int pos = 0;
+        while (pos < length) {
+            char c = formula.charAt(pos);
+            if (c == '"') {
+                int close = formula.indexOf('"', pos + 1);
+                pos = close < 0 ? length : close + 1;
+                continue;
+            }
+            if (!isReferenceStart(c)) {
+                pos++;
+                continue;
+            }
+            
+            int end = CellReference.scan(formula, pos, length);
+            if (end < 0 || (end < length && isIdentifierPart(formula.charAt(end)))
+                    || charAfterWhitespace(formula, end) == '(') {
+                pos = skipIdentifier(formula, pos + 1);
+                continue;
+            }
+            long packed = CellReference.parse(formula, pos, end);
+            if (packed != CellReference.INVALID) {
+                long target = CellReference.shift(packed, rowOffset, columnOffset);
+                if (shifted == null) {
+                    shifted = new StringBuilder(length + 8);
                 }
+                shifted.append(formula, copied, pos)
+                        .append(target != CellReference.INVALID ? CellReference.toString(target) : "#REF!");
+                copied = end;
             }
+            pos = end;
         }
-        if (openBrackets != 0) {  // 括号未闭合
-            return false;
+        if (shifted == null) {
+            return formula;
         }
-        
-        // 检查连续运算符（如"1++2"、"3*-4"）
-        if (formula.matches(".*[+\\-*/]{2,}.*")) {
-            return false;
+        return shifted.append(formula, copied, length).toString();
+    }
+    
+    private static boolean isReferenceStart(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '$' || c == '\'';
+    }
+    
+    private static boolean isIdentifierPart(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' || c == '.';
+    }
+    
+    private static int skipIdentifier(String formula, int pos) {
+        while (pos < formula.length() && isIdentifierPart(formula.charAt(pos))) {
+            pos++;
         }
-        
-        // 检查开头或结尾为运算符
-        if (formula.matches("^[+\\-*/].*|.*[+\\-*/]$")) {
-            return false;
+        return pos;
+    }
+    
+    private static int skipWhitespace(String formula, int pos) {
+        while (pos < formula.length() && Character.isWhitespace(formula.charAt(pos))) {
+            pos++;
         }
-        
-        return true;
+        return pos;
+    }
+    
+    private static char charAfterWhitespace(String formula, int pos) {
+        int next = skipWhitespace(formula, pos);
+        return next < formula.length() ? formula.charAt(next) : '\0';
+    }
+    
+    /**
+     * 验证公式能否被{@link FormulaCompiler}编译（括号匹配、运算符位置、函数和引用均合法）
+     *
+     * <p>与计算使用同一个解析器，校验通过的公式一定能够计算；编译结果经{@link FormulaCompilationCache}缓存，
+     * 随后的计算直接复用。</p>
+     *
+     * @param formula 待验证的公式（可带开头的等号）
+     * @return 合法返回true，否则返回false
+     */
+    public static boolean validateFormula(String formula) {
+        return FormulaCompilationCache.isValid(formula);
     }
     
     /**
@@ -0,0 +1,291 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 单元格数值快照，将"A1" -> "100"形式的单元格值映射一次性解析为数值
+ *
+ * <p>内部使用以行列打包的long为键的开放寻址哈希表，读取时无装箱、无字符串拼接，
+ * 适合在一次批量计算中被所有公式共享。也可作为增量重算时的可写覆盖层（见{@link #over}），
+ * 写入操作不是线程安全的。</p>
+ *
+ * <p>只保存数字单元格，区域函数读取时空单元格和非数字单元格均为NaN；
+ * VLOOKUP使用的列索引按区域缓存，写入时失效。作为覆盖层时，查找区域内没有覆盖值的直接使用基础数据源的索引。</p>
+ */
+public final class NumericCellSnapshot implements CellValueSource {
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private double[] values;
+    private int mask;
+    private int size;
+    /** 写入次数，覆盖层据此判断缓存的列索引是否过期 */
+    private volatile int version;
+    private final Map<CellRange, ColumnIndex> columnIndexes = new ConcurrentHashMap<>();
+
+    private NumericCellSnapshot(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1);
+    }
+
+    /**
+     * 创建空快照
+     * @param expectedSize 预计的单元格数量
+     * @return 空快照
+     */
+    public static NumericCellSnapshot create(int expectedSize) {
+        return new NumericCellSnapshot(expectedSize);
+    }
+
+    /**
+     * 从单元格值映射构建快照（无效的单元格引用键和非数字值会被忽略，读取时视为0）
+     * @param cellValues 单元格引用到值的映射（如"A1" -> "100"）
+     * @return 数值快照
+     */
+    public static NumericCellSnapshot fromCellValues(Map<String, String> cellValues) {
+        if (cellValues == null || cellValues.isEmpty()) {
+            return new NumericCellSnapshot(0);
+        }
+
+        NumericCellSnapshot snapshot = new NumericCellSnapshot(cellValues.size());
+        for (Map.Entry<String, String> entry : cellValues.entrySet()) {
+            long ref = CellReference.parse(entry.getKey());
+            if (ref == CellReference.INVALID) {
+                // 忽略无效的单元格引用，与FormulaParser的处理方式保持一致
+                continue;
+            }
+            double value = parseNumeric(entry.getValue(), Double.NaN);
+            if (value == value) {
+                snapshot.put(CellReference.row(ref), CellReference.column(ref), value);
+            }
+        }
+        return snapshot;
+    }
+
+    @Override
+    public double getNumber(int row, int column) {
+        int index = find(pack(row, column));
+        return index >= 0 ? values[index] : 0d;
+    }
+
+    @Override
+    public void readColumn(int column, int fromRow, double[] target, int length) {
+        for (int i = 0; i < length; i++) {
+            int index = find(pack(fromRow + i, column));
+            target[i] = index >= 0 ? values[index] : Double.NaN;
+        }
+    }
+
+    @Override
+    public ColumnIndex getColumnIndex(int column, int fromRow, int toRow) {
+        return columnIndexes.computeIfAbsent(new CellRange(fromRow, column, toRow, column),
+                range -> CellValueSource.super.getColumnIndex(column, fromRow, toRow));
+    }
+
+    /**
+     * @return 快照中是否包含指定单元格
+     */
+    public boolean contains(int row, int column) {
+        return find(pack(row, column)) >= 0;
+    }
+
+    /**
+     * 写入单元格数值（已存在则覆盖）
+     * @param row 行索引（从0开始）
+     * @param column 列索引（从0开始）
+     * @param value 数值
+     */
+    public void set(int row, int column, double value) {
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        put(row, column, value);
+        version++;
+        if (!columnIndexes.isEmpty()) {
+            columnIndexes.clear();
+        }
+    }
+
+    /**
+     * 以当前快照作为覆盖层叠加在基础数据源之上：快照中存在的单元格优先，其余从基础数据源读取
+     *
+     * <p>查找区域内没有覆盖值时，列索引直接取自基础数据源（列式存储按区域缓存）；
+     * 有覆盖值时叠加后构建一次，缓存到快照的下一次写入为止。</p>
+     *
+     * @param base 基础数据源
+     * @return 叠加后的数据源（读取时反映快照的后续写入）
+     */
+    public CellValueSource over(CellValueSource base) {
+        return new CellValueSource() {
+            private final Map<CellRange, ColumnIndex> overlaidIndexes = new ConcurrentHashMap<>();
+            private volatile int indexedVersion;
+
+            @Override
+            public ColumnIndex getColumnIndex(int column, int fromRow, int toRow) {
+                if (!containsAny(column, fromRow, toRow)) {
+                    return base.getColumnIndex(column, fromRow, toRow);
+                }
+                int current = version;
+                if (indexedVersion != current) {
+                    overlaidIndexes.clear();
+                    indexedVersion = current;
+                }
+                return overlaidIndexes.computeIfAbsent(new CellRange(fromRow, column, toRow, column),
+                        range -> CellValueSource.super.getColumnIndex(column, fromRow, toRow));
+            }
+
+            @Override
+            public double getNumber(int row, int column) {
+                int index = find(pack(row, column));
+                return index >= 0 ? values[index] : base.getNumber(row, column);
+            }
+
+            @Override
+            public void readColumn(int column, int fromRow, double[] target, int length) {
+                base.readColumn(column, fromRow, target, length);
+                if (size == 0) {
+                    return;
+                }
+                for (int i = 0; i < length; i++) {
+                    int index = find(pack(fromRow + i, column));
+                    if (index >= 0) {
+                        target[i] = values[index];
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * 快照在一列的行区间内是否有单元格：区间比哈希表小时逐行查找，否则扫描哈希表
+     */
+    private boolean containsAny(int column, int fromRow, int toRow) {
+        if (size == 0) {
+            return false;
+        }
+        long[] currentKeys = keys;
+        if ((long) toRow - fromRow < currentKeys.length) {
+            for (int row = fromRow; row <= toRow; row++) {
+                if (find(pack(row, column)) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (long key : currentKeys) {
+            if (key != EMPTY_KEY && (int) key == column) {
+                int row = (int) (key >> 32);
+                if (row >= fromRow && row <= toRow) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 快照中的单元格数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 将单元格文本解析为数值，只接受整数或小数（如"-12"、"3.5"），其余均视为0
+     * @param value 单元格文本
+     * @return 解析后的数值
+     */
+    public static double parseNumeric(String value) {
+        return parseNumeric(value, 0d);
+    }
+
+    /**
+     * 将单元格文本解析为数值，只接受整数或小数（如"-12"、"3.5"）
+     * @param value 单元格文本
+     * @param defaultValue 文本为空或非数字时的返回值
+     * @return 解析后的数值
+     */
+    public static double parseNumeric(String value, double defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        int length = value.length();
+        int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+        if (start == length) {
+            return defaultValue;
+        }
+
+        boolean seenDot = false;
+        int lastDigit = -1;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                lastDigit = i;
+            } else if (c == '.' && !seenDot && i > start) {
+                seenDot = true;
+            } else {
+                return defaultValue;
+            }
+        }
+        if (lastDigit != length - 1) {  // 以小数点结尾（如"1."）视为非数字
+            return defaultValue;
+        }
+        return Double.parseDouble(value);
+    }
+
+    private void put(int row, int column, double value) {
+        long key = pack(row, column);
+        int index = indexOf(key);
+        while (keys[index] != EMPTY_KEY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        if (keys[index] == EMPTY_KEY) {
+            keys[index] = key;
+            size++;
+        }
+        values[index] = value;
+    }
+
+    private int find(long key) {
+        int index = indexOf(key);
+        while (true) {
+            long current = keys[index];
+            if (current == key) {
+                return index;
+            }
+            if (current == EMPTY_KEY) {
+                return -1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        double[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                put((int) (oldKeys[i] >> 32), (int) oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new double[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY_KEY);
+    }
+
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static long pack(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+}
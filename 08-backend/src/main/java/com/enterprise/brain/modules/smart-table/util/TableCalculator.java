@@ -1,11 +1,7 @@
 package com.enterprise.brain.modules.smart-table.util;
 
 import java.util.Map;
-import java.util.List;
 import java.util.HashMap;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;  // 补充缺失的导入
 
 /**
  * 表格计算公式计算器，用于解析和计算包含单元格引用的公式
@@ -30,27 +26,10 @@ public class TableCalculator {
                 return "";
             }
             
-            // 替换公式中的单元格引用为实际值
-            List<CellReference> references = FormulaParser.extractCellReferences(processedFormula);
-            for (CellReference ref : references) {
-                String refStr = ref.toString();
-                String value = cellValues.getOrDefault(refStr, "0");  // 不存在的单元格默认为0
-                
-                // 检查是否为数字值（支持整数和小数）
-                if (value.matches("^-?\\d+(\\.\\d+)?$")) {
-                    processedFormula = processedFormula.replace(refStr, value);
-                } else {
-                    processedFormula = processedFormula.replace(refStr, "0");  // 非数字值视为0
-                }
-            }
-            
-            // 验证公式合法性
-            if (!FormulaParser.validateFormula(processedFormula)) {
-                return "#ERROR";
-            }
-            
-            // 计算表达式结果
-            return evaluateExpression(processedFormula);
+            // 编译为语法树（按表达式缓存，语法无效时抛出IllegalArgumentException）后直接求值，
+            // 单元格按需从映射中读取（不存在或非数字的单元格视为0）
+            CompiledFormula compiled = FormulaCompilationCache.compile(processedFormula);
+            return compiled.evaluateToString(CellValueSource.ofCellValues(cellValues));
         } catch (IllegalArgumentException e) {
             // 处理公式格式错误等已知异常
             return "#ERROR";
@@ -61,18 +40,21 @@ public class TableCalculator {
     }
     
     /**
-     * 计算表达式的值（注意：存在安全风险，生产环境需替换为安全的表达式解析器）
-     * @param expression 数学表达式（如"1+2*3"）
-     * @return 计算结果字符串
-     * @throws ScriptException 当表达式解析或执行失败时抛出
+     * 在给定的单元格数值来源上计算公式结果
+     * @param formula 公式字符串（支持类似"=A1+B2*C3"的格式）
+     * @param source 单元格数值来源
+     * @return 计算结果字符串；若计算失败返回"#ERROR"
      */
-    private static String evaluateExpression(String expression) throws ScriptException {
-        // 警告：使用JavaScript引擎执行表达式存在安全风险，可能被注入恶意代码
-        // 生产环境建议使用Apache Commons JEXL、MVEL等安全的表达式解析库
-        ScriptEngineManager manager = new ScriptEngineManager();
-        ScriptEngine engine = manager.getEngineByName("JavaScript");
-        Object result = engine.eval(expression);
-        return result.toString();
+    public static String calculateFormula(String formula, CellValueSource source) {
+        if (formula == null || source == null) {
+            return "#ERROR";
+        }
+        
+        try {
+            return FormulaCompilationCache.compile(formula).evaluateToString(source);
+        } catch (IllegalArgumentException e) {
+            return "#ERROR";
+        }
     }
     
     /**
@@ -0,0 +1,155 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 按拓扑层级并行重算公式（波前式计算）
+ *
+ * <p>依赖图被划分为若干层级，同一层级内的公式互不依赖：每层在专用的有界ForkJoinPool上
+ * 按块并行求值（工作窃取负责负载均衡），计算结果先写入按位置索引的数组，整层完成后
+ * 再由调用线程按层内顺序写回输出单元格，然后进入下一层。求值期间单元格来源只读，
+ * 因此结果与串行按拓扑序计算完全一致。</p>
+ *
+ * <p>公式较少的层级直接在调用线程中计算，避免任务调度开销。</p>
+ */
+@Slf4j
+@Component
+public class WavefrontRecalculator implements DisposableBean {
+
+    private final FormulaEngine formulaEngine;
+    private final ForkJoinPool pool;
+    /** 每个并行任务至少处理的公式数量，低于该数量的层级在调用线程中计算 */
+    private final int chunkSize;
+
+    public WavefrontRecalculator(FormulaEngine formulaEngine,
+                                 @Value("${smart-table.formula.recalc.parallelism:0}") int parallelism,
+                                 @Value("${smart-table.formula.recalc.chunk-size:256}") int chunkSize) {
+        this.formulaEngine = formulaEngine;
+        this.chunkSize = Math.max(1, chunkSize);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("formula-recalc-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        log.info("公式并行重算线程池已初始化 - 并行度: {}, 分块大小: {}", threads, this.chunkSize);
+    }
+
+    /**
+     * 按拓扑层级重算公式，并把结果写回输出单元格
+     *
+     * <p>循环引用中的公式不参与计算也不出现在结果中；语法无效的公式输出单元格写入NaN，
+     * 同样不出现在结果中，由调用方决定如何处理。</p>
+     *
+     * @param graph 公式依赖图
+     * @param formulaIds 需要重算的公式ID（为null时重算全部公式）
+     * @param overlay 可写的单元格快照，公式结果写回其中
+     * @param base overlay中不存在的单元格从这里读取（为null时只读取overlay）
+     * @return 公式ID到计算结果的映射（按拓扑序排列）
+     */
+    public Map<Long, Double> recalculate(FormulaDependencyGraph graph,
+                                         Collection<Long> formulaIds,
+                                         NumericCellSnapshot overlay,
+                                         CellValueSource base) {
+        CellValueSource source = base != null ? overlay.over(base) : overlay;
+        Map<Long, Double> results = new LinkedHashMap<>();
+
+        for (List<Long> level : graph.getLevels(formulaIds)) {
+            int size = level.size();
+            double[] values = new double[size];
+            boolean[] valid = new boolean[size];
+            LevelTask task = new LevelTask(graph, level, source, values, valid, 0, size);
+            if (size <= chunkSize) {
+                task.compute();
+            } else {
+                pool.invoke(task);
+            }
+
+            // 整层完成后统一写回，保证同层公式读取的都是上一层的结果
+            for (int i = 0; i < size; i++) {
+                Long formulaId = level.get(i);
+                CellReference output = graph.getOutputCell(formulaId);
+                if (output != null) {
+                    overlay.set(output.getRow(), output.getColumn(), values[i]);
+                }
+                if (valid[i]) {
+                    results.put(formulaId, values[i]);
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * @return 线程池并行度
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * 计算一个层级中[from, to)区间内的公式，区间过大时对半拆分
+     */
+    private final class LevelTask extends RecursiveAction {
+        private final FormulaDependencyGraph graph;
+        private final List<Long> level;
+        private final CellValueSource source;
+        private final double[] values;
+        private final boolean[] valid;
+        private final int from;
+        private final int to;
+
+        private LevelTask(FormulaDependencyGraph graph, List<Long> level, CellValueSource source,
+                          double[] values, boolean[] valid, int from, int to) {
+            this.graph = graph;
+            this.level = level;
+            this.source = source;
+            this.values = values;
+            this.valid = valid;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                for (int i = from; i < to; i++) {
+                    evaluate(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new LevelTask(graph, level, source, values, valid, from, middle),
+                    new LevelTask(graph, level, source, values, valid, middle, to));
+        }
+
+        private void evaluate(int index) {
+            TableFormula formula = graph.getFormula(level.get(index));
+            try {
+                values[index] = formulaEngine.compile(formula).evaluate(source);
+                valid[index] = true;
+            } catch (IllegalArgumentException e) {
+                log.debug("跳过语法无效的公式 - 公式ID: {}, 错误: {}", formula.getId(), e.getMessage());
+                values[index] = Double.NaN;
+            }
+        }
+    }
+}
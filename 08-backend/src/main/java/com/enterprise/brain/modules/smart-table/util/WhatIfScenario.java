@@ -0,0 +1,186 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 假设分析场景：叠加在表格单元格存储之上的稀疏增量
+ *
+ * <p>场景不复制表格：调整过的输入单元格和受影响公式的结果分别保存在两个{@link NumericCellSnapshot}中，
+ * 读取时依次叠加在基础数据源之上（公式结果 → 调整值 → 基础数据源），基础数据源不会被修改。
+ * 内存占用与调整的单元格数量和受影响的公式数量成正比，与表格大小无关。</p>
+ *
+ * <p>每次调整后只重算受本次调整影响的公式（见{@link #recalculate}），之前调整的结果保留在场景中。
+ * 场景不是线程安全的，由调用方按场景加锁；不同场景之间互不影响，可以并发计算。</p>
+ */
+public final class WhatIfScenario {
+
+    /**
+     * 调整方式
+     */
+    public enum Operation {
+        /** 设为指定值 */
+        SET,
+        /** 加上指定值 */
+        ADD,
+        /** 乘以指定值 */
+        MULTIPLY,
+        /** 按百分比增减（5表示+5%） */
+        PERCENT
+    }
+
+    private final String id;
+    private final Long tableId;
+    private final String name;
+    private final long createTime;
+    /** 调整过的输入单元格 */
+    private final NumericCellSnapshot inputs = NumericCellSnapshot.create(16);
+    private final Set<CellReference> adjustedCells = new LinkedHashSet<>();
+    /** 受影响公式的输出单元格 */
+    private NumericCellSnapshot outputs = NumericCellSnapshot.create(16);
+    /** 公式ID -> 场景中的计算结果 */
+    private final Map<Long, Double> results = new LinkedHashMap<>();
+    /** 计算结果所基于的依赖图，公式变化后依赖图被重建，结果需要全部重算 */
+    private FormulaDependencyGraph graph;
+
+    public WhatIfScenario(String id, Long tableId, String name) {
+        this(id, tableId, name, System.currentTimeMillis());
+    }
+
+    /**
+     * 按已有场景的创建时间重建场景（如其他节点从调整日志重建）
+     */
+    public WhatIfScenario(String id, Long tableId, String name, long createTime) {
+        this.id = id;
+        this.tableId = tableId;
+        this.name = name;
+        this.createTime = createTime;
+    }
+
+    /**
+     * 调整一个区域内的单元格
+     *
+     * <p>相对调整（ADD、MULTIPLY、PERCENT）以场景中的当前值为准，可以叠加；
+     * 空单元格和非数字单元格不参与相对调整。</p>
+     *
+     * @param range 单元格区域（单个单元格时首尾相同）
+     * @param operation 调整方式
+     * @param operand 调整值
+     * @param base 基础数据源
+     * @return 本次调整的单元格
+     */
+    public List<CellReference> adjust(CellRange range, Operation operation, double operand, CellValueSource base) {
+        CellValueSource current = inputs.over(base);
+        int firstRow = range.getFirstRow();
+        int rows = range.getRowCount();
+        double[] column = new double[rows];
+        List<CellReference> adjusted = new ArrayList<>();
+        for (int col = range.getFirstColumn(); col <= range.getLastColumn(); col++) {
+            current.readColumn(col, firstRow, column, rows);
+            for (int i = 0; i < rows; i++) {
+                double value = column[i];
+                if (operation != Operation.SET && value != value) {
+                    continue;
+                }
+                inputs.set(firstRow + i, col, apply(operation, value, operand));
+                adjusted.add(new CellReference(firstRow + i, col));
+            }
+        }
+        adjustedCells.addAll(adjusted);
+        return adjusted;
+    }
+
+    private static double apply(Operation operation, double value, double operand) {
+        switch (operation) {
+            case SET:
+                return operand;
+            case ADD:
+                return value + operand;
+            case MULTIPLY:
+                return value * operand;
+            case PERCENT:
+                return value * (1 + operand / 100);
+            default:
+                throw new IllegalArgumentException("Unsupported operation: " + operation);
+        }
+    }
+
+    /**
+     * 重算受调整影响的公式，结果保存在场景中
+     *
+     * <p>依赖图与上次计算时不同（公式被修改过），或changedCells为null时，丢弃已有结果，
+     * 按场景的全部调整重算。</p>
+     *
+     * @param currentGraph 表格当前的公式依赖图
+     * @param changedCells 本次调整的单元格（为null时按全部调整重算）
+     * @param recalculator 按层级重算公式的计算器
+     * @param base 基础数据源
+     * @return 本次重算的公式ID（拓扑序）
+     */
+    public List<Long> recalculate(FormulaDependencyGraph currentGraph, Collection<CellReference> changedCells,
+                                  WavefrontRecalculator recalculator, CellValueSource base) {
+        Collection<CellReference> changed = changedCells;
+        if (changed == null || currentGraph != graph) {
+            outputs = NumericCellSnapshot.create(16);
+            results.clear();
+            graph = currentGraph;
+            changed = adjustedCells;
+        }
+        List<Long> affected = graph.getAffectedFormulaIds(changed);
+        if (affected.isEmpty()) {
+            return affected;
+        }
+        Map<Long, Double> values = recalculator.recalculate(graph, affected, outputs, inputs.over(base));
+        for (Long formulaId : affected) {
+            results.put(formulaId, values.getOrDefault(formulaId, Double.NaN));
+        }
+        return affected;
+    }
+
+    /**
+     * @return 场景中的数值来源（公式结果和调整值叠加在基础数据源之上）
+     */
+    public CellValueSource over(CellValueSource base) {
+        return outputs.over(inputs.over(base));
+    }
+
+    /**
+     * @return 公式ID到场景中计算结果的映射（不可修改）
+     */
+    public Map<Long, Double> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * @return 场景保存的单元格数量（调整值与公式结果之和），即场景的内存占用规模
+     */
+    public int getDeltaSize() {
+        return inputs.size() + outputs.size();
+    }
+
+    public int getAdjustedCellCount() {
+        return adjustedCells.size();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getTableId() {
+        return tableId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+}
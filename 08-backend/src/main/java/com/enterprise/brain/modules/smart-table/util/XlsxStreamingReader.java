@@ -0,0 +1,261 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * XLSX流式读取（SAX事件模型）
+ *
+ * <p>不构建XSSFWorkbook，直接以SAX方式解析第一个工作表的XML，每读完一个单元格回调一次，
+ * 内存占用与工作表行数无关（共享字符串表除外）。文件必须先落盘：从输入流打开的OPC包会整体读入内存。</p>
+ *
+ * <p>值的转换：共享字符串和内联字符串取文本；布尔值转换为"TRUE"/"FALSE"；日期格式的数字转换为
+ * "yyyy-MM-dd"（含时间时为"yyyy-MM-dd HH:mm:ss"）；其余数字保留原始文本。公式单元格同时给出公式
+ * （不含"="）和Excel缓存的计算结果，共享公式按与首个单元格的相对位置平移引用后给出。</p>
+ */
+public final class XlsxStreamingReader {
+
+    /**
+     * 单元格回调
+     */
+    @FunctionalInterface
+    public interface CellHandler {
+        /**
+         * @param row 行索引（从0开始）
+         * @param column 列索引（从0开始）
+         * @param value 单元格值文本（公式单元格为缓存的计算结果，可能为null）
+         * @param formula 公式（不含"="），非公式单元格为null
+         */
+        void cell(int row, int column, String value, String formula);
+    }
+
+    private XlsxStreamingReader() {
+    }
+
+    /**
+     * 读取工作簿第一个工作表的全部非空单元格
+     * @param file XLSX文件
+     * @param handler 单元格回调
+     * @return 读取的单元格数量
+     * @throws IOException 文件无法读取或不是有效的XLSX时抛出
+     */
+    public static int read(File file, CellHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("Workbook contains no sheet");
+            }
+            try (InputStream sheet = sheets.next()) {
+                SheetHandler sheetHandler = new SheetHandler(strings, styles, handler);
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(sheetHandler);
+                parser.parse(new InputSource(sheet));
+                return sheetHandler.cellCount;
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Invalid XLSX file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 工作表XML的SAX处理器，只关心row、c、v、f和内联字符串的t元素
+     */
+    private static final class SheetHandler extends DefaultHandler {
+        private final ReadOnlySharedStringsTable strings;
+        private final StylesTable styles;
+        private final CellHandler handler;
+        /** 共享公式编号 -> 首个单元格的公式及位置 */
+        private final Map<String, SharedFormula> sharedFormulas = new HashMap<>();
+        private final StringBuilder text = new StringBuilder();
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        private final SimpleDateFormat dateTimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+        private int cellCount;
+        private int row = -1;
+        private int column = -1;
+        private String type;
+        private int styleIndex;
+        private String value;
+        private String formula;
+        private String sharedIndex;
+        private boolean sharedMaster;
+        private boolean capturing;
+
+        private SheetHandler(ReadOnlySharedStringsTable strings, StylesTable styles, CellHandler handler) {
+            this.strings = strings;
+            this.styles = styles;
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row":
+                    String rowNumber = attributes.getValue("r");
+                    row = rowNumber != null ? Integer.parseInt(rowNumber) - 1 : row + 1;
+                    column = -1;
+                    break;
+                case "c":
+                    String ref = attributes.getValue("r");
+                    long packed = ref != null ? CellReference.parse(ref) : CellReference.INVALID;
+                    if (packed != CellReference.INVALID) {
+                        row = CellReference.row(packed);
+                        column = CellReference.column(packed);
+                    } else {
+                        column++;  // r属性可省略，按出现顺序递增
+                    }
+                    type = attributes.getValue("t");
+                    String style = attributes.getValue("s");
+                    styleIndex = style != null ? Integer.parseInt(style) : -1;
+                    value = null;
+                    formula = null;
+                    sharedIndex = null;
+                    sharedMaster = false;
+                    break;
+                case "f":
+                    if ("shared".equals(attributes.getValue("t"))) {
+                        sharedIndex = attributes.getValue("si");
+                        sharedMaster = attributes.getValue("ref") != null;
+                    }
+                    startText();
+                    break;
+                case "v":
+                case "t":
+                    startText();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (capturing) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                    value = text.toString();
+                    capturing = false;
+                    break;
+                case "t":
+                    // 内联字符串（<is><t>…</t></is>），富文本的多个片段依次拼接
+                    value = value != null ? value + text : text.toString();
+                    capturing = false;
+                    break;
+                case "f":
+                    formula = resolveFormula(text.toString());
+                    capturing = false;
+                    break;
+                case "c":
+                    emitCell();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void startText() {
+            text.setLength(0);
+            capturing = true;
+        }
+
+        private String resolveFormula(String expression) {
+            if (sharedIndex == null) {
+                return expression.isEmpty() ? null : expression;
+            }
+            if (sharedMaster || !expression.isEmpty()) {
+                sharedFormulas.put(sharedIndex, new SharedFormula(expression, row, column));
+                return expression;
+            }
+            SharedFormula master = sharedFormulas.get(sharedIndex);
+            return master != null
+                    ? FormulaParser.shiftReferences(master.expression, row - master.row, column - master.column)
+                    : null;
+        }
+
+        private void emitCell() {
+            String cellValue = convertValue();
+            if (cellValue == null && formula == null) {
+                return;
+            }
+            cellCount++;
+            handler.cell(row, column, cellValue, formula);
+        }
+
+        private String convertValue() {
+            if (value == null) {
+                return null;
+            }
+            if (type == null || "n".equals(type)) {
+                return isDateStyle() ? formatDate(Double.parseDouble(value)) : value;
+            }
+            switch (type) {
+                case "s":
+                    return strings.getItemAt(Integer.parseInt(value)).getString();
+                case "b":
+                    return "1".equals(value) ? "TRUE" : "FALSE";
+                default:
+                    // inlineStr、str（公式的文本结果）、e（错误值，如#DIV/0!）
+                    return value;
+            }
+        }
+
+        private boolean isDateStyle() {
+            if (styleIndex < 0 || styles == null) {
+                return false;
+            }
+            XSSFCellStyle style = styles.getStyleAt(styleIndex);
+            return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+        }
+
+        private String formatDate(double serial) {
+            if (!DateUtil.isValidExcelDate(serial)) {
+                return Double.toString(serial);
+            }
+            Date date = DateUtil.getJavaDate(serial);
+            return serial == Math.floor(serial) ? dateFormat.format(date) : dateTimeFormat.format(date);
+        }
+    }
+
+    private static final class SharedFormula {
+        private final String expression;
+        private final int row;
+        private final int column;
+
+        private SharedFormula(String expression, int row, int column) {
+            this.expression = expression;
+            this.row = row;
+            this.column = column;
+        }
+    }
+}
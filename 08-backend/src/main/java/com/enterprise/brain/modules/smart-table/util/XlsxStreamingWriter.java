@@ -0,0 +1,92 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import org.apache.poi.ss.formula.FormulaParseException;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * XLSX流式写出（SXSSF）
+ *
+ * <p>SXSSF只在内存中保留最近的一个行窗口，超出窗口的行被压缩写入临时文件，
+ * 内存占用与导出的行数无关。单元格按列式存储中的位置原样写出（"A1"对应第一行第一列），
+ * 以"="开头的文本写为公式，打开文件时由Excel重新计算。</p>
+ */
+public final class XlsxStreamingWriter {
+
+    /** 内存中保留的行数 */
+    public static final int DEFAULT_ROW_WINDOW = 100;
+
+    private XlsxStreamingWriter() {
+    }
+
+    /**
+     * 将列式存储写出为单工作表的XLSX
+     * @param store 单元格存储
+     * @param sheetName 工作表名称（非法字符会被替换）
+     * @param out 输出流（调用方负责关闭）
+     * @param rowWindow 内存中保留的行数
+     * @return 写出的单元格数量
+     * @throws IOException 写出失败时抛出
+     */
+    public static int write(ColumnarCellStore store, String sheetName, OutputStream out, int rowWindow) throws IOException {
+        if (rowWindow <= 0) {
+            throw new IllegalArgumentException("Row window must be positive: " + rowWindow);
+        }
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet(WorkbookUtil.createSafeSheetName(
+                    sheetName != null && !sheetName.trim().isEmpty() ? sheetName : "Sheet1"));
+            int rowCount = store.getRowCount();
+            int columnCount = store.getColumnCount();
+            int written = 0;
+            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+                Row row = null;
+                for (int column = 0; column < columnCount; column++) {
+                    Object value = store.getValue(rowIndex, column);
+                    if (value == null) {
+                        continue;
+                    }
+                    if (row == null) {
+                        row = sheet.createRow(rowIndex);
+                    }
+                    writeCell(row.createCell(column), value);
+                    written++;
+                }
+            }
+            workbook.setForceFormulaRecalculation(true);
+            workbook.write(out);
+            return written;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static void writeCell(Cell cell, Object value) {
+        if (value instanceof Double) {
+            cell.setCellValue((Double) value);
+        } else if (value instanceof Long) {
+            cell.setCellValue(((Long) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else {
+            String text = value.toString();
+            if (text.length() > 1 && text.charAt(0) == '=') {
+                try {
+                    cell.setCellFormula(text.substring(1));
+                    return;
+                } catch (FormulaParseException e) {
+                    // Excel无法识别的公式按文本写出
+                }
+            }
+            cell.setCellValue(text);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.enterprise.brain.modules.smart-table.websocket;
+
+import com.enterprise.brain.modules.smart-table.dto.request.CellOperationMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 表格协同编辑的WebSocket处理器
+ *
+ * <p>连接地址为 /ws/smart-table/{tableId}，每个连接加入对应表格的频道。
+ * 收到的操作交给{@link TableEditSequencer}排序并按批次应用，处理器本身不做数据库操作。</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CellEditWebSocketHandler extends TextWebSocketHandler {
+
+    static final String TABLE_ID_ATTRIBUTE = "tableId";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final TableEditSequencer tableEditSequencer;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        Long tableId = parseTableId(session.getUri());
+        if (tableId == null) {
+            session.close(CloseStatus.BAD_DATA.withReason("Invalid table id"));
+            return;
+        }
+        session.getAttributes().put(TABLE_ID_ATTRIBUTE, tableId);
+        tableEditSequencer.join(tableId, session);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Long tableId = (Long) session.getAttributes().get(TABLE_ID_ATTRIBUTE);
+        if (tableId == null) {
+            return;
+        }
+        List<CellOperationMessage> operations;
+        try {
+            operations = parseOperations(message.getPayload());
+        } catch (IOException | IllegalArgumentException e) {
+            tableEditSequencer.sendError(session, "Invalid message: " + e.getMessage());
+            return;
+        }
+        if (!operations.isEmpty()) {
+            tableEditSequencer.submit(tableId, session, operations);
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.warn("协同编辑连接异常 - 会话: {}, 错误: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Long tableId = (Long) session.getAttributes().get(TABLE_ID_ATTRIBUTE);
+        if (tableId != null) {
+            tableEditSequencer.leave(tableId, session);
+        }
+    }
+
+    /**
+     * 解析消息：单个操作对象或操作数组
+     */
+    private static List<CellOperationMessage> parseOperations(String payload) throws IOException {
+        JsonNode root = objectMapper.readTree(payload);
+        List<CellOperationMessage> operations = new ArrayList<>();
+        if (root == null) {
+            return operations;
+        }
+        if (root.isArray()) {
+            for (JsonNode node : root) {
+                operations.add(objectMapper.treeToValue(node, CellOperationMessage.class));
+            }
+        } else if (root.isObject()) {
+            operations.add(objectMapper.treeToValue(root, CellOperationMessage.class));
+        } else {
+            throw new IllegalArgumentException("expected an operation object or array");
+        }
+        return operations;
+    }
+
+    /**
+     * 从连接地址的最后一段解析表格ID
+     * @return 表格ID；格式无效时返回null
+     */
+    private static Long parseTableId(URI uri) {
+        if (uri == null || uri.getPath() == null) {
+            return null;
+        }
+        String path = uri.getPath();
+        String segment = path.substring(path.lastIndexOf('/') + 1);
+        try {
+            return Long.valueOf(segment);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.enterprise.brain.modules.smart-table.websocket;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * 表格协同编辑的WebSocket配置
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class CollaborationWebSocketConfig implements WebSocketConfigurer {
+
+    private final CellEditWebSocketHandler cellEditWebSocketHandler;
+
+    /** 允许跨域连接的来源模式，未配置时只允许同源连接 */
+    @Value("${smart-table.collab.allowed-origin-patterns:}")
+    private String[] allowedOriginPatterns;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(cellEditWebSocketHandler, "/ws/smart-table/*")
+                .setAllowedOriginPatterns(allowedOriginPatterns);
+    }
+}
@@ -0,0 +1,88 @@
+package com.enterprise.brain.modules.smart-table.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * 协同编辑频道的跨节点归属：同一表格同一时刻只由一个节点排序和应用操作
+ *
+ * <p>频道排序、批次序号和差异广播都只在本节点内存中，因此同一表格的全部连接必须落在同一节点上
+ * （负载均衡按连接地址中的表格ID做一致性哈希）。这里用Redis租约检查这一点：
+ * 创建频道时声明归属（键为前缀加表格ID，值为节点ID），频道存在期间定期续期，频道关闭后释放；
+ * 其他节点持有租约时拒绝加入，路由配置错误时连接会被拒绝而不是在两个节点上各自排序。</p>
+ *
+ * <p>未配置Redis（单节点部署）或Redis暂时不可用时不做检查。</p>
+ */
+@Slf4j
+class TableChannelOwnership {
+
+    static final String KEY_PREFIX = "smart-table:collab:owner:";
+
+    /** 租约不存在或属于本节点时设置并续期 */
+    private static final DefaultRedisScript<Long> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local owner = redis.call('get', KEYS[1]) "
+                    + "if owner == false or owner == ARGV[1] then "
+                    + "redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1 end "
+                    + "return 0",
+            Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final long leaseMillis;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * @param redisTemplate 为null时不检查归属
+     */
+    TableChannelOwnership(StringRedisTemplate redisTemplate, long leaseMillis) {
+        this.redisTemplate = redisTemplate;
+        this.leaseMillis = Math.max(1, leaseMillis);
+    }
+
+    boolean isEnabled() {
+        return redisTemplate != null;
+    }
+
+    long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    /**
+     * 声明或续期表格的归属
+     * @return 表格归本节点（或不检查归属）时返回true；其他节点持有租约时返回false
+     */
+    boolean claim(Long tableId) {
+        if (redisTemplate == null) {
+            return true;
+        }
+        try {
+            Long claimed = redisTemplate.execute(CLAIM_SCRIPT, Collections.singletonList(KEY_PREFIX + tableId),
+                    nodeId, String.valueOf(leaseMillis));
+            return claimed == null || claimed != 0;
+        } catch (RuntimeException e) {
+            log.warn("协同编辑频道归属检查失败，按本节点处理 - 表格ID: {}, 错误: {}", tableId, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * 释放本节点持有的归属，租约已被其他节点持有时不做任何事
+     */
+    void release(Long tableId) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(KEY_PREFIX + tableId), nodeId);
+        } catch (RuntimeException e) {
+            // 租约到期后自动释放
+            log.warn("协同编辑频道归属释放失败 - 表格ID: {}, 错误: {}", tableId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package com.enterprise.brain.modules.smart-table.websocket;
+
+import com.enterprise.brain.modules.smart-table.dto.request.CellOperationMessage;
+import com.enterprise.brain.modules.smart-table.dto.request.CellUpdateRequest;
+import com.enterprise.brain.modules.smart-table.entity.TableColumn;
+import com.enterprise.brain.modules.smart-table.service.SmartTableService;
+import com.enterprise.brain.modules.smart-table.service.TableColumnService;
+import com.enterprise.brain.modules.smart-table.util.CellReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 协同编辑的操作排序与微批次应用
+ *
+ * <p>每个有连接的表格对应一个频道：收到的单元格操作进入频道队列，按到达顺序排序，
+ * 每隔一个批次间隔（默认20ms）整批取出，同一单元格只保留最后一次写入，然后一次写入数据库和列式存储、
+ * 合并做一次增量重算，再把变更的单元格和重算结果作为一条紧凑的差异消息广播给频道内的所有连接。
+ * 写入顺序由服务端序号决定（后到的覆盖先到的），客户端不需要在冲突时重新拉取数据。</p>
+ *
+ * <p>同一表格的刷新按表格ID加锁，而不是按频道对象：最后一个连接离开后频道被关闭，新连接加入时会创建新频道，
+ * 新频道的批次会先等已关闭频道剩余的操作全部应用完，写入顺序不会因为频道重建而颠倒。</p>
+ *
+ * <p>频道只存在于本节点，多节点部署时同一表格的连接必须路由到同一节点（按连接地址中的表格ID做一致性哈希）。
+ * 配置了Redis时用{@link TableChannelOwnership}的租约检查这一点：其他节点已有该表格的频道时拒绝加入，
+ * 本节点失去租约时断开该表格的连接，让客户端重新连接到持有租约的节点。</p>
+ *
+ * <p>消息格式（JSON）：</p>
+ * <ul>
+ *   <li>客户端 → 服务端：{@link CellOperationMessage}，单条或数组</li>
+ *   <li>{"type":"diff","seq":N,"cells":{"B2":"10"},"formulas":{"formula_12":"126"}}：广播给频道内所有连接</li>
+ *   <li>{"type":"ack","seq":N,"clientSeq":17,"rejected":[…]}：发给本批次中有操作的连接</li>
+ *   <li>{"type":"joined","tableId":1,"seq":N}、{"type":"error","message":"…"}</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class TableEditSequencer implements DisposableBean {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String OP_SET = "set";
+    private static final String OP_CLEAR = "clear";
+    /** 表格的频道在其他节点上，客户端应重新连接（由负载均衡路由到该节点） */
+    static final CloseStatus OWNED_ELSEWHERE = new CloseStatus(4001, "Table is being edited on another node");
+
+    private final SmartTableService smartTableService;
+    private final TableColumnService tableColumnService;
+    private final ScheduledExecutorService scheduler;
+    private final long batchIntervalMillis;
+    private final int maxBatchSize;
+    private final int maxQueuedOperations;
+    private final int sendTimeLimitMillis;
+    private final int sendBufferSizeLimit;
+    private final TableChannelOwnership ownership;
+
+    /** 表格ID -> 频道 */
+    private final Map<Long, TableChannel> channels = new ConcurrentHashMap<>();
+    /** 表格ID -> 刷新锁，由该表格先后创建、尚未完成最后一次刷新的频道共用 */
+    private final Map<Long, TableFlushLock> flushLocks = new ConcurrentHashMap<>();
+
+    public TableEditSequencer(SmartTableService smartTableService,
+                              TableColumnService tableColumnService,
+                              @Value("${smart-table.collab.batch-interval-ms:20}") long batchIntervalMillis,
+                              @Value("${smart-table.collab.max-batch-size:5000}") int maxBatchSize,
+                              @Value("${smart-table.collab.max-queued-operations:20000}") int maxQueuedOperations,
+                              @Value("${smart-table.collab.flush-threads:2}") int flushThreads,
+                              @Value("${smart-table.collab.send-time-limit-ms:5000}") int sendTimeLimitMillis,
+                              @Value("${smart-table.collab.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+                              ObjectProvider<StringRedisTemplate> redisTemplateProvider,
+                              @Value("${smart-table.collab.owner-lease-ms:15000}") long ownerLeaseMillis) {
+        this.smartTableService = smartTableService;
+        this.tableColumnService = tableColumnService;
+        this.batchIntervalMillis = Math.max(1, batchIntervalMillis);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxQueuedOperations = Math.max(this.maxBatchSize, maxQueuedOperations);
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        AtomicInteger threadIndex = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Math.max(1, flushThreads), runnable -> {
+            Thread thread = new Thread(runnable, "table-edit-flush-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+        this.ownership = new TableChannelOwnership(redisTemplateProvider.getIfAvailable(), ownerLeaseMillis);
+        if (ownership.isEnabled()) {
+            long renewInterval = Math.max(1, ownership.getLeaseMillis() / 3);
+            scheduler.scheduleWithFixedDelay(this::renewOwnership, renewInterval, renewInterval, TimeUnit.MILLISECONDS);
+        }
+        log.info("协同编辑已初始化 - 批次间隔: {}ms, 批次上限: {}, 刷新线程: {}",
+                this.batchIntervalMillis, this.maxBatchSize, flushThreads);
+    }
+
+    /**
+     * 连接加入表格频道，频道不存在时声明归属、创建并开始按批次间隔刷新
+     *
+     * <p>频道在映射操作之外创建，并发创建时未放入映射的频道被丢弃。</p>
+     *
+     * @return 包装后可并发发送的会话；表格的频道在其他节点上时关闭连接并返回null
+     */
+    public WebSocketSession join(Long tableId, WebSocketSession session) {
+        WebSocketSession decorated = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMillis, sendBufferSizeLimit);
+        TableChannel channel = addToChannel(tableId, session.getId(), decorated);
+        while (channel == null) {
+            if (!ownership.claim(tableId)) {
+                log.warn("协同编辑表格的频道在其他节点上，拒绝连接 - 表格ID: {}, 会话: {}", tableId, session.getId());
+                sendError(decorated, "Table " + tableId + " is being edited on another node, reconnect and retry");
+                disconnect(decorated, OWNED_ELSEWHERE);
+                return null;
+            }
+            TableChannel created = new TableChannel(tableId);
+            created.sessions.put(session.getId(), decorated);
+            if (channels.putIfAbsent(tableId, created) == null) {
+                channel = created;
+            } else {
+                created.discard();
+                channel = addToChannel(tableId, session.getId(), decorated);
+            }
+        }
+        Map<String, Object> joined = new LinkedHashMap<>();
+        joined.put("type", "joined");
+        joined.put("tableId", tableId);
+        joined.put("seq", channel.seq);
+        send(decorated, joined);
+        log.info("协同编辑连接加入 - 表格ID: {}, 会话: {}, 连接数: {}", tableId, session.getId(), channel.sessions.size());
+        return decorated;
+    }
+
+    /**
+     * 把连接加入已有的频道
+     * @return 频道；表格没有频道（或频道正在关闭）时返回null
+     */
+    private TableChannel addToChannel(Long tableId, String sessionId, WebSocketSession decorated) {
+        return channels.computeIfPresent(tableId, (id, existing) -> {
+            existing.sessions.put(sessionId, decorated);
+            return existing;
+        });
+    }
+
+    /**
+     * 连接离开表格频道，最后一个连接离开时关闭频道，并在后台应用其剩余的全部操作
+     */
+    public void leave(Long tableId, WebSocketSession session) {
+        TableChannel[] closed = new TableChannel[1];
+        channels.computeIfPresent(tableId, (id, channel) -> {
+            channel.sessions.remove(session.getId());
+            if (channel.sessions.isEmpty()) {
+                // 在移出频道映射之前登记，之后为该表格新建的频道一定能看到它
+                channel.flushLock.closing.add(channel);
+                closed[0] = channel;
+                return null;
+            }
+            return channel;
+        });
+        if (closed[0] != null) {
+            closed[0].flushTask.cancel(false);
+            scheduler.execute(() -> close(closed[0]));
+            log.info("协同编辑频道关闭 - 表格ID: {}", tableId);
+        }
+    }
+
+    /**
+     * 提交一批单元格操作，在下一个批次中应用
+     */
+    public void submit(Long tableId, WebSocketSession session, List<CellOperationMessage> operations) {
+        TableChannel channel = channels.get(tableId);
+        WebSocketSession target = channel != null ? channel.sessions.get(session.getId()) : null;
+        if (target == null) {
+            sendError(session, "Not joined to table " + tableId + ", reconnect and retry");
+            return;
+        }
+        if (channel.queued.addAndGet(operations.size()) > maxQueuedOperations) {
+            channel.queued.addAndGet(-operations.size());
+            sendError(target, "Too many pending operations, retry later");
+            return;
+        }
+        for (CellOperationMessage operation : operations) {
+            channel.queue.add(new PendingOperation(session.getId(), operation));
+        }
+    }
+
+    /**
+     * 向会话发送错误消息
+     */
+    public void sendError(WebSocketSession session, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("type", "error");
+        error.put("message", message);
+        send(session, error);
+    }
+
+    /**
+     * 应用频道队列中的一个批次
+     *
+     * <p>同一表格的批次按表格加锁依次应用（频道关闭时的最后一次刷新可能与定时刷新、新频道的刷新重叠），
+     * 并先应用已关闭频道剩余的操作，表格的写入因此严格按到达顺序进行。</p>
+     */
+    private void flush(TableChannel channel) {
+        synchronized (channel.flushLock) {
+            try {
+                flushClosing(channel.flushLock);
+                List<PendingOperation> batch = drain(channel);
+                if (!batch.isEmpty()) {
+                    applyBatch(channel, batch);
+                }
+            } catch (RuntimeException e) {
+                // 异常不能抛出，否则固定延迟任务会停止调度
+                log.error("协同编辑批次应用失败 - 表格ID: {}, 错误: {}", channel.tableId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 频道关闭后的最后一次刷新，完成后释放表格的刷新锁，表格没有新频道时释放归属
+     */
+    private void close(TableChannel channel) {
+        try {
+            synchronized (channel.flushLock) {
+                flushClosing(channel.flushLock);
+            }
+        } catch (RuntimeException e) {
+            log.error("协同编辑频道关闭时应用操作失败 - 表格ID: {}, 错误: {}", channel.tableId, e.getMessage(), e);
+        } finally {
+            releaseFlushLock(channel.tableId);
+            if (!channels.containsKey(channel.tableId)) {
+                // 之后为该表格新建的频道在续期时重新声明归属
+                ownership.release(channel.tableId);
+            }
+        }
+    }
+
+    /**
+     * 续期本节点全部频道的归属；已被其他节点接管的表格断开本节点的连接
+     */
+    private void renewOwnership() {
+        for (TableChannel channel : channels.values()) {
+            if (!ownership.claim(channel.tableId)) {
+                log.warn("协同编辑表格已由其他节点接管，断开本节点的连接 - 表格ID: {}, 连接数: {}",
+                        channel.tableId, channel.sessions.size());
+                for (WebSocketSession session : channel.sessions.values()) {
+                    disconnect(session, OWNED_ELSEWHERE);
+                }
+            }
+        }
+    }
+
+    /**
+     * 按关闭顺序应用已关闭频道中剩余的全部操作（调用方持有刷新锁）
+     */
+    private void flushClosing(TableFlushLock flushLock) {
+        TableChannel closed;
+        while ((closed = flushLock.closing.poll()) != null) {
+            List<PendingOperation> batch;
+            while (!(batch = drain(closed)).isEmpty()) {
+                applyBatch(closed, batch);
+            }
+        }
+    }
+
+    private TableFlushLock acquireFlushLock(Long tableId) {
+        return flushLocks.compute(tableId, (id, existing) -> {
+            TableFlushLock flushLock = existing != null ? existing : new TableFlushLock();
+            flushLock.channels++;
+            return flushLock;
+        });
+    }
+
+    private void releaseFlushLock(Long tableId) {
+        flushLocks.computeIfPresent(tableId, (id, flushLock) -> --flushLock.channels == 0 ? null : flushLock);
+    }
+
+    private List<PendingOperation> drain(TableChannel channel) {
+        List<PendingOperation> batch = new ArrayList<>();
+        PendingOperation operation;
+        while (batch.size() < maxBatchSize && (operation = channel.queue.poll()) != null) {
+            batch.add(operation);
+        }
+        channel.queued.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private void applyBatch(TableChannel channel, List<PendingOperation> batch) {
+        long startTime = System.currentTimeMillis();
+        channel.columnsReloaded = false;
+        // 单元格位置 -> 该位置最后一次写入，保持首次出现的顺序
+        Map<Long, CellUpdateRequest> updates = new LinkedHashMap<>();
+        Map<String, Long> clientSeqs = new HashMap<>();
+        Map<String, List<String>> rejected = new HashMap<>();
+        // 单元格 -> 最后写入它的会话，服务端拒绝的单元格据此回复给对应的会话
+        Map<String, String> writers = new HashMap<>();
+
+        for (PendingOperation pending : batch) {
+            CellOperationMessage operation = pending.operation;
+            if (operation.getSeq() != null) {
+                clientSeqs.merge(pending.sessionId, operation.getSeq(), Math::max);
+            }
+            CellUpdateRequest update = toUpdate(channel, operation);
+            if (update == null) {
+                rejected.computeIfAbsent(pending.sessionId, id -> new ArrayList<>()).add(operation.getCell());
+                continue;
+            }
+            updates.put(CellReference.position(CellReference.parse(update.getCellKey())), update);
+            writers.put(update.getCellKey(), pending.sessionId);
+        }
+
+        Map<String, String> formulaResults = Map.of();
+        Map<String, String> cells = new LinkedHashMap<>();
+        if (!updates.isEmpty()) {
+            try {
+                Map<String, Object> result = smartTableService.applyCellUpdates(channel.tableId, new ArrayList<>(updates.values()));
+                @SuppressWarnings("unchecked")
+                Map<String, String> results = (Map<String, String>) result.get("formulaResults");
+                formulaResults = results;
+                @SuppressWarnings("unchecked")
+                Set<String> rejectedCells = new HashSet<>((List<String>) result.get("rejectedCells"));
+                for (CellUpdateRequest update : updates.values()) {
+                    if (rejectedCells.contains(update.getCellKey())) {
+                        rejected.computeIfAbsent(writers.get(update.getCellKey()), id -> new ArrayList<>())
+                                .add(update.getCellKey());
+                    } else {
+                        cells.put(update.getCellKey(), update.getCellValue());
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("协同编辑批次写入失败 - 表格ID: {}, 操作数: {}, 错误: {}",
+                        channel.tableId, batch.size(), e.getMessage(), e);
+                // 表格的列可能已被替换（如复制覆盖），下个批次重新加载
+                channel.columnIds.clear();
+                for (String sessionId : clientSeqs.keySet()) {
+                    WebSocketSession session = channel.sessions.get(sessionId);
+                    if (session != null) {
+                        sendError(session, "Batch rejected: " + e.getMessage());
+                    }
+                }
+                return;
+            }
+        }
+
+        long seq = ++channel.seq;
+        if (!cells.isEmpty() || !formulaResults.isEmpty()) {
+            Map<String, Object> diff = new LinkedHashMap<>();
+            diff.put("type", "diff");
+            diff.put("seq", seq);
+            diff.put("cells", cells);
+            diff.put("formulas", formulaResults);
+            broadcast(channel, diff);
+        }
+        for (Map.Entry<String, Long> entry : clientSeqs.entrySet()) {
+            WebSocketSession session = channel.sessions.get(entry.getKey());
+            if (session != null) {
+                Map<String, Object> ack = new LinkedHashMap<>();
+                ack.put("type", "ack");
+                ack.put("seq", seq);
+                ack.put("clientSeq", entry.getValue());
+                ack.put("rejected", rejected.getOrDefault(entry.getKey(), List.of()));
+                send(session, ack);
+            }
+        }
+
+        log.debug("协同编辑批次已应用 - 表格ID: {}, 序号: {}, 操作: {}, 写入单元格: {}, 重算公式: {}, 耗时: {}ms",
+                channel.tableId, seq, batch.size(), cells.size(), formulaResults.size(),
+                System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 把操作转换为单元格更新：列ID按列位置从表格的列中查找；行ID留空，
+     * 由{@link SmartTableService#applyCellUpdates}在解除写时复制后按行位置查找，行不存在时拒绝
+     * @return 单元格更新；操作无效或列不存在时返回null
+     */
+    private CellUpdateRequest toUpdate(TableChannel channel, CellOperationMessage operation) {
+        String op = operation.getOp() != null ? operation.getOp() : OP_SET;
+        if (!OP_SET.equals(op) && !OP_CLEAR.equals(op)) {
+            return null;
+        }
+        long packed = parseCell(operation);
+        if (packed == CellReference.INVALID) {
+            return null;
+        }
+        int row = CellReference.row(packed);
+        int column = CellReference.column(packed);
+        Long columnId = channel.columnId(column);
+        if (columnId == null) {
+            return null;
+        }
+        CellUpdateRequest update = new CellUpdateRequest();
+        update.setTableId(channel.tableId);
+        update.setColumnId(columnId);
+        update.setCellKey(CellReference.toString(row, column));
+        update.setCellValue(OP_CLEAR.equals(op) ? null : operation.getValue());
+        return update;
+    }
+
+    private static long parseCell(CellOperationMessage operation) {
+        return operation.getCell() != null ? CellReference.parse(operation.getCell().trim()) : CellReference.INVALID;
+    }
+
+    private void broadcast(TableChannel channel, Map<String, Object> message) {
+        TextMessage text = toText(message);
+        if (text == null) {
+            return;
+        }
+        for (WebSocketSession session : channel.sessions.values()) {
+            send(session, text);
+        }
+    }
+
+    private void send(WebSocketSession session, Map<String, Object> message) {
+        TextMessage text = toText(message);
+        if (text != null) {
+            send(session, text);
+        }
+    }
+
+    private void send(WebSocketSession session, TextMessage text) {
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            session.sendMessage(text);
+        } catch (IOException | RuntimeException e) {
+            // 发送超时或缓冲区超限（客户端过慢）时断开该连接，不影响频道内的其他连接
+            log.warn("协同编辑消息发送失败，关闭连接 - 会话: {}, 错误: {}", session.getId(), e.getMessage());
+            disconnect(session, CloseStatus.SESSION_NOT_RELIABLE);
+        }
+    }
+
+    private static void disconnect(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException ignored) {
+            // 连接已不可用
+        }
+    }
+
+    private static TextMessage toText(Map<String, Object> message) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(message));
+        } catch (IOException e) {
+            log.error("协同编辑消息序列化失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * 表格的刷新锁，引用计数由flushLocks的compute保护
+     */
+    private static final class TableFlushLock {
+        /** 共用该锁、尚未完成最后一次刷新的频道数 */
+        private int channels;
+        /** 已关闭、剩余操作尚未应用的频道，按关闭顺序排列 */
+        private final Queue<TableChannel> closing = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * 表格频道：连接、待应用的操作队列和批次序号
+     */
+    private final class TableChannel {
+        private final Long tableId;
+        /** 原始会话ID -> 可并发发送的会话 */
+        private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+        private final Queue<PendingOperation> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        /** 列位置 -> 列ID，首次使用时加载，遇到未知列时重新加载（每个批次最多一次） */
+        private final Map<Integer, Long> columnIds = new HashMap<>();
+        /** 当前批次是否已重新加载过列，只在持有刷新锁的刷新中访问 */
+        private boolean columnsReloaded;
+        private final TableFlushLock flushLock;
+        private final ScheduledFuture<?> flushTask;
+        /** 批次序号，只在持有刷新锁的刷新中递增 */
+        private volatile long seq;
+
+        private TableChannel(Long tableId) {
+            this.tableId = tableId;
+            this.flushLock = acquireFlushLock(tableId);
+            this.flushTask = scheduler.scheduleWithFixedDelay(() -> flush(this),
+                    batchIntervalMillis, batchIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private Long columnId(int column) {
+            Long columnId = columnIds.get(column);
+            if (columnId == null && !columnsReloaded) {
+                columnsReloaded = true;
+                loadColumns();
+                columnId = columnIds.get(column);
+            }
+            return columnId;
+        }
+
+        /**
+         * 丢弃并发创建时未放入频道映射的频道
+         */
+        private void discard() {
+            flushTask.cancel(false);
+            releaseFlushLock(tableId);
+        }
+
+        private void loadColumns() {
+            columnIds.clear();
+            for (TableColumn column : tableColumnService.getColumnsByTableId(tableId)) {
+                if (column.getColumnIndex() != null) {
+                    columnIds.putIfAbsent(column.getColumnIndex(), column.getId());
+                }
+            }
+        }
+    }
+
+    private static final class PendingOperation {
+        private final String sessionId;
+        private final CellOperationMessage operation;
+
+        private PendingOperation(String sessionId, CellOperationMessage operation) {
+            this.sessionId = sessionId;
+            this.operation = operation;
+        }
+    }
+}
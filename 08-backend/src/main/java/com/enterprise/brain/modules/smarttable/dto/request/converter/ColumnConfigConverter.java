@@ -2,6 +2,7 @@ package com.enterprise.brain.modules.smarttable.dto.request.converter;
 
 import com.enterprise.brain.modules.smarttable.dto.request.ColumnConfigRequest;
 import com.enterprise.brain.modules.smarttable.entity.TableColumn;
+import com.enterprise.brain.modules.smart-table.util.FormulaCompilationCache;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -185,6 +186,9 @@ public class ColumnConfigConverter {
     /**
      * 清理和验证公式表达式
      * 
+     * <p>能被公式编译器编译的表达式只包含数字、单元格引用、运算符和受支持的函数，本身就是安全的，
+     * 直接通过（编译结果按表达式缓存）；其余表达式再做安全模式检查。</p>
+     * 
      * @param formula 原始公式表达式
      * @return 清理后的公式表达式
      */
@@ -200,8 +204,8 @@ public class ColumnConfigConverter {
             sanitized = "=" + sanitized;
         }
         
-        // 验证公式安全性
-        if (!ColumnConfigUtils.isFormulaExpressionSafe(sanitized)) {
+        // 验证公式安全性（可编译的公式无需逐个模式匹配）
+        if (!FormulaCompilationCache.isValid(sanitized) && !ColumnConfigUtils.isFormulaExpressionSafe(sanitized)) {
             log.warn("检测到不安全的公式表达式: {}", formula);
             throw new IllegalArgumentException("不安全的公式表达式");
         }
@@ -4,21 +4,34 @@
  */
 package com.enterprise.brain.modules.workflow.engine;
 
+import com.enterprise.brain.common.async.ExecutorMeters;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.core.task.TaskDecorator;
+
 import java.util.*;
 import java.util.concurrent.*;
 
 /**
  * 任务分发器，管理任务的执行和线程池
+ *
+ * <p>线程池以workflowTaskDispatcher为name标签向全局指标注册表发布排队数、活跃数、
+ * 排队/执行耗时和拒绝次数等指标（见{@link ExecutorMeters}）。</p>
  */
 public class TaskDispatcher {
     private static final TaskDispatcher INSTANCE = new TaskDispatcher();
     
+    // 线程池指标名称
+    private static final String EXECUTOR_NAME = "workflowTaskDispatcher";
+    
     // 任务执行器注册表
     private final Map<String, TaskExecutor> taskExecutors = new HashMap<>();
     
     // 线程池用于异步执行任务
     private final ExecutorService executorService;
     
+    // 记录任务排队和执行耗时
+    private final TaskDecorator taskTimer;
+    
     // 任务执行回调注册表
     private final Map<String, TaskCallback> taskCallbacks = new ConcurrentHashMap<>();
 
@@ -33,8 +46,11 @@ public class TaskDispatcher {
             keepAliveTime,
             TimeUnit.SECONDS,
             new LinkedBlockingQueue<>(1000),
-            new ThreadPoolExecutor.CallerRunsPolicy()
+            ExecutorMeters.countingRejections(Metrics.globalRegistry, EXECUTOR_NAME,
+                new ThreadPoolExecutor.CallerRunsPolicy())
         );
+        taskTimer = ExecutorMeters.timing(Metrics.globalRegistry, EXECUTOR_NAME);
+        ExecutorMeters.monitor(Metrics.globalRegistry, (ThreadPoolExecutor) executorService, EXECUTOR_NAME);
     }
 
     /**
@@ -87,7 +103,7 @@ public class TaskDispatcher {
         String executionId = UUID.randomUUID().toString();
         
         // 异步执行任务
-        executorService.submit(() -> {
+        executorService.submit(taskTimer.decorate(() -> {
             try {
                 // 执行任务
                 Map<String, Object> outputs = executor.execute(task, inputs);
@@ -105,7 +121,7 @@ public class TaskDispatcher {
                 // 触发失败回调
                 notifyTaskFailed(executionId, task, e);
             }
-        });
+        }));
     }
 
     /**
@@ -0,0 +1,124 @@
+package com.enterprise.brain.common.async;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 线程池指标测试：排队和执行耗时、拒绝次数和CallerRunsPolicy的触发次数、排队数等线程池状态
+ */
+class ExecutorMetersTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadPoolExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 一个线程、队列容量为1的线程池，线程和队列都被占满后再提交的任务会被拒绝
+     */
+    private ThreadPoolExecutor saturatedPool(RejectedExecutionHandler policy) throws InterruptedException {
+        executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1),
+                ExecutorMeters.countingRejections(registry, "testExecutor", policy));
+        ExecutorMeters.monitor(registry, executor, "testExecutor");
+        Runnable blocked = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.execute(blocked);
+        executor.execute(blocked);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getActiveCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return executor;
+    }
+
+    private double counter(String name) {
+        return registry.get(name).tag("name", "testExecutor").counter().count();
+    }
+
+    @Test
+    void queueAndExecutionTimesAreRecorded() throws InterruptedException {
+        TaskDecorator timing = ExecutorMeters.timing(registry, "testExecutor");
+        Runnable decorated = timing.decorate(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread.sleep(30);
+
+        decorated.run();
+
+        assertThat(registry.get("executor.idle").tag("name", "testExecutor").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(30);
+        assertThat(registry.get("executor").tag("name", "testExecutor").timer()
+                .totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void executionTimeIsRecordedWhenTheTaskFails() {
+        Runnable decorated = ExecutorMeters.timing(registry, "testExecutor").decorate(() -> {
+            throw new IllegalStateException("failed");
+        });
+
+        assertThatThrownBy(decorated::run).isInstanceOf(IllegalStateException.class);
+
+        assertThat(registry.get("executor").tag("name", "testExecutor").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void callerRunsAreCountedSeparatelyFromRejections() throws InterruptedException {
+        saturatedPool(new ThreadPoolExecutor.CallerRunsPolicy());
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+        assertThat(ranOn.get()).isSameAs(Thread.currentThread());
+        assertThat(counter("executor.rejected")).isEqualTo(1);
+        assertThat(counter("executor.caller.runs")).isEqualTo(1);
+    }
+
+    @Test
+    void abortedTasksAreCountedAndStillRejected() throws InterruptedException {
+        saturatedPool(new ThreadPoolExecutor.AbortPolicy());
+
+        assertThatThrownBy(() -> executor.execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+
+        assertThat(counter("executor.rejected")).isEqualTo(1);
+        assertThat(counter("executor.caller.runs")).isZero();
+    }
+
+    @Test
+    void poolStateIsPublished() throws InterruptedException {
+        saturatedPool(new ThreadPoolExecutor.AbortPolicy());
+
+        assertThat(registry.get("executor.queued").tag("name", "testExecutor").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("executor.active").tag("name", "testExecutor").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("executor.pool.max").tag("name", "testExecutor").gauge().value()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,163 @@
+package com.enterprise.brain.common.async;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 虚拟线程执行器测试：并发数和等待任务数的上限、关闭后拒绝任务，以及运行环境不支持时退回平台线程池
+ *
+ * <p>依赖虚拟线程的用例只在Java 21及以上运行。</p>
+ */
+class VirtualThreadTaskExecutorTest {
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    @Test
+    void concurrencyIsLimitedWithoutBlockingTheSubmitter() throws Exception {
+        assumeTrue(VirtualThreadTaskExecutor.isSupported());
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("test-", 2, 10, 5);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            futures.add(executor.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }));
+        }
+        awaitUntil(() -> executor.getActiveCount() == 2 && executor.getQueuedCount() == 4);
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(maxRunning).hasValue(2);
+        assertThat(executor.getCompletedCount()).isEqualTo(6);
+        assertThat(executor.getInFlightCount()).isZero();
+        executor.destroy();
+    }
+
+    @Test
+    void tasksBeyondThePendingLimitAreRejected() throws Exception {
+        assumeTrue(VirtualThreadTaskExecutor.isSupported());
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("test-", 1, 2, 5);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            executor.execute(blocked);
+        }
+
+        assertThatThrownBy(() -> executor.execute(blocked)).isInstanceOf(TaskRejectedException.class);
+        assertThat(executor.getRejectedCount()).isEqualTo(1);
+        assertThat(executor.getInFlightCount()).isEqualTo(3);
+
+        release.countDown();
+        executor.destroy();
+        assertThat(executor.getCompletedCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shutdownWaitsForRunningTasksAndRejectsNewOnes() throws Exception {
+        assumeTrue(VirtualThreadTaskExecutor.isSupported());
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("test-", 4, 4, 5);
+        AtomicInteger done = new AtomicInteger();
+        executor.execute(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.incrementAndGet();
+        });
+
+        executor.destroy();
+
+        assertThat(done).hasValue(1);
+        assertThatThrownBy(() -> executor.execute(done::incrementAndGet)).isInstanceOf(TaskRejectedException.class);
+        assertThat(executor.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void tasksAreDecoratedAtSubmission() throws Exception {
+        assumeTrue(VirtualThreadTaskExecutor.isSupported());
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("test-", 1, 1, 5);
+        List<String> events = new ArrayList<>();
+        executor.setTaskDecorator(task -> {
+            events.add("decorated");
+            return () -> {
+                events.add("before");
+                task.run();
+            };
+        });
+
+        executor.submit(() -> events.add("run")).get(5, TimeUnit.SECONDS);
+
+        assertThat(events).containsExactly("decorated", "before", "run");
+        executor.destroy();
+    }
+
+    @Test
+    void creatingTheExecutorFailsWithoutVirtualThreads() {
+        assumeFalse(VirtualThreadTaskExecutor.isSupported());
+
+        assertThatThrownBy(() -> new VirtualThreadTaskExecutor("test-", 1, 1, 5))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Java 21");
+    }
+
+    @Test
+    void virtualModeFallsBackToAPlatformPoolWhenUnsupported() throws Exception {
+        MessageQueueConfig config = new MessageQueueConfig();
+        ReflectionTestUtils.setField(config, "emailExecutorMode", "virtual");
+        ReflectionTestUtils.setField(config, "emailExecutorMaxConcurrency", 5);
+        ReflectionTestUtils.setField(config, "emailExecutorMaxPending", 10);
+
+        Executor executor = config.emailExecutor(new SimpleMeterRegistry());
+
+        if (VirtualThreadTaskExecutor.isSupported()) {
+            assertThat(executor).isInstanceOf(VirtualThreadTaskExecutor.class);
+            assertThat(((VirtualThreadTaskExecutor) executor).getMaxConcurrency()).isEqualTo(5);
+            assertThat(((VirtualThreadTaskExecutor) executor).getMaxPending()).isEqualTo(10);
+            ((VirtualThreadTaskExecutor) executor).destroy();
+        } else {
+            assertThat(executor).isInstanceOf(ThreadPoolTaskExecutor.class);
+            ((ThreadPoolTaskExecutor) executor).shutdown();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.enterprise.brain.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 缓存清理测试：本地缓存的过期条目由时间轮按条目清理，不依赖定时扫描或读取；手动按前缀清理本地缓存和Redis
+ */
+class CacheEvictSchedulerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LocalCacheService localCacheService = new LocalCacheService(100, registry);
+    private final RedisCacheService redisCacheService = mock(RedisCacheService.class);
+    private final CacheEvictScheduler scheduler = new CacheEvictScheduler();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "localCacheService", localCacheService);
+        ReflectionTestUtils.setField(scheduler, "redisCacheService", redisCacheService);
+        ReflectionTestUtils.setField(scheduler, "redisEnabled", true);
+        ReflectionTestUtils.setField(scheduler, "statisticsEnabled", false);
+    }
+
+    private double expiredEntries() {
+        return registry.get("cache.evictions.by.cause")
+                .tag(CacheMeters.TAG_TIER, CacheMeters.TIER_LOCAL)
+                .tag("cause", "expired")
+                .counter()
+                .count();
+    }
+
+    @Test
+    void expiredEntriesAreRemovedWithoutASweepOrARead() throws InterruptedException {
+        localCacheService.set("a", "1", 50, TimeUnit.MILLISECONDS);
+        localCacheService.set("b", "2", 50, TimeUnit.MILLISECONDS);
+        localCacheService.set("c", "3", 1, TimeUnit.HOURS);
+
+        // 不读取也不调用cleanupLocalCache，由调度线程在条目到期后清理
+        long deadline = System.currentTimeMillis() + 5000;
+        while (expiredEntries() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(expiredEntries()).isEqualTo(2);
+        assertThat(localCacheService.<String>get("c")).isEqualTo("3");
+    }
+
+    @Test
+    void manualCleanupIsCounted() {
+        scheduler.cleanupLocalCache();
+        scheduler.cleanupLocalCache();
+
+        assertThat(scheduler.getCleanupStatistics())
+                .containsEntry("totalCleanupCount", 2L)
+                .containsEntry("localCacheSize", 0);
+        assertThat((Long) scheduler.getCleanupStatistics().get("lastCleanupTime")).isPositive();
+    }
+
+    @Test
+    void prefixEvictionClearsLocalAndRedisEntries() {
+        localCacheService.set("user:1", "a");
+        localCacheService.set("user:2", "b");
+        localCacheService.set("temp:1", "c");
+        when(redisCacheService.clearByPrefix("user:")).thenReturn(5L);
+
+        assertThat(scheduler.evictCacheByPrefix("user:")).isEqualTo(7);
+
+        assertThat(localCacheService.containsKey("user:1")).isFalse();
+        assertThat(localCacheService.containsKey("temp:1")).isTrue();
+    }
+
+    @Test
+    void redisIsNotTouchedWhenDisabled() {
+        ReflectionTestUtils.setField(scheduler, "redisEnabled", false);
+        localCacheService.set("user:1", "a");
+
+        assertThat(scheduler.evictCacheByPrefix("user:")).isEqualTo(1);
+
+        verify(redisCacheService, never()).clearByPrefix(anyString());
+    }
+
+    @Test
+    void redisFailuresDoNotFailPrefixEviction() {
+        when(redisCacheService.clearByPrefix("user:")).thenThrow(new RuntimeException("Redis clear by prefix error"));
+
+        assertThat(scheduler.evictRedisCacheByPrefix("user:")).isZero();
+    }
+}
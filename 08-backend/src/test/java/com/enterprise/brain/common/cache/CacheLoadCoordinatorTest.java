@@ -0,0 +1,207 @@
+package com.enterprise.brain.common.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 两级缓存加载协调测试：节点内单飞、跨节点租约、提前刷新，以及加载期间键被删除时丢弃加载结果
+ */
+class CacheLoadCoordinatorTest {
+
+    private static final String LEASE_KEY = "cache:lease:reports:1";
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+    private final ConcurrentMapCache remote = new ConcurrentMapCache("reports");
+    private TwoLevelCacheManager manager;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (manager != null) {
+            manager.destroy();
+        }
+    }
+
+    /**
+     * @param remoteTtl L2条目的存活时间，大于0时记录加载耗时用于提前刷新
+     */
+    private TwoLevelCache cache(double refreshBeta, Duration remoteTtl) {
+        manager = new TwoLevelCacheManager(new ConcurrentMapCacheManager(), redisTemplate, "cache:", "cache:invalidate",
+                100, Duration.ofMinutes(1), Duration.ofMillis(300), refreshBeta, 1, new SimpleMeterRegistry());
+        com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> local = Caffeine.newBuilder()
+                .maximumSize(100)
+                .build();
+        return new TwoLevelCache("reports", local, remote, remoteTtl, manager);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verifyLeaseReleased() {
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(LEASE_KEY)), anyString());
+    }
+
+    @Test
+    void concurrentMissesOnOneNodeLoadOnce() throws Exception {
+        TwoLevelCache cache = cache(0, Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> cache.get("1", () -> {
+                    loads.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "v1";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("v1");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(loads).hasValue(1);
+        assertThat(remote.get("1", String.class)).isEqualTo("v1");
+        verify(valueOperations).setIfAbsent(eq(LEASE_KEY), anyString(), eq(Duration.ofMillis(300)));
+        verifyLeaseReleased();
+    }
+
+    @Test
+    void nodesWithoutTheLeaseWaitForTheResultInL2() throws Exception {
+        TwoLevelCache cache = cache(0, Duration.ZERO);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        AtomicInteger loads = new AtomicInteger();
+        Thread holder = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            remote.put("1", "loaded elsewhere");
+        });
+        holder.start();
+
+        String value = cache.get("1", () -> {
+            loads.incrementAndGet();
+            return "local";
+        });
+        holder.join();
+
+        assertThat(value).isEqualTo("loaded elsewhere");
+        assertThat(loads).hasValue(0);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    @Test
+    void nodesLoadThemselvesWhenTheLeaseHolderDoesNotFinish() {
+        TwoLevelCache cache = cache(0, Duration.ZERO);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+
+        long start = System.nanoTime();
+        assertThat(cache.get("1", () -> "local")).isEqualTo("local");
+
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(300));
+        assertThat(remote.get("1", String.class)).isEqualTo("local");
+    }
+
+    @Test
+    void loadsProceedWhenRedisIsUnavailable() {
+        TwoLevelCache cache = cache(0, Duration.ZERO);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        assertThat(cache.get("1", () -> "v1")).isEqualTo("v1");
+
+        assertThat(remote.get("1", String.class)).isEqualTo("v1");
+    }
+
+    @Test
+    void resultsLoadedWhileTheKeyIsEvictedAreNotCached() {
+        TwoLevelCache cache = cache(0, Duration.ZERO);
+
+        String value = cache.get("1", () -> {
+            // 加载期间另一个请求删除了这个键
+            cache.evict("1");
+            return "stale";
+        });
+
+        assertThat(value).isEqualTo("stale");
+        assertThat(remote.get("1")).isNull();
+        assertThat(cache.get("1")).isNull();
+    }
+
+    @Test
+    void hotKeysAreRefreshedAheadOfExpiryWhileServingTheOldValue() throws InterruptedException {
+        // 系数足够大时每次命中都会触发提前刷新
+        TwoLevelCache cache = cache(1e12, Duration.ofMinutes(1));
+        AtomicInteger version = new AtomicInteger();
+        CountDownLatch refreshed = new CountDownLatch(1);
+
+        assertThat(cache.get("1", () -> "v" + version.incrementAndGet())).isEqualTo("v1");
+        String served = cache.get("1", () -> {
+            String value = "v" + version.incrementAndGet();
+            refreshed.countDown();
+            return value;
+        });
+
+        assertThat(served).isEqualTo("v1");
+        assertThat(refreshed.await(5, TimeUnit.SECONDS)).isTrue();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"v2".equals(cache.get("1", String.class)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cache.get("1", String.class)).isEqualTo("v2");
+        assertThat(remote.get("1", String.class)).isEqualTo("v2");
+    }
+
+    @Test
+    void keysAreNotRefreshedAheadWithoutAnL2Expiry() throws InterruptedException {
+        TwoLevelCache cache = cache(1e12, Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("1", () -> "v" + loads.incrementAndGet());
+        cache.get("1", () -> "v" + loads.incrementAndGet());
+        Thread.sleep(100);
+
+        assertThat(loads).hasValue(1);
+    }
+}
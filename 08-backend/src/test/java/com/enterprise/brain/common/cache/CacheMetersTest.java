@@ -0,0 +1,85 @@
+package com.enterprise.brain.common.cache;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 缓存指标测试：按缓存名和层级区分的淘汰次数、加载耗时和命中统计
+ */
+class CacheMetersTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private double evictions(String cacheName, String tier, String cause) {
+        return registry.get("cache.evictions.by.cause")
+                .tag(CacheMeters.TAG_CACHE, cacheName)
+                .tag(CacheMeters.TAG_TIER, tier)
+                .tag("cause", cause)
+                .counter()
+                .count();
+    }
+
+    @Test
+    void evictionsAreCountedByCause() {
+        RemovalListener<String, String> listener = CacheMeters.evictionCounter(registry, "reports", CacheMeters.TIER_L1);
+
+        listener.onRemoval("a", "1", RemovalCause.SIZE);
+        listener.onRemoval("b", "2", RemovalCause.SIZE);
+        listener.onRemoval("c", "3", RemovalCause.EXPIRED);
+        // 显式删除和替换不是淘汰
+        listener.onRemoval("d", "4", RemovalCause.EXPLICIT);
+        listener.onRemoval("e", "5", RemovalCause.REPLACED);
+
+        assertThat(evictions("reports", CacheMeters.TIER_L1, "size")).isEqualTo(2);
+        assertThat(evictions("reports", CacheMeters.TIER_L1, "expired")).isEqualTo(1);
+        assertThat(evictions("reports", CacheMeters.TIER_L1, "collected")).isZero();
+        assertThat(registry.find("cache.evictions.by.cause").tag("cause", "explicit").counter()).isNull();
+    }
+
+    @Test
+    void loadTimersAreSharedPerCacheAndTier() {
+        Timer timer = CacheMeters.loadTimer(registry, "reports", CacheMeters.TIER_L2);
+        timer.record(5, TimeUnit.MILLISECONDS);
+
+        assertThat(CacheMeters.loadTimer(registry, "reports", CacheMeters.TIER_L2)).isSameAs(timer);
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(CacheMeters.loadTimer(registry, "users", CacheMeters.TIER_L2)).isNotSameAs(timer);
+    }
+
+    @Test
+    void twoLevelCachesReportL1HitsMissesAndLoadTime() {
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(new ConcurrentMapCacheManager(),
+                mock(StringRedisTemplate.class), "cache:", "cache:invalidate", 100, Duration.ofMinutes(1),
+                Duration.ofSeconds(1), 0, 1, registry);
+        try {
+            Cache cache = manager.getCache("reports");
+            cache.put("1", "v1");
+            cache.get("1");
+            cache.get("2");
+            cache.get("3", () -> "v3");
+
+            assertThat(registry.get("cache.gets").tag(CacheMeters.TAG_CACHE, "reports")
+                    .tag(CacheMeters.TAG_TIER, CacheMeters.TIER_L1).tag("result", "hit")
+                    .functionCounter().count()).isEqualTo(1);
+            assertThat(registry.get("cache.gets").tag(CacheMeters.TAG_CACHE, "reports")
+                    .tag(CacheMeters.TAG_TIER, CacheMeters.TIER_L1).tag("result", "miss")
+                    .functionCounter().count()).isGreaterThanOrEqualTo(2);
+            assertThat(registry.get("cache.load.latency").tag(CacheMeters.TAG_CACHE, "reports")
+                    .tag(CacheMeters.TAG_TIER, CacheMeters.TIER_L2).timer().count()).isEqualTo(1);
+        } finally {
+            manager.destroy();
+        }
+    }
+}
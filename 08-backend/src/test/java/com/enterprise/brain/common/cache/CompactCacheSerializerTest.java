@@ -0,0 +1,135 @@
+package com.enterprise.brain.common.cache;
+
+import com.enterprise.brain.modules.smart-table.entity.SmartTable;
+import com.enterprise.brain.modules.smart-table.entity.TableColumn;
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 紧凑缓存序列化器测试：往返编码、压缩和格式头校验
+ */
+class CompactCacheSerializerTest {
+
+    private final CompactCacheSerializer serializer = new CompactCacheSerializer(256);
+
+    /**
+     * 与公式缓存中相同的实体：关联的表格和列不进入缓存值
+     */
+    private static TableFormula formula(long id) {
+        TableFormula formula = TableFormula.builder()
+                .id(id)
+                .tableId(1L)
+                .columnId(10L + id)
+                .formulaName("合计" + id)
+                .formulaExpression("=SUM(A1:A10)*B" + id)
+                .dependentCells("A1,B" + id)
+                .createTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15))
+                .build();
+        SmartTable table = new SmartTable();
+        table.setId(1L);
+        formula.setTable(table);
+        TableColumn column = new TableColumn();
+        column.setId(10L + id);
+        formula.setColumn(column);
+        return formula;
+    }
+
+    @Test
+    void objectsRoundTripWithTheirType() {
+        Object restored = serializer.deserialize(serializer.serialize(formula(7L)));
+
+        assertThat(restored).isInstanceOf(TableFormula.class);
+        assertThat(restored).usingRecursiveComparison().ignoringFields("table", "column").isEqualTo(formula(7L));
+    }
+
+    @Test
+    void lazyAssociationsOfCachedFormulasAreNotSerialized() {
+        TableFormula restored = (TableFormula) serializer.deserialize(serializer.serialize(formula(7L)));
+
+        assertThat(restored.getTable()).isNull();
+        assertThat(restored.getColumn()).isNull();
+        assertThat(restored.getTableId()).isEqualTo(1L);
+        assertThat(restored.getColumnId()).isEqualTo(17L);
+    }
+
+    @Test
+    void collectionsAndScalarsRoundTrip() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", 3);
+        map.put("name", "销售表");
+        map.put("cells", new ArrayList<>(Arrays.asList("A1", "B2")));
+
+        assertThat(serializer.deserialize(serializer.serialize(map))).isEqualTo(map);
+        assertThat(serializer.deserialize(serializer.serialize("text"))).isEqualTo("text");
+    }
+
+    @Test
+    void largeValuesAreCompressedAndRoundTrip() {
+        List<TableFormula> formulas = new ArrayList<>();
+        for (long id = 0; id < 200; id++) {
+            formulas.add(formula(id));
+        }
+
+        byte[] bytes = serializer.serialize(formulas);
+        byte[] uncompressed = new CompactCacheSerializer(Integer.MAX_VALUE).serialize(formulas);
+
+        assertThat(bytes[2] & 0x01).isEqualTo(1);
+        assertThat(uncompressed[2] & 0x01).isZero();
+        assertThat(bytes.length).isLessThan(uncompressed.length);
+        assertThat(serializer.deserialize(bytes)).usingRecursiveComparison().ignoringFields("table", "column")
+                .isEqualTo(formulas);
+    }
+
+    @Test
+    void nullAndCachedNullValuesAreDistinguished() {
+        assertThat(serializer.serialize(null)).isEmpty();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+        assertThat(serializer.deserialize(null)).isNull();
+        assertThat(serializer.deserialize(serializer.serialize(NullValue.INSTANCE))).isSameAs(NullValue.INSTANCE);
+    }
+
+    @Test
+    void headerCarriesTheFormatVersion() {
+        byte[] bytes = serializer.serialize("x");
+
+        assertThat(bytes[1]).isEqualTo(CompactCacheSerializer.FORMAT_VERSION);
+        assertThat(CompactCacheSerializer.keyPrefixSuffix()).isEqualTo("b" + CompactCacheSerializer.FORMAT_VERSION);
+    }
+
+    @Test
+    void foreignOrNewerValuesAreRejected() {
+        byte[] newer = serializer.serialize("x");
+        newer[1] = (byte) (CompactCacheSerializer.FORMAT_VERSION + 1);
+
+        assertThatThrownBy(() -> serializer.deserialize("{\"a\":1}".getBytes()))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("Not a compact cache value");
+        assertThatThrownBy(() -> serializer.deserialize(newer))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("Unsupported cache value format version");
+    }
+
+    @Test
+    void truncatedCompressedValuesAreRejected() {
+        List<TableFormula> formulas = new ArrayList<>();
+        for (long id = 0; id < 50; id++) {
+            formulas.add(formula(id));
+        }
+        byte[] bytes = serializer.serialize(formulas);
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length / 2);
+
+        assertThatThrownBy(() -> serializer.deserialize(truncated)).isInstanceOf(SerializationException.class);
+    }
+}
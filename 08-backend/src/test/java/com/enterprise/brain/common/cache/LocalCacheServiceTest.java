@@ -0,0 +1,124 @@
+package com.enterprise.brain.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 本地缓存测试：按条目过期、按键合并加载、数量上限和统计
+ */
+class LocalCacheServiceTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private LocalCacheService cache(long maximumSize) {
+        return new LocalCacheService(maximumSize, registry);
+    }
+
+    @Test
+    void entriesExpireIndividually() throws InterruptedException {
+        LocalCacheService cache = cache(100);
+        cache.set("short", "a", 50, TimeUnit.MILLISECONDS);
+        cache.set("long", "b", 1, TimeUnit.HOURS);
+        cache.set("forever", "c");
+
+        Thread.sleep(100);
+
+        assertThat(cache.<String>get("short")).isNull();
+        assertThat(cache.containsKey("short")).isFalse();
+        assertThat(cache.<String>get("long")).isEqualTo("b");
+        assertThat(cache.<String>get("forever")).isEqualTo("c");
+    }
+
+    @Test
+    void concurrentMissesOnOneKeyLoadOnce() throws Exception {
+        LocalCacheService cache = cache(100);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get("key", () -> {
+                        loads.incrementAndGet();
+                        sleep(50);
+                        return "value";
+                    }, 1, TimeUnit.MINUTES);
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void nullLoadsAreNotCached() {
+        LocalCacheService cache = cache(100);
+
+        assertThat(cache.<String>get("key", () -> null, 1, TimeUnit.MINUTES)).isNull();
+        assertThat(cache.<String>get("key", () -> "loaded", 1, TimeUnit.MINUTES)).isEqualTo("loaded");
+    }
+
+    @Test
+    void incrementsKeepTheRemainingExpiry() throws InterruptedException {
+        LocalCacheService cache = cache(100);
+        cache.set("counter", 5L, 80, TimeUnit.MILLISECONDS);
+
+        assertThat(cache.increment("counter", 2)).isEqualTo(7L);
+        assertThat(cache.increment("fresh")).isEqualTo(1L);
+        Thread.sleep(120);
+
+        assertThat(cache.<Long>get("counter")).isNull();
+        assertThat(cache.<Long>get("fresh")).isEqualTo(1L);
+    }
+
+    @Test
+    void theNumberOfEntriesIsBounded() {
+        LocalCacheService cache = cache(50);
+        for (int i = 0; i < 500; i++) {
+            cache.set("key" + i, i);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(50);
+        assertThat(cache.getStatistics()).containsEntry("maximumSize", 50L);
+        assertThat((Long) cache.getStatistics().get("evictionCount")).isPositive();
+    }
+
+    @Test
+    void prefixesAreClearedWithoutTouchingOtherKeys() {
+        LocalCacheService cache = cache(100);
+        cache.multiSet(Map.of("user:1", 1, "user:2", 2, "order:1", 3), 1, TimeUnit.MINUTES);
+
+        assertThat(cache.clearByPrefix("user:")).isEqualTo(2);
+
+        assertThat(cache.keys()).containsExactly("order:1");
+        assertThat(cache.<Integer>multiGet(List.of("user:1", "order:1"))).containsOnlyKeys("order:1");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.enterprise.brain.common.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Redis缓存服务测试：按前缀清理时用SCAN分批遍历、UNLINK分批删除，不使用KEYS；批量读写合并为一条命令或一个管道
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RedisCacheServiceTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+    @Mock
+    private ZSetOperations<String, Object> zSetOperations;
+    /** 管道回调中收到的操作对象 */
+    @Mock
+    private RedisOperations<String, Object> pipelineOperations;
+    @Mock
+    private ValueOperations<String, Object> pipelineValueOperations;
+    @Mock
+    private HashOperations<String, Object, Object> pipelineHashOperations;
+
+    @InjectMocks
+    private RedisCacheService service;
+
+    /** 每次UNLINK收到的键（批次列表会被复用，按调用时的内容复制） */
+    private final List<List<String>> unlinked = new ArrayList<>();
+    private Cursor<String> cursor;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "scanBatchSize", 2);
+        when(redisTemplate.unlink(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            unlinked.add(new ArrayList<>(keys));
+            return (long) keys.size();
+        });
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(pipelineOperations.opsForValue()).thenReturn(pipelineValueOperations);
+        when(pipelineOperations.<Object, Object>opsForHash()).thenReturn(pipelineHashOperations);
+    }
+
+    /**
+     * 执行管道回调，并返回各命令的结果
+     */
+    @SuppressWarnings("unchecked")
+    private void pipelineReturns(Object... results) {
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, SessionCallback.class).execute(pipelineOperations);
+            return Arrays.asList(results);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scanReturns(String... keys) {
+        Iterator<String> iterator = List.of(keys).iterator();
+        cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+    }
+
+    private ScanOptions scanOptions() {
+        ArgumentCaptor<ScanOptions> options = ArgumentCaptor.forClass(ScanOptions.class);
+        verify(redisTemplate).scan(options.capture());
+        return options.getValue();
+    }
+
+    @Test
+    void keysUnderAPrefixAreUnlinkedInScanSizedBatches() {
+        scanReturns("user:1", "user:2", "user:3", "user:4", "user:5");
+
+        assertThat(service.clearByPrefix("user:")).isEqualTo(5);
+
+        assertThat(unlinked).containsExactly(
+                List.of("user:1", "user:2"), List.of("user:3", "user:4"), List.of("user:5"));
+        assertThat(scanOptions().getPattern()).isEqualTo("user:*");
+        assertThat(scanOptions().getCount()).isEqualTo(2);
+        verify(cursor).close();
+        verify(redisTemplate, never()).keys(anyString());
+    }
+
+    @Test
+    void wildcardsInThePrefixMatchLiterally() {
+        scanReturns();
+
+        assertThat(service.clearByPrefix("temp:[a]*?\\")).isZero();
+
+        assertThat(scanOptions().getPattern()).isEqualTo("temp:\\[a\\]\\*\\?\\\\*");
+        assertThat(unlinked).isEmpty();
+    }
+
+    @Test
+    void emptyPrefixesAreRejected() {
+        assertThatThrownBy(() -> service.clearByPrefix("")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.clearByPrefix(null)).isInstanceOf(IllegalArgumentException.class);
+
+        verify(redisTemplate, never()).scan(any(ScanOptions.class));
+    }
+
+    @Test
+    void clearScansTheWholeKeyspaceWithoutKeys() {
+        scanReturns("a", "b", "c");
+
+        service.clear();
+
+        assertThat(scanOptions().getPattern()).isEqualTo("*");
+        assertThat(unlinked).containsExactly(List.of("a", "b"), List.of("c"));
+        verify(redisTemplate, never()).keys(anyString());
+    }
+
+    @Test
+    void redisFailuresAreReported() {
+        when(redisTemplate.scan(any(ScanOptions.class))).thenThrow(new IllegalStateException("connection refused"));
+
+        assertThatThrownBy(() -> service.clearByPrefix("user:"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Redis clear by prefix error");
+    }
+
+    @Test
+    void multiGetUsesOneMgetAndSkipsMissingKeys() {
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList("v1", null, "v3"));
+
+        Map<String, String> values = service.multiGet(List.of("k1", "k2", "k3"));
+
+        assertThat(values).containsOnly(Map.entry("k1", "v1"), Map.entry("k3", "v3"));
+        verify(valueOperations).multiGet(List.of("k1", "k2", "k3"));
+        verify(valueOperations, never()).get(any());
+        assertThat(service.multiGet(List.of())).isEmpty();
+    }
+
+    @Test
+    void multiSetWithATimeoutSendsAllSetsInOnePipeline() {
+        pipelineReturns(null, null);
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("k1", "v1");
+        values.put("k2", "v2");
+
+        service.multiSet(values, 30, TimeUnit.SECONDS);
+
+        verify(redisTemplate).executePipelined(any(SessionCallback.class));
+        verify(pipelineValueOperations).set("k1", "v1", 30, TimeUnit.SECONDS);
+        verify(pipelineValueOperations).set("k2", "v2", 30, TimeUnit.SECONDS);
+        verify(valueOperations, never()).set(anyString(), any(), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void multiSetWithoutATimeoutUsesOneMset() {
+        Map<String, Object> values = Map.of("k1", "v1", "k2", "v2");
+
+        service.multiSet(values, 0, TimeUnit.SECONDS);
+
+        verify(valueOperations).multiSet(values);
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void hashesOfSeveralKeysAreReadInOnePipeline() {
+        pipelineReturns(Map.of("a", 1), Map.of());
+
+        Map<String, Map<String, Integer>> hashes = service.getHashAll(List.of("h1", "h2"));
+
+        assertThat(hashes).containsOnly(Map.entry("h1", Map.of("a", 1)), Map.entry("h2", Map.of()));
+        verify(pipelineHashOperations).entries("h1");
+        verify(pipelineHashOperations).entries("h2");
+        verify(hashOperations, never()).entries(anyString());
+    }
+
+    @Test
+    void hashFieldsAreReadAndWrittenWithSingleCommands() {
+        when(hashOperations.multiGet(eq("h"), anyCollection())).thenReturn(Arrays.asList(1, null));
+
+        assertThat(service.<Integer>multiGetHash("h", List.of("a", "b"))).containsOnly(Map.entry("a", 1));
+
+        Map<String, Object> fields = Map.of("a", 1, "b", 2);
+        service.setHashAll("h", fields);
+        verify(hashOperations).putAll("h", fields);
+        verify(hashOperations, never()).put(anyString(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void zsetMembersAreAddedWithOneZadd() {
+        when(zSetOperations.add(eq("z"), any(Set.class))).thenReturn(2L);
+        Map<Object, Double> scores = Map.of("a", 1.0, "b", 2.0);
+
+        assertThat(service.addZSet("z", scores)).isEqualTo(2);
+
+        ArgumentCaptor<Set<ZSetOperations.TypedTuple<Object>>> tuples = ArgumentCaptor.forClass(Set.class);
+        verify(zSetOperations, times(1)).add(eq("z"), tuples.capture());
+        assertThat(tuples.getValue()).extracting(ZSetOperations.TypedTuple::getValue, ZSetOperations.TypedTuple::getScore)
+                .containsExactlyInAnyOrder(tuple("a", 1.0), tuple("b", 2.0));
+        verify(zSetOperations, never()).add(anyString(), any(), anyDouble());
+    }
+}
@@ -0,0 +1,146 @@
+package com.enterprise.brain.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 两级缓存测试：L1从L2回填，写入和删除通过失效消息清除其他节点的L1副本
+ */
+class TwoLevelCacheManagerTest {
+
+    private static final String CHANNEL = "cache:cache:invalidate";
+
+    /** 两个节点共用的L2 */
+    private final ConcurrentMapCacheManager remote = new ConcurrentMapCacheManager();
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    /** 订阅了失效频道的节点，发布的消息投递给所有节点（包括发出消息的节点） */
+    private final List<TwoLevelCacheManager> subscribers = new ArrayList<>();
+    private final List<String> published = new ArrayList<>();
+    private final TwoLevelCacheManager nodeA = node();
+    private final TwoLevelCacheManager nodeB = node();
+
+    TwoLevelCacheManagerTest() {
+        doAnswer(invocation -> {
+            String body = invocation.getArgument(1);
+            published.add(body);
+            for (TwoLevelCacheManager subscriber : subscribers) {
+                subscriber.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+                        body.getBytes(StandardCharsets.UTF_8)), null);
+            }
+            return 1L;
+        }).when(redisTemplate).convertAndSend(eq(CHANNEL), anyString());
+    }
+
+    private TwoLevelCacheManager node() {
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(remote, redisTemplate, "cache:", "cache:invalidate",
+                100, Duration.ofMinutes(1), Duration.ofSeconds(1), 0, 1, new SimpleMeterRegistry());
+        subscribers.add(manager);
+        return manager;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper> l1(Cache cache) {
+        return (com.github.benmanes.caffeine.cache.Cache<String, Cache.ValueWrapper>) cache.getNativeCache();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.destroy();
+        nodeB.destroy();
+    }
+
+    @Test
+    void readsAreBackfilledFromL2AndServedFromL1() {
+        nodeA.getCache("reports").put("1", "v1");
+        Cache cacheB = nodeB.getCache("reports");
+
+        assertThat(cacheB.get("1", String.class)).isEqualTo("v1");
+        assertThat(l1(cacheB).getIfPresent("1")).isNotNull();
+
+        // 绕过两级缓存直接修改L2，L1中的副本继续生效
+        remote.getCache("reports").put("1", "changed");
+        assertThat(cacheB.get("1", String.class)).isEqualTo("v1");
+    }
+
+    @Test
+    void writesInvalidateTheCopiesOnOtherNodes() {
+        Cache cacheA = nodeA.getCache("reports");
+        Cache cacheB = nodeB.getCache("reports");
+        cacheA.put("1", "v1");
+        assertThat(cacheB.get("1", String.class)).isEqualTo("v1");
+
+        cacheA.put("1", "v2");
+
+        assertThat(l1(cacheB).getIfPresent("1")).isNull();
+        assertThat(cacheB.get("1", String.class)).isEqualTo("v2");
+        // 本节点发出的消息被忽略，写入的新值留在L1中
+        assertThat(l1(cacheA).getIfPresent("1")).isNotNull();
+
+        cacheA.evict("1");
+
+        assertThat(cacheB.get("1")).isNull();
+        assertThat(cacheA.get("1")).isNull();
+    }
+
+    @Test
+    void clearingACacheBroadcastsAMessageWithoutAKey() {
+        Cache cacheA = nodeA.getCache("reports");
+        Cache cacheB = nodeB.getCache("reports");
+        cacheA.put("1", "v1");
+        cacheA.put("2", "v2");
+        cacheB.get("1");
+        cacheB.get("2");
+        published.clear();
+
+        cacheA.clear();
+
+        assertThat(published).hasSize(1);
+        assertThat(published.get(0)).endsWith("\nreports").containsOnlyOnce("\n");
+        assertThat(l1(cacheB).estimatedSize()).isZero();
+        assertThat(cacheB.get("1")).isNull();
+    }
+
+    @Test
+    void registeredLocalCachesReceiveInvalidationsFromOtherNodes() {
+        List<String> evictedOnB = new ArrayList<>();
+        List<String> evictedOnA = new ArrayList<>();
+        nodeB.registerLocalCache("tableStore", evictedOnB::add);
+        nodeA.registerLocalCache("tableStore", evictedOnA::add);
+
+        nodeA.publishEvict("tableStore", "7");
+        nodeA.publishEvict("tableStore", null);
+
+        assertThat(evictedOnB).containsExactly("7", null);
+        assertThat(evictedOnA).isEmpty();
+    }
+
+    @Test
+    void malformedAndUnknownMessagesAreIgnored() {
+        Cache cacheB = nodeB.getCache("reports");
+        nodeA.getCache("reports").put("1", "v1");
+        cacheB.get("1");
+
+        nodeB.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "no-separator".getBytes(StandardCharsets.UTF_8)), null);
+        nodeB.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "peer\nunknown\n1".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(l1(cacheB).getIfPresent("1")).isNotNull();
+    }
+}
@@ -0,0 +1,45 @@
+package com.enterprise.brain.common.validation.validator;
+
+import com.enterprise.brain.common.validation.annotation.ValidFormula;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 公式验证器测试：以公式编译器能否编译为准
+ */
+class FormulaValidatorTest {
+
+    private static FormulaValidator validator(boolean allowEmpty) {
+        ValidFormula annotation = mock(ValidFormula.class);
+        when(annotation.allowEmpty()).thenReturn(allowEmpty);
+        FormulaValidator validator = new FormulaValidator();
+        validator.initialize(annotation);
+        return validator;
+    }
+
+    @Test
+    void formulasThatCompileAreValid() {
+        FormulaValidator validator = validator(false);
+
+        assertThat(validator.isValid("=SUM(A1:A10)*2", null)).isTrue();
+        assertThat(validator.isValid("=SUMIF(A1:A4, \">2\", B1:B4)", null)).isTrue();
+    }
+
+    @Test
+    void syntaxErrorsAndMissingEqualsSignAreInvalid() {
+        FormulaValidator validator = validator(false);
+
+        assertThat(validator.isValid("=SUM(A1:A10", null)).isFalse();
+        assertThat(validator.isValid("=A1+", null)).isFalse();
+        assertThat(validator.isValid("A1+B1", null)).isFalse();
+    }
+
+    @Test
+    void emptyFormulasFollowTheAnnotation() {
+        assertThat(validator(true).isValid("  ", null)).isTrue();
+        assertThat(validator(false).isValid(null, null)).isFalse();
+    }
+}
@@ -0,0 +1,110 @@
+package com.enterprise.brain.modules.smart-table.repository;
+
+import com.enterprise.brain.modules.smart-table.dto.request.CellUpdateRequest;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 单元格批量写入测试：一次批处理写入全部单元格，按值确定数据类型和公式标记
+ */
+class TableCellJdbcRepositoryTest {
+
+    private static final Long TABLE_ID = 1L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TableCellJdbcRepository repository = new TableCellJdbcRepository(jdbcTemplate);
+
+    private static CellUpdateRequest cell(String cellKey, String value, String calculationResult) {
+        CellUpdateRequest cell = new CellUpdateRequest();
+        cell.setRowId(100L);
+        cell.setColumnId(200L);
+        cell.setCellKey(cellKey);
+        cell.setCellValue(value);
+        cell.setCalculationResult(calculationResult);
+        return cell;
+    }
+
+    /**
+     * 取出批处理语句和参数设置器，用模拟的语句执行第index条的参数设置
+     */
+    private PreparedStatement bind(int index, int expectedBatchSize) throws SQLException {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<BatchPreparedStatementSetter> setter = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(sql.capture(), setter.capture());
+        assertThat(sql.getValue()).contains("ON DUPLICATE KEY UPDATE");
+        assertThat(setter.getValue().getBatchSize()).isEqualTo(expectedBatchSize);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, index);
+        return ps;
+    }
+
+    @Test
+    void allCellsAreWrittenInOneBatch() throws SQLException {
+        List<CellUpdateRequest> cells = List.of(cell("A1", "1", null), cell("B1", "x", null), cell("C1", "2", null));
+
+        assertThat(repository.upsertCells(TABLE_ID, cells)).isEqualTo(3);
+
+        PreparedStatement ps = bind(1, 3);
+        verify(ps).setLong(1, TABLE_ID);
+        verify(ps).setLong(2, 100L);
+        verify(ps).setLong(3, 200L);
+        verify(ps).setString(4, "B1");
+        verify(ps).setString(5, "x");
+    }
+
+    @Test
+    void numericValuesAreStoredWithTheirNumericValue() throws SQLException {
+        repository.upsertCells(TABLE_ID, List.of(cell("A1", "12.5", null)));
+
+        PreparedStatement ps = bind(0, 1);
+        verify(ps).setString(6, "NUMBER");
+        verify(ps).setBigDecimal(7, BigDecimal.valueOf(12.5d));
+        verify(ps).setBoolean(8, false);
+        verify(ps).setString(9, null);
+        verify(ps).setString(11, "UNCALCULATED");
+    }
+
+    @Test
+    void formulaValuesAreMarkedAsFormulaCellsWithTheKnownResult() throws SQLException {
+        repository.upsertCells(TABLE_ID, List.of(cell("B1", "=A1*2", "24")));
+
+        PreparedStatement ps = bind(0, 1);
+        verify(ps).setString(6, "FORMULA");
+        verify(ps).setNull(7, Types.DECIMAL);
+        verify(ps).setBoolean(8, true);
+        verify(ps).setString(9, "=A1*2");
+        verify(ps).setString(10, "24");
+        verify(ps).setString(11, "SUCCESS");
+    }
+
+    @Test
+    void numbersBeyondTheColumnRangeAreStoredAsText() throws SQLException {
+        repository.upsertCells(TABLE_ID, List.of(cell("A1", "1e20", null)));
+
+        PreparedStatement ps = bind(0, 1);
+        verify(ps).setString(6, "TEXT");
+        verify(ps).setNull(7, Types.DECIMAL);
+    }
+
+    @Test
+    void emptyBatchesDoNotReachTheDatabase() {
+        assertThat(repository.upsertCells(TABLE_ID, List.of())).isZero();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+}
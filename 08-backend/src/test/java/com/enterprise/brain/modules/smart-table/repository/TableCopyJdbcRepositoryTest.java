@@ -0,0 +1,113 @@
+package com.enterprise.brain.modules.smart-table.repository;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 表格复制测试：语句顺序、参数绑定，以及行和列按位置映射到目标表格
+ */
+class TableCopyJdbcRepositoryTest {
+
+    private static final Long SOURCE_ID = 1L;
+    private static final Long TARGET_ID = 2L;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TableCopyJdbcRepository repository = new TableCopyJdbcRepository(jdbcTemplate);
+
+    @Test
+    void rowsAreCopiedBeforeCellsAndCellsAreRemappedByPosition() {
+        when(jdbcTemplate.update(startsWith("INSERT INTO table_cell"), any(Object[].class))).thenReturn(42);
+
+        assertThat(repository.copyCells(SOURCE_ID, TARGET_ID)).isEqualTo(42);
+
+        ArgumentCaptor<String> rowsSql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> cellsSql = ArgumentCaptor.forClass(String.class);
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update(rowsSql.capture(), eq(TARGET_ID), eq(SOURCE_ID), eq(TARGET_ID));
+        order.verify(jdbcTemplate).update(cellsSql.capture(), eq(TARGET_ID), eq(TARGET_ID), eq(TARGET_ID), eq(SOURCE_ID));
+
+        assertThat(rowsSql.getValue()).startsWith("INSERT INTO table_row").contains("NOT EXISTS");
+        assertThat(cellsSql.getValue())
+                .startsWith("INSERT INTO table_cell")
+                .contains("SELECT ?, tr.id, tc.id")
+                .contains("tc.column_index = sc.column_index")
+                .contains("tr.row_index = sr.row_index")
+                .doesNotContain("c.row_id,")
+                .doesNotContain("c.column_id,");
+    }
+
+    @Test
+    void schemaCopiesColumnsThenFormulasAndRelinksColumnFormulas() {
+        when(jdbcTemplate.update(startsWith("INSERT INTO table_column"), any(Object[].class))).thenReturn(3);
+
+        assertThat(repository.copySchema(SOURCE_ID, TARGET_ID)).isEqualTo(3);
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update(startsWith("INSERT INTO table_column"), eq(TARGET_ID), eq(SOURCE_ID));
+        order.verify(jdbcTemplate).update(startsWith("INSERT INTO table_formula"),
+                eq(TARGET_ID), eq(TARGET_ID), eq(SOURCE_ID));
+        order.verify(jdbcTemplate).update(startsWith("UPDATE table_column c JOIN table_formula"), eq(TARGET_ID));
+    }
+
+    @Test
+    void contentIsDeletedChildrenFirst() {
+        repository.deleteContent(TARGET_ID);
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update("DELETE FROM table_cell WHERE table_id = ?", TARGET_ID);
+        order.verify(jdbcTemplate).update("DELETE FROM table_row WHERE table_id = ?", TARGET_ID);
+        order.verify(jdbcTemplate).update(startsWith("UPDATE table_column SET formula_id = NULL"), eq(TARGET_ID));
+        order.verify(jdbcTemplate).update("DELETE FROM table_formula WHERE table_id = ?", TARGET_ID);
+        order.verify(jdbcTemplate).update("DELETE FROM table_column WHERE table_id = ?", TARGET_ID);
+    }
+
+    @Test
+    void materializationCopiesTheTemplateCellsOnlyForTheClaimingWriter() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(TARGET_ID))).thenReturn(List.of(SOURCE_ID));
+        when(jdbcTemplate.update(contains("template_id = NULL"), eq(TARGET_ID), eq(SOURCE_ID))).thenReturn(1, 0);
+
+        assertThat(repository.materialize(TARGET_ID)).isTrue();
+        assertThat(repository.materialize(TARGET_ID)).isFalse();
+
+        verify(jdbcTemplate, times(1)).update(startsWith("INSERT INTO table_cell"), any(Object[].class));
+    }
+
+    @Test
+    void tablesWithoutTemplateAreNotMaterialized() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(TARGET_ID))).thenReturn(List.of());
+
+        assertThat(repository.materialize(TARGET_ID)).isFalse();
+
+        verify(jdbcTemplate, never()).update(contains("template_id = NULL"), any(Object[].class));
+    }
+
+    @Test
+    void pendingCopiesOfATemplateAreMaterializedBeforeItChanges() {
+        Long otherCopy = 3L;
+        when(jdbcTemplate.queryForList(startsWith("SELECT id FROM smart_table"), eq(Long.class), eq(SOURCE_ID)))
+                .thenReturn(List.of(TARGET_ID, otherCopy));
+        when(jdbcTemplate.queryForList(startsWith("SELECT template_id"), eq(Long.class), any()))
+                .thenReturn(List.of(SOURCE_ID));
+        when(jdbcTemplate.update(contains("template_id = NULL"), eq(TARGET_ID), eq(SOURCE_ID))).thenReturn(1);
+        when(jdbcTemplate.update(contains("template_id = NULL"), eq(otherCopy), eq(SOURCE_ID))).thenReturn(0);
+
+        assertThat(repository.materializeCopiesOf(SOURCE_ID)).isEqualTo(1);
+    }
+}
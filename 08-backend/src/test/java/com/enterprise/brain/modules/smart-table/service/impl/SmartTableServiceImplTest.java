@@ -0,0 +1,327 @@
+package com.enterprise.brain.modules.smart-table.service.impl;
+
+import com.enterprise.brain.common.cache.TwoLevelCacheManager;
+import com.enterprise.brain.modules.smart-table.dto.request.CellUpdateRequest;
+import com.enterprise.brain.modules.smart-table.dto.request.ColumnConfigRequest;
+import com.enterprise.brain.modules.smart-table.dto.response.TableDataResponse;
+import com.enterprise.brain.modules.smart-table.entity.SmartTable;
+import com.enterprise.brain.modules.smart-table.entity.TableColumn;
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import com.enterprise.brain.modules.smart-table.repository.SmartTableRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableCellJdbcRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableCopyJdbcRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableFormulaRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableRowJdbcRepository;
+import com.enterprise.brain.modules.smart-table.service.TableCellStoreService;
+import com.enterprise.brain.modules.smart-table.service.TableColumnService;
+import com.enterprise.brain.modules.smart-table.service.TableFormulaService;
+import com.enterprise.brain.modules.smart-table.util.ColumnarCellStore;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 智能表格服务测试：XLSX导入和批量更新的公式登记、行列ID校验，以及按游标分页和流式输出表格数据
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SmartTableServiceImplTest {
+
+    private static final Long TABLE_ID = 1L;
+
+    @Mock
+    private SmartTableRepository smartTableRepository;
+    @Mock
+    private TableColumnService tableColumnService;
+    @Mock
+    private TableCellStoreService tableCellStoreService;
+    @Mock
+    private TableFormulaService tableFormulaService;
+    @Mock
+    private TableCellJdbcRepository tableCellJdbcRepository;
+    @Mock
+    private TableCopyJdbcRepository tableCopyJdbcRepository;
+    @Mock
+    private TableRowJdbcRepository tableRowJdbcRepository;
+    @Mock
+    private TableFormulaRepository tableFormulaRepository;
+    @Mock
+    private ObjectProvider<TwoLevelCacheManager> invalidationBroadcasterProvider;
+
+    @InjectMocks
+    private SmartTableServiceImpl service;
+
+    private final List<TableFormula> savedFormulas = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "bulkChunkSize", 1000);
+        SmartTable table = new SmartTable();
+        table.setId(TABLE_ID);
+        table.setIsTemplate(false);
+        when(smartTableRepository.findById(TABLE_ID)).thenReturn(Optional.of(table));
+        when(tableColumnService.getColumnsByTableId(TABLE_ID)).thenReturn(new ArrayList<>());
+        when(tableColumnService.createColumn(eq(TABLE_ID), any())).thenAnswer(invocation -> {
+            TableColumn column = new TableColumn();
+            column.setId(100L + invocation.getArgument(1, ColumnConfigRequest.class).getColumnIndex());
+            return column;
+        });
+        when(tableRowJdbcRepository.findOrCreateRowIds(eq(TABLE_ID), anySet())).thenAnswer(invocation -> {
+            Map<Integer, Long> rowIds = new HashMap<>();
+            for (Integer row : invocation.<Set<Integer>>getArgument(1)) {
+                rowIds.put(row, 1000L + row);
+            }
+            return rowIds;
+        });
+        when(tableCellJdbcRepository.upsertCells(eq(TABLE_ID), anyList()))
+                .thenAnswer(invocation -> invocation.<List<?>>getArgument(1).size());
+        when(tableFormulaService.saveImportedFormulas(eq(TABLE_ID), anyList())).thenAnswer(invocation -> {
+            savedFormulas.addAll(invocation.getArgument(1));
+            return invocation.getArgument(1);
+        });
+    }
+
+    private static TableFormula formula(Long id, String cellId, String expression) {
+        return TableFormula.builder()
+                .id(id).tableId(TABLE_ID).cellId(cellId).formulaExpression(expression).isDeleted(false).build();
+    }
+
+    private static TableColumn column(Long id, int index) {
+        TableColumn column = new TableColumn();
+        column.setId(id);
+        column.setColumnIndex(index);
+        return column;
+    }
+
+    /**
+     * 表格已有A、B两列（列ID 11、12）和第1、2行（行ID 1000、1001）
+     */
+    private void existingRowsAndColumns() {
+        when(tableColumnService.getColumnsByTableId(TABLE_ID)).thenReturn(List.of(column(11L, 0), column(12L, 1)));
+        when(tableRowJdbcRepository.findRowIds(eq(TABLE_ID), anySet())).thenAnswer(invocation -> {
+            Map<Integer, Long> rowIds = new HashMap<>();
+            for (Integer row : invocation.<Set<Integer>>getArgument(1)) {
+                if (row < 2) {
+                    rowIds.put(row, 1000L + row);
+                }
+            }
+            return rowIds;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CellUpdateRequest> upsertedCells() {
+        ArgumentCaptor<List<CellUpdateRequest>> cells = ArgumentCaptor.forClass(List.class);
+        verify(tableCellJdbcRepository).upsertCells(eq(TABLE_ID), cells.capture());
+        return cells.getValue();
+    }
+
+    private Map<String, Object> bulk(String json) throws IOException {
+        return service.bulkUpdateCells(TABLE_ID, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * A列为数值，B1、B2都是公式：同一列的两个公式单元格
+     */
+    private static byte[] workbook() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("数据");
+            Row first = sheet.createRow(0);
+            first.createCell(0).setCellValue(10);
+            first.createCell(1).setCellFormula("A1*2");
+            Row second = sheet.createRow(1);
+            second.createCell(0).setCellValue(20);
+            second.createCell(1).setCellFormula("A2*2");
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    void formulaCellsInOneColumnAreSavedAsSeparateCellFormulas() throws IOException {
+        Map<String, Object> result = service.importXlsx(TABLE_ID, new ByteArrayInputStream(workbook()));
+
+        assertThat(result).containsEntry("formulas", 2).containsEntry("written", 4);
+        assertThat(savedFormulas).extracting(TableFormula::getCellId).containsExactly("B1", "B2");
+        assertThat(savedFormulas).extracting(TableFormula::getFormulaExpression).containsExactly("=A1*2", "=A2*2");
+        assertThat(savedFormulas).extracting(TableFormula::getColumnId).containsOnlyNulls();
+        assertThat(savedFormulas).allMatch(formula -> TABLE_ID.equals(formula.getTableId()));
+    }
+
+    @Test
+    void existingCellFormulasAreLoadedFromTheRepositoryAndUpdated() throws IOException {
+        TableFormula cached = formula(7L, "B2", "=A2");
+        TableFormula existing = formula(7L, "B2", "=A2");
+        when(tableFormulaService.getFormulasByTableId(TABLE_ID)).thenReturn(List.of(cached));
+        when(tableFormulaRepository.findByTableId(TABLE_ID)).thenReturn(List.of(existing));
+
+        service.importXlsx(TABLE_ID, new ByteArrayInputStream(workbook()));
+
+        assertThat(savedFormulas).hasSize(2);
+        assertThat(savedFormulas.get(1)).isSameAs(existing);
+        assertThat(existing.getFormulaExpression()).isEqualTo("=A2*2");
+        assertThat(cached.getFormulaExpression()).isEqualTo("=A2");
+    }
+
+    @Test
+    void importDoesNotRecalculateTheWholeTable() throws IOException {
+        Map<String, Object> result = service.importXlsx(TABLE_ID, new ByteArrayInputStream(workbook()));
+
+        verify(tableFormulaService, never()).calculateTableFormulas(anyLong());
+        assertThat(result).doesNotContainKey("recalculatedFormulas");
+    }
+
+    @Test
+    void bulkUpdatesTakeRowAndColumnIdsFromTheCellPosition() throws IOException {
+        existingRowsAndColumns();
+
+        Map<String, Object> result = bulk("[{\"cellKey\":\"B2\",\"cellValue\":\"5\"},"
+                + "{\"cellKey\":\"A1\",\"cellValue\":\"1\",\"rowId\":1000,\"columnId\":11}]");
+
+        assertThat(result).containsEntry("written", 2).containsEntry("rejected", 0);
+        assertThat(upsertedCells()).extracting(CellUpdateRequest::getCellKey).containsExactly("B2", "A1");
+        assertThat(upsertedCells()).extracting(CellUpdateRequest::getRowId).containsExactly(1001L, 1000L);
+        assertThat(upsertedCells()).extracting(CellUpdateRequest::getColumnId).containsExactly(12L, 11L);
+    }
+
+    @Test
+    void bulkUpdatesWithMismatchedOrMissingRowsAndColumnsAreRejected() throws IOException {
+        existingRowsAndColumns();
+
+        Map<String, Object> result = bulk("[{\"cellKey\":\"A1\",\"cellValue\":\"1\",\"rowId\":999},"
+                + "{\"cellKey\":\"B1\",\"cellValue\":\"1\",\"columnId\":11},"
+                + "{\"cellKey\":\"A5\",\"cellValue\":\"1\"},"
+                + "{\"cellKey\":\"C1\",\"cellValue\":\"1\"},"
+                + "{\"cellKey\":\"A2\",\"cellValue\":\"2\"}]");
+
+        assertThat(result).containsEntry("written", 1).containsEntry("rejected", 4);
+        assertThat(result.get("rejectedCells")).isEqualTo(List.of("A1", "B1", "A5", "C1"));
+        assertThat(upsertedCells()).extracting(CellUpdateRequest::getCellKey).containsExactly("A2");
+    }
+
+    @Test
+    void formulaValuesInBulkUpdatesAreRegisteredAsCellFormulas() throws IOException {
+        existingRowsAndColumns();
+
+        Map<String, Object> result = bulk("[{\"cellKey\":\"B1\",\"cellValue\":\"=A1*2\"},"
+                + "{\"cellKey\":\"B2\",\"cellValue\":\"=A2*2\"},{\"cellKey\":\"A1\",\"cellValue\":\"3\"}]");
+
+        assertThat(result).containsEntry("formulas", 2);
+        assertThat(savedFormulas).extracting(TableFormula::getCellId).containsExactly("B1", "B2");
+        assertThat(savedFormulas).extracting(TableFormula::getFormulaExpression).containsExactly("=A1*2", "=A2*2");
+        assertThat(savedFormulas).extracting(TableFormula::getColumnId).containsOnlyNulls();
+    }
+
+    @Test
+    void overwritingAFormulaCellWithAValueDeletesItsFormula() {
+        existingRowsAndColumns();
+        TableFormula existing = formula(7L, "B1", "=A1*2");
+        when(tableFormulaService.getFormulasByTableId(TABLE_ID)).thenReturn(List.of(formula(7L, "B1", "=A1*2")));
+        when(tableFormulaRepository.findByTableId(TABLE_ID)).thenReturn(List.of(existing));
+        CellUpdateRequest update = new CellUpdateRequest();
+        update.setCellKey("B1");
+        update.setCellValue("42");
+
+        Map<String, Object> result = service.applyCellUpdates(TABLE_ID, new ArrayList<>(List.of(update)));
+
+        assertThat(result).containsEntry("written", 1);
+        assertThat(savedFormulas).containsExactly(existing);
+        assertThat(existing.getIsDeleted()).isTrue();
+    }
+
+    @Test
+    void plainValuesDoNotTouchTheFormulaTable() {
+        existingRowsAndColumns();
+        CellUpdateRequest update = new CellUpdateRequest();
+        update.setCellKey("A1");
+        update.setCellValue("42");
+
+        service.applyCellUpdates(TABLE_ID, new ArrayList<>(List.of(update)));
+
+        verify(tableFormulaRepository, never()).findByTableId(anyLong());
+        verify(tableFormulaService, never()).saveImportedFormulas(anyLong(), anyList());
+    }
+
+    /**
+     * 第1行A、B列有值，第2行为空，第3行只有A列，第4行只有B列，第5行只有A列
+     */
+    private void storedRows() {
+        ColumnarCellStore store = new ColumnarCellStore();
+        store.setValue(0, 0, "a1");
+        store.setValue(0, 1, "b1");
+        store.setValue(2, 0, "a3");
+        store.setValue(3, 1, "b4");
+        store.setValue(4, 0, "a5");
+        when(tableCellStoreService.getStore(TABLE_ID)).thenReturn(store);
+    }
+
+    @Test
+    void pagesContinueAfterTheCursorAndSkipEmptyRows() {
+        storedRows();
+
+        TableDataResponse first = service.getTableDataAfter(TABLE_ID, null, 2, null);
+        TableDataResponse second = service.getTableDataAfter(TABLE_ID, first.getNextCursor(), 2, null);
+
+        assertThat(first.getRows()).extracting(row -> row.get("rowNumber")).containsExactly(1, 3);
+        assertThat(first.getRows().get(0)).containsEntry("A", "a1").containsEntry("B", "b1");
+        assertThat(first.getHasMore()).isTrue();
+        assertThat(first.getNextCursor()).isEqualTo(3);
+        assertThat(second.getRows()).extracting(row -> row.get("rowNumber")).containsExactly(4, 5);
+        assertThat(second.getHasMore()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+        assertThat(second.getTotalRows()).isEqualTo(5);
+    }
+
+    @Test
+    void projectedColumnsLimitTheRowsAndTheirValues() {
+        storedRows();
+
+        TableDataResponse page = service.getTableDataAfter(TABLE_ID, null, 10, List.of("a"));
+
+        assertThat(page.getRows()).extracting(row -> row.get("rowNumber")).containsExactly(1, 3, 5);
+        assertThat(page.getRows().get(0)).containsOnlyKeys("rowNumber", "A");
+    }
+
+    @Test
+    void streamedRowsAreWrittenAsOneJsonObjectPerLine() throws IOException {
+        storedRows();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.streamTableData(TABLE_ID, 1, List.of("B"), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).containsExactly(
+                "{\"rowNumber\":4,\"B\":\"b4\"}");
+    }
+}
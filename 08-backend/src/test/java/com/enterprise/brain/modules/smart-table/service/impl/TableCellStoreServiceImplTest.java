@@ -0,0 +1,140 @@
+package com.enterprise.brain.modules.smart-table.service.impl;
+
+import com.enterprise.brain.common.cache.TwoLevelCacheManager;
+import com.enterprise.brain.modules.smart-table.repository.TableCellRepository;
+import com.enterprise.brain.modules.smart-table.repository.TableCopyJdbcRepository;
+import com.enterprise.brain.modules.smart-table.util.ColumnarCellStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 单元格列式存储服务测试：提交后广播变更的单元格，其他节点只刷新这些单元格
+ */
+class TableCellStoreServiceImplTest {
+
+    private static final Long TABLE_ID = 1L;
+
+    private final TableCellRepository tableCellRepository = mock(TableCellRepository.class);
+    private final TableCopyJdbcRepository tableCopyJdbcRepository = mock(TableCopyJdbcRepository.class);
+    private final TwoLevelCacheManager cacheManager = mock(TwoLevelCacheManager.class);
+    private TableCellStoreServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("twoLevelCacheManager", cacheManager);
+        service = new TableCellStoreServiceImpl(tableCellRepository, tableCopyJdbcRepository,
+                beans.getBeanProvider(TwoLevelCacheManager.class), new SimpleMeterRegistry(), 1_000_000);
+        when(tableCopyJdbcRepository.findTemplateId(TABLE_ID)).thenReturn(null);
+        when(tableCellRepository.findCellValuesByTableId(TABLE_ID)).thenReturn(rows(
+                new Object[]{"A1", "1"}, new Object[]{"B2", "2"}, new Object[]{"C3", "3"}));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<String> registeredListener(String cacheName) {
+        ArgumentCaptor<Consumer<String>> captor = ArgumentCaptor.forClass(Consumer.class);
+        verify(cacheManager).registerLocalCache(eq(cacheName), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void committedWritesBroadcastTheChangedCellsInsteadOfEvictingTheTable() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.updateCell(TABLE_ID, "B2", "20");
+        service.updateCell(TABLE_ID, "A1", "10");
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(cacheManager).publishEvict(eq(TableCellStoreServiceImpl.CHANGED_CELLS_CACHE_NAME), key.capture());
+        assertThat(key.getValue()).startsWith(TABLE_ID + ":");
+        assertThat(key.getValue().substring(key.getValue().indexOf(':') + 1).split(","))
+                .containsExactlyInAnyOrder("A1", "B2");
+        verify(cacheManager, never()).publishEvict(eq(TableCellStoreServiceImpl.CACHE_NAME), anyString());
+    }
+
+    @Test
+    void writesBeyondTheBroadcastLimitEvictTheTableOnOtherNodes() {
+        TransactionSynchronizationManager.initSynchronization();
+        for (int row = 1; row <= TableCellStoreServiceImpl.MAX_BROADCAST_CELLS + 1; row++) {
+            service.updateCell(TABLE_ID, "A" + row, "1");
+        }
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+
+        verify(cacheManager).publishEvict(TableCellStoreServiceImpl.CACHE_NAME, TABLE_ID.toString());
+        verify(cacheManager, never()).publishEvict(eq(TableCellStoreServiceImpl.CHANGED_CELLS_CACHE_NAME), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void changedCellsFromOtherNodesAreReloadedLazilyWithoutReloadingTheTable() {
+        ColumnarCellStore store = service.getStore(TABLE_ID);
+        when(tableCellRepository.findCellValuesByTableIdAndCellKeys(eq(TABLE_ID), anyCollection()))
+                .thenReturn(rows(new Object[]{"B2", "22"}));
+
+        registeredListener(TableCellStoreServiceImpl.CHANGED_CELLS_CACHE_NAME).accept(TABLE_ID + ":B2,C3");
+        verify(tableCellRepository, never()).findCellValuesByTableIdAndCellKeys(anyLong(), anyCollection());
+
+        assertThat(service.getStore(TABLE_ID)).isSameAs(store);
+        assertThat(store.getNumber(1, 1)).isEqualTo(22);
+        assertThat(store.getText(2, 2)).isNull();
+        assertThat(store.getNumber(0, 0)).isEqualTo(1);
+        verify(tableCellRepository, times(1)).findCellValuesByTableId(TABLE_ID);
+
+        ArgumentCaptor<Collection<String>> keys = ArgumentCaptor.forClass(Collection.class);
+        verify(tableCellRepository).findCellValuesByTableIdAndCellKeys(eq(TABLE_ID), keys.capture());
+        assertThat(keys.getValue()).containsExactlyInAnyOrder("B2", "C3");
+
+        service.getStore(TABLE_ID);
+        verify(tableCellRepository, times(1)).findCellValuesByTableIdAndCellKeys(anyLong(), anyCollection());
+    }
+
+    @Test
+    void changesForTablesThatAreNotLoadedAreIgnored() {
+        registeredListener(TableCellStoreServiceImpl.CHANGED_CELLS_CACHE_NAME).accept(TABLE_ID + ":B2");
+
+        service.getStore(TABLE_ID);
+
+        verify(tableCellRepository).findCellValuesByTableId(TABLE_ID);
+        verify(tableCellRepository, never()).findCellValuesByTableIdAndCellKeys(anyLong(), anyCollection());
+    }
+}
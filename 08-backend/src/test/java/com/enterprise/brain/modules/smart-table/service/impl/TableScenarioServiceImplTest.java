@@ -0,0 +1,215 @@
+package com.enterprise.brain.modules.smart-table.service.impl;
+
+import com.enterprise.brain.modules.smart-table.dto.request.ScenarioAdjustmentRequest;
+import com.enterprise.brain.modules.smart-table.dto.response.ScenarioResponse;
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import com.enterprise.brain.modules.smart-table.service.SmartTableService;
+import com.enterprise.brain.modules.smart-table.service.TableCellStoreService;
+import com.enterprise.brain.modules.smart-table.service.TableFormulaService;
+import com.enterprise.brain.modules.smart-table.util.ColumnarCellStore;
+import com.enterprise.brain.modules.smart-table.util.FormulaDependencyGraph;
+import com.enterprise.brain.modules.smart-table.util.FormulaEngine;
+import com.enterprise.brain.modules.smart-table.util.WavefrontRecalculator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 假设分析场景服务测试：场景按Redis中的调整日志在各节点之间共享
+ */
+class TableScenarioServiceImplTest {
+
+    private static final Long TABLE_ID = 1L;
+
+    /** 模拟Redis中的列表和集合 */
+    private final Map<String, List<String>> lists = new HashMap<>();
+    private final Map<String, Set<String>> sets = new HashMap<>();
+
+    private final SmartTableService smartTableService = mock(SmartTableService.class);
+    private final TableFormulaService tableFormulaService = mock(TableFormulaService.class);
+    private final TableCellStoreService tableCellStoreService = mock(TableCellStoreService.class);
+    private WavefrontRecalculator recalculator;
+
+    @BeforeEach
+    void setUp() {
+        recalculator = new WavefrontRecalculator(new FormulaEngine(), 1, 256);
+        ColumnarCellStore store = new ColumnarCellStore();
+        store.setValue(0, 0, "100");
+        store.setValue(1, 0, "200");
+        when(tableCellStoreService.getStore(TABLE_ID)).thenReturn(store);
+        // C1 = SUM(A1:A2)
+        when(tableFormulaService.getDependencyGraph(TABLE_ID)).thenReturn(FormulaDependencyGraph.build(List.of(
+                TableFormula.builder().id(1L).cellId("C1").formulaExpression("=SUM(A1:A2)").build())));
+    }
+
+    @AfterEach
+    void tearDown() {
+        recalculator.destroy();
+    }
+
+    private TableScenarioServiceImpl node(StringRedisTemplate redisTemplate) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (redisTemplate != null) {
+            beans.addBean("stringRedisTemplate", redisTemplate);
+        }
+        return new TableScenarioServiceImpl(smartTableService, tableFormulaService, tableCellStoreService,
+                recalculator, beans.getBeanProvider(StringRedisTemplate.class), 100, 60);
+    }
+
+    @SuppressWarnings("unchecked")
+    private StringRedisTemplate redis() {
+        ListOperations<String, String> listOperations = mock(ListOperations.class, invocation -> {
+            List<String> list = lists.getOrDefault((String) invocation.getArgument(0), new ArrayList<>());
+            switch (invocation.getMethod().getName()) {
+                case "rightPush":
+                    list.add(invocation.getArgument(1));
+                    lists.put(invocation.getArgument(0), list);
+                    return (long) list.size();
+                case "rightPushAll":
+                    list.addAll((Collection<String>) invocation.getRawArguments()[1]);
+                    lists.put(invocation.getArgument(0), list);
+                    return (long) list.size();
+                case "size":
+                    return (long) list.size();
+                case "index":
+                    long index = invocation.getArgument(1);
+                    return index < list.size() ? list.get((int) index) : null;
+                case "range":
+                    long from = invocation.getArgument(1);
+                    long to = invocation.getArgument(2);
+                    return new ArrayList<>(list.subList((int) from, (int) to + 1));
+                default:
+                    return null;
+            }
+        });
+        SetOperations<String, String> setOperations = mock(SetOperations.class, invocation -> {
+            String key = invocation.getArgument(0);
+            Set<String> set = sets.computeIfAbsent(key, k -> new LinkedHashSet<>());
+            switch (invocation.getMethod().getName()) {
+                case "add":
+                    set.addAll(Arrays.asList((String[]) invocation.getRawArguments()[1]));
+                    return 1L;
+                case "remove":
+                    set.removeAll(Arrays.asList((Object[]) invocation.getRawArguments()[1]));
+                    return 1L;
+                case "members":
+                    return new LinkedHashSet<>(set);
+                default:
+                    return null;
+            }
+        });
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class, invocation -> {
+            switch (invocation.getMethod().getName()) {
+                case "opsForList":
+                    return listOperations;
+                case "opsForSet":
+                    return setOperations;
+                case "expire":
+                    return true;
+                case "delete":
+                    return lists.remove((String) invocation.getArgument(0)) != null;
+                default:
+                    return null;
+            }
+        });
+        return redisTemplate;
+    }
+
+    private static List<ScenarioAdjustmentRequest> adjust(String target, String operation, double value) {
+        ScenarioAdjustmentRequest adjustment = new ScenarioAdjustmentRequest();
+        adjustment.setTarget(target);
+        adjustment.setOperation(operation);
+        adjustment.setValue(value);
+        return List.of(adjustment);
+    }
+
+    @Test
+    void scenariosCreatedOnOneNodeAreRebuiltOnAnother() {
+        StringRedisTemplate redisTemplate = redis();
+        TableScenarioServiceImpl nodeA = node(redisTemplate);
+        TableScenarioServiceImpl nodeB = node(redisTemplate);
+
+        String id = nodeA.createScenario(TABLE_ID, "涨价").getScenarioId();
+        ScenarioResponse applied = nodeA.applyAdjustments(id, adjust("A1", "set", 150));
+        ScenarioResponse rebuilt = nodeB.getScenario(id);
+
+        assertThat(applied.getResults()).containsEntry("formula_1", "350");
+        assertThat(rebuilt.getResults()).isEqualTo(applied.getResults());
+        assertThat(rebuilt.getName()).isEqualTo("涨价");
+        assertThat(rebuilt.getAdjustedCells()).isEqualTo(1);
+    }
+
+    @Test
+    void adjustmentsFromSeveralNodesAreAppliedInJournalOrder() {
+        StringRedisTemplate redisTemplate = redis();
+        TableScenarioServiceImpl nodeA = node(redisTemplate);
+        TableScenarioServiceImpl nodeB = node(redisTemplate);
+        String id = nodeA.createScenario(TABLE_ID, "s").getScenarioId();
+        nodeB.getScenario(id);
+
+        nodeA.applyAdjustments(id, adjust("A1", "SET", 150));
+        ScenarioResponse fromB = nodeB.applyAdjustments(id, adjust("A1:A2", "ADD", 10));
+
+        assertThat(fromB.getResults()).containsEntry("formula_1", "370");
+        assertThat(nodeA.getScenario(id).getResults()).containsEntry("formula_1", "370");
+    }
+
+    @Test
+    void scenariosDiscardedOnOneNodeAreGoneOnTheOthers() {
+        StringRedisTemplate redisTemplate = redis();
+        TableScenarioServiceImpl nodeA = node(redisTemplate);
+        TableScenarioServiceImpl nodeB = node(redisTemplate);
+        String id = nodeA.createScenario(TABLE_ID, "s").getScenarioId();
+        assertThat(nodeB.getScenariosByTableId(TABLE_ID)).extracting(ScenarioResponse::getScenarioId).containsExactly(id);
+
+        nodeA.discardScenario(id);
+
+        assertThatThrownBy(() -> nodeB.getScenario(id))
+                .isInstanceOf(TableScenarioServiceImpl.ScenarioNotFoundException.class);
+        assertThat(nodeB.getScenariosByTableId(TABLE_ID)).isEmpty();
+    }
+
+    @Test
+    void invalidAdjustmentsRejectTheWholeBatch() {
+        StringRedisTemplate redisTemplate = redis();
+        TableScenarioServiceImpl service = node(redisTemplate);
+        String id = service.createScenario(TABLE_ID, "s").getScenarioId();
+        List<ScenarioAdjustmentRequest> batch = new ArrayList<>(adjust("A1", "SET", 1));
+        batch.addAll(adjust("A2", "DIVIDE", 2));
+
+        assertThatThrownBy(() -> service.applyAdjustments(id, batch)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(lists.get(ScenarioJournal.KEY_PREFIX + id)).hasSize(1);
+        assertThat(service.getScenario(id).getAdjustedCells()).isZero();
+    }
+
+    @Test
+    void withoutRedisScenariosStayOnTheNode() {
+        TableScenarioServiceImpl nodeA = node(null);
+        TableScenarioServiceImpl nodeB = node(null);
+        String id = nodeA.createScenario(TABLE_ID, "s").getScenarioId();
+
+        assertThat(nodeA.applyAdjustments(id, adjust("A2", "PERCENT", 50)).getResults())
+                .containsEntry("formula_1", "400");
+        assertThatThrownBy(() -> nodeB.getScenario(id))
+                .isInstanceOf(TableScenarioServiceImpl.ScenarioNotFoundException.class);
+    }
+}
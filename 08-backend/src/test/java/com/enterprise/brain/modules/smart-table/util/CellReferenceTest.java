@@ -0,0 +1,121 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 单元格引用解析测试，重点是{@link CellReference#parse}的边界情况
+ */
+class CellReferenceTest {
+
+    @Test
+    void parsesRowAndColumnFromZero() {
+        long packed = CellReference.parse("A1");
+
+        assertThat(CellReference.row(packed)).isZero();
+        assertThat(CellReference.column(packed)).isZero();
+        assertThat(CellReference.column(CellReference.parse("AA10"))).isEqualTo(26);
+        assertThat(CellReference.row(CellReference.parse("AA10"))).isEqualTo(9);
+    }
+
+    @Test
+    void columnLettersAreCaseInsensitive() {
+        assertThat(CellReference.parse("ab12")).isEqualTo(CellReference.parse("AB12"));
+    }
+
+    @Test
+    void absoluteMarkersAreKeptSeparateFromThePosition() {
+        long both = CellReference.parse("$B$2");
+        long row = CellReference.parse("B$2");
+        long column = CellReference.parse("$B2");
+
+        assertThat(CellReference.isAbsoluteRow(both)).isTrue();
+        assertThat(CellReference.isAbsoluteColumn(both)).isTrue();
+        assertThat(CellReference.isAbsoluteRow(row)).isTrue();
+        assertThat(CellReference.isAbsoluteColumn(row)).isFalse();
+        assertThat(CellReference.isAbsoluteRow(column)).isFalse();
+        assertThat(CellReference.isAbsoluteColumn(column)).isTrue();
+        assertThat(CellReference.position(both)).isEqualTo(CellReference.parse("B2"));
+        assertThat(CellReference.toString(both)).isEqualTo("$B$2");
+    }
+
+    @Test
+    void parsesOnlyTheGivenInterval() {
+        String formula = "=A1+$C$3";
+
+        long packed = CellReference.parse(formula, 4, 8);
+
+        assertThat(CellReference.row(packed)).isEqualTo(2);
+        assertThat(CellReference.column(packed)).isEqualTo(2);
+        assertThat(CellReference.parse(formula, 1, 4)).isEqualTo(CellReference.INVALID);
+    }
+
+    @Test
+    void rejectsMalformedReferences() {
+        assertThat(CellReference.parse((CharSequence) null)).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("A")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("12")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("1A")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("A0")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse(" A1")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("A1 ")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("A1B")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("$$A1")).isEqualTo(CellReference.INVALID);
+    }
+
+    @Test
+    void rejectsOutOfRangeRowsAndColumns() {
+        assertThat(CellReference.parse("ZZZZZZ1")).isNotEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("AAAAAAA1")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.row(CellReference.parse("A2147483647"))).isEqualTo(Integer.MAX_VALUE - 1);
+        assertThat(CellReference.parse("A2147483648")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("A99999999999999999999")).isEqualTo(CellReference.INVALID);
+    }
+
+    @Test
+    void rejectsSheetQualifiedReferences() {
+        assertThat(CellReference.parse("Sheet1!A1")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("'销售 数据'!B2")).isEqualTo(CellReference.INVALID);
+        assertThat(CellReference.parse("'It''s'!C3")).isEqualTo(CellReference.INVALID);
+        assertThatThrownBy(() -> CellReference.fromString("Sheet1!D4")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void scanConsumesTheSheetPrefix() {
+        String text = "Sheet1!A1+B2";
+
+        assertThat(CellReference.scan(text, 0, text.length())).isEqualTo(9);
+        assertThat(CellReference.scan("'未闭合!A1", 0, 7)).isEqualTo(-1);
+        assertThat(CellReference.scan("+A1", 0, 3)).isEqualTo(-1);
+    }
+
+    @Test
+    void fromStringAndToStringRoundTrip() {
+        CellReference ref = CellReference.fromString("c5");
+
+        assertThat(ref.getRow()).isEqualTo(4);
+        assertThat(ref.getColumn()).isEqualTo(2);
+        assertThat(ref.toString()).isEqualTo("C5");
+        assertThat(CellReference.toString(0, 701)).isEqualTo("ZZ1");
+        assertThatThrownBy(() -> CellReference.fromString(" ")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shiftKeepsAbsolutePartsAndRejectsNegativePositions() {
+        long shifted = CellReference.shift(CellReference.parse("$A2"), 3, 5);
+
+        assertThat(CellReference.toString(shifted)).isEqualTo("$A5");
+        assertThat(CellReference.shift(CellReference.parse("A1"), -1, 0)).isEqualTo(CellReference.INVALID);
+    }
+
+    @Test
+    void columnNamesConvertBothWays() {
+        assertThat(CellReference.columnIndex("a")).isZero();
+        assertThat(CellReference.columnIndex("AA")).isEqualTo(26);
+        assertThat(CellReference.columnName(27)).isEqualTo("AB");
+        assertThatThrownBy(() -> CellReference.columnIndex("A1")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
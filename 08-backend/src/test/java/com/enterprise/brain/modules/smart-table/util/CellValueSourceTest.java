@@ -0,0 +1,63 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 基于单元格值映射的数值来源测试：逐行查找和遍历映射读取区域的结果一致
+ */
+class CellValueSourceTest {
+
+    private static Map<String, String> cellValues() {
+        Map<String, String> values = new HashMap<>();
+        values.put("A1", "1");
+        values.put("A3", "3");
+        values.put("A4", "text");
+        values.put("B2", "20");
+        values.put("a2", "99");
+        values.put("$A$5", "99");
+        values.put("名称", "x");
+        return values;
+    }
+
+    @Test
+    void rangesLargerThanTheMapReadOnlyCanonicalKeysOfTheColumn() {
+        CellValueSource source = CellValueSource.ofCellValues(cellValues());
+        double[] target = new double[100];
+
+        source.readColumn(0, 0, target, target.length);
+
+        assertThat(target[0]).isEqualTo(1d);
+        assertThat(target[1]).isNaN();
+        assertThat(target[2]).isEqualTo(3d);
+        assertThat(target[3]).isNaN();
+        assertThat(target[4]).isNaN();
+        assertThat(target[99]).isNaN();
+    }
+
+    @Test
+    void scannedAndLookedUpRangesAgree() {
+        CellValueSource source = CellValueSource.ofCellValues(cellValues());
+        double[] scanned = new double[10];
+        double[] lookedUp = new double[3];
+
+        source.readColumn(0, 1, scanned, scanned.length);
+        source.readColumn(0, 1, lookedUp, lookedUp.length);
+
+        for (int i = 0; i < lookedUp.length; i++) {
+            assertThat(Double.compare(scanned[i], lookedUp[i])).isZero();
+        }
+    }
+
+    @Test
+    void singleCellsAreReadByReference() {
+        CellValueSource source = CellValueSource.ofCellValues(cellValues());
+
+        assertThat(source.getNumber(1, 1)).isEqualTo(20d);
+        assertThat(source.getNumber(5, 5)).isZero();
+    }
+}
@@ -0,0 +1,214 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 列式单元格存储测试：按类型存取、分段读取、列索引缓存与并发读写
+ */
+class ColumnarCellStoreTest {
+
+    @Test
+    void cellTextIsStoredByType() {
+        ColumnarCellStore store = new ColumnarCellStore();
+
+        store.setValue(0, 0, "3.5");
+        store.setValue(1, 0, "-12");
+        store.setValue(2, 0, "abc");
+        store.setValue(3, 0, "1.");
+
+        assertThat(store.getType(0, 0)).isEqualTo(ColumnarCellStore.CellType.NUMBER);
+        assertThat(store.getText(0, 0)).isEqualTo("3.5");
+        assertThat(store.getText(1, 0)).isEqualTo("-12");
+        assertThat(store.getType(2, 0)).isEqualTo(ColumnarCellStore.CellType.STRING);
+        assertThat(store.getText(2, 0)).isEqualTo("abc");
+        assertThat(store.getType(3, 0)).isEqualTo(ColumnarCellStore.CellType.STRING);
+    }
+
+    @Test
+    void typedValuesRoundTrip() {
+        ColumnarCellStore store = new ColumnarCellStore();
+
+        store.setLong(0, 1, 1_700_000_000_000L);
+        store.setBoolean(1, 1, true);
+        store.setNumber(2, 1, 0.25d);
+
+        assertThat(store.getValue(0, 1)).isEqualTo(1_700_000_000_000L);
+        assertThat(store.getValue(1, 1)).isEqualTo(true);
+        assertThat(store.getValue(2, 1)).isEqualTo(0.25d);
+        assertThat(store.getValue(3, 1)).isNull();
+        assertThat(store.getType(3, 1)).isEqualTo(ColumnarCellStore.CellType.EMPTY);
+    }
+
+    @Test
+    void singleCellReadsTreatEmptyAndTextAsZero() {
+        ColumnarCellStore store = new ColumnarCellStore();
+        store.setValue(0, 0, "text");
+        store.setValue(1, 0, "7");
+
+        assertThat(store.getNumber(0, 0)).isZero();
+        assertThat(store.getNumber(1, 0)).isEqualTo(7d);
+        assertThat(store.getNumber(5, 0)).isZero();
+        assertThat(store.getNumber(0, 9)).isZero();
+    }
+
+    @Test
+    void columnReadsMarkEmptyAndTextCellsAsNaN() {
+        ColumnarCellStore store = new ColumnarCellStore();
+        store.setValue(0, 0, "1");
+        store.setValue(1, 0, "text");
+        store.setLong(3, 0, 4L);
+        double[] target = new double[4];
+
+        store.readColumn(0, 0, target, 4);
+
+        assertThat(target[0]).isEqualTo(1d);
+        assertThat(target[1]).isNaN();
+        assertThat(target[2]).isNaN();
+        assertThat(target[3]).isEqualTo(4d);
+
+        store.readColumn(7, 0, target, 4);
+        assertThat(target).containsOnly(Double.NaN);
+    }
+
+    @Test
+    void columnReadsSpanSegments() {
+        ColumnarCellStore store = new ColumnarCellStore();
+        for (int row = 0; row < 10_000; row++) {
+            store.setNumber(row, 0, 1d);
+        }
+        double[] target = new double[4];
+
+        store.readColumn(0, 4094, target, 4);
+
+        assertThat(target).containsExactly(1d, 1d, 1d, 1d);
+        assertThat(FormulaCompiler.compile("=SUM(A1:A10000)").evaluate(store)).isEqualTo(10_000d);
+        assertThat(FormulaCompiler.compile("=COUNT(A9001:A20000)").evaluate(store)).isEqualTo(1_000d);
+    }
+
+    @Test
+    void cellCountTracksWritesOverwritesAndClears() {
+        ColumnarCellStore store = new ColumnarCellStore();
+
+        store.setValue(0, 0, "1");
+        store.setValue(0, 0, "2");
+        store.setValue(5000, 3, "x");
+        assertThat(store.getCellCount()).isEqualTo(2);
+        assertThat(store.getRowCount()).isEqualTo(5001);
+        assertThat(store.getColumnCount()).isEqualTo(4);
+
+        store.setValue(0, 0, "");
+        store.setString(5000, 3, null);
+        store.clear(9, 9);
+        assertThat(store.getCellCount()).isZero();
+        assertThat(store.getText(0, 0)).isNull();
+    }
+
+    @Test
+    void repeatedTextIsStoredOncePerColumn() {
+        ColumnarCellStore single = new ColumnarCellStore();
+        ColumnarCellStore repeated = new ColumnarCellStore();
+        single.setString(0, 0, "华东区");
+        for (int row = 0; row < 100; row++) {
+            repeated.setString(row, 0, "华东区");
+        }
+
+        assertThat(repeated.getText(99, 0)).isEqualTo("华东区");
+        assertThat(repeated.estimateMemoryBytes()).isEqualTo(single.estimateMemoryBytes());
+    }
+
+    @Test
+    void columnIndexIsCachedUntilTheNextWrite() {
+        ColumnarCellStore store = new ColumnarCellStore();
+        store.setValue(0, 0, "10");
+        store.setValue(1, 0, "20");
+
+        ColumnIndex first = store.getColumnIndex(0, 0, 1);
+        assertThat(store.getColumnIndex(0, 0, 1)).isSameAs(first);
+        assertThat(first.exactMatch(20d)).isEqualTo(1);
+
+        store.setValue(2, 0, "30");
+        ColumnIndex rebuilt = store.getColumnIndex(0, 0, 2);
+        assertThat(rebuilt).isNotSameAs(first);
+        assertThat(rebuilt.exactMatch(30d)).isEqualTo(2);
+    }
+
+    @Test
+    void negativePositionsAreRejected() {
+        ColumnarCellStore store = new ColumnarCellStore();
+
+        assertThatThrownBy(() -> store.setNumber(-1, 0, 1d)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.setNumber(0, -1, 1d)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 写线程在数字和文本之间反复改写同一单元格，读线程不应读到一次写入的一半
+     * （文本类型配数字的位表示，或数字类型配文本的字典编码）
+     */
+    @Test
+    void concurrentReadsNeverSeeATornCell() throws InterruptedException {
+        ColumnarCellStore store = new ColumnarCellStore();
+        store.setValue(0, 0, "x");
+        store.setValue(0, 0, "0.1");
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Object> torn = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            while (!done.get() && torn.get() == null) {
+                Object value = store.getValue(0, 0);
+                if (!"x".equals(value) && !Double.valueOf(0.1d).equals(value)) {
+                    torn.set(String.valueOf(value));
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 2_000_000 && torn.get() == null; i++) {
+            if ((i & 1) == 0) {
+                store.setString(0, 0, "x");
+            } else {
+                store.setNumber(0, 0, 0.1d);
+            }
+        }
+        done.set(true);
+        reader.join();
+
+        assertThat(torn.get()).isNull();
+    }
+
+    /**
+     * 构建期间发生写入的列索引不能留在缓存中：每次写入后读到的索引都必须包含刚写入的值
+     */
+    @Test
+    void columnIndexBuiltDuringAWriteIsNotCached() throws InterruptedException {
+        ColumnarCellStore store = new ColumnarCellStore();
+        int rows = 512;
+        for (int row = 0; row < rows; row++) {
+            store.setNumber(row, 0, row);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> stale = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                store.getColumnIndex(0, 0, rows - 1);
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 5_000 && stale.get() == null; i++) {
+            int row = i % rows;
+            store.setNumber(row, 0, -i);
+            if (store.getColumnIndex(0, 0, rows - 1).exactMatch(-i) != row) {
+                stale.set("write " + i);
+            }
+        }
+        done.set(true);
+        reader.join();
+
+        assertThat(stale.get()).isNull();
+    }
+}
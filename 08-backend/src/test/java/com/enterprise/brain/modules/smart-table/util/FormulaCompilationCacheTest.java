@@ -0,0 +1,59 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import com.enterprise.brain.common.cache.CacheMeters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 公式编译缓存测试：按标准化表达式共享编译结果，语法错误同样缓存，缓存注册到指标
+ */
+class FormulaCompilationCacheTest {
+
+    @BeforeEach
+    void setUp() {
+        FormulaCompilationCache.clear();
+    }
+
+    @Test
+    void formulasWithAndWithoutTheLeadingEqualsSignShareOneEntry() {
+        CompiledFormula compiled = FormulaCompilationCache.compile("=A1+B2");
+
+        assertThat(FormulaCompilationCache.compile("A1+B2")).isSameAs(compiled);
+        assertThat(FormulaCompilationCache.isValid("=A1+B2")).isTrue();
+    }
+
+    @Test
+    void syntaxErrorsAreCachedAndReportedWithTheirMessage() {
+        String error = FormulaCompilationCache.validationError("=SUM(A1");
+
+        assertThat(error).isNotNull();
+        assertThat(FormulaCompilationCache.isValid("=SUM(A1")).isFalse();
+        assertThatThrownBy(() -> FormulaCompilationCache.compile("SUM(A1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage(error);
+    }
+
+    @Test
+    void emptyFormulasAreInvalidWithoutBeingCached() {
+        assertThat(FormulaCompilationCache.isValid(null)).isFalse();
+        assertThat(FormulaCompilationCache.validationError("=")).startsWith("Empty formula");
+        assertThat(FormulaCompilationCache.size()).isZero();
+    }
+
+    @Test
+    void theConfiguredCacheIsRegisteredWithMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new FormulaCompilationCache(registry, 10_000, 30);
+
+        FormulaCompilationCache.compile("=A1*2");
+        FormulaCompilationCache.compile("=A1*2");
+
+        assertThat(registry.get("cache.gets").tag("cache", FormulaCompilationCache.CACHE_NAME)
+                .tag(CacheMeters.TAG_TIER, CacheMeters.TIER_LOCAL).tag("result", "hit").functionCounter().count())
+                .isEqualTo(1d);
+    }
+}
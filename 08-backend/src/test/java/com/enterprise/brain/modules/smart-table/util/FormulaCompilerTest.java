@@ -0,0 +1,182 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 公式编译器测试：运算优先级、函数和语法错误
+ */
+class FormulaCompilerTest {
+
+    private static double evaluate(String formula, Map<String, String> cells) {
+        return FormulaCompiler.compile(formula).evaluate(CellValueSource.ofCellValues(cells));
+    }
+
+    private static double evaluate(String formula) {
+        return evaluate(formula, new HashMap<>());
+    }
+
+    private static Map<String, String> cells(String... keysAndValues) {
+        Map<String, String> cells = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            cells.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return cells;
+    }
+
+    @Test
+    void multiplicationBindsTighterThanAddition() {
+        assertThat(evaluate("=1+2*3")).isEqualTo(7d);
+        assertThat(evaluate("=(1+2)*3")).isEqualTo(9d);
+        assertThat(evaluate("=10-4/2")).isEqualTo(8d);
+    }
+
+    @Test
+    void binaryOperatorsAreLeftAssociative() {
+        assertThat(evaluate("=2-3-4")).isEqualTo(-5d);
+        assertThat(evaluate("=8/2/2")).isEqualTo(2d);
+    }
+
+    @Test
+    void unaryMinusAppliesToItsOperand() {
+        assertThat(evaluate("=-2*3+10/4")).isEqualTo(-3.5d);
+        assertThat(evaluate("=--2")).isEqualTo(2d);
+        assertThat(evaluate("=-(1+2)")).isEqualTo(-3d);
+    }
+
+    @Test
+    void cellReferencesAreReadFromTheSource() {
+        Map<String, String> cells = cells("A1", "1", "B2", "2", "C3", "3");
+
+        CompiledFormula formula = FormulaCompiler.compile("=A1+b2*$C$3");
+
+        assertThat(formula.evaluate(CellValueSource.ofCellValues(cells))).isEqualTo(7d);
+        assertThat(formula.getReferences()).containsExactly(
+                new CellReference(0, 0), new CellReference(1, 1), new CellReference(2, 2));
+        assertThat(formula.getExpression()).isEqualTo("A1+b2*$C$3");
+    }
+
+    @Test
+    void missingAndTextCellsReadAsZero() {
+        assertThat(evaluate("=A1+B1", cells("A1", "abc"))).isEqualTo(0d);
+    }
+
+    @Test
+    void booleanLiteralsAreNumbers() {
+        assertThat(evaluate("=TRUE+TRUE+FALSE")).isEqualTo(2d);
+    }
+
+    @Test
+    void aggregateFunctionsSkipEmptyAndTextCells() {
+        Map<String, String> cells = cells("A1", "1", "A2", "4", "A3", "text", "A5", "7");
+
+        assertThat(evaluate("=SUM(A1:A5)", cells)).isEqualTo(12d);
+        assertThat(evaluate("=AVERAGE(A1:A5)", cells)).isEqualTo(4d);
+        assertThat(evaluate("=COUNT(A1:A5)", cells)).isEqualTo(3d);
+        assertThat(evaluate("=MIN(A1:A5)", cells)).isEqualTo(1d);
+        assertThat(evaluate("=MAX(A1:A5)", cells)).isEqualTo(7d);
+    }
+
+    @Test
+    void aggregateFunctionsMixRangesAndScalars() {
+        Map<String, String> cells = cells("A1", "1", "A2", "2", "B1", "10");
+
+        assertThat(evaluate("=SUM(A1:A2, B1, 100)", cells)).isEqualTo(113d);
+        assertThat(evaluate("=MAX(A1:A2, 5)", cells)).isEqualTo(5d);
+    }
+
+    @Test
+    void conditionalAggregatesUseTheCriteriaRange() {
+        Map<String, String> cells = cells(
+                "A1", "1", "A2", "2", "A3", "3", "A4", "4",
+                "B1", "10", "B2", "20", "B3", "30", "B4", "40");
+
+        assertThat(evaluate("=SUMIF(A1:A4, \">2\", B1:B4)", cells)).isEqualTo(70d);
+        assertThat(evaluate("=SUMIF(A1:A4, \"<=2\")", cells)).isEqualTo(3d);
+        assertThat(evaluate("=COUNTIF(A1:A4, \"<>3\")", cells)).isEqualTo(3d);
+        assertThat(evaluate("=COUNTIF(A1:A4, 2)", cells)).isEqualTo(1d);
+    }
+
+    @Test
+    void vlookupSupportsExactAndApproximateMatch() {
+        Map<String, String> cells = cells(
+                "A1", "10", "A2", "20", "A3", "30",
+                "B1", "1", "B2", "2", "B3", "3");
+
+        assertThat(evaluate("=VLOOKUP(20, A1:B3, 2, FALSE)", cells)).isEqualTo(2d);
+        assertThat(evaluate("=VLOOKUP(25, A1:B3, 2)", cells)).isEqualTo(2d);
+        assertThat(evaluate("=VLOOKUP(25, A1:B3, 2, FALSE)", cells)).isNaN();
+        assertThat(evaluate("=VLOOKUP(5, A1:B3, 2)", cells)).isNaN();
+        assertThat(evaluate("=VLOOKUP(10, A1:B3, 3, FALSE)", cells)).isNaN();
+    }
+
+    @Test
+    void rangesAreRecordedAsInputs() {
+        CompiledFormula formula = FormulaCompiler.compile("=SUM(A1:B3)+C1");
+
+        assertThat(formula.getRanges()).containsExactly(new CellRange(0, 0, 2, 1));
+        assertThat(formula.getInputCellCount()).isEqualTo(7);
+    }
+
+    @Test
+    void constantSubexpressionsAreFolded() {
+        CompiledFormula formula = FormulaCompiler.compile("=2*3+4");
+
+        assertThat(formula.getReferences()).isEmpty();
+        assertThat(formula.evaluate(null)).isEqualTo(10d);
+    }
+
+    @Test
+    void invalidResultsFormatAsError() {
+        assertThat(FormulaCompiler.compile("=1/0").evaluateToString(CellValueSource.ofCellValues(cells())))
+                .isEqualTo(CompiledFormula.ERROR_RESULT);
+        assertThat(CompiledFormula.formatResult(2.50d)).isEqualTo("2.5");
+        assertThat(CompiledFormula.formatResult(3d)).isEqualTo("3");
+    }
+
+    @Test
+    void emptyFormulaIsRejected() {
+        assertThatThrownBy(() -> FormulaCompiler.compile("=")).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Empty formula");
+        assertThatThrownBy(() -> FormulaCompiler.compile(null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void syntaxErrorsReportTheProblem() {
+        assertThatThrownBy(() -> FormulaCompiler.compile("=1+")).hasMessageContaining("Unexpected end of formula");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=(1+2")).hasMessageContaining("Missing ')'");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=1+2)")).hasMessageContaining("Unexpected character ')'");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=1..2")).hasMessageContaining("Invalid number");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=SUM(\"x)")).hasMessageContaining("Unterminated string");
+    }
+
+    @Test
+    void unsupportedFunctionsAndArgumentsAreRejected() {
+        assertThatThrownBy(() -> FormulaCompiler.compile("=FOO(1)")).hasMessageContaining("Unsupported function 'FOO'");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=SUM()")).hasMessageContaining("requires at least one argument");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=COUNTIF(A1:A3)")).hasMessageContaining("expects 2 arguments");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=SUMIF(A1, 1)")).hasMessageContaining("must be a cell range");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=SUMIF(A1:A3, \"abc\")"))
+                .hasMessageContaining("only supports numeric criteria");
+    }
+
+    @Test
+    void rangesOutsideFunctionsAreRejected() {
+        assertThatThrownBy(() -> FormulaCompiler.compile("=A1:A3"))
+                .hasMessageContaining("Cell range is only allowed as a function argument");
+    }
+
+    @Test
+    void invalidAndCrossSheetReferencesAreRejected() {
+        assertThatThrownBy(() -> FormulaCompiler.compile("=A0+1")).hasMessageContaining("Invalid cell reference 'A0'");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=Sheet1!A1+1"))
+                .hasMessageContaining("Cross-sheet reference 'Sheet1!A1' is not supported");
+        assertThatThrownBy(() -> FormulaCompiler.compile("=SUM('销售 数据'!A1:A3)"))
+                .hasMessageContaining("Cross-sheet reference");
+    }
+}
@@ -0,0 +1,131 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 公式依赖图测试：拓扑层级、受影响公式和循环引用
+ */
+class FormulaDependencyGraphTest {
+
+    private static TableFormula formula(long id, String cellId, String expression) {
+        return TableFormula.builder().id(id).cellId(cellId).formulaExpression(expression).build();
+    }
+
+    private static List<CellReference> cells(String... keys) {
+        return Arrays.stream(keys).map(CellReference::fromString).toList();
+    }
+
+    /**
+     * C1 = A1+B1，D1和E1读取C1，F1读取D1和E1，列级公式5按区域读取C列
+     */
+    private static FormulaDependencyGraph diamond() {
+        return FormulaDependencyGraph.build(Arrays.asList(
+                formula(1L, "C1", "=A1+B1"),
+                formula(2L, "D1", "=C1*2"),
+                formula(3L, "E1", "=C1+1"),
+                formula(4L, "F1", "=D1+E1"),
+                formula(5L, null, "=SUM(C1:C10)")));
+    }
+
+    @Test
+    void levelsFollowTheLongestUpstreamChain() {
+        FormulaDependencyGraph graph = diamond();
+
+        assertThat(graph.size()).isEqualTo(5);
+        assertThat(graph.hasCycles()).isFalse();
+        assertThat(graph.getLevels(null)).containsExactly(
+                List.of(1L), List.of(2L, 3L, 5L), List.of(4L));
+        assertThat(graph.getTopologicalOrder()).containsExactly(1L, 2L, 3L, 5L, 4L);
+    }
+
+    @Test
+    void levelsCanBeLimitedToSomeFormulas() {
+        assertThat(diamond().getLevels(Arrays.asList(4L, 2L))).containsExactly(List.of(2L), List.of(4L));
+    }
+
+    @Test
+    void changedInputAffectsAllDownstreamFormulasInTopologicalOrder() {
+        FormulaDependencyGraph graph = diamond();
+
+        assertThat(graph.getAffectedFormulaIds(cells("A1"))).containsExactly(1L, 2L, 3L, 5L, 4L);
+        assertThat(graph.getAffectedFormulaIds(cells("D1"))).containsExactly(4L);
+    }
+
+    @Test
+    void rangesAffectOnlyFormulasCoveringTheChangedCell() {
+        FormulaDependencyGraph graph = diamond();
+
+        assertThat(graph.getAffectedFormulaIds(cells("C5"))).containsExactly(5L);
+        assertThat(graph.getAffectedFormulaIds(cells("C11"))).isEmpty();
+        assertThat(graph.getAffectedFormulaIds(cells("B5"))).isEmpty();
+        assertThat(graph.getAffectedFormulaIds(Collections.emptyList())).isEmpty();
+    }
+
+    @Test
+    void outputCellsAreRecordedPerFormula() {
+        FormulaDependencyGraph graph = diamond();
+
+        assertThat(graph.getOutputCell(1L)).isEqualTo(new CellReference(0, 2));
+        assertThat(graph.getOutputCell(5L)).isNull();
+        assertThat(graph.getFormula(4L).getFormulaExpression()).isEqualTo("=D1+E1");
+    }
+
+    @Test
+    void cyclesAndTheirDownstreamFormulasAreExcludedFromLevels() {
+        FormulaDependencyGraph graph = FormulaDependencyGraph.build(Arrays.asList(
+                formula(1L, "A1", "=B1+1"),
+                formula(2L, "B1", "=A1+1"),
+                formula(3L, "C1", "=B1*2"),
+                formula(4L, "D1", "=5")));
+
+        assertThat(graph.hasCycles()).isTrue();
+        assertThat(graph.getCyclicFormulaIds()).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(graph.isCyclic(4L)).isFalse();
+        assertThat(graph.getTopologicalOrder()).containsExactly(4L);
+        assertThat(graph.getLevels(null)).containsExactly(List.of(4L));
+    }
+
+    @Test
+    void cyclicFormulasAreOrderedLastAmongAffectedFormulas() {
+        FormulaDependencyGraph graph = FormulaDependencyGraph.build(Arrays.asList(
+                formula(1L, "A1", "=B1+E1"),
+                formula(2L, "B1", "=A1+1"),
+                formula(3L, "F1", "=E1*2")));
+
+        assertThat(graph.getAffectedFormulaIds(cells("E1"))).containsExactly(3L, 1L, 2L);
+    }
+
+    @Test
+    void selfReferenceIsACycle() {
+        FormulaDependencyGraph graph = FormulaDependencyGraph.build(
+                Collections.singletonList(formula(1L, "A1", "=A1+1")));
+
+        assertThat(graph.isCyclic(1L)).isTrue();
+    }
+
+    @Test
+    void rangeCoveringItsOwnOutputIsACycle() {
+        FormulaDependencyGraph graph = FormulaDependencyGraph.build(
+                Collections.singletonList(formula(1L, "A10", "=SUM(A1:A10)")));
+
+        assertThat(graph.isCyclic(1L)).isTrue();
+    }
+
+    @Test
+    void formulasWithoutIdsOrCellReferencesAreHandled() {
+        FormulaDependencyGraph graph = FormulaDependencyGraph.build(Arrays.asList(
+                formula(1L, "123", "=A1"),
+                TableFormula.builder().formulaExpression("=A1").build()));
+
+        assertThat(graph.size()).isEqualTo(1);
+        assertThat(graph.getOutputCell(1L)).isNull();
+        assertThat(FormulaDependencyGraph.build(null).size()).isZero();
+    }
+}
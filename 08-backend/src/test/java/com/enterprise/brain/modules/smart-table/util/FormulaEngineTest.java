@@ -0,0 +1,66 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 公式引擎测试：按公式ID和版本缓存编译结果，缓存有数量上限
+ */
+class FormulaEngineTest {
+
+    private static TableFormula formula(long id, String expression, long version) {
+        return TableFormula.builder().id(id).formulaExpression(expression).version(version).build();
+    }
+
+    private static CellValueSource cells(Map<String, Double> values) {
+        return (row, column) -> values.getOrDefault(CellReference.toString(row, column), 0d);
+    }
+
+    @Test
+    void compiledFormulasAreReusedUntilTheVersionChanges() {
+        FormulaEngine engine = new FormulaEngine();
+        TableFormula formula = formula(1L, "=A1*2", 0L);
+
+        CompiledFormula first = engine.compile(formula);
+        assertThat(engine.compile(formula(1L, "=A1*2", 0L))).isSameAs(first);
+
+        CompiledFormula changed = engine.compile(formula(1L, "=A1*3", 1L));
+        assertThat(changed).isNotSameAs(first);
+        Map<String, Double> values = new HashMap<>();
+        values.put("A1", 5d);
+        assertThat(changed.evaluate(cells(values))).isEqualTo(15d);
+    }
+
+    @Test
+    void evictedFormulasAreCompiledAgain() {
+        FormulaEngine engine = new FormulaEngine();
+        TableFormula formula = formula(1L, "=A1+1", 0L);
+        CompiledFormula first = engine.compile(formula);
+
+        engine.evict(1L);
+
+        assertThat(engine.compile(formula)).isNotSameAs(first);
+    }
+
+    @Test
+    void theNumberOfCompiledFormulasIsBounded() throws InterruptedException {
+        FormulaEngine engine = new FormulaEngine(new SimpleMeterRegistry(), 10);
+
+        for (long id = 1; id <= 200; id++) {
+            engine.compile(formula(id, "=A1+" + id, 0L));
+        }
+
+        // 淘汰由Caffeine的维护任务异步完成
+        long deadline = System.currentTimeMillis() + 5000;
+        while (engine.size() > 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(engine.size()).isLessThanOrEqualTo(10);
+    }
+}
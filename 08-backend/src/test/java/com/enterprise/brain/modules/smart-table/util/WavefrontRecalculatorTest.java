@@ -0,0 +1,114 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * 波前式并行重算测试：并行结果与串行一致，下游读取上游写回的结果，循环引用和无效公式不出现在结果中
+ */
+class WavefrontRecalculatorTest {
+
+    private static TableFormula formula(long id, String cellId, String expression) {
+        return TableFormula.builder().id(id).cellId(cellId).formulaExpression(expression).build();
+    }
+
+    /**
+     * B列每行 = A列同行*2，C列每行 = B列同行+1，D1 = SUM(C1:C500)
+     */
+    private static FormulaDependencyGraph wideGraph() {
+        List<TableFormula> formulas = new ArrayList<>();
+        long id = 1;
+        for (int row = 1; row <= 500; row++) {
+            formulas.add(formula(id++, "B" + row, "=A" + row + "*2"));
+            formulas.add(formula(id++, "C" + row, "=B" + row + "+1"));
+        }
+        formulas.add(formula(id, "D1", "=SUM(C1:C500)"));
+        return FormulaDependencyGraph.build(formulas);
+    }
+
+    private static NumericCellSnapshot inputs() {
+        NumericCellSnapshot snapshot = NumericCellSnapshot.create(500);
+        for (int row = 0; row < 500; row++) {
+            snapshot.set(row, 0, row);
+        }
+        return snapshot;
+    }
+
+    private static Map<Long, Double> recalculate(int parallelism, int chunkSize, FormulaDependencyGraph graph,
+                                                 NumericCellSnapshot overlay) {
+        return recalculate(parallelism, chunkSize, graph, null, overlay);
+    }
+
+    private static Map<Long, Double> recalculate(int parallelism, int chunkSize, FormulaDependencyGraph graph,
+                                                 List<Long> formulaIds, NumericCellSnapshot overlay) {
+        WavefrontRecalculator recalculator = new WavefrontRecalculator(new FormulaEngine(), parallelism, chunkSize);
+        try {
+            return recalculator.recalculate(graph, formulaIds, overlay, null);
+        } finally {
+            recalculator.destroy();
+        }
+    }
+
+    @Test
+    void parallelLevelsProduceTheSameResultsAsSerialEvaluation() {
+        FormulaDependencyGraph graph = wideGraph();
+
+        Map<Long, Double> serial = recalculate(1, Integer.MAX_VALUE, graph, inputs());
+        Map<Long, Double> parallel = recalculate(4, 8, graph, inputs());
+
+        assertThat(parallel).isEqualTo(serial);
+        assertThat(new ArrayList<>(parallel.keySet())).isEqualTo(new ArrayList<>(serial.keySet()));
+        // SUM(row*2+1), row = 0..499
+        assertThat(parallel.get(1001L)).isEqualTo(500d * 499 + 500);
+    }
+
+    @Test
+    void resultsAreWrittenBackToTheOutputCells() {
+        NumericCellSnapshot overlay = inputs();
+
+        recalculate(2, 16, wideGraph(), overlay);
+
+        assertThat(overlay.getNumber(9, 1)).isEqualTo(18d);
+        assertThat(overlay.getNumber(9, 2)).isEqualTo(19d);
+        assertThat(overlay.getNumber(0, 3)).isEqualTo(500d * 499 + 500);
+    }
+
+    @Test
+    void cyclicAndInvalidFormulasAreLeftOutOfTheResults() {
+        FormulaDependencyGraph graph = FormulaDependencyGraph.build(Arrays.asList(
+                formula(1L, "A1", "=B1+1"),
+                formula(2L, "B1", "=A1+1"),
+                formula(3L, "C1", "=SUM(("),
+                formula(4L, "D1", "=C1+5"),
+                formula(5L, "E1", "=2*3")));
+        NumericCellSnapshot overlay = NumericCellSnapshot.create(8);
+
+        Map<Long, Double> results = recalculate(2, 1, graph, overlay);
+
+        assertThat(results).containsOnlyKeys(4L, 5L);
+        assertThat(results.get(4L)).isNaN();
+        assertThat(results.get(5L)).isEqualTo(6d);
+        assertThat(overlay.getNumber(0, 2)).isNaN();
+    }
+
+    @Test
+    void onlyTheRequestedFormulasAreRecalculated() {
+        NumericCellSnapshot overlay = inputs();
+        FormulaDependencyGraph graph = wideGraph();
+        recalculate(2, 16, graph, overlay);
+        overlay.set(0, 0, 100);
+
+        Map<Long, Double> results = recalculate(2, 16, graph, Arrays.asList(2L, 1L), overlay);
+
+        assertThat(results).containsExactly(entry(1L, 200d), entry(2L, 201d));
+        assertThat(overlay.getNumber(0, 3)).isEqualTo(500d * 499 + 500);
+    }
+}
@@ -0,0 +1,138 @@
+package com.enterprise.brain.modules.smart-table.util;
+
+import com.enterprise.brain.modules.smart-table.entity.TableFormula;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * 假设分析场景测试：调整叠加、增量重算以及基础数据不被修改
+ */
+class WhatIfScenarioTest {
+
+    private WavefrontRecalculator recalculator;
+    private ColumnarCellStore base;
+    private FormulaDependencyGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        recalculator = new WavefrontRecalculator(new FormulaEngine(), 1, 256);
+        base = new ColumnarCellStore();
+        base.setValue(0, 0, "100");
+        base.setValue(1, 0, "200");
+        base.setValue(2, 0, "x");
+        base.setValue(0, 1, "1");
+        base.setValue(0, 2, "300");
+        base.setValue(0, 3, "600");
+        graph = buildGraph();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recalculator.destroy();
+    }
+
+    /**
+     * C1 = SUM(A1:A3)，D1 = C1*2，E1 = B1+1
+     */
+    private static FormulaDependencyGraph buildGraph() {
+        return FormulaDependencyGraph.build(Arrays.asList(
+                TableFormula.builder().id(1L).cellId("C1").formulaExpression("=SUM(A1:A3)").build(),
+                TableFormula.builder().id(2L).cellId("D1").formulaExpression("=C1*2").build(),
+                TableFormula.builder().id(3L).cellId("E1").formulaExpression("=B1+1").build()));
+    }
+
+    private static CellRange range(String text) {
+        return text.indexOf(':') > 0 ? CellRange.fromString(text) : new CellRange(
+                CellReference.fromString(text), CellReference.fromString(text));
+    }
+
+    @Test
+    void adjustedInputsRecalculateDependentFormulasOnly() {
+        WhatIfScenario scenario = new WhatIfScenario("s1", 1L, "涨价");
+
+        List<CellReference> adjusted = scenario.adjust(range("A1"), WhatIfScenario.Operation.SET, 150d, base);
+        List<Long> recalculated = scenario.recalculate(graph, adjusted, recalculator, base);
+
+        assertThat(recalculated).containsExactly(1L, 2L);
+        assertThat(scenario.getResults()).containsExactly(entry(1L, 350d), entry(2L, 700d));
+        CellValueSource view = scenario.over(base);
+        assertThat(view.getNumber(0, 0)).isEqualTo(150d);
+        assertThat(view.getNumber(0, 2)).isEqualTo(350d);
+        assertThat(view.getNumber(0, 3)).isEqualTo(700d);
+    }
+
+    @Test
+    void baseDataIsNeverModified() {
+        WhatIfScenario scenario = new WhatIfScenario("s1", 1L, "涨价");
+
+        List<CellReference> adjusted = scenario.adjust(range("A1:A2"), WhatIfScenario.Operation.ADD, 1d, base);
+        scenario.recalculate(graph, adjusted, recalculator, base);
+
+        assertThat(base.getNumber(0, 0)).isEqualTo(100d);
+        assertThat(base.getNumber(1, 0)).isEqualTo(200d);
+        assertThat(base.getNumber(0, 2)).isEqualTo(300d);
+        assertThat(base.getNumber(0, 3)).isEqualTo(600d);
+    }
+
+    @Test
+    void relativeAdjustmentsSkipEmptyAndTextCellsAndStack() {
+        WhatIfScenario scenario = new WhatIfScenario("s1", 1L, "涨价");
+
+        List<CellReference> adjusted = scenario.adjust(range("A1:A4"), WhatIfScenario.Operation.PERCENT, 10d, base);
+        scenario.adjust(range("A1"), WhatIfScenario.Operation.ADD, 5d, base);
+        scenario.adjust(range("A2"), WhatIfScenario.Operation.MULTIPLY, 2d, base);
+
+        assertThat(adjusted).containsExactly(new CellReference(0, 0), new CellReference(1, 0));
+        CellValueSource view = scenario.over(base);
+        assertThat(view.getNumber(0, 0)).isCloseTo(115d, offset(1e-9));
+        assertThat(view.getNumber(1, 0)).isCloseTo(440d, offset(1e-9));
+        assertThat(scenario.getAdjustedCellCount()).isEqualTo(2);
+    }
+
+    @Test
+    void laterAdjustmentsKeepEarlierResults() {
+        WhatIfScenario scenario = new WhatIfScenario("s1", 1L, "涨价");
+        scenario.recalculate(graph, scenario.adjust(range("A1"), WhatIfScenario.Operation.SET, 150d, base),
+                recalculator, base);
+
+        List<Long> recalculated = scenario.recalculate(graph,
+                scenario.adjust(range("B1"), WhatIfScenario.Operation.SET, 9d, base), recalculator, base);
+
+        assertThat(recalculated).containsExactly(3L);
+        assertThat(scenario.getResults()).containsEntry(1L, 350d).containsEntry(2L, 700d).containsEntry(3L, 10d);
+        assertThat(scenario.getDeltaSize()).isEqualTo(5);
+    }
+
+    @Test
+    void rebuiltGraphRecalculatesAllAdjustments() {
+        WhatIfScenario scenario = new WhatIfScenario("s1", 1L, "涨价");
+        scenario.recalculate(graph, scenario.adjust(range("A1"), WhatIfScenario.Operation.SET, 150d, base),
+                recalculator, base);
+        List<CellReference> adjusted = scenario.adjust(range("B1"), WhatIfScenario.Operation.SET, 9d, base);
+
+        List<Long> recalculated = scenario.recalculate(buildGraph(), adjusted, recalculator, base);
+
+        assertThat(recalculated).containsExactlyInAnyOrder(1L, 2L, 3L);
+        assertThat(scenario.getResults()).containsOnlyKeys(1L, 2L, 3L);
+    }
+
+    @Test
+    void adjustmentsOutsideFormulaInputsRecalculateNothing() {
+        WhatIfScenario scenario = new WhatIfScenario("s1", 1L, "涨价");
+
+        List<CellReference> adjusted = scenario.adjust(range("Z9"), WhatIfScenario.Operation.SET, 1d, base);
+
+        assertThat(scenario.recalculate(graph, adjusted, recalculator, base)).isEmpty();
+        assertThat(scenario.recalculate(graph, Collections.emptyList(), recalculator, base)).isEmpty();
+        assertThat(scenario.getResults()).isEmpty();
+    }
+}
@@ -0,0 +1,216 @@
+package com.enterprise.brain.modules.smart-table.websocket;
+
+import com.enterprise.brain.modules.smart-table.dto.request.CellOperationMessage;
+import com.enterprise.brain.modules.smart-table.dto.request.CellUpdateRequest;
+import com.enterprise.brain.modules.smart-table.entity.TableColumn;
+import com.enterprise.brain.modules.smart-table.service.SmartTableService;
+import com.enterprise.brain.modules.smart-table.service.TableColumnService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 协同编辑排序测试：批次合并、列加载、跨节点归属
+ */
+class TableEditSequencerTest {
+
+    private static final Long TABLE_ID = 1L;
+    private static final long WAIT_MILLIS = 5000;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SmartTableService smartTableService = mock(SmartTableService.class);
+    private final TableColumnService tableColumnService = mock(TableColumnService.class);
+    /** 模拟Redis中的归属租约：键 -> 节点ID */
+    private final Map<String, String> leases = new ConcurrentHashMap<>();
+    private TableEditSequencer sequencer;
+
+    @BeforeEach
+    void setUp() {
+        when(tableColumnService.getColumnsByTableId(TABLE_ID)).thenReturn(List.of(column(11L, 1), column(12L, 2)));
+        when(smartTableService.applyCellUpdates(eq(TABLE_ID), anyList())).thenReturn(Map.of(
+                "written", 2, "rejectedCells", List.of(), "formulaResults", Map.of("formula_5", "3")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (sequencer != null) {
+            sequencer.destroy();
+        }
+    }
+
+    private TableEditSequencer sequencer(StringRedisTemplate redisTemplate) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (redisTemplate != null) {
+            beans.addBean("stringRedisTemplate", redisTemplate);
+        }
+        sequencer = new TableEditSequencer(smartTableService, tableColumnService, 50, 5000, 20000, 1, 5000, 524288,
+                beans.getBeanProvider(StringRedisTemplate.class), 15000);
+        return sequencer;
+    }
+
+    /**
+     * 用内存映射代替Redis执行归属脚本：声明脚本带节点ID和租约时长两个参数，释放脚本只带节点ID
+     */
+    private StringRedisTemplate fakeRedis() {
+        return mock(StringRedisTemplate.class, invocation -> {
+            if (!"execute".equals(invocation.getMethod().getName())) {
+                return null;
+            }
+            Object[] args = invocation.getArguments();
+            String key = ((List<?>) args[1]).get(0).toString();
+            String nodeId = args[2].toString();
+            if (args.length == 4) {
+                String owner = leases.putIfAbsent(key, nodeId);
+                return owner == null || owner.equals(nodeId) ? 1L : 0L;
+            }
+            return leases.remove(key, nodeId) ? 1L : 0L;
+        });
+    }
+
+    private static TableColumn column(Long id, int index) {
+        TableColumn column = new TableColumn();
+        column.setId(id);
+        column.setColumnIndex(index);
+        return column;
+    }
+
+    private static CellOperationMessage set(String cell, String value, long seq) {
+        CellOperationMessage operation = new CellOperationMessage();
+        operation.setOp("set");
+        operation.setCell(cell);
+        operation.setValue(value);
+        operation.setSeq(seq);
+        return operation;
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    /**
+     * 等待会话至少收到count条消息，返回按类型取出的最后一条
+     */
+    private static JsonNode lastMessage(WebSocketSession session, int count, String type) throws IOException {
+        ArgumentCaptor<WebSocketMessage<?>> captor = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session, timeout(WAIT_MILLIS).atLeast(count)).sendMessage(captor.capture());
+        JsonNode last = null;
+        for (WebSocketMessage<?> message : captor.getAllValues()) {
+            JsonNode node = objectMapper.readTree(message.getPayload().toString());
+            if (type.equals(node.path("type").asText())) {
+                last = node;
+            }
+        }
+        return last;
+    }
+
+    @Test
+    void operationsInOneBatchAreAppliedOnceWithTheLastWriteWinning() throws IOException {
+        TableEditSequencer sequencer = sequencer(null);
+        WebSocketSession first = session("s1");
+        WebSocketSession second = session("s2");
+        sequencer.join(TABLE_ID, first);
+        sequencer.join(TABLE_ID, second);
+
+        sequencer.submit(TABLE_ID, first, List.of(set("B2", "1", 1), set("C3", "x", 2)));
+        sequencer.submit(TABLE_ID, second, List.of(set("B2", "2", 7)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<CellUpdateRequest>> updates = ArgumentCaptor.forClass(List.class);
+        verify(smartTableService, timeout(WAIT_MILLIS)).applyCellUpdates(eq(TABLE_ID), updates.capture());
+        assertThat(updates.getValue()).extracting(CellUpdateRequest::getCellKey).containsExactly("B2", "C3");
+        assertThat(updates.getValue()).extracting(CellUpdateRequest::getCellValue).containsExactly("2", "x");
+        assertThat(updates.getValue()).extracting(CellUpdateRequest::getColumnId).containsExactly(11L, 12L);
+
+        JsonNode diff = lastMessage(second, 3, "diff");
+        assertThat(diff.path("cells").path("B2").asText()).isEqualTo("2");
+        assertThat(diff.path("formulas").path("formula_5").asText()).isEqualTo("3");
+        assertThat(lastMessage(first, 3, "ack").path("clientSeq").asLong()).isEqualTo(2);
+        assertThat(lastMessage(second, 3, "ack").path("clientSeq").asLong()).isEqualTo(7);
+    }
+
+    @Test
+    void unknownColumnsReloadTheColumnsAtMostOncePerBatch() throws IOException {
+        TableEditSequencer sequencer = sequencer(null);
+        WebSocketSession session = session("s1");
+        sequencer.join(TABLE_ID, session);
+
+        sequencer.submit(TABLE_ID, session, List.of(set("D1", "1", 1), set("E1", "1", 2), set("F1", "1", 3)));
+
+        JsonNode ack = lastMessage(session, 2, "ack");
+        assertThat(ack.path("rejected")).extracting(JsonNode::asText).containsExactly("D1", "E1", "F1");
+        verify(tableColumnService, times(1)).getColumnsByTableId(TABLE_ID);
+        verify(smartTableService, never()).applyCellUpdates(anyLong(), anyList());
+    }
+
+    @Test
+    void joiningATableOwnedByAnotherNodeIsRejected() throws IOException {
+        leases.put(TableChannelOwnership.KEY_PREFIX + TABLE_ID, "other-node");
+        TableEditSequencer sequencer = sequencer(fakeRedis());
+        WebSocketSession session = session("s1");
+
+        assertThat(sequencer.join(TABLE_ID, session)).isNull();
+
+        verify(session).close(TableEditSequencer.OWNED_ELSEWHERE);
+        assertThat(lastMessage(session, 1, "error").path("message").asText()).contains("another node");
+        verify(tableColumnService, never()).getColumnsByTableId(any());
+    }
+
+    @Test
+    void ownershipIsClaimedOnJoinAndReleasedAfterTheLastLeave() {
+        TableEditSequencer sequencer = sequencer(fakeRedis());
+        WebSocketSession session = session("s1");
+        String key = TableChannelOwnership.KEY_PREFIX + TABLE_ID;
+
+        sequencer.join(TABLE_ID, session);
+        assertThat(leases).containsKey(key);
+        sequencer.submit(TABLE_ID, session, List.of(set("B2", "1", 1)));
+        sequencer.leave(TABLE_ID, session);
+
+        verify(smartTableService, timeout(WAIT_MILLIS)).applyCellUpdates(eq(TABLE_ID), anyList());
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (leases.containsKey(key) && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(leases).doesNotContainKey(key);
+    }
+
+    @Test
+    void operationsFromSessionsThatDidNotJoinAreRejected() throws IOException {
+        TableEditSequencer sequencer = sequencer(null);
+        WebSocketSession session = session("s1");
+
+        sequencer.submit(TABLE_ID, session, new ArrayList<>(List.of(set("B2", "1", 1))));
+
+        assertThat(lastMessage(session, 1, "error").path("message").asText()).contains("Not joined");
+        verify(session, never()).close(any(CloseStatus.class));
+    }
+}